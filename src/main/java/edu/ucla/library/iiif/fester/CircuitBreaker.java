@@ -0,0 +1,291 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A circuit breaker for calls to a remote server. The outcomes and latencies of the most recent calls are kept in a
+ * sliding window; once there are enough of them, the breaker opens if too many have failed or if the 99th percentile
+ * of their latencies is too high. While it's open, calls are turned away so they can fail fast. After a reset
+ * timeout, the breaker is half-open: a single probe call is let through, which closes the breaker if it succeeds or
+ * opens it again if it fails.
+ * <p>
+ * The breaker also suggests how long a call should be allowed to take: a multiple of the 99th percentile latency of
+ * the recent successful calls, kept within fixed bounds. The breaker is thread-safe, so it can be shared by verticles
+ * that run on different contexts.
+ * </p>
+ */
+public class CircuitBreaker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class, Constants.MESSAGES);
+
+    private static final int MIN_CALLS = 10;
+
+    private static final int MAX_TRANSITIONS = 10;
+
+    private static final double PERCENTILE = 0.99D;
+
+    private static final long TIMEOUT_MULTIPLIER = 3;
+
+    /* The transitions from one state to another, most recent last */
+    private final Deque<JsonObject> myTransitions = new ArrayDeque<>();
+
+    private final String myName;
+
+    private final long[] myLatencies;
+
+    private final boolean[] myFailures;
+
+    private final double myMaxFailureRate;
+
+    private final long myMaxLatency;
+
+    private final long myResetTimeout;
+
+    private final long myMinTimeout;
+
+    private final long myMaxTimeout;
+
+    private State myState = State.CLOSED;
+
+    /* The position in the sliding window that the next call's outcome is written to */
+    private int myIndex;
+
+    private int myCallCount;
+
+    private long myOpenedAt;
+
+    private boolean isProbing;
+
+    private long myOpenedCount;
+
+    private long myRejectedCount;
+
+    /**
+     * The states a circuit breaker can be in.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Creates a new circuit breaker.
+     *
+     * @param aName The name of the server the breaker protects, for logging
+     * @param aWindowSize The number of recent calls whose outcomes are kept
+     * @param aMaxFailureRate The fraction of recent calls that can fail before the breaker opens
+     * @param aMaxLatency The 99th percentile latency of recent calls, in milliseconds, above which the breaker opens
+     * @param aResetTimeout How long the breaker stays open before a probe call is let through, in milliseconds
+     * @param aMinTimeout The shortest timeout the breaker will suggest, in milliseconds
+     * @param aMaxTimeout The longest timeout the breaker will suggest, in milliseconds
+     */
+    public CircuitBreaker(final String aName, final int aWindowSize, final double aMaxFailureRate,
+            final long aMaxLatency, final long aResetTimeout, final long aMinTimeout, final long aMaxTimeout) {
+        myName = aName;
+        myLatencies = new long[Math.max(MIN_CALLS, aWindowSize)];
+        myFailures = new boolean[myLatencies.length];
+        myMaxFailureRate = aMaxFailureRate;
+        myMaxLatency = Math.max(1, aMaxLatency);
+        myResetTimeout = Math.max(0, aResetTimeout);
+        myMinTimeout = Math.max(1, aMinTimeout);
+        myMaxTimeout = Math.max(myMinTimeout, aMaxTimeout);
+    }
+
+    /**
+     * Asks whether a call may be made. A call that's allowed must have its outcome reported with
+     * {@link #onSuccess(long)} or {@link #onFailure(long)}.
+     *
+     * @return True if the call may be made; false if it should fail fast
+     */
+    public synchronized boolean tryAcquire() {
+        if (myState == State.OPEN && System.currentTimeMillis() - myOpenedAt >= myResetTimeout) {
+            transition(State.HALF_OPEN);
+        }
+
+        if (myState == State.CLOSED) {
+            return true;
+        } else if (myState == State.HALF_OPEN && !isProbing) {
+            isProbing = true;
+            return true;
+        } else {
+            myRejectedCount += 1;
+            return false;
+        }
+    }
+
+    /**
+     * Reports that a call succeeded.
+     *
+     * @param aLatency How long the call took, in milliseconds
+     */
+    public synchronized void onSuccess(final long aLatency) {
+        if (myState == State.HALF_OPEN) {
+            clear();
+            record(aLatency, false);
+            transition(State.CLOSED);
+        } else if (myState == State.CLOSED) {
+            record(aLatency, false);
+            check();
+        } // Calls that were made before the breaker opened don't change anything
+    }
+
+    /**
+     * Reports that a call failed, either because the server couldn't be reached, didn't answer in time, or answered
+     * with a server error.
+     *
+     * @param aLatency How long the call took, in milliseconds
+     */
+    public synchronized void onFailure(final long aLatency) {
+        if (myState == State.HALF_OPEN) {
+            open();
+        } else if (myState == State.CLOSED) {
+            record(aLatency, true);
+            check();
+        }
+    }
+
+    /**
+     * Gets the breaker's state.
+     *
+     * @return The state of the breaker
+     */
+    public synchronized State getState() {
+        if (myState == State.OPEN && System.currentTimeMillis() - myOpenedAt >= myResetTimeout) {
+            return State.HALF_OPEN; // It will be half-open for the next call
+        }
+
+        return myState;
+    }
+
+    /**
+     * Gets how long a call should be allowed to take: three times the 99th percentile latency of the recent
+     * successful calls, within the breaker's bounds. Until there have been enough successful calls to go on, the
+     * longest timeout is used.
+     *
+     * @return A timeout in milliseconds
+     */
+    public synchronized long getTimeout() {
+        final long p99 = getPercentile(false);
+
+        if (p99 < 0) {
+            return myMaxTimeout;
+        }
+
+        return Math.max(myMinTimeout, Math.min(myMaxTimeout, p99 * TIMEOUT_MULTIPLIER));
+    }
+
+    /**
+     * Gets the breaker's state and its recent transitions from one state to another.
+     *
+     * @return The breaker's statistics
+     */
+    public synchronized JsonObject getStats() {
+        final int calls = Math.min(myCallCount, myLatencies.length);
+
+        return new JsonObject().put(Status.STATE, getState().name()).put(Status.CALLS, calls)
+                .put(Status.FAILURE_RATE, getFailureRate()).put(Status.P99_LATENCY, Math.max(0, getPercentile(true)))
+                .put(Status.TIMEOUT, getTimeout()).put(Status.OPENED, myOpenedCount)
+                .put(Status.REJECTED, myRejectedCount).put(Status.TRANSITIONS, new JsonArray(new ArrayList<>(
+                        myTransitions)));
+    }
+
+    /**
+     * Opens the breaker if there have been enough recent calls and too many of them failed or were too slow.
+     */
+    private void check() {
+        if (myCallCount >= MIN_CALLS) {
+            final double failureRate = getFailureRate();
+            final long p99 = getPercentile(true);
+
+            if (failureRate >= myMaxFailureRate || p99 > myMaxLatency) {
+                LOGGER.warn(MessageCodes.MFS_219, myName, failureRate, p99, myResetTimeout);
+                open();
+            }
+        }
+    }
+
+    private void open() {
+        myOpenedAt = System.currentTimeMillis();
+        myOpenedCount += 1;
+        transition(State.OPEN);
+    }
+
+    private void transition(final State aState) {
+        if (aState != State.HALF_OPEN) {
+            isProbing = false;
+        }
+
+        if (aState != myState) {
+            LOGGER.info(MessageCodes.MFS_220, myName, myState, aState);
+
+            myTransitions.addLast(new JsonObject().put(Status.FROM, myState.name()).put(Status.TO, aState.name())
+                    .put(Status.AT, Instant.now().toString()));
+
+            if (myTransitions.size() > MAX_TRANSITIONS) {
+                myTransitions.removeFirst();
+            }
+
+            myState = aState;
+        }
+    }
+
+    private void record(final long aLatency, final boolean aFailure) {
+        myLatencies[myIndex] = Math.max(0, aLatency);
+        myFailures[myIndex] = aFailure;
+        myIndex = (myIndex + 1) % myLatencies.length;
+        myCallCount += 1;
+    }
+
+    private void clear() {
+        myIndex = 0;
+        myCallCount = 0;
+    }
+
+    private double getFailureRate() {
+        final int calls = Math.min(myCallCount, myLatencies.length);
+        int failures = 0;
+
+        for (int index = 0; index < calls; index++) {
+            if (myFailures[index]) {
+                failures += 1;
+            }
+        }
+
+        return calls == 0 ? 0D : (double) failures / calls;
+    }
+
+    /**
+     * Gets the 99th percentile latency of the calls in the sliding window.
+     *
+     * @param aIncludeFailures Whether the latencies of failed calls are included
+     * @return A latency in milliseconds, or -1 if there haven't been enough calls
+     */
+    private long getPercentile(final boolean aIncludeFailures) {
+        final int calls = Math.min(myCallCount, myLatencies.length);
+        final long[] latencies = new long[calls];
+        int count = 0;
+
+        for (int index = 0; index < calls; index++) {
+            if (aIncludeFailures || !myFailures[index]) {
+                latencies[count++] = myLatencies[index];
+            }
+        }
+
+        if (count < MIN_CALLS) {
+            return -1;
+        }
+
+        Arrays.sort(latencies, 0, count);
+        return latencies[(int) Math.ceil(PERCENTILE * count) - 1];
+    }
+}
@@ -0,0 +1,124 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Limits how many tasks can be in flight at once. Tasks beyond the limit wait in a queue until an earlier task has
+ * finished. Unlike the {@link S3WriteScheduler}, the limiter is thread-safe, so it can be shared by verticles that run
+ * on different contexts; a queued task is always started on the context it was submitted from.
+ */
+public class ConcurrencyLimiter {
+
+    private final Queue<Runnable> myQueue = new ArrayDeque<>();
+
+    private final Vertx myVertx;
+
+    private final int myMaxInFlight;
+
+    private int myInFlightCount;
+
+    private long myCompletedCount;
+
+    private long myQueuedCount;
+
+    /**
+     * Creates a new concurrency limiter.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aMaxInFlight The maximum number of tasks that can be in flight at once
+     */
+    public ConcurrencyLimiter(final Vertx aVertx, final int aMaxInFlight) {
+        myVertx = aVertx;
+        myMaxInFlight = Math.max(1, aMaxInFlight);
+    }
+
+    /**
+     * Submits a task to the limiter. The task is started once there is room for it; it should complete or fail the
+     * promise it's given when it's done.
+     *
+     * @param <T> The type of the task's result
+     * @param aTask A task
+     * @return A future with the task's result
+     */
+    public <T> Future<T> submit(final Handler<Promise<T>> aTask) {
+        final Promise<T> promise = Promise.promise();
+        final Context context = myVertx.getOrCreateContext();
+        final boolean isStartable;
+
+        synchronized (this) {
+            isStartable = myInFlightCount < myMaxInFlight;
+
+            if (isStartable) {
+                myInFlightCount += 1;
+            } else {
+                myQueuedCount += 1;
+                myQueue.add(() -> context.runOnContext(start -> start(aTask, promise)));
+            }
+        }
+
+        if (isStartable) {
+            start(aTask, promise);
+        }
+
+        return promise.future();
+    }
+
+    /**
+     * Gets the number of tasks that are in flight.
+     *
+     * @return The number of in-flight tasks
+     */
+    public synchronized int getInFlightCount() {
+        return myInFlightCount;
+    }
+
+    /**
+     * Gets statistics about the limiter's tasks.
+     *
+     * @return The limiter's statistics
+     */
+    public synchronized JsonObject getStats() {
+        return new JsonObject().put(Status.IN_FLIGHT, myInFlightCount).put(Status.MAX_IN_FLIGHT, myMaxInFlight)
+                .put(Status.QUEUED, myQueue.size()).put(Status.COMPLETED, myCompletedCount)
+                .put(Status.WAITED, myQueuedCount);
+    }
+
+    private <T> void start(final Handler<Promise<T>> aTask, final Promise<T> aPromise) {
+        final Promise<T> promise = Promise.promise();
+
+        promise.future().onComplete(result -> {
+            final Runnable next;
+
+            // The task's place in the window is handed straight to the next queued task, if there is one
+            synchronized (this) {
+                myCompletedCount += 1;
+                next = myQueue.poll();
+
+                if (next == null) {
+                    myInFlightCount -= 1;
+                }
+            }
+
+            aPromise.handle(result);
+
+            if (next != null) {
+                next.run();
+            }
+        });
+
+        try {
+            aTask.handle(promise);
+        } catch (final RuntimeException details) {
+            promise.tryFail(details);
+        }
+    }
+}
@@ -30,12 +30,150 @@ public final class Config {
     /* The base IIIF server URL that is used to get width and height for canvases */
     public static final String IIIF_BASE_URL = "iiif.base.url";
 
+    /* The longest an image width and height lookup may take before it's abandoned (in milliseconds) */
+    public static final String IIIF_LOOKUP_TIMEOUT = "fester.iiif.lookup.timeout";
+
+    /* The maximum number of pooled connections to each image host used for image width and height lookups */
+    public static final String IIIF_LOOKUP_POOL_SIZE = "fester.iiif.lookup.pool.size";
+
+    /* Whether image width and height lookups ask for HTTP/2 (h2 over TLS, or h2c by upgrade), falling back to 1.1 */
+    public static final String IIIF_LOOKUP_HTTP2 = "fester.iiif.lookup.http2";
+
+    /* The number of HTTP/2 connections image width and height lookups keep to each image host */
+    public static final String IIIF_LOOKUP_HTTP2_POOL_SIZE = "fester.iiif.lookup.http2.pool.size";
+
+    /* The number of image width and height lookups that can share one HTTP/2 connection */
+    public static final String IIIF_LOOKUP_HTTP2_MULTIPLEXING_LIMIT = "fester.iiif.lookup.http2.multiplexing.limit";
+
+    /* The shortest timeout an image width and height lookup is given, however fast the image server is (in ms) */
+    public static final String IIIF_LOOKUP_MIN_TIMEOUT = "fester.iiif.lookup.min.timeout";
+
+    /* The number of recent image server calls the image server's circuit breaker judges its health by */
+    public static final String IIIF_BREAKER_WINDOW = "fester.iiif.breaker.window";
+
+    /* The fraction of recent image server calls that can fail before the image server's circuit breaker opens */
+    public static final String IIIF_BREAKER_FAILURE_RATE = "fester.iiif.breaker.failure.rate";
+
+    /* The p99 latency of recent image server calls above which its circuit breaker opens (in milliseconds) */
+    public static final String IIIF_BREAKER_MAX_LATENCY = "fester.iiif.breaker.max.latency";
+
+    /* How long the image server's circuit breaker stays open before it lets a probe through (in milliseconds) */
+    public static final String IIIF_BREAKER_RESET_TIMEOUT = "fester.iiif.breaker.reset.timeout";
+
+    /* The maximum number of image width and height lookups in flight to the image server at once, across all works */
+    public static final String IIIF_LOOKUP_MAX_CONCURRENCY = "fester.iiif.lookup.max.concurrency";
+
+    /* The maximum number of image width and height lookups in flight at once for a single work */
+    public static final String IIIF_LOOKUP_WORK_CONCURRENCY = "fester.iiif.lookup.work.concurrency";
+
+    /* The maximum number of image width and height lookups a CSV upload prefetches at once (zero turns it off) */
+    public static final String IIIF_PREFETCH_CONCURRENCY = "fester.iiif.prefetch.concurrency";
+
+    /* How many bytes of heap a CSV upload's pages can take up before they're spilled to disk (zero is unlimited) */
+    public static final String CSV_PAGE_HEAP_BUDGET = "fester.csv.page.heap.budget";
+
+    /* The maximum number of works sent to be built at once when a CSV upload's pages have been spilled to disk */
+    public static final String CSV_SPILLED_WORK_CONCURRENCY = "fester.csv.spilled.work.concurrency";
+
+    /* The maximum number of stored manifests that are read at once when harvesting image widths and heights */
+    public static final String IIIF_HARVEST_CONCURRENCY = "fester.iiif.harvest.concurrency";
+
+    /* The number of bytes of a static image that are fetched to read its width and height from its header */
+    public static final String STATIC_IMAGE_PROBE_LENGTH = "fester.static.image.probe.length";
+
+    /* The most bytes of a static image that will be fetched, for JPEGs whose header is after a lot of metadata */
+    public static final String STATIC_IMAGE_PROBE_MAX_LENGTH = "fester.static.image.probe.max.length";
+
+    /* The file the widths and heights of looked up images are kept in, so they survive restarts */
+    public static final String IMAGE_INFO_CACHE_PATH = "fester.image.info.cache.path";
+
+    /* The number of slots the image info cache's file starts with (it grows as needed) */
+    public static final String IMAGE_INFO_CACHE_SIZE = "fester.image.info.cache.size";
+
+    /* The number of recently used image widths and heights that are also kept on the heap */
+    public static final String IMAGE_INFO_CACHE_LRU_ENTRIES = "fester.image.info.cache.lru.entries";
+
     /* The placeholder image URL, used for images that are missing */
     public static final String PLACEHOLDER_IMAGE = "fester.placeholder.url";
 
     /* The S3 endpoint that's used when storing and retrieving manifests */
     public static final String S3_ENDPOINT = "fester.s3.endpoint";
 
+    /* The maximum size (in megabytes) of the in-memory cache of manifests and collection docs read from S3 */
+    public static final String S3_CACHE_SIZE = "fester.s3.cache.size";
+
+    /* The number of seconds a manifest or collection doc may stay in the in-memory cache */
+    public static final String S3_CACHE_TTL = "fester.s3.cache.ttl";
+
+    /* The maximum number of missing manifest and collection doc keys that are remembered */
+    public static final String S3_NOT_FOUND_CACHE_SIZE = "fester.s3.not.found.cache.size";
+
+    /* The number of seconds a missing manifest or collection doc is remembered as missing */
+    public static final String S3_NOT_FOUND_CACHE_TTL = "fester.s3.not.found.cache.ttl";
+
+    /* Whether unconditional manifest and collection doc GETs are streamed straight from S3 to the client */
+    public static final String S3_STREAMING = "fester.s3.streaming";
+
+    /* How stored manifests and collection docs are compressed: "gzip" or "none" */
+    public static final String S3_COMPRESSION = "fester.s3.compression";
+
+    /* The maximum number of S3 writes that can be in flight at once */
+    public static final String S3_WRITE_CONCURRENCY = "fester.s3.write.concurrency";
+
+    /* The maximum number of S3 writes that can wait for a place in the in-flight window */
+    public static final String S3_WRITE_QUEUE = "fester.s3.write.queue";
+
+    /* How long an S3 write can wait for a place in the in-flight window before it's turned away (in milliseconds) */
+    public static final String S3_WRITE_MAX_QUEUE_WAIT = "fester.s3.write.max.queue.wait";
+
+    /* The backoff delay before the first retry of a failed S3 write (in milliseconds) */
+    public static final String S3_WRITE_BACKOFF = "fester.s3.write.backoff";
+
+    /* The maximum backoff delay before the retry of a failed S3 write (in milliseconds) */
+    public static final String S3_WRITE_MAX_BACKOFF = "fester.s3.write.max.backoff";
+
+    /* The factor by which the backoff delay grows with each failed S3 write */
+    public static final String S3_WRITE_BACKOFF_MULTIPLIER = "fester.s3.write.backoff.multiplier";
+
+    /* The number of failed attempts after which an S3 write isn't retried */
+    public static final String S3_RETRY_MAX_ATTEMPTS = "fester.s3.retry.max.attempts";
+
+    /* A comma-delimited list of the S3 response codes that are worth retrying */
+    public static final String S3_RETRY_STATUS_CODES = "fester.s3.retry.status.codes";
+
+    /* The maximum number of manifests whose failed S3 writes are tracked at once */
+    public static final String S3_RETRY_ENTRIES = "fester.s3.retry.entries";
+
+    /* How long a manifest's failed S3 writes are remembered after its last failure (in seconds) */
+    public static final String S3_RETRY_TTL = "fester.s3.retry.ttl";
+
+    /* Whether HTTP responses are compressed for clients that accept a compressed content-coding */
+    public static final String HTTP_COMPRESSION = "fester.http.compression";
+
+    /* The maximum number of connections in the shared S3 client's pool */
+    public static final String S3_POOL_SIZE = "fester.s3.pool.size";
+
+    /* The maximum number of S3 requests that can wait for a pooled connection (-1 for no limit) */
+    public static final String S3_POOL_WAIT_QUEUE = "fester.s3.pool.wait.queue";
+
+    /* Whether pooled S3 connections are kept alive between requests */
+    public static final String S3_POOL_KEEP_ALIVE = "fester.s3.pool.keep.alive";
+
+    /* How long a pooled S3 connection can sit idle before it's closed (in seconds) */
+    public static final String S3_POOL_IDLE_TIMEOUT = "fester.s3.pool.idle.timeout";
+
+    /* Whether S3 requests are pipelined on pooled connections */
+    public static final String S3_POOL_PIPELINING = "fester.s3.pool.pipelining";
+
+    /* The storage backend that manifests and collection docs are kept in: "s3" or "filesystem" */
+    public static final String STORAGE = "fester.storage";
+
+    /* The directory the file system storage backend keeps its objects in */
+    public static final String STORAGE_PATH = "fester.storage.path";
+
+    /* The maximum number of objects the file system storage backend keeps memory-mapped */
+    public static final String STORAGE_MAPPED_ENTRIES = "fester.storage.mapped.entries";
+
     /* Config property for turning logs on while running in test mode */
     public static final String LOGS_ON = "fester.logs.output";
 
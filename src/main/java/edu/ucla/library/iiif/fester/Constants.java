@@ -47,6 +47,11 @@ public final class Constants {
      */
     public static final String COLLECTION_NAME = "collectionName";
 
+    /**
+     * The name of the image URL parameter.
+     */
+    public static final String IMAGE_URL = "imageURL";
+
     /**
      * The content-type header key.
      */
@@ -82,6 +87,51 @@ public final class Constants {
      */
     public static final String ZIP_MEDIA_TYPE = "application/zip";
 
+    /**
+     * The ETag header key.
+     */
+    public static final String ETAG = "ETag";
+
+    /**
+     * The Last-Modified header key.
+     */
+    public static final String LAST_MODIFIED = "Last-Modified";
+
+    /**
+     * The Date header key.
+     */
+    public static final String DATE = "Date";
+
+    /**
+     * The If-None-Match header key.
+     */
+    public static final String IF_NONE_MATCH = "If-None-Match";
+
+    /**
+     * The If-Modified-Since header key.
+     */
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    /**
+     * The Content-Encoding header key.
+     */
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+
+    /**
+     * The Accept-Encoding header key.
+     */
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    /**
+     * The Vary header key.
+     */
+    public static final String VARY = "Vary";
+
+    /**
+     * Used as a message header when the S3 bucket verticle finds the requester's copy of a resource is still current.
+     */
+    public static final String NOT_MODIFIED = "not-modified";
+
     /**
      * COR header for allowing access to our manifests to the world.
      */
@@ -158,6 +208,17 @@ public final class Constants {
      */
     public static final String NO_REWRITE_URLS = "no-rewrite-urls";
 
+    /**
+     * Used as a message header when the sender only wants a resource if the S3 bucket verticle has it in memory.
+     */
+    public static final String CACHED_ONLY = "cached-only";
+
+    /**
+     * Used as a message header when the S3 bucket verticle doesn't have a resource in memory. Its value is the
+     * verticle's write count, which the sender passes back if it finds the resource isn't in S3.
+     */
+    public static final String NOT_CACHED = "not-cached";
+
     /**
      * A unique random placeholder URL that prefixes all IIIF Presentation API resource URLs in all manifests at rest in
      * S3. It gets replaced with Constants.URL on each GET request.
@@ -209,11 +270,6 @@ public final class Constants {
      */
     public static final String WAIT_COUNT = "wait-count";
 
-    /**
-     * A name for the S3 request counter.
-     */
-    public static final String S3_REQUEST_COUNT = "s3-request-count";
-
     /**
      * Manifest content, stored as a JSON object.
      */
@@ -224,16 +280,6 @@ public final class Constants {
      */
     public static final String COLLECTION_CONTENT = "collection-content";
 
-    /**
-     * Updates to manifest or collection content, stored as a string array.
-     */
-    public static final String UPDATED_CONTENT = "updated-content";
-
-    /**
-     * Manifest pages, stored in list form.
-     */
-    public static final String MANIFEST_PAGES = "manifest-pages";
-
     /**
      * The placeholder image property name.
      */
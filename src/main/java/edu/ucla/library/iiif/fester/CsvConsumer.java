@@ -0,0 +1,74 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.util.List;
+
+/**
+ * A consumer of the collection, works and pages of a CSV file, which are handed over as they're parsed. Rows reach
+ * the consumer after they've been validated and trimmed; a consumer that doesn't keep them leaves the parser holding
+ * no more than the pages of one work at a time. The methods do nothing by default, so a consumer only has to
+ * implement the ones it's interested in.
+ */
+public interface CsvConsumer {
+
+    /**
+     * Accepts the CSV's collection row.
+     *
+     * @param aRow The collection's row
+     */
+    default void acceptCollection(final String[] aRow) {
+        // This is intentionally left empty.
+    }
+
+    /**
+     * Accepts a work row.
+     *
+     * @param aCollectionID The ID of the collection the work belongs to
+     * @param aRow The work's row
+     */
+    default void acceptWork(final String aCollectionID, final String[] aRow) {
+        // This is intentionally left empty.
+    }
+
+    /**
+     * Accepts a run of consecutive page rows that belong to the same work. The pages of a work whose rows are spread
+     * out across the CSV are accepted in more than one run.
+     *
+     * @param aWorkID The ID of the work the pages belong to
+     * @param aPages The pages' rows, in the order they're in in the CSV
+     */
+    default void acceptPages(final String aWorkID, final List<String[]> aPages) {
+        // This is intentionally left empty.
+    }
+
+    /**
+     * Gets a consumer that hands everything to this consumer and then to the supplied one.
+     *
+     * @param aNext A consumer to hand everything to after this one
+     * @return A consumer that hands everything to both consumers
+     */
+    default CsvConsumer andThen(final CsvConsumer aNext) {
+        final CsvConsumer first = this;
+
+        return new CsvConsumer() {
+
+            @Override
+            public void acceptCollection(final String[] aRow) {
+                first.acceptCollection(aRow);
+                aNext.acceptCollection(aRow);
+            }
+
+            @Override
+            public void acceptWork(final String aCollectionID, final String[] aRow) {
+                first.acceptWork(aCollectionID, aRow);
+                aNext.acceptWork(aCollectionID, aRow);
+            }
+
+            @Override
+            public void acceptPages(final String aWorkID, final List<String[]> aPages) {
+                first.acceptPages(aWorkID, aPages);
+                aNext.acceptPages(aWorkID, aPages);
+            }
+        };
+    }
+}
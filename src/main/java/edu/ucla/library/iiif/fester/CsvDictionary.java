@@ -0,0 +1,114 @@
+
+package edu.ucla.library.iiif.fester;
+
+import static edu.ucla.library.iiif.fester.Constants.EMPTY;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A dictionary of the values in a CSV's columns, which lasts for a single parse. A value that repeats down a column,
+ * like a parent ARK, an object type, a repository name or a rights statement, is kept once and shared by every row
+ * that has it, so a row's cells end up as references into the dictionary. Empty cells all share the same empty value.
+ * <p>
+ * A column whose values turn out to be mostly unique, like the item ARKs or the titles, stops being looked up once
+ * that's clear, so the dictionary only grows with the values that are actually shared. This isn't thread-safe.
+ * </p>
+ */
+final class CsvDictionary {
+
+    /* The number of values a column has to have before it's checked for how many of them repeat */
+    private static final int SAMPLE_SIZE = 1000;
+
+    /* A column whose sampled values are more than this percent distinct isn't worth keeping a dictionary for */
+    private static final int MAX_DISTINCT_PERCENT = 50;
+
+    /* The most values that will be kept for any one column */
+    private static final int MAX_COLUMN_SIZE = 65_536;
+
+    private final List<Column> myColumns = new ArrayList<>();
+
+    /**
+     * Replaces the values in a row with the dictionary's copies of them.
+     *
+     * @param aRow A CSV row
+     * @return The row
+     */
+    String[] intern(final String... aRow) {
+        for (int index = 0; index < aRow.length; index++) {
+            aRow[index] = intern(index, aRow[index]);
+        }
+
+        return aRow;
+    }
+
+    /**
+     * Gets the dictionary's copy of a value, adding it to the dictionary if it's not there yet.
+     *
+     * @param aColumn The index of the column the value is in
+     * @param aValue A value
+     * @return The dictionary's copy of the value
+     */
+    String intern(final int aColumn, final String aValue) {
+        if (aValue == null) {
+            return null;
+        }
+
+        if (aValue.isEmpty()) {
+            return EMPTY;
+        }
+
+        while (myColumns.size() <= aColumn) {
+            myColumns.add(new Column());
+        }
+
+        return myColumns.get(aColumn).intern(aValue);
+    }
+
+    /**
+     * Gets the number of values in the dictionary.
+     *
+     * @return The number of values in the dictionary
+     */
+    int size() {
+        return myColumns.stream().mapToInt(column -> column.myValues == null ? 0 : column.myValues.size()).sum();
+    }
+
+    /**
+     * Empties the dictionary.
+     */
+    void clear() {
+        myColumns.clear();
+    }
+
+    /**
+     * The values that have been seen in a single column.
+     */
+    private static final class Column {
+
+        private Map<String, String> myValues = new HashMap<>();
+
+        private int myCount;
+
+        private String intern(final String aValue) {
+            final String value;
+
+            if (myValues == null) {
+                return aValue;
+            }
+
+            value = myValues.putIfAbsent(aValue, aValue);
+            myCount += 1;
+
+            // Values that don't repeat would only be kept twice over, so stop looking them up
+            if (myCount == SAMPLE_SIZE && myValues.size() * 100 > SAMPLE_SIZE * MAX_DISTINCT_PERCENT ||
+                    myValues.size() > MAX_COLUMN_SIZE) {
+                myValues = null;
+            }
+
+            return value == null ? aValue : value;
+        }
+    }
+}
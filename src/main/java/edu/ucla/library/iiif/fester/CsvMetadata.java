@@ -1,20 +1,24 @@
 
 package edu.ucla.library.iiif.fester;
 
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
 
 /**
- * Processed metadata from a supplied CSV file.
+ * Processed metadata from a supplied CSV file. The pages are kept in a {@link PageStore}, which may have spilled some
+ * of them to disk, so they're best got a work at a time.
  */
-public class CsvMetadata {
+public class CsvMetadata implements AutoCloseable {
 
     private final Map<String, List<String[]>> myWorksMap;
 
-    private final Map<String, List<String[]>> myPagesMap;
+    private final PageStore myPages;
 
     private final List<String[]> myWorksList;
 
@@ -23,13 +27,13 @@ public class CsvMetadata {
      *
      * @param aWorksMap A map of metadata for works stored in a collection document
      * @param aWorksList A list of works metadata
-     * @param aPagesMap A map of pages metadata
+     * @param aPages A store of pages metadata
      */
     public CsvMetadata(final Map<String, List<String[]>> aWorksMap, final List<String[]> aWorksList,
-            final Map<String, List<String[]>> aPagesMap) {
+            final PageStore aPages) {
         myWorksMap = aWorksMap;
         myWorksList = aWorksList;
-        myPagesMap = aPagesMap;
+        myPages = aPages;
     }
 
     /**
@@ -74,12 +78,45 @@ public class CsvMetadata {
     }
 
     /**
-     * Gets the metadata for the manifest pages.
+     * Gets the metadata for the manifest pages. This reads all the pages back into the heap, including any that have
+     * been spilled to disk, so {@link #getPages(String)} or {@link #getPageIterator()} should be used instead where
+     * the pages might not fit.
      *
      * @return The metadata for the manifest pages
      */
     public Map<String, List<String[]>> getPagesMap() {
-        return myPagesMap;
+        final Map<String, List<String[]>> pagesMap = new LinkedHashMap<>();
+
+        myPages.getWorkIDs().forEach(workID -> pagesMap.put(workID, myPages.get(workID)));
+        return pagesMap;
+    }
+
+    /**
+     * Gets the metadata for a work's pages.
+     *
+     * @param aWorkID A work ID
+     * @return The metadata for the work's pages, or null if the work doesn't have any
+     */
+    public List<String[]> getPages(final String aWorkID) {
+        return myPages.get(aWorkID);
+    }
+
+    /**
+     * Gets the IDs of the works that have pages, in the order their first pages are in in the CSV.
+     *
+     * @return The IDs of the works that have pages
+     */
+    public Set<String> getPageWorkIDs() {
+        return myPages.getWorkIDs();
+    }
+
+    /**
+     * Gets the number of pages in the CSV metadata.
+     *
+     * @return The number of pages
+     */
+    public int getPageCount() {
+        return myPages.getPageCount();
     }
 
     /**
@@ -88,15 +125,47 @@ public class CsvMetadata {
      * @return True if pages are found; else, false
      */
     public boolean hasPages() {
-        return myPagesMap.size() > 0;
+        return myPages.size() > 0;
+    }
+
+    /**
+     * Tests whether some of the pages have been spilled to disk because they'd have taken up too much heap.
+     *
+     * @return True if pages have been spilled to disk; else, false
+     */
+    public boolean hasSpilledPages() {
+        return myPages.isSpilled();
     }
 
     /**
-     * Returns an page iterator that has the work ID as the entry key.
+     * Returns an page iterator that has the work ID as the entry key. A work's pages are only read when its entry is
+     * reached, so the pages that have been spilled to disk are read back a work at a time.
      *
      * @return A page iterator
      */
     public Iterator<Entry<String, List<String[]>>> getPageIterator() {
-        return myPagesMap.entrySet().iterator();
+        final Iterator<String> workIDs = myPages.getWorkIDs().iterator();
+
+        return new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                return workIDs.hasNext();
+            }
+
+            @Override
+            public Entry<String, List<String[]>> next() {
+                final String workID = workIDs.next();
+                return new SimpleImmutableEntry<>(workID, myPages.get(workID));
+            }
+        };
+    }
+
+    /**
+     * Closes the CSV metadata's page store, deleting any pages that were spilled to disk.
+     */
+    @Override
+    public void close() {
+        myPages.close();
     }
 }
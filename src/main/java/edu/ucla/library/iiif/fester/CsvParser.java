@@ -11,8 +11,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -43,25 +41,48 @@ public class CsvParser {
 
     private final Map<String, List<String[]>> myWorksMap = new HashMap<>();
 
-    private final Map<String, List<String[]>> myPagesMap = new LinkedHashMap<>();
-
     private final List<String[]> myWorksList = new ArrayList<>();
 
+    private final List<String[]> myPageRun = new ArrayList<>();
+
+    private final CsvDictionary myDictionary = new CsvDictionary();
+
+    private final long myPageHeapBudget;
+
+    private PageStore myPages = new PageStore();
+
+    private String myPageRunWorkID;
+
+    private int myPageRunCount;
+
     private String[] myCollectionData;
 
     private CsvHeaders myCsvHeaders;
 
     /**
-     * Creates a new CsvParser.
+     * Creates a new CsvParser that keeps all of a CSV's pages in the heap.
      */
     public CsvParser() {
-        // This is intentionally left empty.
+        this(PageStore.UNLIMITED);
     }
 
     /**
-     * Parses the CSV file at the supplied path. This is not thread-safe. Optional CSV columns: IIIF Access URL, Item
-     * Sequence (if the CSV contains no page rows), viewingHint, viewingDirection, Name.repository,
-     * Rights.statementLocal, Rights.servicesContact,
+     * Creates a new CsvParser that spills a CSV's pages to disk once they'd take up more than the supplied number of
+     * bytes of heap.
+     *
+     * @param aPageHeapBudget The number of bytes of heap a CSV's pages can take up before they're spilled to disk
+     */
+    public CsvParser(final long aPageHeapBudget) {
+        myPageHeapBudget = aPageHeapBudget;
+    }
+
+    /**
+     * Parses the CSV file at the supplied path, keeping its collection, works and pages so they can be got from
+     * {@link #getCsvMetadata()}. The pages are spilled to disk if they'd take up more than the parser's heap budget,
+     * and the CSV metadata should be closed once it's no longer needed so that they're deleted. This is not
+     * thread-safe. Optional CSV columns: IIIF Access URL, Item Sequence
+     * (if the CSV contains no page rows), viewingHint, viewingDirection, Name.repository, Rights.statementLocal,
+     * Rights.servicesContact,
      *
      * @param aPath A path to a CSV file
      * @param aIiifVersion The target IIIF Presentation API version
@@ -73,74 +94,100 @@ public class CsvParser {
      */
     public CsvParser parse(final Path aPath, final String aIiifVersion, final String aAVUrlString)
             throws IOException, CsvException, CsvParsingException {
+        return collect(aPath, aIiifVersion, aAVUrlString, new CsvConsumer() {});
+    }
+
+    /**
+     * Parses the CSV file at the supplied path, keeping its collection, works and pages just like
+     * {@link #parse(Path, String, String)}, but also handing them to the supplied consumer as they're read. A caller
+     * can pick out what it needs from the pages as they go by, rather than reading back the ones that have been
+     * spilled to disk. This is not thread-safe.
+     *
+     * @param aPath A path to a CSV file
+     * @param aIiifVersion The target IIIF Presentation API version
+     * @param aAVUrlString A string expected to be found in A/V access URLs
+     * @param aConsumer A consumer of the CSV's collection, works and pages
+     * @return This CSV parser
+     * @throws IOException If there is trouble reading or writing data
+     * @throws CsvException If there is trouble reading the CSV data
+     * @throws CsvParsingException If there is trouble parsing the CSV data
+     */
+    public CsvParser collect(final Path aPath, final String aIiifVersion, final String aAVUrlString,
+            final CsvConsumer aConsumer) throws IOException, CsvException, CsvParsingException {
+        try {
+            return parse(aPath, aIiifVersion, aAVUrlString, new MetadataCollector().andThen(aConsumer));
+        } catch (final IOException | CsvException | CsvParsingException details) {
+            // The pages won't be got from a CSV that couldn't be parsed, so any that were spilled can go now
+            myPages.close();
+            throw details;
+        }
+    }
+
+    /**
+     * Parses the CSV file at the supplied path in a single pass, handing its collection, works and pages to the
+     * supplied consumer as they're read rather than keeping them. The headers are checked before any rows are read,
+     * and each row is checked as it's read, so a CSV that turns out to be invalid part of the way through will have
+     * had its earlier rows handed over already. Only the collection and the headers are kept by the parser. This is
+     * not thread-safe.
+     *
+     * @param aPath A path to a CSV file
+     * @param aIiifVersion The target IIIF Presentation API version
+     * @param aAVUrlString A string expected to be found in A/V access URLs
+     * @param aConsumer A consumer of the CSV's collection, works and pages
+     * @return This CSV parser
+     * @throws IOException If there is trouble reading or writing data
+     * @throws CsvException If there is trouble reading the CSV data
+     * @throws CsvParsingException If there is trouble parsing the CSV data
+     */
+    public CsvParser parse(final Path aPath, final String aIiifVersion, final String aAVUrlString,
+            final CsvConsumer aConsumer) throws IOException, CsvException, CsvParsingException {
         reset();
 
         try (CSVReader csvReader = new CSVReader(Files.newBufferedReader(aPath))) {
+            final CSVIterator csvIterator = new CSVIterator(csvReader);
+            final String[] headerRow = nextRow(csvIterator);
             int rowsRead = 0;
             int works = 0;
             int pages = 0;
 
-            final CSVIterator csvIterator = new CSVIterator(csvReader);
-            final List<String[]> rows = new LinkedList<>();
-            final Set<ObjectType> csvObjectTypes;
-
-            while (csvIterator.hasNext()) {
-                final String[] nextRow = csvIterator.next();
-
-                // Skip blank rows
-                if ((nextRow.length != 1 || !EMPTY.equals(nextRow[0].trim())) &&
-                        !EMPTY.equals(String.join(EMPTY, nextRow).trim())) {
-                    rows.add(nextRow);
-                }
-            }
-
-            // Remove the header row from the list of rows
-            myCsvHeaders = new CsvHeaders(checkForEOLs(rows.remove(0)));
-
-            // Get the set of object types that we'll be mapping CSV rows to
-            csvObjectTypes = getObjectTypes(rows, myCsvHeaders);
-
-            // Required CSV columns
-            if (!myCsvHeaders.hasItemArkIndex()) {
+            if (headerRow == null) {
                 throw new CsvParsingException(MessageCodes.MFS_113);
             }
 
-            if (!myCsvHeaders.hasParentArkIndex() && !myCsvHeaders.hasIiifParentArkIndex()) {
-                throw new CsvParsingException(MessageCodes.MFS_114);
-            }
-
-            if (!myCsvHeaders.hasTitleIndex()) {
-                throw new CsvParsingException(MessageCodes.MFS_111);
-            }
-
-            if (!myCsvHeaders.hasFileNameIndex()) {
-                throw new CsvParsingException(MessageCodes.MFS_112);
-            }
+            myCsvHeaders = new CsvHeaders(checkForEOLs(headerRow));
+            checkHeaders();
 
-            if (!myCsvHeaders.hasItemSequenceIndex() && csvObjectTypes.contains(ObjectType.PAGE)) {
-                throw new CsvParsingException(MessageCodes.MFS_123);
-            }
+            for (String[] row = nextRow(csvIterator); row != null; row = nextRow(csvIterator)) {
+                final ObjectType objectType = getObjectType(row, myCsvHeaders);
 
-            for (final String[] row : rows) {
                 checkForEOLs(row);
                 trimValues(row);
 
+                // Values that repeat from row to row are only kept once
+                myDictionary.intern(row);
+
                 if (aIiifVersion != null) {
                     checkApiCompatibility(row, aPath, aIiifVersion, aAVUrlString);
                 }
 
-                switch (getObjectType(row, myCsvHeaders)) {
+                // A run of pages ends at the first row that isn't one of its work's pages
+                if (objectType != ObjectType.PAGE) {
+                    endPageRun(aConsumer);
+                }
+
+                switch (objectType) {
                     case COLLECTION: {
                         extractCollectionMetadata(row);
+                        aConsumer.acceptCollection(row);
                         break;
                     }
                     case WORK: {
-                        extractWorkMetadata(row);
+                        aConsumer.acceptWork(extractWorkMetadata(row), row);
                         works += 1;
                         break;
                     }
                     case PAGE: {
-                        extractPageMetadata(row);
+                        extractPageMetadata(row, aConsumer);
                         pages += 1;
                         break;
                     }
@@ -153,7 +200,12 @@ public class CsvParser {
                 rowsRead += 1;
             }
 
-            LOGGER.debug(MessageCodes.MFS_095, rowsRead, works, pages, myPagesMap.size());
+            endPageRun(aConsumer);
+
+            LOGGER.debug(MessageCodes.MFS_095, rowsRead, works, pages, myPageRunCount, myDictionary.size());
+
+            // The rows keep the values they share, but the lookups aren't needed anymore
+            myDictionary.clear();
         } catch (final RuntimeException details) {
             throw new CsvParsingException(details);
         }
@@ -200,7 +252,7 @@ public class CsvParser {
      * @return The CSV metadata
      */
     public CsvMetadata getCsvMetadata() {
-        return new CsvMetadata(myWorksMap, myWorksList, myPagesMap);
+        return new CsvMetadata(myWorksMap, myWorksList, myPages);
     }
 
     /**
@@ -209,11 +261,17 @@ public class CsvParser {
     private CsvParser reset() {
         myCollectionData = null;
         myCsvHeaders = null;
+        myPageRunWorkID = null;
+        myPageRunCount = 0;
 
+        myPageRun.clear();
+        myDictionary.clear();
         myWorksList.clear();
-        myPagesMap.clear();
         myWorksMap.clear();
 
+        // The pages of the last CSV may still be in use, so they're left with its metadata rather than cleared
+        myPages = new PageStore(myPageHeapBudget);
+
         return this;
     }
 
@@ -236,77 +294,115 @@ public class CsvParser {
     }
 
     /**
-     * Add a Work manifest.
+     * Checks that the CSV's headers include the required columns.
+     *
+     * @throws CsvParsingException If a required column is missing
+     */
+    private void checkHeaders() throws CsvParsingException {
+        if (!myCsvHeaders.hasItemArkIndex()) {
+            throw new CsvParsingException(MessageCodes.MFS_113);
+        }
+
+        if (!myCsvHeaders.hasParentArkIndex() && !myCsvHeaders.hasIiifParentArkIndex()) {
+            throw new CsvParsingException(MessageCodes.MFS_114);
+        }
+
+        if (!myCsvHeaders.hasTitleIndex()) {
+            throw new CsvParsingException(MessageCodes.MFS_111);
+        }
+
+        if (!myCsvHeaders.hasFileNameIndex()) {
+            throw new CsvParsingException(MessageCodes.MFS_112);
+        }
+    }
+
+    /**
+     * Checks that a work row has the properties a work needs.
      *
      * @param aRow A CSV row representing a Work
-     * @param aHeaders The CSV headers
-     * @param aWorksMap A collection of Work manifests
+     * @return The ID of the collection the work belongs to
      * @throws CsvParsingException If there is trouble getting the necessary info from the CSV
      */
-    private void extractWorkMetadata(final String... aRow) throws CsvParsingException {
+    private String extractWorkMetadata(final String... aRow) throws CsvParsingException {
         final Optional<String> parentIdOpt = getMetadata(aRow, myCsvHeaders.hasIiifParentArkIndex()
                 ? myCsvHeaders.getIiifParentArkIndex() : myCsvHeaders.getParentArkIndex());
         final Optional<String> workIdOpt = getMetadata(aRow, myCsvHeaders.getItemArkIndex());
         final Optional<String> labelOpt = getMetadata(aRow, myCsvHeaders.getTitleIndex());
 
-        // Store the work data for full manifest creation
-        myWorksList.add(aRow);
-
-        // Create a brief work manifest for inclusion in the collection manifest
         if (!workIdOpt.isPresent() || !labelOpt.isPresent()) {
             throw new CsvParsingException(MessageCodes.MFS_108);
         }
 
-        final String workID = workIdOpt.get();
-        final URI uri = IDUtils.getResourceURI(Constants.URL_PLACEHOLDER, IDUtils.getWorkS3Key(workID));
-        final String[] workData = new String[] { uri.toString(), labelOpt.get() };
-
         if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug(MessageCodes.MFS_119, workID, parentIdOpt.orElse(Constants.EMPTY));
+            LOGGER.debug(MessageCodes.MFS_119, workIdOpt.get(), parentIdOpt.orElse(Constants.EMPTY));
         }
 
         if (!parentIdOpt.isPresent()) {
             throw new CsvParsingException(MessageCodes.MFS_107);
         }
 
-        final String parentID = parentIdOpt.get();
-
-        if (myWorksMap.containsKey(parentID)) {
-            myWorksMap.get(parentID).add(workData);
-        } else {
-            final List<String[]> worksData = new ArrayList<>();
-
-            worksData.add(workData);
-            myWorksMap.put(parentID, worksData);
-        }
+        return parentIdOpt.get();
     }
 
     /**
-     * Add a page's metadata to our pages map for later processing.
+     * Adds a page to the current run of pages, handing over the run first if the page belongs to another work.
      *
      * @param aRow A metadata row
-     * @param aHeaders A CSV headers object
-     * @param aPageMap A map of pages
-     * @throws CsvParsingException
+     * @param aConsumer A consumer of the CSV's pages
+     * @throws CsvParsingException If the page is missing its work ID or the CSV doesn't have item sequences
      */
-    private void extractPageMetadata(final String... aRow) throws CsvParsingException {
+    private void extractPageMetadata(final String[] aRow, final CsvConsumer aConsumer) throws CsvParsingException {
         final Optional<String> workIdOpt = getMetadata(aRow, myCsvHeaders.hasIiifParentArkIndex()
                 ? myCsvHeaders.getIiifParentArkIndex() : myCsvHeaders.getParentArkIndex());
 
+        // Pages can't be put in order without their item sequences
+        if (!myCsvHeaders.hasItemSequenceIndex()) {
+            throw new CsvParsingException(MessageCodes.MFS_123);
+        }
+
         if (!workIdOpt.isPresent()) {
             throw new CsvParsingException(MessageCodes.MFS_121);
         }
 
-        final String workID = workIdOpt.get();
-        final List<String[]> page;
+        if (!workIdOpt.get().equals(myPageRunWorkID)) {
+            endPageRun(aConsumer);
+            myPageRunWorkID = workIdOpt.get();
+        }
+
+        myPageRun.add(aRow);
+    }
 
-        if (myPagesMap.containsKey(workID)) {
-            myPagesMap.get(workID).add(aRow);
-        } else {
-            page = new ArrayList<>();
-            page.add(aRow);
-            myPagesMap.put(workID, page);
+    /**
+     * Hands over the current run of pages, if there is one.
+     *
+     * @param aConsumer A consumer of the CSV's pages
+     */
+    private void endPageRun(final CsvConsumer aConsumer) {
+        if (!myPageRun.isEmpty()) {
+            aConsumer.acceptPages(myPageRunWorkID, new ArrayList<>(myPageRun));
+            myPageRunCount += 1;
+            myPageRun.clear();
         }
+
+        myPageRunWorkID = null;
+    }
+
+    /**
+     * Gets the next row that isn't blank.
+     *
+     * @param aIterator An iterator over the CSV's rows
+     * @return The next row that isn't blank, or null if there aren't any more
+     */
+    private String[] nextRow(final CSVIterator aIterator) {
+        while (aIterator.hasNext()) {
+            final String[] row = aIterator.next();
+
+            if ((row.length != 1 || !EMPTY.equals(row[0].trim())) && !EMPTY.equals(String.join(EMPTY, row).trim())) {
+                return row;
+            }
+        }
+
+        return null;
     }
 
     /**
@@ -562,4 +658,29 @@ public class CsvParser {
             return Optional.empty();
         }
     }
+
+    /**
+     * A consumer that keeps the CSV's collection, works and pages, for {@link CsvParser#getCsvMetadata()}.
+     */
+    private class MetadataCollector implements CsvConsumer {
+
+        @Override
+        public void acceptWork(final String aCollectionID, final String[] aRow) {
+            final String workID = getMetadata(aRow, myCsvHeaders.getItemArkIndex()).get();
+            final URI uri = IDUtils.getResourceURI(Constants.URL_PLACEHOLDER, IDUtils.getWorkS3Key(workID));
+            final String label = getMetadata(aRow, myCsvHeaders.getTitleIndex()).get();
+            final String[] workData = new String[] { uri.toString(), label };
+
+            // Store the work data for full manifest creation
+            myWorksList.add(aRow);
+
+            // Create a brief work manifest for inclusion in the collection manifest
+            myWorksMap.computeIfAbsent(aCollectionID, key -> new ArrayList<>()).add(workData);
+        }
+
+        @Override
+        public void acceptPages(final String aWorkID, final List<String[]> aPages) {
+            myPages.add(aWorkID, aPages);
+        }
+    }
 }
@@ -0,0 +1,151 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A work's rows from a CSV file, along with the headers that describe them, as they're sent to a manifest verticle.
+ * Inside a single Vert.x instance the rows are handed over as they are, without being copied or serialized; they're
+ * only turned into JSON when the message has to leave the JVM.
+ * <p>
+ * The rows belong to the message once it's been sent, so a sender should give it its own list of pages.
+ * </p>
+ */
+public class CsvWork {
+
+    private static final String WORK = "work";
+
+    private static final String PAGES = "pages";
+
+    private static final String PROPERTIES = "properties";
+
+    private final CsvHeaders myHeaders;
+
+    private final String[] myWork;
+
+    private final List<String[]> myPages;
+
+    private final JsonObject myProperties;
+
+    /**
+     * Creates a CSV work.
+     *
+     * @param aHeaders The CSV's headers
+     * @param aWork The work's row (may be null)
+     * @param aPages The rows of the work's pages (may be null)
+     */
+    public CsvWork(final CsvHeaders aHeaders, final String[] aWork, final List<String[]> aPages) {
+        this(aHeaders, aWork, aPages, new JsonObject());
+    }
+
+    private CsvWork(final CsvHeaders aHeaders, final String[] aWork, final List<String[]> aPages,
+            final JsonObject aProperties) {
+        myHeaders = aHeaders;
+        myWork = aWork;
+        myPages = aPages;
+        myProperties = aProperties;
+    }
+
+    /**
+     * Gets the CSV's headers.
+     *
+     * @return The CSV's headers
+     */
+    public CsvHeaders getHeaders() {
+        return myHeaders;
+    }
+
+    /**
+     * Gets the work's row.
+     *
+     * @return The work's row, or null if the work's row wasn't sent
+     */
+    public String[] getWork() {
+        return myWork;
+    }
+
+    /**
+     * Gets the rows of the work's pages.
+     *
+     * @return The rows of the work's pages, or null if the work doesn't have any
+     */
+    public List<String[]> getPages() {
+        return myPages;
+    }
+
+    /**
+     * Gets the message's other properties, like the work's ID, its manifest, and the image host.
+     *
+     * @return The message's other properties
+     */
+    public JsonObject getProperties() {
+        return myProperties;
+    }
+
+    /**
+     * Returns the CSV work in JSON form.
+     *
+     * @return The CSV work in JSON form
+     */
+    public JsonObject toJSON() {
+        final JsonObject json = new JsonObject().put(Constants.CSV_HEADERS, myHeaders.toJSON());
+
+        if (myWork != null) {
+            json.put(WORK, toJSON(myWork));
+        }
+
+        if (myPages != null) {
+            final JsonArray pages = new JsonArray();
+
+            myPages.forEach(page -> pages.add(toJSON(page)));
+            json.put(PAGES, pages);
+        }
+
+        return json.put(PROPERTIES, myProperties);
+    }
+
+    /**
+     * Returns a CSV work from its JSON form.
+     *
+     * @param aJsonObject A CSV work in JSON form
+     * @return The CSV work
+     */
+    public static CsvWork fromJSON(final JsonObject aJsonObject) {
+        final CsvHeaders headers = CsvHeaders.fromJSON(aJsonObject.getJsonObject(Constants.CSV_HEADERS));
+        final JsonArray work = aJsonObject.getJsonArray(WORK);
+        final JsonArray pagesArray = aJsonObject.getJsonArray(PAGES);
+        final List<String[]> pages;
+
+        if (pagesArray != null) {
+            pages = new ArrayList<>(pagesArray.size());
+
+            for (int index = 0; index < pagesArray.size(); index++) {
+                pages.add(fromJSON(pagesArray.getJsonArray(index)));
+            }
+        } else {
+            pages = null;
+        }
+
+        return new CsvWork(headers, work == null ? null : fromJSON(work), pages,
+                aJsonObject.getJsonObject(PROPERTIES, new JsonObject()));
+    }
+
+    private static JsonArray toJSON(final String[] aRow) {
+        return new JsonArray(new ArrayList<>(Arrays.asList(aRow)));
+    }
+
+    private static String[] fromJSON(final JsonArray aRow) {
+        final String[] row = new String[aRow.size()];
+
+        for (int index = 0; index < row.length; index++) {
+            row[index] = aRow.getString(index);
+        }
+
+        return row;
+    }
+}
@@ -12,9 +12,21 @@ public final class HTTP {
     /** Success with no content */
     public static final int SUCCESS_NO_CONTENT = 204;
 
+    /** Success with part of the requested content */
+    public static final int PARTIAL_CONTENT = 206;
+
+    /** Accepted for processing in the background */
+    public static final int ACCEPTED = 202;
+
+    /** Conflict with the current state of the resource */
+    public static final int CONFLICT = 409;
+
     /** Created response */
     public static final int CREATED = 201;
 
+    /** Not modified response */
+    public static final int NOT_MODIFIED = 304;
+
     /** Bad request */
     public static final int BAD_REQUEST = 400;
 
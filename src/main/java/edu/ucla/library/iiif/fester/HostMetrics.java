@@ -0,0 +1,141 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Counts the requests made to each of the hosts that image widths and heights are looked up on, along with their
+ * recent latencies, and the connections that have been opened to them. The metrics are thread-safe, so they can be
+ * shared by verticles that run on different contexts.
+ */
+public class HostMetrics {
+
+    private static final int LATENCY_WINDOW = 100;
+
+    private static final int HTTP_PORT = 80;
+
+    private static final int HTTPS_PORT = 443;
+
+    private static final String HTTPS = "https";
+
+    private final Map<String, Host> myHosts = new TreeMap<>();
+
+    private long myOpenedConnectionCount;
+
+    private long myOpenConnectionCount;
+
+    /**
+     * Gets the host and port of the supplied URL, which is what requests are counted by.
+     *
+     * @param aURL A URL
+     * @return The URL's host and port
+     */
+    public static String getHost(final String aURL) {
+        final URI uri = URI.create(aURL);
+        final int port = uri.getPort();
+
+        if (port == -1) {
+            return uri.getHost() + ':' + (HTTPS.equalsIgnoreCase(uri.getScheme()) ? HTTPS_PORT : HTTP_PORT);
+        }
+
+        return uri.getHost() + ':' + port;
+    }
+
+    /**
+     * Notes that a request to a host has started.
+     *
+     * @param aHost A host and port
+     */
+    public synchronized void onStart(final String aHost) {
+        myHosts.computeIfAbsent(aHost, host -> new Host()).myInFlightCount += 1;
+    }
+
+    /**
+     * Notes that a request to a host has finished.
+     *
+     * @param aHost A host and port
+     * @param aLatency How long the request took, in milliseconds
+     * @param aFailed Whether the request failed, either because the host couldn't be reached or didn't answer in
+     *        time, or because it answered with a server error
+     */
+    public synchronized void onEnd(final String aHost, final long aLatency, final boolean aFailed) {
+        final Host host = myHosts.computeIfAbsent(aHost, name -> new Host());
+
+        host.myInFlightCount = Math.max(0, host.myInFlightCount - 1);
+        host.myRequestCount += 1;
+        host.myLatencies[host.myIndex] = aLatency;
+        host.myIndex = (host.myIndex + 1) % LATENCY_WINDOW;
+
+        if (aFailed) {
+            host.myFailureCount += 1;
+        }
+    }
+
+    /**
+     * Notes that a connection has been opened.
+     */
+    public synchronized void onConnectionOpened() {
+        myOpenedConnectionCount += 1;
+        myOpenConnectionCount += 1;
+    }
+
+    /**
+     * Notes that a connection has been closed.
+     */
+    public synchronized void onConnectionClosed() {
+        myOpenConnectionCount = Math.max(0, myOpenConnectionCount - 1);
+    }
+
+    /**
+     * Gets the metrics for each host, along with the number of connections that have been opened.
+     *
+     * @return The hosts' metrics
+     */
+    public synchronized JsonObject getStats() {
+        final JsonObject hosts = new JsonObject();
+
+        myHosts.forEach((name, host) -> {
+            final int count = (int) Math.min(host.myRequestCount, LATENCY_WINDOW);
+            final long[] latencies = Arrays.copyOf(host.myLatencies, count);
+
+            Arrays.sort(latencies);
+
+            hosts.put(name, new JsonObject().put(Status.IN_FLIGHT, host.myInFlightCount)
+                    .put(Status.REQUESTS, host.myRequestCount).put(Status.FAILURES, host.myFailureCount)
+                    .put(Status.P50_LATENCY, getPercentile(latencies, 0.5D))
+                    .put(Status.P99_LATENCY, getPercentile(latencies, 0.99D)));
+        });
+
+        return new JsonObject().put(Status.CONNECTIONS, myOpenConnectionCount)
+                .put(Status.CONNECTIONS_OPENED, myOpenedConnectionCount).put(Status.HOSTS, hosts);
+    }
+
+    private long getPercentile(final long[] aSortedLatencies, final double aPercentile) {
+        if (aSortedLatencies.length == 0) {
+            return 0;
+        }
+
+        return aSortedLatencies[(int) Math.ceil(aPercentile * aSortedLatencies.length) - 1];
+    }
+
+    /**
+     * The metrics for a single host.
+     */
+    private static final class Host {
+
+        private final long[] myLatencies = new long[LATENCY_WINDOW];
+
+        private int myIndex;
+
+        private int myInFlightCount;
+
+        private long myRequestCount;
+
+        private long myFailureCount;
+    }
+}
@@ -0,0 +1,308 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+/**
+ * A write stream that keeps the first bytes of a static image, so its width and height can be read from its header
+ * without downloading the whole image. JPEG, PNG, GIF and WebP headers are understood. Bytes beyond the supplied
+ * limit are read, so the response's connection can go back to the pool, but they're not kept.
+ * <p>
+ * A JPEG's width and height are in its frame header, which can come after metadata segments of any length. If the
+ * frame header isn't in the bytes that were kept, the parser says how many bytes it needs so they can be asked for.
+ * </p>
+ */
+class ImageHeaderParser implements WriteStream<Buffer> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageHeaderParser.class, Constants.MESSAGES);
+
+    private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+    private static final byte[] GIF87_SIGNATURE = "GIF87a".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] GIF89_SIGNATURE = "GIF89a".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] RIFF_SIGNATURE = "RIFF".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] WEBP_SIGNATURE = "WEBP".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] WEBP_LOSSY = "VP8 ".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] WEBP_LOSSLESS = "VP8L".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] WEBP_EXTENDED = "VP8X".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int PNG_HEADER_LENGTH = 24;
+
+    private static final int GIF_HEADER_LENGTH = 10;
+
+    private static final int WEBP_HEADER_LENGTH = 30;
+
+    /* A JPEG frame header's marker, length, sample precision, height and width */
+    private static final int JPEG_FRAME_LENGTH = 9;
+
+    private static final int MARKER = 0xFF;
+
+    private final Buffer myBuffer = Buffer.buffer();
+
+    private final int myMaxLength;
+
+    private int myRequiredLength;
+
+    /**
+     * Creates a new image header parser.
+     *
+     * @param aMaxLength The number of bytes of the image to keep
+     */
+    ImageHeaderParser(final int aMaxLength) {
+        myMaxLength = aMaxLength;
+    }
+
+    /**
+     * Gets the image's width and height from the bytes that have been kept. If they're empty, the image's header goes
+     * on beyond the kept bytes; {@link #getRequiredLength()} says how far.
+     *
+     * @return The image's width and height, if they could be read
+     * @throws IOException If the bytes aren't the start of a JPEG, PNG, GIF or WebP image
+     */
+    Optional<ImageInfo> getImageInfo() throws IOException {
+        myRequiredLength = 0;
+
+        if (startsWith(PNG_SIGNATURE)) {
+            return parsePNG();
+        } else if (startsWith(GIF87_SIGNATURE) || startsWith(GIF89_SIGNATURE)) {
+            return parseGIF();
+        } else if (startsWith(RIFF_SIGNATURE) && matches(8, WEBP_SIGNATURE)) {
+            return parseWebP();
+        } else if (myBuffer.length() >= 2 && myBuffer.getUnsignedByte(0) == MARKER &&
+                myBuffer.getUnsignedByte(1) == 0xD8) {
+            return parseJPEG();
+        }
+
+        throw new IOException(LOGGER.getMessage(MessageCodes.MFS_222));
+    }
+
+    /**
+     * Gets the number of bytes from the start of the image that are needed to read its width and height, if the last
+     * call to {@link #getImageInfo()} couldn't find them in the bytes that were kept.
+     *
+     * @return A number of bytes, or zero if no more are needed
+     */
+    int getRequiredLength() {
+        return myRequiredLength;
+    }
+
+    /**
+     * Whether as many bytes of the image have been kept as the parser was asked to keep. Any more that are written to
+     * it are thrown away.
+     *
+     * @return True if the parser won't keep any more bytes; else, false
+     */
+    boolean isFull() {
+        return myBuffer.length() >= myMaxLength;
+    }
+
+    @Override
+    public ImageHeaderParser exceptionHandler(final Handler<Throwable> aHandler) {
+        return this;
+    }
+
+    @Override
+    public ImageHeaderParser write(final Buffer aBuffer) {
+        final int remaining = myMaxLength - myBuffer.length();
+
+        if (remaining > 0) {
+            myBuffer.appendBuffer(aBuffer, 0, Math.min(remaining, aBuffer.length()));
+        }
+
+        return this;
+    }
+
+    @Override
+    public ImageHeaderParser write(final Buffer aBuffer, final Handler<AsyncResult<Void>> aHandler) {
+        write(aBuffer);
+
+        if (aHandler != null) {
+            aHandler.handle(Future.succeededFuture());
+        }
+
+        return this;
+    }
+
+    @Override
+    public void end() {
+        // Nothing to do; the header is parsed when it's asked for
+    }
+
+    @Override
+    public void end(final Handler<AsyncResult<Void>> aHandler) {
+        if (aHandler != null) {
+            aHandler.handle(Future.succeededFuture());
+        }
+    }
+
+    @Override
+    public ImageHeaderParser setWriteQueueMaxSize(final int aMaxSize) {
+        return this;
+    }
+
+    @Override
+    public boolean writeQueueFull() {
+        return false;
+    }
+
+    @Override
+    public ImageHeaderParser drainHandler(final Handler<Void> aHandler) {
+        return this;
+    }
+
+    /**
+     * Reads the width and height from a PNG's IHDR chunk, which always comes straight after its signature.
+     *
+     * @return The image's width and height
+     */
+    private Optional<ImageInfo> parsePNG() {
+        if (isShorterThan(PNG_HEADER_LENGTH)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new ImageInfo(myBuffer.getInt(16), myBuffer.getInt(20)));
+    }
+
+    /**
+     * Reads the width and height from a GIF's logical screen descriptor.
+     *
+     * @return The image's width and height
+     */
+    private Optional<ImageInfo> parseGIF() {
+        if (isShorterThan(GIF_HEADER_LENGTH)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new ImageInfo(myBuffer.getUnsignedShortLE(6), myBuffer.getUnsignedShortLE(8)));
+    }
+
+    /**
+     * Reads the width and height from a WebP's first chunk, which is laid out differently for lossy, lossless and
+     * extended images.
+     *
+     * @return The image's width and height
+     * @throws IOException If the first chunk isn't one that's understood
+     */
+    private Optional<ImageInfo> parseWebP() throws IOException {
+        if (isShorterThan(WEBP_HEADER_LENGTH)) {
+            return Optional.empty();
+        }
+
+        if (matches(12, WEBP_LOSSY)) {
+            return Optional.of(new ImageInfo(myBuffer.getUnsignedShortLE(26) & 0x3FFF,
+                    myBuffer.getUnsignedShortLE(28) & 0x3FFF));
+        } else if (matches(12, WEBP_LOSSLESS)) {
+            final long bits = myBuffer.getUnsignedIntLE(21);
+
+            return Optional.of(new ImageInfo((int) (bits & 0x3FFF) + 1, (int) (bits >> 14 & 0x3FFF) + 1));
+        } else if (matches(12, WEBP_EXTENDED)) {
+            return Optional.of(new ImageInfo(myBuffer.getUnsignedMediumLE(24) + 1,
+                    myBuffer.getUnsignedMediumLE(27) + 1));
+        }
+
+        throw new IOException(LOGGER.getMessage(MessageCodes.MFS_222));
+    }
+
+    /**
+     * Walks a JPEG's segments until it comes to a start-of-frame segment, which has the image's width and height.
+     *
+     * @return The image's width and height, or empty if the kept bytes end before the frame header does
+     * @throws IOException If the image data starts before a frame header is found
+     */
+    private Optional<ImageInfo> parseJPEG() throws IOException {
+        int index = 2;
+
+        while (true) {
+            final int marker;
+
+            // Markers may be padded with any number of fill bytes
+            while (index + 1 < myBuffer.length() && myBuffer.getUnsignedByte(index + 1) == MARKER) {
+                index += 1;
+            }
+
+            if (isShorterThan(index + JPEG_FRAME_LENGTH)) {
+                return Optional.empty();
+            }
+
+            if (myBuffer.getUnsignedByte(index) != MARKER) {
+                throw new IOException(LOGGER.getMessage(MessageCodes.MFS_222));
+            }
+
+            marker = myBuffer.getUnsignedByte(index + 1);
+
+            if (isStartOfFrame(marker)) {
+                return Optional.of(new ImageInfo(myBuffer.getUnsignedShort(index + 7),
+                        myBuffer.getUnsignedShort(index + 5)));
+            } else if (marker == 0xDA || marker == 0xD9) {
+                // The image's scan data or its end has been reached without a frame header
+                throw new IOException(LOGGER.getMessage(MessageCodes.MFS_222));
+            } else if (marker >= 0xD0 && marker <= 0xD7) {
+                index += 2; // Restart markers don't have a length
+            } else {
+                // The segment's length counts itself but not its marker
+                index += 2 + myBuffer.getUnsignedShort(index + 2);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a JPEG marker starts a frame. All of 0xC0 to 0xCF do, except for the ones that define Huffman
+     * tables, arithmetic coding conditions and the reserved JPG extension.
+     *
+     * @param aMarker A JPEG marker
+     * @return True if the marker starts a frame; else, false
+     */
+    private boolean isStartOfFrame(final int aMarker) {
+        return aMarker >= 0xC0 && aMarker <= 0xCF && aMarker != 0xC4 && aMarker != 0xC8 && aMarker != 0xCC;
+    }
+
+    /**
+     * Checks whether fewer than the supplied number of bytes have been kept, noting how many are needed if so.
+     *
+     * @param aLength A number of bytes
+     * @return True if fewer bytes have been kept; else, false
+     */
+    private boolean isShorterThan(final int aLength) {
+        if (myBuffer.length() < aLength) {
+            myRequiredLength = aLength;
+            return true;
+        }
+
+        return false;
+    }
+
+    private boolean startsWith(final byte[] aBytes) {
+        return matches(0, aBytes);
+    }
+
+    private boolean matches(final int aIndex, final byte[] aBytes) {
+        if (myBuffer.length() < aIndex + aBytes.length) {
+            return false;
+        }
+
+        for (int index = 0; index < aBytes.length; index++) {
+            if (myBuffer.getByte(aIndex + index) != aBytes[index]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,41 @@
+
+package edu.ucla.library.iiif.fester;
+
+/**
+ * The width and height of a IIIF image, as found in its info.json file.
+ */
+public class ImageInfo {
+
+    private final int myWidth;
+
+    private final int myHeight;
+
+    /**
+     * Creates a new image info.
+     *
+     * @param aWidth The width of the image
+     * @param aHeight The height of the image
+     */
+    public ImageInfo(final int aWidth, final int aHeight) {
+        myWidth = aWidth;
+        myHeight = aHeight;
+    }
+
+    /**
+     * Gets the width of the image.
+     *
+     * @return The width of the image
+     */
+    public int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Returns the height of the image.
+     *
+     * @return The height of the image
+     */
+    public int getHeight() {
+        return myHeight;
+    }
+}
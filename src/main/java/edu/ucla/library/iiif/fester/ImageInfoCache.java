@@ -0,0 +1,740 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * A persistent cache of image widths and heights, keyed by the image's IIIF URL. An image's dimensions don't change,
+ * so once they've been looked up they're kept in a memory-mapped hash table on disk that survives restarts. The most
+ * recently used entries are also kept on the heap, in front of the table.
+ * <p>
+ * The table uses open addressing with linear probing. Each slot holds a 64-bit hash of the image URL and the image's
+ * width and height as primitive ints, so a million images take 16 MB on disk. Once the table is half full, it's copied
+ * into one twice its size in the background, so lookups never wait on the copy or on the disk; if it gets to three
+ * quarters full before the copy is done, new entries are only kept in memory until it is. Without a configured path,
+ * only the in-memory entries are kept.
+ * </p>
+ */
+public final class ImageInfoCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageInfoCache.class, Constants.MESSAGES);
+
+    private static final String CACHE_MAP = "fester.image.info.cache";
+
+    private static final String CACHE_KEY = "cache";
+
+    private static final String TMP_EXT = ".tmp";
+
+    private static final int MAGIC = 0x46494943; // "FIIC"
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+
+    private static final int SLOT_SIZE = 16;
+
+    private static final int CAPACITY_OFFSET = 8;
+
+    private static final int SIZE_OFFSET = 12;
+
+    private static final int TOMBSTONES_OFFSET = 16;
+
+    private static final int TOMBSTONE = -1;
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private static final int MAX_CAPACITY = 1 << 27;
+
+    private static final int DEFAULT_CAPACITY = 65536;
+
+    private static final int DEFAULT_LRU_ENTRIES = 10000;
+
+    private static final double MAX_LOAD = 0.75D;
+
+    private static final double GROW_LOAD = 0.5D;
+
+    private final Map<String, ImageInfo> myRecentEntries;
+
+    private final int myMaxRecentEntries;
+
+    private final Path myPath;
+
+    private final Executor myGrower;
+
+    private MappedByteBuffer myTable;
+
+    private int myCapacity;
+
+    private int mySize;
+
+    private int myTombstones;
+
+    private boolean isGrowing;
+
+    /* The entries that have changed since the table started being copied, or null if the copy's been abandoned */
+    private Map<Long, int[]> myChanges;
+
+    private long myHitCount;
+
+    private long myDiskHitCount;
+
+    private long myMissCount;
+
+    /**
+     * Creates a new image info cache whose table is grown by the thread that fills it.
+     *
+     * @param aPath The file the cache's entries are kept in, or null to only keep them in memory
+     * @param aCapacity The number of slots to give the table if it's being created
+     * @param aMaxRecentEntries The number of recently used entries to keep on the heap
+     * @throws IOException If the cache's file can't be opened or created
+     */
+    public ImageInfoCache(final Path aPath, final int aCapacity, final int aMaxRecentEntries) throws IOException {
+        this(aPath, aCapacity, aMaxRecentEntries, Runnable::run);
+    }
+
+    /**
+     * Creates a new image info cache.
+     *
+     * @param aPath The file the cache's entries are kept in, or null to only keep them in memory
+     * @param aCapacity The number of slots to give the table if it's being created
+     * @param aMaxRecentEntries The number of recently used entries to keep on the heap
+     * @param aGrower Runs the copying of the table into a bigger one, off of the thread that filled it
+     * @throws IOException If the cache's file can't be opened or created
+     */
+    public ImageInfoCache(final Path aPath, final int aCapacity, final int aMaxRecentEntries, final Executor aGrower)
+            throws IOException {
+        myPath = aPath;
+        myGrower = aGrower;
+        myMaxRecentEntries = Math.max(0, aMaxRecentEntries);
+        myRecentEntries = new LinkedHashMap<>(16, 0.75f, true) {
+
+            /**
+             * The <code>serialVersionUID</code> for the recent entries.
+             */
+            private static final long serialVersionUID = -2958226387104917327L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, ImageInfo> aEldest) {
+                return size() > myMaxRecentEntries;
+            }
+        };
+
+        if (myPath != null) {
+            open(getCapacity(aCapacity));
+        }
+    }
+
+    /**
+     * Gets the image info cache that's shared by everything running in the supplied Vert.x instance, creating it from
+     * the application's configuration if it hasn't been created yet. If the configured file can't be used, the cache
+     * only keeps entries in memory.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aConfig An application configuration
+     * @return An image info cache
+     */
+    public static ImageInfoCache getCache(final Vertx aVertx, final JsonObject aConfig) {
+        final LocalMap<String, SharedCache> map = aVertx.sharedData().getLocalMap(CACHE_MAP);
+
+        synchronized (map) {
+            SharedCache sharedCache = map.get(CACHE_KEY);
+
+            if (sharedCache == null) {
+                sharedCache = new SharedCache(createCache(aVertx, aConfig));
+                map.put(CACHE_KEY, sharedCache);
+            }
+
+            return sharedCache.myCache;
+        }
+    }
+
+    /**
+     * Gets the width and height of the image at the supplied URL, if they've been cached.
+     *
+     * @param aURL An image's IIIF URL
+     * @return The image's width and height, if they've been cached
+     */
+    public synchronized Optional<ImageInfo> get(final String aURL) {
+        ImageInfo imageInfo = myRecentEntries.get(aURL);
+
+        if (imageInfo == null && myTable != null) {
+            final int slot = find(hash(aURL));
+
+            if (slot != -1 && getWidth(slot) != TOMBSTONE) {
+                imageInfo = new ImageInfo(getWidth(slot), getHeight(slot));
+                myRecentEntries.put(aURL, imageInfo);
+                myDiskHitCount += 1;
+            }
+        }
+
+        if (imageInfo == null) {
+            myMissCount += 1;
+        } else {
+            myHitCount += 1;
+        }
+
+        return Optional.ofNullable(imageInfo);
+    }
+
+    /**
+     * Caches the width and height of the image at the supplied URL. Images without a width or height aren't cached,
+     * so they'll be looked up again.
+     *
+     * @param aURL An image's IIIF URL
+     * @param aImageInfo The image's width and height
+     */
+    public synchronized void put(final String aURL, final ImageInfo aImageInfo) {
+        if (aImageInfo.getWidth() <= 0 || aImageInfo.getHeight() <= 0) {
+            return;
+        }
+
+        myRecentEntries.put(aURL, aImageInfo);
+
+        if (myTable != null) {
+            store(aURL, aImageInfo);
+        }
+    }
+
+    /**
+     * Caches the width and height of an image that isn't being asked for yet, like one that's been read from a
+     * stored manifest. The entry goes straight into the table, so warming the cache in bulk doesn't push out the
+     * recently used entries that are kept in memory; without a table, it's kept in memory like any other entry.
+     * An image that's already cached is left alone.
+     *
+     * @param aURL An image's IIIF URL
+     * @param aImageInfo The image's width and height
+     * @return True if the image's width and height weren't already cached; else, false
+     */
+    public synchronized boolean preload(final String aURL, final ImageInfo aImageInfo) {
+        if (aImageInfo.getWidth() <= 0 || aImageInfo.getHeight() <= 0 || myRecentEntries.containsKey(aURL)) {
+            return false;
+        }
+
+        if (myTable == null) {
+            myRecentEntries.put(aURL, aImageInfo);
+            return true;
+        }
+
+        final int slot = find(hash(aURL));
+
+        if (slot != -1 && getWidth(slot) != TOMBSTONE) {
+            return false;
+        }
+
+        return store(aURL, aImageInfo);
+    }
+
+    /**
+     * Forgets the width and height of the image at the supplied URL.
+     *
+     * @param aURL An image's IIIF URL
+     * @return True if the image's width and height had been cached
+     */
+    public synchronized boolean invalidate(final String aURL) {
+        boolean invalidated = myRecentEntries.remove(aURL) != null;
+
+        if (myTable != null) {
+            final int slot = find(hash(aURL));
+
+            if (slot != -1 && getWidth(slot) != TOMBSTONE) {
+                // The hash stays in its slot so that later entries in the same probe sequence can still be found
+                myTable.putInt(getOffset(slot) + Long.BYTES, TOMBSTONE);
+                setSize(mySize - 1, myTombstones + 1);
+                invalidated = true;
+
+                if (myChanges != null) {
+                    myChanges.put(hash(aURL), new int[] { TOMBSTONE, 0 });
+                }
+            }
+        }
+
+        return invalidated;
+    }
+
+    /**
+     * Forgets the widths and heights of all the cached images.
+     *
+     * @return The number of images that were forgotten
+     */
+    public synchronized int clear() {
+        final int count = myTable == null ? myRecentEntries.size() : mySize;
+
+        myRecentEntries.clear();
+
+        // A copy of the table that's being made now would bring back what's being forgotten
+        myChanges = null;
+
+        if (myTable != null) {
+            for (int slot = 0; slot < myCapacity; slot++) {
+                setSlot(myTable, slot, 0L, 0, 0);
+            }
+
+            setSize(0, 0);
+        }
+
+        return count;
+    }
+
+    /**
+     * Gets the number of images whose widths and heights are cached.
+     *
+     * @return The number of cached images
+     */
+    public synchronized int size() {
+        return myTable == null ? myRecentEntries.size() : mySize;
+    }
+
+    /**
+     * Writes any changes to the cache's file out to disk.
+     */
+    public synchronized void flush() {
+        if (myTable != null) {
+            myTable.force();
+        }
+    }
+
+    /**
+     * Gets the cache's metrics.
+     *
+     * @return The cache's metrics
+     */
+    public synchronized JsonObject getStats() {
+        final long lookups = myHitCount + myMissCount;
+        final JsonObject stats = new JsonObject().put(Status.HITS, myHitCount).put(Status.DISK_HITS, myDiskHitCount)
+                .put(Status.MISSES, myMissCount).put(Status.HIT_RATE, lookups == 0 ? 0D : (double) myHitCount / lookups)
+                .put(Status.ENTRIES, size()).put(Status.RECENT_ENTRIES, myRecentEntries.size());
+
+        if (myTable != null) {
+            stats.put(Status.PATH, myPath.toString()).put(Status.CAPACITY, myCapacity);
+        }
+
+        return stats;
+    }
+
+    /**
+     * Writes an image's width and height to the table.
+     *
+     * @param aURL An image's IIIF URL
+     * @param aImageInfo The image's width and height
+     * @return True if the entry was written; false if the table is full and can't be made any roomier
+     */
+    private boolean store(final String aURL, final ImageInfo aImageInfo) {
+        final long hash = hash(aURL);
+        final int slot = find(hash);
+
+        if (slot == -1) {
+            // Until the table's been made roomier, the entry is only kept in memory
+            if (mySize + myTombstones + 1 > myCapacity * MAX_LOAD) {
+                grow();
+                return false;
+            }
+
+            insert(myTable, myCapacity, hash, aImageInfo.getWidth(), aImageInfo.getHeight());
+            setSize(mySize + 1, myTombstones);
+        } else {
+            if (getWidth(slot) == TOMBSTONE) {
+                setSize(mySize + 1, myTombstones - 1);
+            }
+
+            setSlot(myTable, slot, hash, aImageInfo.getWidth(), aImageInfo.getHeight());
+        }
+
+        if (myChanges != null) {
+            myChanges.put(hash, new int[] { aImageInfo.getWidth(), aImageInfo.getHeight() });
+        }
+
+        if (mySize + myTombstones > myCapacity * GROW_LOAD) {
+            grow();
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates a new image info cache from the application's configuration.
+     *
+     * @param aConfig An application configuration
+     * @return A new image info cache
+     */
+    private static ImageInfoCache createCache(final Vertx aVertx, final JsonObject aConfig) {
+        final String path = aConfig.getString(Config.IMAGE_INFO_CACHE_PATH);
+        final int capacity = aConfig.getInteger(Config.IMAGE_INFO_CACHE_SIZE, DEFAULT_CAPACITY);
+        final int maxRecentEntries = aConfig.getInteger(Config.IMAGE_INFO_CACHE_LRU_ENTRIES, DEFAULT_LRU_ENTRIES);
+
+        // The cache is filled from event loops, which shouldn't be held up by the table being copied and synced
+        final Executor grower = command -> aVertx.executeBlocking(promise -> {
+            command.run();
+            promise.complete();
+        }, false, null);
+
+        if (path != null && !path.isBlank()) {
+            try {
+                return new ImageInfoCache(Paths.get(path).toAbsolutePath(), capacity, maxRecentEntries, grower);
+            } catch (final IOException details) {
+                LOGGER.error(details, MessageCodes.MFS_213, path, details.getMessage());
+            }
+        }
+
+        try {
+            return new ImageInfoCache(null, capacity, maxRecentEntries);
+        } catch (final IOException details) {
+            throw new IllegalStateException(details); // Nothing is read from disk without a path
+        }
+    }
+
+    /**
+     * Opens the cache's file, creating it if it doesn't exist or isn't a cache file that can be read.
+     *
+     * @param aCapacity The number of slots to give the table if it's being created
+     * @throws IOException If the cache's file can't be opened or created
+     */
+    private void open(final int aCapacity) throws IOException {
+        if (myPath.getParent() != null) {
+            Files.createDirectories(myPath.getParent());
+        }
+
+        if (Files.exists(myPath)) {
+            final MappedByteBuffer table = map(myPath, Files.size(myPath));
+
+            if (isValid(table)) {
+                myTable = table;
+                myCapacity = table.getInt(CAPACITY_OFFSET);
+                mySize = table.getInt(SIZE_OFFSET);
+                myTombstones = table.getInt(TOMBSTONES_OFFSET);
+            } else {
+                LOGGER.warn(MessageCodes.MFS_212, myPath);
+            }
+        }
+
+        if (myTable == null) {
+            final Path tmpPath = Paths.get(myPath + TMP_EXT);
+
+            Files.deleteIfExists(tmpPath);
+            myTable = create(tmpPath, aCapacity);
+            myCapacity = aCapacity;
+            mySize = 0;
+            myTombstones = 0;
+            Files.move(tmpPath, myPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        LOGGER.info(MessageCodes.MFS_211, myPath, mySize, myCapacity, myMaxRecentEntries);
+    }
+
+    /**
+     * Starts copying the table into one that's twice its size, or the same size once it's as big as it can get,
+     * dropping any invalidated entries. The copy is made without holding the cache's lock, and the entries that change
+     * while it's being made are applied to it once it's done.
+     */
+    private void grow() {
+        final MappedByteBuffer table = myTable;
+        final int capacity = myCapacity;
+        final int newCapacity = Math.min(MAX_CAPACITY, capacity * 2);
+
+        if (isGrowing || newCapacity == capacity && myTombstones == 0) {
+            return;
+        }
+
+        isGrowing = true;
+        myChanges = new HashMap<>();
+        myGrower.execute(() -> copy(table, capacity, newCapacity));
+    }
+
+    /**
+     * Copies the table into a new one, which is written to a temporary file that then replaces the old one, so the
+     * cache's file is never left half-written.
+     *
+     * @param aTable The table to copy
+     * @param aCapacity The number of slots in the table to copy
+     * @param aNewCapacity The number of slots in the new table
+     */
+    private void copy(final MappedByteBuffer aTable, final int aCapacity, final int aNewCapacity) {
+        final Path tmpPath = Paths.get(myPath + TMP_EXT);
+        final MappedByteBuffer newTable;
+        int size = 0;
+
+        try {
+            Files.deleteIfExists(tmpPath);
+            newTable = create(tmpPath, aNewCapacity);
+
+            // An entry that changes while it's being read is put right by the changes that are applied afterwards
+            for (int slot = 0; slot < aCapacity; slot++) {
+                final int offset = getOffset(slot);
+                final long hash = aTable.getLong(offset);
+                final int width = aTable.getInt(offset + Long.BYTES);
+
+                if (hash != 0L && width != TOMBSTONE && find(newTable, aNewCapacity, hash) == -1) {
+                    insert(newTable, aNewCapacity, hash, width, aTable.getInt(offset + Long.BYTES + Integer.BYTES));
+                    size += 1;
+                }
+            }
+
+            newTable.force();
+        } catch (final IOException details) {
+            LOGGER.error(details, MessageCodes.MFS_213, myPath, details.getMessage());
+
+            synchronized (this) {
+                isGrowing = false;
+                myChanges = null;
+            }
+
+            return;
+        }
+
+        swap(newTable, aNewCapacity, size, tmpPath);
+    }
+
+    /**
+     * Applies the changes that were made while the table was being copied to the copy, and starts using it in place
+     * of the old table.
+     *
+     * @param aTable The copy of the table
+     * @param aCapacity The number of slots in the copy
+     * @param aSize The number of entries that were copied
+     * @param aTmpPath The temporary file the copy was written to
+     */
+    private synchronized void swap(final MappedByteBuffer aTable, final int aCapacity, final int aSize,
+            final Path aTmpPath) {
+        final Map<Long, int[]> changes = myChanges;
+        int size = aSize;
+        int tombstones = 0;
+
+        isGrowing = false;
+        myChanges = null;
+
+        // The cache was cleared while the table was being copied
+        if (changes == null) {
+            return;
+        }
+
+        for (final Map.Entry<Long, int[]> change : changes.entrySet()) {
+            final long hash = change.getKey();
+            final int[] dimensions = change.getValue();
+            final int slot = find(aTable, aCapacity, hash);
+            final int width = slot == -1 ? 0 : aTable.getInt(getOffset(slot) + Long.BYTES);
+
+            if (dimensions[0] == TOMBSTONE) {
+                if (slot != -1 && width != TOMBSTONE) {
+                    aTable.putInt(getOffset(slot) + Long.BYTES, TOMBSTONE);
+                    size -= 1;
+                    tombstones += 1;
+                }
+            } else if (slot == -1) {
+                insert(aTable, aCapacity, hash, dimensions[0], dimensions[1]);
+                size += 1;
+            } else {
+                if (width == TOMBSTONE) {
+                    size += 1;
+                    tombstones -= 1;
+                }
+
+                setSlot(aTable, slot, hash, dimensions[0], dimensions[1]);
+            }
+        }
+
+        try {
+            Files.move(aTmpPath, myPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException details) {
+            // The old table, and its size and tombstones, are still the ones in use
+            LOGGER.error(details, MessageCodes.MFS_213, myPath, details.getMessage());
+            return;
+        }
+
+        myTable = aTable;
+        myCapacity = aCapacity;
+        setSize(size, tombstones);
+
+        LOGGER.debug(MessageCodes.MFS_214, myPath, myCapacity);
+    }
+
+    /**
+     * Finds the slot that holds the supplied hash.
+     *
+     * @param aHash The hash of an image URL
+     * @return The slot that holds the hash, or -1 if it's not in the table
+     */
+    private int find(final long aHash) {
+        return find(myTable, myCapacity, aHash);
+    }
+
+    /**
+     * Finds the slot of the supplied table that holds the supplied hash.
+     *
+     * @param aTable A table
+     * @param aCapacity The number of slots in the table
+     * @param aHash The hash of an image URL
+     * @return The slot that holds the hash, or -1 if it's not in the table
+     */
+    private static int find(final MappedByteBuffer aTable, final int aCapacity, final long aHash) {
+        final int mask = aCapacity - 1;
+
+        for (int slot = (int) (aHash ^ aHash >>> 32) & mask, probes = 0; probes < aCapacity; probes++) {
+            final long hash = aTable.getLong(getOffset(slot));
+
+            if (hash == aHash) {
+                return slot;
+            } else if (hash == 0L) {
+                return -1;
+            }
+
+            slot = slot + 1 & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Puts the supplied hash, width, and height in the first empty slot of the hash's probe sequence.
+     *
+     * @param aTable A table
+     * @param aCapacity The number of slots in the table
+     * @param aHash The hash of an image URL
+     * @param aWidth The image's width
+     * @param aHeight The image's height
+     */
+    private static void insert(final MappedByteBuffer aTable, final int aCapacity, final long aHash, final int aWidth,
+            final int aHeight) {
+        final int mask = aCapacity - 1;
+        int slot = (int) (aHash ^ aHash >>> 32) & mask;
+
+        while (aTable.getLong(getOffset(slot)) != 0L) {
+            slot = slot + 1 & mask;
+        }
+
+        setSlot(aTable, slot, aHash, aWidth, aHeight);
+    }
+
+    private static void setSlot(final MappedByteBuffer aTable, final int aSlot, final long aHash, final int aWidth,
+            final int aHeight) {
+        final int offset = getOffset(aSlot);
+
+        aTable.putLong(offset, aHash);
+        aTable.putInt(offset + Long.BYTES, aWidth);
+        aTable.putInt(offset + Long.BYTES + Integer.BYTES, aHeight);
+    }
+
+    private void setSize(final int aSize, final int aTombstones) {
+        mySize = aSize;
+        myTombstones = aTombstones;
+        myTable.putInt(SIZE_OFFSET, aSize);
+        myTable.putInt(TOMBSTONES_OFFSET, aTombstones);
+    }
+
+    private int getWidth(final int aSlot) {
+        return myTable.getInt(getOffset(aSlot) + Long.BYTES);
+    }
+
+    private int getHeight(final int aSlot) {
+        return myTable.getInt(getOffset(aSlot) + Long.BYTES + Integer.BYTES);
+    }
+
+    private static int getOffset(final int aSlot) {
+        return HEADER_SIZE + aSlot * SLOT_SIZE;
+    }
+
+    /**
+     * Checks that a mapped file has a cache header and is as big as its header says it is.
+     *
+     * @param aTable A mapped file
+     * @return True if the file is a cache file that can be read
+     */
+    private static boolean isValid(final MappedByteBuffer aTable) {
+        if (aTable.capacity() < HEADER_SIZE || aTable.getInt(0) != MAGIC || aTable.getInt(4) != VERSION) {
+            return false;
+        }
+
+        final int capacity = aTable.getInt(CAPACITY_OFFSET);
+
+        return capacity >= MIN_CAPACITY && capacity <= MAX_CAPACITY && Integer.bitCount(capacity) == 1 &&
+                aTable.capacity() == HEADER_SIZE + (long) capacity * SLOT_SIZE;
+    }
+
+    /**
+     * Creates a new, empty cache file.
+     *
+     * @param aPath The path of the new file
+     * @param aCapacity The number of slots in the new file's table
+     * @return The new file, mapped into memory
+     * @throws IOException If the file can't be created
+     */
+    private static MappedByteBuffer create(final Path aPath, final int aCapacity) throws IOException {
+        final MappedByteBuffer table = map(aPath, HEADER_SIZE + (long) aCapacity * SLOT_SIZE);
+
+        table.putInt(0, MAGIC).putInt(4, VERSION).putInt(CAPACITY_OFFSET, aCapacity);
+        return table;
+    }
+
+    private static MappedByteBuffer map(final Path aPath, final long aSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(aPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, aSize); // The mapping outlives the channel
+        }
+    }
+
+    /**
+     * Rounds the requested number of slots up to a power of two that's within the table's bounds.
+     *
+     * @param aCapacity A requested number of slots
+     * @return The number of slots to use
+     */
+    private static int getCapacity(final int aCapacity) {
+        final int capacity = Math.min(MAX_CAPACITY, Math.max(MIN_CAPACITY, aCapacity));
+        return Integer.bitCount(capacity) == 1 ? capacity : Integer.highestOneBit(capacity) << 1;
+    }
+
+    /**
+     * Hashes an image URL to a non-zero 64-bit key; zero marks an empty slot.
+     *
+     * @param aURL An image's IIIF URL
+     * @return The URL's hash
+     */
+    private static long hash(final String aURL) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("MD5").digest(aURL.getBytes(StandardCharsets.UTF_8));
+            long hash = 0L;
+
+            for (int index = 0; index < Long.BYTES; index++) {
+                hash = hash << Byte.SIZE | digest[index] & 0xFF;
+            }
+
+            return hash == 0L ? 1L : hash;
+        } catch (final NoSuchAlgorithmException details) {
+            throw new IllegalStateException(details); // Every JVM is required to support MD5
+        }
+    }
+
+    /**
+     * A wrapper that lets the image info cache be put in a Vert.x local map. The cache synchronizes its own methods,
+     * so it's safe to share between verticles.
+     */
+    private static final class SharedCache implements Shareable {
+
+        private final ImageInfoCache myCache;
+
+        private SharedCache(final ImageInfoCache aCache) {
+            myCache = aCache;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipException;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.iiif.fester.storage.KeyPage;
+import edu.ucla.library.iiif.fester.storage.Storage;
+import edu.ucla.library.iiif.fester.storage.StorageFactory;
+import edu.ucla.library.iiif.fester.storage.StoredObject;
+import edu.ucla.library.iiif.fester.utils.CompressionUtils;
+import edu.ucla.library.iiif.fester.utils.GzipInflater;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.core.streams.ReadStream;
+
+/**
+ * A background job that warms the {@link ImageInfoCache} with the widths and heights that are already recorded in
+ * the works' stored manifests, so that a new node, or one whose cache has been lost, doesn't have to look them up
+ * on the image server again. It walks the works in storage a page of keys at a time, streaming a bounded number of
+ * manifests at once, and reports its progress and throughput as it goes.
+ * <p>
+ * There's one harvester in each Vert.x instance, and only one harvest runs at a time. It's thread-safe, so its
+ * progress can be read from any context.
+ * </p>
+ */
+public final class ImageInfoHarvester {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageInfoHarvester.class, Constants.MESSAGES);
+
+    private static final String HARVESTER_MAP = "fester.image.info.harvester";
+
+    private static final String HARVESTER_KEY = "harvester";
+
+    private static final int DEFAULT_CONCURRENCY = 4;
+
+    private static final String JSON_EXT = "." + Constants.JSON_EXT;
+
+    private final Storage myStorage;
+
+    private final ImageInfoCache myCache;
+
+    private final ConcurrencyLimiter myLimiter;
+
+    private String myState = Status.IDLE;
+
+    private Instant myStartTime;
+
+    private Instant myEndTime;
+
+    private String myError;
+
+    private long myManifestCount;
+
+    private long myReadCount;
+
+    private long myFailureCount;
+
+    private long myImageCount;
+
+    private long myAddedCount;
+
+    private ImageInfoHarvester(final Vertx aVertx, final JsonObject aConfig) {
+        final int concurrency = aConfig.getInteger(Config.IIIF_HARVEST_CONCURRENCY, DEFAULT_CONCURRENCY);
+
+        myStorage = StorageFactory.getStorage(aVertx, aConfig);
+        myCache = ImageInfoCache.getCache(aVertx, aConfig);
+        myLimiter = new ConcurrencyLimiter(aVertx, concurrency);
+    }
+
+    /**
+     * Gets the image info harvester that's shared by everything in the supplied Vert.x instance.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aConfig An application configuration
+     * @return The image info harvester
+     */
+    public static ImageInfoHarvester getHarvester(final Vertx aVertx, final JsonObject aConfig) {
+        final LocalMap<String, SharedHarvester> map = aVertx.sharedData().getLocalMap(HARVESTER_MAP);
+
+        synchronized (map) {
+            SharedHarvester sharedHarvester = map.get(HARVESTER_KEY);
+
+            if (sharedHarvester == null) {
+                sharedHarvester = new SharedHarvester(new ImageInfoHarvester(aVertx, aConfig));
+                map.put(HARVESTER_KEY, sharedHarvester);
+            }
+
+            return sharedHarvester.myHarvester;
+        }
+    }
+
+    /**
+     * Starts harvesting the widths and heights of the images in the stored manifests, unless a harvest is already
+     * running. The harvest runs on the caller's context.
+     *
+     * @return True if a harvest was started; false if one was already running
+     */
+    public boolean start() {
+        synchronized (this) {
+            if (Status.RUNNING.equals(myState)) {
+                return false;
+            }
+
+            myState = Status.RUNNING;
+            myStartTime = Instant.now();
+            myEndTime = null;
+            myError = null;
+            myManifestCount = 0;
+            myReadCount = 0;
+            myFailureCount = 0;
+            myImageCount = 0;
+            myAddedCount = 0;
+        }
+
+        LOGGER.info(MessageCodes.MFS_230, Constants.WORK_S3_KEY_PREFIX);
+        harvestPage(null);
+        return true;
+    }
+
+    /**
+     * Gets the harvest's progress and throughput.
+     *
+     * @return The harvest's progress
+     */
+    public synchronized JsonObject getStats() {
+        final JsonObject stats = new JsonObject().put(Status.STATE, myState);
+
+        if (myStartTime != null) {
+            final Instant endTime = myEndTime == null ? Instant.now() : myEndTime;
+            final long elapsed = Math.max(1, endTime.toEpochMilli() - myStartTime.toEpochMilli());
+
+            stats.put(Status.STARTED, myStartTime.toString()).put(Status.ELAPSED, elapsed);
+            stats.put(Status.MANIFESTS, myManifestCount).put(Status.READS, myReadCount);
+            stats.put(Status.FAILURES, myFailureCount).put(Status.IMAGES, myImageCount);
+            stats.put(Status.ADDED, myAddedCount);
+            stats.put(Status.MANIFESTS_PER_SECOND, myReadCount * 1000D / elapsed);
+            stats.put(Status.IMAGES_PER_SECOND, myImageCount * 1000D / elapsed);
+        }
+
+        if (myEndTime != null) {
+            stats.put(Status.FINISHED, myEndTime.toString());
+        }
+
+        if (myError != null) {
+            stats.put(Status.ERROR, myError);
+        }
+
+        return stats;
+    }
+
+    /**
+     * Harvests the manifests in the next page of works, moving on to the page after once they've all been read.
+     *
+     * @param aStartAfter The last key of the previous page (or null for the first page)
+     */
+    @SuppressWarnings("rawtypes")
+    private void harvestPage(final String aStartAfter) {
+        myStorage.list(Constants.WORK_S3_KEY_PREFIX, aStartAfter, list -> {
+            if (list.failed()) {
+                finish(list.cause());
+            } else {
+                final KeyPage page = list.result();
+                final List<Future> futures = new ArrayList<>(page.getKeys().size());
+
+                for (final String key : page.getKeys()) {
+                    if (key.endsWith(JSON_EXT)) {
+                        futures.add(myLimiter.<Void>submit(promise -> harvest(key, promise)));
+                    }
+                }
+
+                synchronized (this) {
+                    myManifestCount += futures.size();
+                }
+
+                // Each manifest's harvest always succeeds, so this waits for the whole page
+                CompositeFuture.all(futures).onComplete(all -> {
+                    if (page.isTruncated() && page.getLastKey() != null) {
+                        harvestPage(page.getLastKey());
+                    } else {
+                        finish(null);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Streams a manifest from storage, caching the widths and heights of its images. A manifest that can't be read
+     * is counted as a failure rather than stopping the harvest.
+     *
+     * @param aKey A manifest's key
+     * @param aPromise A promise that's completed once the manifest has been read
+     */
+    private void harvest(final String aKey, final Promise<Void> aPromise) {
+        final ManifestImageExtractor extractor = new ManifestImageExtractor((url, imageInfo) -> {
+            final boolean added = myCache.preload(url, imageInfo);
+
+            synchronized (this) {
+                myAddedCount += added ? 1 : 0;
+            }
+        });
+
+        myStorage.stream(aKey, get -> {
+            if (get.failed()) {
+                fail(aKey, get.cause(), null, aPromise);
+            } else {
+                final StoredObject object = get.result();
+                final ReadStream<Buffer> stream = object.getStream();
+
+                // A compressed manifest is inflated a chunk at a time, as it's parsed
+                final GzipInflater inflater =
+                        CompressionUtils.isGzipped(object.getContentEncoding()) ? new GzipInflater() : null;
+
+                if (stream == null) {
+                    write(aKey, extractor, inflater, object.getContent(), aPromise);
+                    end(aKey, extractor, inflater, aPromise);
+                } else {
+                    stream.handler(chunk -> write(aKey, extractor, inflater, chunk, aPromise));
+                    stream.exceptionHandler(details -> fail(aKey, details, inflater, aPromise));
+                    stream.endHandler(end -> end(aKey, extractor, inflater, aPromise));
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the next chunk of a manifest. Once a manifest has failed, the rest of it is just let go by.
+     *
+     * @param aKey The manifest's key
+     * @param aExtractor The extractor that's reading the manifest
+     * @param aInflater An inflater, if the manifest is compressed; else, null
+     * @param aChunk The next chunk of the manifest, as it's stored
+     * @param aPromise A promise that's completed once the manifest has been read
+     */
+    private void write(final String aKey, final ManifestImageExtractor aExtractor, final GzipInflater aInflater,
+            final Buffer aChunk, final Promise<Void> aPromise) {
+        if (!aPromise.future().isComplete()) {
+            try {
+                aExtractor.write(aInflater == null ? aChunk : aInflater.inflate(aChunk));
+            } catch (final ZipException details) {
+                fail(aKey, details, aInflater, aPromise);
+            }
+        }
+    }
+
+    /**
+     * Finishes reading a manifest.
+     *
+     * @param aKey The manifest's key
+     * @param aExtractor The extractor that's been reading the manifest
+     * @param aInflater An inflater, if the manifest is compressed; else, null
+     * @param aPromise A promise that's completed once the manifest has been read
+     */
+    private void end(final String aKey, final ManifestImageExtractor aExtractor, final GzipInflater aInflater,
+            final Promise<Void> aPromise) {
+        if (aPromise.future().isComplete()) {
+            return;
+        }
+
+        try {
+            final int imageCount;
+
+            if (aInflater != null) {
+                aInflater.finish();
+            }
+
+            imageCount = aExtractor.end();
+
+            if (aPromise.tryComplete()) {
+                synchronized (this) {
+                    myReadCount += 1;
+                    myImageCount += imageCount;
+                }
+            }
+        } catch (final IOException details) {
+            fail(aKey, details, aInflater, aPromise);
+        }
+    }
+
+    private void fail(final String aKey, final Throwable aError, final GzipInflater aInflater,
+            final Promise<Void> aPromise) {
+        if (aInflater != null) {
+            aInflater.close();
+        }
+
+        // A stream can fail after it's already ended, so the manifest is only counted once
+        if (aPromise.tryComplete()) {
+            LOGGER.warn(MessageCodes.MFS_231, aKey, aError.getMessage());
+
+            synchronized (this) {
+                myFailureCount += 1;
+            }
+        }
+    }
+
+    private void finish(final Throwable aError) {
+        final JsonObject stats;
+
+        synchronized (this) {
+            myState = aError == null ? Status.DONE : Status.FAILED;
+            myEndTime = Instant.now();
+            myError = aError == null ? null : aError.getMessage();
+            stats = getStats();
+        }
+
+        if (aError == null) {
+            LOGGER.info(MessageCodes.MFS_232, stats.encode());
+        } else {
+            LOGGER.error(aError, MessageCodes.MFS_233, stats.encode());
+        }
+    }
+
+    /**
+     * A wrapper that lets the harvester be put in a Vert.x local map.
+     */
+    private static final class SharedHarvester implements Shareable {
+
+        private final ImageInfoHarvester myHarvester;
+
+        private SharedHarvester(final ImageInfoHarvester aHarvester) {
+            myHarvester = aHarvester;
+        }
+    }
+}
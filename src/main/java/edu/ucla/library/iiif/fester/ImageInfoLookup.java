@@ -1,23 +1,47 @@
 
 package edu.ucla.library.iiif.fester;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URI;
-import java.net.URL;
+import java.util.Optional;
 
 import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
+import info.freelibrary.util.StringUtils;
 
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.ext.web.codec.BodyCodec;
 
 /**
- * Information about a IIIF image.
+ * Looks up the width and height of IIIF images from their info.json files. Lookups don't block: they're made with a
+ * pooled, keep-alive HTTP client, each has its own deadline, and the info.json is parsed as it arrives. An image's
+ * width and height don't change, so they're kept in the shared {@link ImageInfoCache} and only looked up once.
+ * <p>
+ * All lookups share a {@link CircuitBreaker} that watches the image server's health. A lookup's deadline follows the
+ * image server's recent latency and, while the breaker is open, lookups fail straight away rather than waiting on an
+ * image server that isn't answering.
+ * </p>
+ * <p>
+ * Concurrent lookups of the same image, whether they're for works in the same CSV or in CSVs that are being ingested
+ * at the same time, share a single request to the image server and its result or failure.
+ * </p>
  */
 public class ImageInfoLookup {
 
@@ -25,94 +49,498 @@ public class ImageInfoLookup {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ImageInfoLookup.class, Constants.MESSAGES);
 
-    private static final int CANTALOUPE_TIMEOUT = 300000; // Five minutes
+    private static final String MISSING = "[MISSING]";
 
-    private final int myWidth;
+    private static final int FAKE_SIZE = 1000;
 
-    private final int myHeight;
+    private static final long DEFAULT_TIMEOUT = 60000; // In milliseconds
+
+    private static final int DEFAULT_POOL_SIZE = 20;
+
+    private static final int DEFAULT_HTTP2_POOL_SIZE = 1;
+
+    private static final int DEFAULT_HTTP2_MULTIPLEXING_LIMIT = 100;
+
+    private static final long DEFAULT_MIN_TIMEOUT = 1000; // In milliseconds
+
+    private static final int DEFAULT_BREAKER_WINDOW = 50;
+
+    private static final double DEFAULT_BREAKER_FAILURE_RATE = 0.5D;
+
+    private static final long DEFAULT_BREAKER_MAX_LATENCY = 10000; // In milliseconds
+
+    private static final long DEFAULT_BREAKER_RESET_TIMEOUT = 30000; // In milliseconds
+
+    private static final int DEFAULT_PROBE_LENGTH = 16384;
+
+    private static final int DEFAULT_PROBE_MAX_LENGTH = 1048576;
+
+    private static final String BYTE_RANGE = "bytes=0-{}";
+
+    private static final String IMAGE_SERVER = "the image server";
+
+    private static final String SHARED_MAP = "fester.iiif.lookup";
+
+    private static final String SHARED_KEY = "image-server";
+
+    private final Vertx myVertx;
+
+    private final WebClient myClient;
+
+    /* The client that's under the web client, for requests that need to be able to hang up part way through */
+    private final HttpClient myHttpClient;
+
+    private final ImageInfoCache myCache;
+
+    private final ConcurrencyLimiter myLimiter;
+
+    private final CircuitBreaker myBreaker;
+
+    private final HostMetrics myMetrics;
+
+    private final RequestCoalescer<String, ImageInfo> myLookups;
+
+    private final RequestCoalescer<String, ImageInfo> myProbes;
+
+    private final long myMaxTimeout;
+
+    private final int myProbeLength;
+
+    private final int myProbeMaxLength;
 
     /**
-     * Create a new image info object from the information at the supplied URL.
+     * Creates a new image info lookup. All the lookups in a Vert.x instance share one HTTP client, which keeps a pool
+     * of connections to each host that images are looked up on, so batches that point at different image servers
+     * don't compete for the same connections.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aConfig An application configuration
+     */
+    public ImageInfoLookup(final Vertx aVertx, final JsonObject aConfig) {
+        final SharedState sharedState = getSharedState(aVertx, aConfig);
+
+        myVertx = aVertx;
+        myHttpClient = sharedState.myHttpClient;
+        myClient = sharedState.myClient;
+        myCache = ImageInfoCache.getCache(aVertx, aConfig);
+        myMetrics = sharedState.myMetrics;
+        myLimiter = sharedState.myLimiter;
+        myBreaker = sharedState.myBreaker;
+        myLookups = sharedState.myLookups;
+        myProbes = sharedState.myProbes;
+        myMaxTimeout = aConfig.getLong(Config.IIIF_LOOKUP_TIMEOUT, DEFAULT_TIMEOUT);
+        myProbeLength = Math.max(1, aConfig.getInteger(Config.STATIC_IMAGE_PROBE_LENGTH, DEFAULT_PROBE_LENGTH));
+        myProbeMaxLength = Math.max(myProbeLength,
+                aConfig.getInteger(Config.STATIC_IMAGE_PROBE_MAX_LENGTH, DEFAULT_PROBE_MAX_LENGTH));
+    }
+
+    /**
+     * Gets how long a lookup is currently allowed to take. The timeout follows the image server's recent latency, so
+     * a slow image server is given longer to answer and a fast one isn't waited on for long once it stops answering.
+     *
+     * @return A timeout in milliseconds
+     */
+    public long getTimeout() {
+        return myBreaker.getTimeout();
+    }
+
+    /**
+     * Gets statistics about the lookups made to the image server by everything running in the supplied Vert.x
+     * instance: how many are in flight, the state of the image server's circuit breaker, the requests and latencies
+     * of each image host, and how many lookups and probes were coalesced with one that was already in flight.
+     *
+     * @param aVertx A Vert.x instance
+     * @return The lookups' statistics, or an empty object if no lookups have been set up yet
+     */
+    public static JsonObject getStats(final Vertx aVertx) {
+        final LocalMap<String, SharedState> map = aVertx.sharedData().getLocalMap(SHARED_MAP);
+        final SharedState sharedState = map.get(SHARED_KEY);
+
+        if (sharedState == null) {
+            return new JsonObject();
+        }
+
+        return sharedState.myMetrics.getStats().put(Status.LIMITER, sharedState.myLimiter.getStats())
+                .put(Status.BREAKER, sharedState.myBreaker.getStats())
+                .put(Status.LOOKUPS, sharedState.myLookups.getStats())
+                .put(Status.PROBES, sharedState.myProbes.getStats());
+    }
+
+    /**
+     * Looks up the width and height of the image whose info.json file is at the supplied URL. The lookup fails with
+     * an {@link ImageNotFoundException} if the URL is bad or the image server doesn't have the image; any other
+     * failure means the image server couldn't be asked or didn't answer in time. Lookups that have to go to the image
+     * server wait their turn if the image server already has as many lookups in flight as it's allowed; if the image
+     * server's circuit breaker is open, they fail straight away.
      *
      * @param aURL A URL for an image's info.json file
-     * @throws IOException If there is trouble looking up the image's dimensions
-     * @throws MalformedURLException If the supplied URL isn't well-formed
-     * @throws ImageNotFoundException If the requested image cannot be found
+     * @return A future with the image's width and height
      */
-    public ImageInfoLookup(final String aURL) throws MalformedURLException, IOException, ImageNotFoundException {
-        final URL url;
+    public Future<ImageInfo> lookup(final String aURL) {
+        final Optional<Future<ImageInfo>> badURL;
 
-        LOGGER.info(MessageCodes.MFS_191, aURL.isBlank() ? "[MISSING]" : aURL);
+        LOGGER.info(MessageCodes.MFS_191, aURL.isBlank() ? MISSING : aURL);
 
         // Check to make sure our URL is valid
-        try {
-            url = URI.create(aURL).toURL();
-            LOGGER.debug(MessageCodes.MFS_072, aURL);
-        } catch (IllegalArgumentException details) {
-            LOGGER.error(details, MessageCodes.MFS_190, aURL.isBlank() ? "[MISSING]" : aURL);
-            throw new ImageNotFoundException(MessageCodes.MFS_190, aURL);
+        badURL = checkURL(aURL);
+
+        if (badURL.isPresent()) {
+            return badURL.get();
         }
 
         // If our images are using an unspecified host, we're running in test mode and will use fake values
         if (aURL.contains(Constants.UNSPECIFIED_HOST) || aURL.startsWith(FAKE_IIIF_SERVER)) {
-            myHeight = 1000;
-            myWidth = 1000;
-        } else {
-            final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            final int responseCode;
-
-            connection.setReadTimeout(CANTALOUPE_TIMEOUT);
-            responseCode = connection.getResponseCode();
-
-            if (responseCode == HTTP.OK) {
-                final InputStream inStream = new BufferedInputStream(connection.getInputStream());
-                final StringBuilder result = new StringBuilder();
-                final JsonObject jsonObject;
-
-                // Use try-with-resources so the reader is closed automatically
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(inStream))) {
-                    String line;
-
-                    while ((line = reader.readLine()) != null) {
-                        result.append(line);
-                    }
+            return Future.succeededFuture(new ImageInfo(FAKE_SIZE, FAKE_SIZE));
+        }
 
-                    // Get the info.json contents
-                    jsonObject = new JsonObject(result.toString());
+        final Optional<ImageInfo> cachedImageInfo = myCache.get(aURL);
 
-                    // Find our image's width and height or use zero if they're missing in the manifest
-                    myHeight = jsonObject.getInteger("height", 0);
-                    myWidth = jsonObject.getInteger("width", 0);
+        if (cachedImageInfo.isPresent()) {
+            LOGGER.debug(MessageCodes.MFS_215, aURL);
+            return Future.succeededFuture(cachedImageInfo.get());
+        }
 
-                    if (myHeight == 0 || myWidth == 0) {
-                        LOGGER.warn(MessageCodes.MFS_073, aURL);
-                    }
-                }
-            } else if (responseCode == HTTP.NOT_FOUND || responseCode == HTTP.FORBIDDEN) {
-                // Cantaloupe returns 403 for not found images sometimes (which seems like a bug?)
-                throw new ImageNotFoundException(MessageCodes.MFS_070, aURL);
+        return coalesce(myLookups, aURL, promise -> {
+            myLimiter.<ImageInfo>submit(request -> fetch(aURL, request)).onComplete(promise);
+        });
+    }
+
+    /**
+     * Reads the width and height of a static image, one that isn't served by the image server, from its header. Only
+     * the start of the image is fetched, with a range request, so this costs a small fraction of downloading it. Like
+     * a lookup, the probe fails with an {@link ImageNotFoundException} if the URL is bad or the image isn't there, and
+     * its result is kept in the image info cache.
+     *
+     * @param aURL The URL of a JPEG, PNG, GIF or WebP image
+     * @return A future with the image's width and height
+     */
+    public Future<ImageInfo> probe(final String aURL) {
+        final Optional<Future<ImageInfo>> badURL;
+        final Optional<ImageInfo> cachedImageInfo;
+
+        LOGGER.info(MessageCodes.MFS_223, aURL.isBlank() ? MISSING : aURL);
+
+        badURL = checkURL(aURL);
+
+        if (badURL.isPresent()) {
+            return badURL.get();
+        }
+
+        cachedImageInfo = myCache.get(aURL);
+
+        if (cachedImageInfo.isPresent()) {
+            LOGGER.debug(MessageCodes.MFS_215, aURL);
+            return Future.succeededFuture(cachedImageInfo.get());
+        }
+
+        return coalesce(myProbes, aURL, promise -> {
+            myLimiter.<ImageInfo>submit(request -> fetchHeader(aURL, myProbeLength, request)).onComplete(promise);
+        });
+    }
+
+    /**
+     * Makes a request to the image server, or joins the one that's already in flight for the same URL. The result
+     * is handed back on the caller's context, whichever context the shared request was made from.
+     *
+     * @param aCoalescer The coalescer that requests of this kind share
+     * @param aURL The URL that's being requested
+     * @param aRequest The request to make if there isn't one in flight
+     * @return A future with the image's width and height
+     */
+    private Future<ImageInfo> coalesce(final RequestCoalescer<String, ImageInfo> aCoalescer, final String aURL,
+            final Handler<Promise<ImageInfo>> aRequest) {
+        final Context context = myVertx.getOrCreateContext();
+        final Promise<ImageInfo> promise = Promise.promise();
+
+        aCoalescer.request(aURL, aRequest, result -> {
+            if (context == Vertx.currentContext()) {
+                promise.handle(result);
             } else {
-                final String responseMessage = connection.getResponseMessage();
-                throw new IOException(LOGGER.getMessage(MessageCodes.MFS_071, responseCode, responseMessage));
+                context.runOnContext(run -> promise.handle(result));
+            }
+        });
+
+        return promise.future();
+    }
+
+    /**
+     * Checks that a URL is one that can be fetched.
+     *
+     * @param aURL A URL
+     * @return A failed future if the URL is bad; else, empty
+     */
+    private Optional<Future<ImageInfo>> checkURL(final String aURL) {
+        try {
+            URI.create(aURL).toURL();
+            LOGGER.debug(MessageCodes.MFS_072, aURL);
+            return Optional.empty();
+        } catch (final IllegalArgumentException details) {
+            LOGGER.error(details, MessageCodes.MFS_190, aURL.isBlank() ? MISSING : aURL);
+            return Optional.of(Future.failedFuture(new ImageNotFoundException(MessageCodes.MFS_190, aURL)));
+        } catch (final MalformedURLException details) {
+            return Optional.of(Future.failedFuture(details));
+        }
+    }
+
+    /**
+     * Gets the HTTP client, limiter and circuit breaker that are shared by all the lookups in the supplied Vert.x
+     * instance, so that there's a single connection pool for each image host, a single limit on how many lookups are
+     * in flight to the image server, and a single view of its health, however many works are being built at once.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aConfig An application configuration
+     * @return The lookups' shared state
+     */
+    private static SharedState getSharedState(final Vertx aVertx, final JsonObject aConfig) {
+        final LocalMap<String, SharedState> map = aVertx.sharedData().getLocalMap(SHARED_MAP);
+
+        synchronized (map) {
+            SharedState sharedState = map.get(SHARED_KEY);
+
+            if (sharedState == null) {
+                final int poolSize = aConfig.getInteger(Config.IIIF_LOOKUP_POOL_SIZE, DEFAULT_POOL_SIZE);
+                final int maxInFlight = aConfig.getInteger(Config.IIIF_LOOKUP_MAX_CONCURRENCY, poolSize);
+                final long timeout = aConfig.getLong(Config.IIIF_LOOKUP_TIMEOUT, DEFAULT_TIMEOUT);
+                final HostMetrics metrics = new HostMetrics();
+                final WebClientOptions options = getClientOptions(aConfig, poolSize, timeout);
+                final HttpClient httpClient = aVertx.createHttpClient(options).connectionHandler(connection -> {
+                    metrics.onConnectionOpened();
+                    connection.closeHandler(closed -> metrics.onConnectionClosed());
+                });
+                final CircuitBreaker breaker = new CircuitBreaker(IMAGE_SERVER,
+                        aConfig.getInteger(Config.IIIF_BREAKER_WINDOW, DEFAULT_BREAKER_WINDOW),
+                        aConfig.getDouble(Config.IIIF_BREAKER_FAILURE_RATE, DEFAULT_BREAKER_FAILURE_RATE),
+                        aConfig.getLong(Config.IIIF_BREAKER_MAX_LATENCY, DEFAULT_BREAKER_MAX_LATENCY),
+                        aConfig.getLong(Config.IIIF_BREAKER_RESET_TIMEOUT, DEFAULT_BREAKER_RESET_TIMEOUT),
+                        aConfig.getLong(Config.IIIF_LOOKUP_MIN_TIMEOUT, DEFAULT_MIN_TIMEOUT), timeout);
+
+                sharedState = new SharedState(httpClient, WebClient.wrap(httpClient, options),
+                        new ConcurrencyLimiter(aVertx, maxInFlight), breaker, metrics, new RequestCoalescer<>(),
+                        new RequestCoalescer<>());
+                map.put(SHARED_KEY, sharedState);
+
+                LOGGER.debug(MessageCodes.MFS_210, poolSize, timeout);
+                LOGGER.debug(MessageCodes.MFS_217, maxInFlight);
             }
+
+            return sharedState;
         }
     }
 
     /**
-     * Gets the width of the image.
+     * Gets the options for the lookups' HTTP client.
      *
-     * @return The width of the image
+     * @param aConfig An application configuration
+     * @param aPoolSize The number of connections to keep to each image host
+     * @param aTimeout The longest a lookup is allowed to take, in milliseconds
+     * @return The HTTP client's options
      */
-    public int getWidth() {
-        return myWidth;
+    private static WebClientOptions getClientOptions(final JsonObject aConfig, final int aPoolSize,
+            final long aTimeout) {
+        final WebClientOptions options = new WebClientOptions();
+
+        // Vert.x keeps a separate pool for each host and port, so the pool size is per image host
+        options.setKeepAlive(true).setMaxPoolSize(aPoolSize).setTcpNoDelay(true).setTcpKeepAlive(true);
+        options.setConnectTimeout((int) Math.min(aTimeout, Integer.MAX_VALUE));
+
+        // With HTTP/2, many lookups share each connection; hosts that don't speak it get HTTP/1.1 instead
+        if (aConfig.getBoolean(Config.IIIF_LOOKUP_HTTP2, false)) {
+            options.setProtocolVersion(HttpVersion.HTTP_2).setUseAlpn(true).setHttp2ClearTextUpgrade(true);
+            options.setHttp2MaxPoolSize(aConfig.getInteger(Config.IIIF_LOOKUP_HTTP2_POOL_SIZE,
+                    DEFAULT_HTTP2_POOL_SIZE));
+            options.setHttp2MultiplexingLimit(aConfig.getInteger(Config.IIIF_LOOKUP_HTTP2_MULTIPLEXING_LIMIT,
+                    DEFAULT_HTTP2_MULTIPLEXING_LIMIT));
+        }
+
+        return options;
     }
 
     /**
-     * Returns the height of the image.
+     * Fetches an image's info.json file from the image server and parses its width and height from it.
      *
-     * @return The height of the image
+     * @param aURL A URL for an image's info.json file
+     * @param aPromise A promise for the image's width and height
      */
-    public int getHeight() {
-        return myHeight;
+    private void fetch(final String aURL, final Promise<ImageInfo> aPromise) {
+        final ImageInfoParser parser = new ImageInfoParser();
+        final String host = HostMetrics.getHost(aURL);
+        final long start = System.currentTimeMillis();
+
+        // If the image server is failing, don't wait on it; the canvas will fall back to the placeholder image
+        if (!myBreaker.tryAcquire()) {
+            aPromise.fail(new IOException(LOGGER.getMessage(MessageCodes.MFS_221, aURL)));
+            return;
+        }
+
+        myMetrics.onStart(host);
+        myClient.getAbs(aURL).timeout(myBreaker.getTimeout()).as(BodyCodec.pipe(parser)).send(request -> {
+            final long latency = System.currentTimeMillis() - start;
+
+            if (request.succeeded()) {
+                final HttpResponse<Void> response = request.result();
+                final int statusCode = response.statusCode();
+
+                // Any answer other than a server error means the image server is working
+                if (statusCode >= HTTP.INTERNAL_SERVER_ERROR) {
+                    myBreaker.onFailure(latency);
+                } else {
+                    myBreaker.onSuccess(latency);
+                }
+
+                myMetrics.onEnd(host, latency, statusCode >= HTTP.INTERNAL_SERVER_ERROR);
+
+                if (statusCode == HTTP.OK) {
+                    if (parser.getError() != null) {
+                        aPromise.fail(parser.getError());
+                    } else {
+                        // Find our image's width and height or use zero if they're missing in the info.json
+                        if (parser.getWidth() == 0 || parser.getHeight() == 0) {
+                            LOGGER.warn(MessageCodes.MFS_073, aURL);
+                        }
+
+                        final ImageInfo imageInfo = new ImageInfo(parser.getWidth(), parser.getHeight());
+
+                        myCache.put(aURL, imageInfo);
+                        aPromise.complete(imageInfo);
+                    }
+                } else if (statusCode == HTTP.NOT_FOUND || statusCode == HTTP.FORBIDDEN) {
+                    // Cantaloupe returns 403 for not found images sometimes (which seems like a bug?)
+                    aPromise.fail(new ImageNotFoundException(MessageCodes.MFS_070, aURL));
+                } else {
+                    aPromise.fail(new IOException(LOGGER.getMessage(MessageCodes.MFS_071, statusCode,
+                            response.statusMessage())));
+                }
+            } else {
+                myBreaker.onFailure(latency);
+                myMetrics.onEnd(host, latency, true);
+                aPromise.fail(request.cause());
+            }
+        });
+    }
+
+    /**
+     * Fetches the start of a static image and reads its width and height from its header. If the header goes on
+     * beyond the bytes that were fetched, as a JPEG's can when it has a lot of metadata, more of the image is fetched,
+     * up to a limit. Static images aren't served by the image server, so the image server's circuit breaker isn't
+     * consulted.
+     *
+     * @param aURL The URL of a static image
+     * @param aLength The number of bytes of the image to fetch
+     * @param aPromise A promise for the image's width and height
+     */
+    private void fetchHeader(final String aURL, final int aLength, final Promise<ImageInfo> aPromise) {
+        final ImageHeaderParser parser = new ImageHeaderParser(aLength);
+        final String range = StringUtils.format(BYTE_RANGE, aLength - 1);
+        final String host = HostMetrics.getHost(aURL);
+        final long start = System.currentTimeMillis();
+        final Promise<HttpClientResponse> read = Promise.promise();
+        final HttpClientRequest request;
+
+        myMetrics.onStart(host);
+
+        try {
+            request = myHttpClient.requestAbs(HttpMethod.GET, aURL);
+        } catch (final RuntimeException details) {
+            myMetrics.onEnd(host, System.currentTimeMillis() - start, true);
+            aPromise.fail(details);
+            return;
+        }
+
+        request.handler(response -> {
+            final int statusCode = response.statusCode();
+
+            if (statusCode != HTTP.OK && statusCode != HTTP.PARTIAL_CONTENT) {
+                read.tryComplete(response);
+                return;
+            }
+
+            response.handler(chunk -> {
+                parser.write(chunk);
+
+                // A server that ignores the range sends the whole image, so we hang up once we have what we asked for
+                if (parser.isFull() && read.tryComplete(response) && statusCode == HTTP.OK) {
+                    request.reset();
+                }
+            });
+
+            response.exceptionHandler(read::tryFail);
+            response.endHandler(end -> read.tryComplete(response));
+        });
+
+        request.exceptionHandler(read::tryFail);
+        request.putHeader(HttpHeaders.RANGE, range).setTimeout(myMaxTimeout).end();
+
+        read.future().onComplete(result -> {
+            final long latency = System.currentTimeMillis() - start;
+
+            if (result.succeeded()) {
+                final HttpClientResponse response = result.result();
+                final int statusCode = response.statusCode();
+
+                myMetrics.onEnd(host, latency, statusCode >= HTTP.INTERNAL_SERVER_ERROR);
+
+                if (statusCode == HTTP.OK || statusCode == HTTP.PARTIAL_CONTENT) {
+                    try {
+                        final Optional<ImageInfo> imageInfo = parser.getImageInfo();
+                        final int requiredLength = parser.getRequiredLength();
+
+                        if (imageInfo.isPresent()) {
+                            myCache.put(aURL, imageInfo.get());
+                            aPromise.complete(imageInfo.get());
+                        } else if (requiredLength > aLength && aLength < myProbeMaxLength) {
+                            // Ask for enough to cover the next segments too, so there are fewer round trips
+                            fetchHeader(aURL, Math.min(myProbeMaxLength, requiredLength + myProbeLength), aPromise);
+                        } else {
+                            aPromise.fail(new IOException(LOGGER.getMessage(MessageCodes.MFS_224, aURL, aLength)));
+                        }
+                    } catch (final IOException details) {
+                        aPromise.fail(details);
+                    }
+                } else if (statusCode == HTTP.NOT_FOUND || statusCode == HTTP.FORBIDDEN) {
+                    aPromise.fail(new ImageNotFoundException(MessageCodes.MFS_225, aURL));
+                } else {
+                    aPromise.fail(new IOException(LOGGER.getMessage(MessageCodes.MFS_226, aURL, statusCode,
+                            response.statusMessage())));
+                }
+            } else {
+                myMetrics.onEnd(host, latency, true);
+                aPromise.fail(result.cause());
+            }
+        });
+    }
+
+    /**
+     * A wrapper that lets the lookups' HTTP client, limiter, circuit breaker, host metrics and coalescers be put in a
+     * Vert.x local map. They're all thread-safe, so they're safe to share between verticles. Like any Vert.x HTTP
+     * client, the shared client is closed if the verticle that happened to create it is undeployed; Fester's verticles
+     * run for as long as Fester does.
+     */
+    private static final class SharedState implements Shareable {
+
+        private final HttpClient myHttpClient;
+
+        private final WebClient myClient;
+
+        private final ConcurrencyLimiter myLimiter;
+
+        private final CircuitBreaker myBreaker;
+
+        private final HostMetrics myMetrics;
+
+        private final RequestCoalescer<String, ImageInfo> myLookups;
+
+        private final RequestCoalescer<String, ImageInfo> myProbes;
+
+        private SharedState(final HttpClient aHttpClient, final WebClient aClient, final ConcurrencyLimiter aLimiter,
+                final CircuitBreaker aBreaker, final HostMetrics aMetrics,
+                final RequestCoalescer<String, ImageInfo> aLookups, final RequestCoalescer<String, ImageInfo> aProbes) {
+            myHttpClient = aHttpClient;
+            myClient = aClient;
+            myLimiter = aLimiter;
+            myBreaker = aBreaker;
+            myMetrics = aMetrics;
+            myLookups = aLookups;
+            myProbes = aProbes;
+        }
     }
 }
@@ -0,0 +1,197 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+/**
+ * A write stream that parses an info.json file as it arrives, picking out the image's width and height. Parsing stops
+ * as soon as both have been found; the rest of the response is still read, so its connection can go back to the
+ * pool, but it's not parsed. Only the top-level <code>width</code> and <code>height</code> are used, not those of the
+ * image's sizes or tiles.
+ */
+class ImageInfoParser implements WriteStream<Buffer> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String WIDTH = "width";
+
+    private static final String HEIGHT = "height";
+
+    private final JsonParser myParser;
+
+    private int myWidth;
+
+    private int myHeight;
+
+    private boolean isDone;
+
+    private IOException myError;
+
+    /**
+     * Creates a new info.json parser.
+     *
+     * @throws IllegalStateException If a non-blocking JSON parser can't be created
+     */
+    ImageInfoParser() {
+        try {
+            myParser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (final IOException details) {
+            throw new IllegalStateException(details);
+        }
+    }
+
+    /**
+     * Gets the image's width, or zero if it wasn't found.
+     *
+     * @return The width of the image
+     */
+    int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Gets the image's height, or zero if it wasn't found.
+     *
+     * @return The height of the image
+     */
+    int getHeight() {
+        return myHeight;
+    }
+
+    /**
+     * Gets the error that stopped the parsing, if the response wasn't valid JSON.
+     *
+     * @return A parsing error, or null if there wasn't one
+     */
+    IOException getError() {
+        return myError;
+    }
+
+    @Override
+    public ImageInfoParser exceptionHandler(final Handler<Throwable> aHandler) {
+        return this;
+    }
+
+    @Override
+    public ImageInfoParser write(final Buffer aBuffer) {
+        if (!isDone) {
+            final byte[] bytes = aBuffer.getBytes();
+
+            try {
+                ((ByteArrayFeeder) myParser.getNonBlockingInputFeeder()).feedInput(bytes, 0, bytes.length);
+                parse();
+            } catch (final IOException details) {
+                stop(details);
+            }
+        }
+
+        return this;
+    }
+
+    @Override
+    public ImageInfoParser write(final Buffer aBuffer, final Handler<AsyncResult<Void>> aHandler) {
+        write(aBuffer);
+
+        if (aHandler != null) {
+            aHandler.handle(Future.succeededFuture());
+        }
+
+        return this;
+    }
+
+    @Override
+    public void end() {
+        if (!isDone) {
+            ((ByteArrayFeeder) myParser.getNonBlockingInputFeeder()).endOfInput();
+
+            try {
+                parse();
+            } catch (final IOException details) {
+                stop(details);
+            }
+
+            stop(null);
+        }
+    }
+
+    @Override
+    public void end(final Handler<AsyncResult<Void>> aHandler) {
+        end();
+
+        if (aHandler != null) {
+            aHandler.handle(Future.succeededFuture());
+        }
+    }
+
+    @Override
+    public ImageInfoParser setWriteQueueMaxSize(final int aMaxSize) {
+        return this;
+    }
+
+    @Override
+    public boolean writeQueueFull() {
+        return false;
+    }
+
+    @Override
+    public ImageInfoParser drainHandler(final Handler<Void> aHandler) {
+        return this;
+    }
+
+    /**
+     * Reads the tokens that are available so far, looking for the image's top-level width and height.
+     *
+     * @throws IOException If the info.json file isn't valid JSON
+     */
+    private void parse() throws IOException {
+        JsonToken token;
+
+        while (!isDone && (token = myParser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            final JsonStreamContext context = myParser.getParsingContext();
+
+            if (token == JsonToken.VALUE_NUMBER_INT && context.inObject() && context.getParent().inRoot()) {
+                final String name = myParser.getCurrentName();
+
+                if (WIDTH.equals(name)) {
+                    myWidth = myParser.getIntValue();
+                } else if (HEIGHT.equals(name)) {
+                    myHeight = myParser.getIntValue();
+                }
+
+                if (myWidth != 0 && myHeight != 0) {
+                    stop(null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops parsing, remembering why if it was because of an error.
+     *
+     * @param aError An error, or null if parsing has finished normally
+     */
+    private void stop(final IOException aError) {
+        if (!isDone) {
+            isDone = true;
+            myError = aError;
+
+            try {
+                myParser.close();
+            } catch (final IOException details) {
+                // Nothing more we need from the parser
+            }
+        }
+    }
+}
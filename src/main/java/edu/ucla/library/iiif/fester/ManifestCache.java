@@ -0,0 +1,200 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A bounded, in-memory cache of serialized manifests and collection documents, keyed by their S3 keys. Entries are
+ * evicted in least-recently-used order once the cache's size budget is exceeded, and expire after a configurable
+ * time-to-live. The cache isn't thread-safe; it's meant to be owned by a single verticle's event loop.
+ */
+public class ManifestCache {
+
+    /* The approximate number of bytes used to store a single character in memory */
+    private static final int BYTES_PER_CHAR = 2;
+
+    private final Map<String, Entry> myEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final long myMaxSize;
+
+    private final long myTTL;
+
+    private long mySize;
+
+    private long myHitCount;
+
+    private long myMissCount;
+
+    private long myEvictionCount;
+
+    /**
+     * Creates a new manifest cache.
+     *
+     * @param aMaxSize The maximum size of the cache's contents in bytes (zero disables caching)
+     * @param aTTL The time-to-live of a cache entry in milliseconds (zero means entries don't expire)
+     */
+    public ManifestCache(final long aMaxSize, final long aTTL) {
+        myMaxSize = Math.max(0, aMaxSize);
+        myTTL = Math.max(0, aTTL);
+    }
+
+    /**
+     * Whether the cache is able to store anything.
+     *
+     * @return True if the cache has been given a size budget; else, false
+     */
+    public boolean isEnabled() {
+        return myMaxSize > 0;
+    }
+
+    /**
+     * Gets a serialized manifest or collection document from the cache.
+     *
+     * @param aKey An S3 key
+     * @return The cached entry, if it's present and hasn't expired
+     */
+    public Optional<Entry> get(final String aKey) {
+        final Entry entry = myEntries.get(aKey);
+
+        if (entry == null) {
+            myMissCount += 1;
+            return Optional.empty();
+        }
+
+        if (entry.isExpired(System.currentTimeMillis())) {
+            remove(aKey);
+            myEvictionCount += 1;
+            myMissCount += 1;
+            return Optional.empty();
+        }
+
+        myHitCount += 1;
+        return Optional.of(entry);
+    }
+
+    /**
+     * Puts a serialized manifest or collection document into the cache, evicting older entries if needed. Documents
+     * larger than the whole cache aren't stored.
+     *
+     * @param aKey An S3 key
+     * @param aJSON A serialized manifest or collection document
+     * @param aETag The document's ETag (or null if it's not known)
+     * @param aLastModified The document's Last-Modified date (or null if it's not known)
+     */
+    public void put(final String aKey, final String aJSON, final String aETag, final String aLastModified) {
+        final long size = (long) aJSON.length() * BYTES_PER_CHAR;
+        final long expiration = myTTL == 0 ? Long.MAX_VALUE : System.currentTimeMillis() + myTTL;
+
+        remove(aKey);
+
+        if (size > myMaxSize) {
+            return;
+        }
+
+        myEntries.put(aKey, new Entry(aJSON, aETag, aLastModified, size, expiration));
+        mySize += size;
+
+        // Evict the least recently used entries until we're back within our budget
+        final Iterator<Entry> iterator = myEntries.values().iterator();
+
+        while (mySize > myMaxSize && iterator.hasNext()) {
+            mySize -= iterator.next().mySize;
+            iterator.remove();
+            myEvictionCount += 1;
+        }
+    }
+
+    /**
+     * Removes a manifest or collection document from the cache.
+     *
+     * @param aKey An S3 key
+     */
+    public void invalidate(final String aKey) {
+        remove(aKey);
+    }
+
+    /**
+     * Gets the cache's hit, miss, and eviction counts, along with its current size.
+     *
+     * @return The cache's statistics
+     */
+    public JsonObject getStats() {
+        return new JsonObject().put(Status.HITS, myHitCount).put(Status.MISSES, myMissCount)
+                .put(Status.EVICTIONS, myEvictionCount).put(Status.ENTRIES, myEntries.size())
+                .put(Status.SIZE, mySize).put(Status.MAX_SIZE, myMaxSize);
+    }
+
+    /**
+     * Removes an entry from the cache, keeping track of the cache's size.
+     *
+     * @param aKey An S3 key
+     */
+    private void remove(final String aKey) {
+        final Entry entry = myEntries.remove(aKey);
+
+        if (entry != null) {
+            mySize -= entry.mySize;
+        }
+    }
+
+    /**
+     * A cached document, its validators, and the bookkeeping needed to expire it.
+     */
+    public static final class Entry {
+
+        private final String myJSON;
+
+        private final String myETag;
+
+        private final String myLastModified;
+
+        private final long mySize;
+
+        private final long myExpiration;
+
+        private Entry(final String aJSON, final String aETag, final String aLastModified, final long aSize,
+                final long aExpiration) {
+            myJSON = aJSON;
+            myETag = aETag;
+            myLastModified = aLastModified;
+            mySize = aSize;
+            myExpiration = aExpiration;
+        }
+
+        /**
+         * Gets the serialized manifest or collection document.
+         *
+         * @return The cached JSON
+         */
+        public String getJSON() {
+            return myJSON;
+        }
+
+        /**
+         * Gets the document's ETag.
+         *
+         * @return The document's ETag, or null if it isn't known
+         */
+        public String getETag() {
+            return myETag;
+        }
+
+        /**
+         * Gets the document's Last-Modified date.
+         *
+         * @return The document's Last-Modified date, or null if it isn't known
+         */
+        public String getLastModified() {
+            return myLastModified;
+        }
+
+        private boolean isExpired(final long aTime) {
+            return aTime > myExpiration;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.JsonEvent;
+import io.vertx.core.parsetools.JsonParser;
+
+/**
+ * Reads the widths and heights of a stored manifest's images as the manifest streams in. The manifest is parsed as a
+ * stream of JSON events, and only one canvas at a time is held in memory, however many pages the work has. Both v2
+ * manifests, where the canvases' images are in <code>images[].resource</code>, and v3 manifests, where they're in
+ * <code>items[].items[].body</code>, are understood.
+ * <p>
+ * An image that's served by an image server is keyed by the ID of its image service, which is the URL its width and
+ * height are looked up by; a static image, one without a service, is keyed by its own ID.
+ * </p>
+ */
+class ManifestImageExtractor {
+
+    private static final String V2_CANVASES = "canvases";
+
+    private static final String V3_ITEMS = "items";
+
+    private static final String V2_IMAGES = "images";
+
+    private static final String V2_RESOURCE = "resource";
+
+    private static final String V3_BODY = "body";
+
+    private static final String SERVICE = "service";
+
+    private static final String V2_ID = "@id";
+
+    private static final String V3_ID = "id";
+
+    private static final String V2_TYPE = "@type";
+
+    private static final String V3_TYPE = "type";
+
+    private static final String V2_IMAGE_TYPE = "dctypes:Image";
+
+    private static final String V3_IMAGE_TYPE = "Image";
+
+    private static final String WIDTH = "width";
+
+    private static final String HEIGHT = "height";
+
+    private final JsonParser myParser = JsonParser.newParser();
+
+    private final BiConsumer<String, ImageInfo> myConsumer;
+
+    /* How deeply nested in objects and arrays the parser is */
+    private int myDepth;
+
+    /* How deeply nested the array of canvases is, or -1 if the parser isn't in it */
+    private int myCanvasesDepth = -1;
+
+    private int myImageCount;
+
+    private Throwable myError;
+
+    /**
+     * Creates a new manifest image extractor.
+     *
+     * @param aConsumer A consumer of the image URLs and widths and heights that are found
+     */
+    ManifestImageExtractor(final BiConsumer<String, ImageInfo> aConsumer) {
+        myConsumer = aConsumer;
+        myParser.handler(this::handle);
+    }
+
+    /**
+     * Parses the next part of the manifest. If the manifest turns out not to be valid JSON, the rest of it is
+     * ignored, and the error is thrown when the extractor's ended.
+     *
+     * @param aBuffer The next part of the manifest
+     */
+    void write(final Buffer aBuffer) {
+        if (myError == null) {
+            try {
+                myParser.handle(aBuffer);
+            } catch (final RuntimeException details) {
+                myError = details;
+            }
+        }
+    }
+
+    /**
+     * Finishes parsing the manifest.
+     *
+     * @return The number of images whose widths and heights were found
+     * @throws IOException If the manifest isn't valid JSON
+     */
+    int end() throws IOException {
+        if (myError == null) {
+            try {
+                myParser.end();
+            } catch (final RuntimeException details) {
+                myError = details;
+            }
+        }
+
+        if (myError != null) {
+            throw new IOException(myError.getMessage(), myError);
+        }
+
+        return myImageCount;
+    }
+
+    /**
+     * Handles a JSON event. Once the array of canvases starts, the parser hands over each canvas as a whole object;
+     * once it ends, the parser goes back to handing over events.
+     *
+     * @param aEvent A JSON event
+     */
+    private void handle(final JsonEvent aEvent) {
+        switch (aEvent.type()) {
+            case START_ARRAY:
+                if (myCanvasesDepth == -1 && isCanvases(aEvent.fieldName())) {
+                    myCanvasesDepth = myDepth;
+                    myParser.objectValueMode();
+                }
+
+                myDepth += 1;
+                break;
+            case START_OBJECT:
+                myDepth += 1;
+                break;
+            case END_ARRAY:
+                myDepth -= 1;
+
+                if (myDepth == myCanvasesDepth) {
+                    myCanvasesDepth = -1;
+                    myParser.objectEventMode();
+                }
+
+                break;
+            case END_OBJECT:
+                myDepth -= 1;
+                break;
+            default:
+                if (myCanvasesDepth != -1 && aEvent.isObject()) {
+                    extract(aEvent.objectValue());
+                }
+        }
+    }
+
+    /**
+     * Checks whether an array holds the manifest's canvases: a v2 sequence's <code>canvases</code> or a v3 manifest's
+     * top-level <code>items</code>.
+     *
+     * @param aFieldName The name of the field that holds the array
+     * @return True if the array holds canvases; else, false
+     */
+    private boolean isCanvases(final String aFieldName) {
+        return V2_CANVASES.equals(aFieldName) || V3_ITEMS.equals(aFieldName) && myDepth == 1;
+    }
+
+    /**
+     * Finds the images that are painted on a canvas.
+     *
+     * @param aCanvas A canvas
+     */
+    private void extract(final JsonObject aCanvas) {
+        for (final JsonObject annotation : getObjects(aCanvas.getValue(V2_IMAGES))) {
+            extract(aCanvas, getObject(annotation.getValue(V2_RESOURCE)), V2_IMAGE_TYPE);
+        }
+
+        for (final JsonObject annotationPage : getObjects(aCanvas.getValue(V3_ITEMS))) {
+            for (final JsonObject annotation : getObjects(annotationPage.getValue(V3_ITEMS))) {
+                extract(aCanvas, getObject(annotation.getValue(V3_BODY)), V3_IMAGE_TYPE);
+            }
+        }
+    }
+
+    /**
+     * Hands over an image's URL and its width and height. An image that doesn't say how big it is is assumed to be
+     * the size of its canvas, since that's how Fester builds canvases.
+     *
+     * @param aCanvas The canvas the image is painted on
+     * @param aImage The image, if there is one
+     * @param aImageType The type that images have in the manifest's version of the API
+     */
+    private void extract(final JsonObject aCanvas, final JsonObject aImage, final String aImageType) {
+        final List<JsonObject> services;
+        final String url;
+        final int width;
+        final int height;
+
+        if (aImage == null) {
+            return;
+        }
+
+        services = getObjects(aImage.getValue(SERVICE));
+
+        if (services.isEmpty()) {
+            // Only static images are keyed by their own ID; A/V content has a width and height too
+            url = aImageType.equals(getString(aImage, V2_TYPE, V3_TYPE)) ? getString(aImage, V2_ID, V3_ID) : null;
+        } else {
+            url = getString(services.get(0), V2_ID, V3_ID);
+        }
+
+        width = getInt(aImage, WIDTH, getInt(aCanvas, WIDTH, 0));
+        height = getInt(aImage, HEIGHT, getInt(aCanvas, HEIGHT, 0));
+
+        if (url != null && width > 0 && height > 0) {
+            myImageCount += 1;
+            myConsumer.accept(url, new ImageInfo(width, height));
+        }
+    }
+
+    private List<JsonObject> getObjects(final Object aValue) {
+        final List<JsonObject> objects = new ArrayList<>();
+
+        if (aValue instanceof JsonObject) {
+            objects.add((JsonObject) aValue);
+        } else if (aValue instanceof JsonArray) {
+            for (final Object value : (JsonArray) aValue) {
+                if (value instanceof JsonObject) {
+                    objects.add((JsonObject) value);
+                }
+            }
+        }
+
+        return objects;
+    }
+
+    private JsonObject getObject(final Object aValue) {
+        return aValue instanceof JsonObject ? (JsonObject) aValue : null;
+    }
+
+    private String getString(final JsonObject aObject, final String aV2Key, final String aV3Key) {
+        final Object value = aObject.containsKey(aV2Key) ? aObject.getValue(aV2Key) : aObject.getValue(aV3Key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    private int getInt(final JsonObject aObject, final String aKey, final int aDefault) {
+        final Object value = aObject.getValue(aKey);
+        return value instanceof Number ? ((Number) value).intValue() : aDefault;
+    }
+}
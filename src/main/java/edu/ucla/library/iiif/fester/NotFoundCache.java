@@ -0,0 +1,138 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A bounded, in-memory cache of the S3 keys that were recently found not to exist, so repeated requests for missing
+ * manifests and collection documents don't each cost a round trip to S3. Entries expire after a short time-to-live,
+ * since something that's missing now may be put later, and the oldest entries are evicted once the cache is full. The
+ * cache isn't thread-safe; it's meant to be owned by a single verticle's event loop.
+ */
+public class NotFoundCache {
+
+    /* The expiration time of each missing key, in insertion order */
+    private final Map<String, Long> myEntries = new LinkedHashMap<>();
+
+    private final int myMaxEntries;
+
+    private final long myTTL;
+
+    private long myHitCount;
+
+    private long myMissCount;
+
+    private long myEvictionCount;
+
+    /**
+     * Creates a new not-found cache.
+     *
+     * @param aMaxEntries The maximum number of missing keys to remember (zero disables caching)
+     * @param aTTL How long a missing key is remembered, in milliseconds (zero disables caching)
+     */
+    public NotFoundCache(final int aMaxEntries, final long aTTL) {
+        myMaxEntries = Math.max(0, aMaxEntries);
+        myTTL = Math.max(0, aTTL);
+    }
+
+    /**
+     * Whether the cache is able to store anything.
+     *
+     * @return True if the cache has been given room and a time-to-live; else, false
+     */
+    public boolean isEnabled() {
+        return myMaxEntries > 0 && myTTL > 0;
+    }
+
+    /**
+     * Checks whether an S3 key was recently found not to exist.
+     *
+     * @param aKey An S3 key
+     * @return True if the key is known to be missing; else, false
+     */
+    public boolean isNotFound(final String aKey) {
+        final Long expiration = myEntries.get(aKey);
+
+        if (expiration == null) {
+            myMissCount += 1;
+            return false;
+        }
+
+        if (expiration < System.currentTimeMillis()) {
+            myEntries.remove(aKey);
+            myEvictionCount += 1;
+            myMissCount += 1;
+            return false;
+        }
+
+        myHitCount += 1;
+        return true;
+    }
+
+    /**
+     * Remembers that an S3 key was found not to exist, evicting the oldest entries if needed.
+     *
+     * @param aKey An S3 key
+     */
+    public void put(final String aKey) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+
+        // Re-inserting moves the key to the end, so entries stay in expiration order
+        myEntries.remove(aKey);
+        myEntries.put(aKey, now + myTTL);
+
+        final Iterator<Long> iterator = myEntries.values().iterator();
+
+        // Evict expired entries and then the oldest ones until we're back within our bounds
+        while (iterator.hasNext()) {
+            final long expiration = iterator.next();
+
+            if (myEntries.size() > myMaxEntries || expiration < now) {
+                iterator.remove();
+                myEvictionCount += 1;
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Forgets that an S3 key was missing, because something has been put there.
+     *
+     * @param aKey An S3 key
+     */
+    public void invalidate(final String aKey) {
+        myEntries.remove(aKey);
+    }
+
+    /**
+     * Gets the number of missing keys that are being remembered.
+     *
+     * @return The number of entries in the cache
+     */
+    public int size() {
+        return myEntries.size();
+    }
+
+    /**
+     * Gets the cache's hit, miss, and eviction counts, along with its hit rate and current size.
+     *
+     * @return The cache's statistics
+     */
+    public JsonObject getStats() {
+        final long lookups = myHitCount + myMissCount;
+        final double hitRate = lookups == 0 ? 0 : (double) myHitCount / lookups;
+
+        return new JsonObject().put(Status.HITS, myHitCount).put(Status.MISSES, myMissCount)
+                .put(Status.HIT_RATE, hitRate).put(Status.EVICTIONS, myEvictionCount)
+                .put(Status.ENTRIES, myEntries.size()).put(Status.MAX_ENTRIES, myMaxEntries);
+    }
+}
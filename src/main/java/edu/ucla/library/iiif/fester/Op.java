@@ -66,6 +66,31 @@ public final class Op {
      */
     public static final String PATCH_ZIP = "patchZip";
 
+    /**
+     * Invalidate any cached copy of a manifest that's been changed outside of the S3 bucket verticle.
+     */
+    public static final String INVALIDATE_MANIFEST = "invalidateManifest";
+
+    /**
+     * Remember that a manifest or collection that was streamed from S3 isn't there.
+     */
+    public static final String RECORD_NOT_FOUND = "recordNotFound";
+
+    /**
+     * Forget the cached widths and heights of images.
+     */
+    public static final String INVALIDATE_IMAGE_INFO = "invalidateImageInfo";
+
+    /**
+     * Start harvesting the widths and heights of images from the stored manifests.
+     */
+    public static final String START_IMAGE_INFO_HARVEST = "startImageInfoHarvest";
+
+    /**
+     * Get the progress of the harvest of image widths and heights.
+     */
+    public static final String GET_IMAGE_INFO_HARVEST = "getImageInfoHarvest";
+
     /**
      * Get S3 endpoints status.
      */
@@ -76,11 +101,6 @@ public final class Op {
      */
     public static final String SUCCESS = "success";
 
-    /**
-     * An operation that needs to be retried.
-     */
-    public static final String RETRY = "retry";
-
     /**
      * A failed operation.
      */
@@ -0,0 +1,359 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+/**
+ * A store of a CSV's page rows, grouped by the works they belong to. The pages are kept in the heap until they're
+ * estimated to take up more than the store's heap budget; after that, the pages in the heap are spilled to a temporary
+ * file, a work at a time, and the heap starts filling up again. A work's pages are read back in the order they were
+ * added, from the file (which is mapped into memory a work at a time) and then from the heap. The temporary file is
+ * deleted when the store is closed, or once the store is no longer used if it never gets closed. This isn't
+ * thread-safe.
+ */
+public final class PageStore implements AutoCloseable {
+
+    /* A budget that means the pages are never spilled */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PageStore.class, Constants.MESSAGES);
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /* The estimated heap size of a row, not counting its values */
+    private static final int ROW_SIZE = 16;
+
+    /* The estimated heap size of one of a row's values, not counting its characters */
+    private static final int VALUE_SIZE = 44;
+
+    /* The length that's written in place of a missing value's */
+    private static final int NULL_LENGTH = -1;
+
+    private final Map<String, WorkPages> myWorks = new LinkedHashMap<>();
+
+    private final long myHeapBudget;
+
+    private long myHeapSize;
+
+    private int myPageCount;
+
+    private FileChannel myChannel;
+
+    private Cleaner.Cleanable myCleanable;
+
+    /**
+     * Creates a page store that keeps all its pages in the heap.
+     */
+    public PageStore() {
+        this(UNLIMITED);
+    }
+
+    /**
+     * Creates a page store that spills its pages to disk once they'd take up more than the supplied number of bytes.
+     *
+     * @param aHeapBudget The number of bytes of heap the pages can take up before they're spilled to disk
+     */
+    public PageStore(final long aHeapBudget) {
+        myHeapBudget = aHeapBudget <= 0 ? UNLIMITED : aHeapBudget;
+    }
+
+    /**
+     * Adds some of a work's pages to the store, after any of its pages that have already been added.
+     *
+     * @param aWorkID The ID of the work the pages belong to
+     * @param aPages The pages' rows
+     * @throws UncheckedIOException If the pages needed to be spilled to disk and couldn't be
+     */
+    public void add(final String aWorkID, final List<String[]> aPages) {
+        final WorkPages work = myWorks.computeIfAbsent(aWorkID, key -> new WorkPages());
+
+        if (work.myRows == null) {
+            work.myRows = aPages;
+        } else {
+            work.myRows.addAll(aPages);
+        }
+
+        for (final String[] row : aPages) {
+            myHeapSize += getHeapSize(row);
+        }
+
+        myPageCount += aPages.size();
+
+        if (myHeapSize > myHeapBudget) {
+            try {
+                spill();
+            } catch (final IOException details) {
+                throw new UncheckedIOException(details);
+            }
+        }
+    }
+
+    /**
+     * Gets a work's pages, in the order they were added. The pages of a work that's had some of them spilled to disk
+     * are read back into a new list each time they're got, so they should be let go once they've been used.
+     *
+     * @param aWorkID The ID of a work
+     * @return The work's pages, or null if the work doesn't have any
+     * @throws UncheckedIOException If the pages that were spilled to disk can't be read back
+     */
+    public List<String[]> get(final String aWorkID) {
+        final WorkPages work = myWorks.get(aWorkID);
+
+        if (work == null) {
+            return null;
+        }
+
+        if (work.mySegments.isEmpty()) {
+            return work.myRows;
+        }
+
+        try {
+            return work.read();
+        } catch (final IOException details) {
+            throw new UncheckedIOException(details);
+        }
+    }
+
+    /**
+     * Gets the IDs of the works that have pages in the store, in the order the works' first pages were added.
+     *
+     * @return The IDs of the works that have pages
+     */
+    public Set<String> getWorkIDs() {
+        return Collections.unmodifiableSet(myWorks.keySet());
+    }
+
+    /**
+     * Gets the number of works that have pages in the store.
+     *
+     * @return The number of works that have pages
+     */
+    public int size() {
+        return myWorks.size();
+    }
+
+    /**
+     * Gets the number of pages in the store.
+     *
+     * @return The number of pages
+     */
+    public int getPageCount() {
+        return myPageCount;
+    }
+
+    /**
+     * Returns whether any of the store's pages have been spilled to disk.
+     *
+     * @return True if some pages have been spilled to disk; else, false
+     */
+    public boolean isSpilled() {
+        return myChannel != null;
+    }
+
+    /**
+     * Closes the store, deleting its temporary file if it has one. The store's pages can't be got after it's closed.
+     */
+    @Override
+    public void close() {
+        if (myCleanable != null) {
+            myCleanable.clean();
+            myCleanable = null;
+            myChannel = null;
+        }
+
+        myWorks.clear();
+        myHeapSize = 0;
+        myPageCount = 0;
+    }
+
+    /**
+     * Writes the pages that are in the heap to the end of the store's temporary file, grouped by work.
+     *
+     * @throws IOException If the pages can't be written
+     */
+    private void spill() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        long spilledCount = 0;
+        int workCount = 0;
+
+        if (myChannel == null) {
+            final Path path = Files.createTempFile("fester-pages-", ".bin");
+
+            myChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            myCleanable = CLEANER.register(this, new ChannelCloser(myChannel));
+        }
+
+        for (final WorkPages work : myWorks.values()) {
+            if (work.myRows != null && !work.myRows.isEmpty()) {
+                final long offset = myChannel.size();
+                final ByteBuffer buffer;
+
+                bytes.reset();
+                writeRows(output, work.myRows);
+                buffer = ByteBuffer.wrap(bytes.toByteArray());
+
+                // A positional write doesn't have to write everything it's given at once
+                while (buffer.hasRemaining()) {
+                    myChannel.write(buffer, offset + buffer.position());
+                }
+
+                work.mySegments.add(new long[] { offset, buffer.capacity() });
+
+                spilledCount += work.myRows.size();
+                workCount += 1;
+                work.myRows = null;
+            }
+        }
+
+        LOGGER.debug(MessageCodes.MFS_235, spilledCount, workCount, myHeapSize, myChannel.size());
+        myHeapSize = 0;
+    }
+
+    /**
+     * Writes rows as a row count, followed by each row's value count and values. A value is written as the length of
+     * its UTF-8 bytes followed by the bytes.
+     *
+     * @param aOutput An output to write the rows to
+     * @param aRows The rows to write
+     * @throws IOException If the rows can't be written
+     */
+    private static void writeRows(final DataOutputStream aOutput, final List<String[]> aRows) throws IOException {
+        aOutput.writeInt(aRows.size());
+
+        for (final String[] row : aRows) {
+            aOutput.writeInt(row.length);
+
+            for (final String value : row) {
+                if (value == null) {
+                    aOutput.writeInt(NULL_LENGTH);
+                } else {
+                    final byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+
+                    aOutput.writeInt(utf8.length);
+                    aOutput.write(utf8);
+                }
+            }
+        }
+
+        aOutput.flush();
+    }
+
+    /**
+     * Reads rows that were written by {@link #writeRows(DataOutputStream, List)}, sharing the values that repeat.
+     *
+     * @param aBuffer A buffer to read the rows from
+     * @param aDictionary A dictionary for the values that repeat
+     * @param aRows A list to add the rows to
+     */
+    private static void readRows(final ByteBuffer aBuffer, final CsvDictionary aDictionary,
+            final List<String[]> aRows) {
+        final int rowCount = aBuffer.getInt();
+
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            final String[] row = new String[aBuffer.getInt()];
+
+            for (int index = 0; index < row.length; index++) {
+                final int length = aBuffer.getInt();
+
+                if (length != NULL_LENGTH) {
+                    final byte[] utf8 = new byte[length];
+
+                    aBuffer.get(utf8);
+                    row[index] = new String(utf8, StandardCharsets.UTF_8);
+                }
+            }
+
+            aRows.add(aDictionary.intern(row));
+        }
+    }
+
+    /**
+     * Estimates how much heap a row takes up.
+     *
+     * @param aRow A row
+     * @return The row's estimated size in bytes
+     */
+    private static long getHeapSize(final String... aRow) {
+        long size = ROW_SIZE + 4L * aRow.length;
+
+        for (final String value : aRow) {
+            if (value != null) {
+                size += VALUE_SIZE + value.length();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * The pages of a single work, some of which may have been spilled to disk.
+     */
+    private final class WorkPages {
+
+        /* The offsets and lengths of the parts of the temporary file that have this work's pages */
+        private final List<long[]> mySegments = new ArrayList<>(1);
+
+        /* The pages that are still in the heap */
+        private List<String[]> myRows;
+
+        private List<String[]> read() throws IOException {
+            final List<String[]> rows = new ArrayList<>();
+            final CsvDictionary dictionary = new CsvDictionary();
+
+            for (final long[] segment : mySegments) {
+                final MappedByteBuffer buffer = myChannel.map(FileChannel.MapMode.READ_ONLY, segment[0], segment[1]);
+                readRows(buffer, dictionary, rows);
+            }
+
+            if (myRows != null) {
+                rows.addAll(myRows);
+            }
+
+            return rows;
+        }
+    }
+
+    /**
+     * Closes a store's temporary file, which deletes it. This mustn't refer to the store, or the store would never
+     * become unreachable.
+     */
+    private static final class ChannelCloser implements Runnable {
+
+        private final FileChannel myChannel;
+
+        private ChannelCloser(final FileChannel aChannel) {
+            myChannel = aChannel;
+        }
+
+        @Override
+        public void run() {
+            try {
+                myChannel.close();
+            } catch (final IOException details) {
+                LOGGER.warn(MessageCodes.MFS_236, details.getMessage());
+            }
+        }
+    }
+}
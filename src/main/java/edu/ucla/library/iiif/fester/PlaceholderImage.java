@@ -0,0 +1,161 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.util.Optional;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * The width and height of the placeholder image that's painted on canvases whose own images can't be found. They're
+ * looked up once, when the placeholder is first asked for, rather than once for each missing page. If the lookup
+ * fails, it's retried in the background, backing off each time; pages that are built in the meantime get empty
+ * canvases rather than waiting on, or making, a lookup of their own.
+ * <p>
+ * There's one placeholder image per URL in each Vert.x instance. It's thread-safe, so it can be shared by verticles
+ * that run on different contexts.
+ * </p>
+ */
+public final class PlaceholderImage {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PlaceholderImage.class, Constants.MESSAGES);
+
+    private static final String PLACEHOLDER_MAP = "fester.placeholder.images";
+
+    private static final long MIN_RETRY_DELAY = 1000; // In milliseconds
+
+    private static final long MAX_RETRY_DELAY = 300000; // In milliseconds
+
+    /* Completed once the first lookup has succeeded or failed */
+    private final Promise<Void> myFirstLookup = Promise.promise();
+
+    private final Vertx myVertx;
+
+    private final ImageInfoLookup myLookup;
+
+    private final String myURL;
+
+    private ImageInfo myImageInfo;
+
+    /* Why the last lookup failed, if it did */
+    private Throwable myError;
+
+    private long myRetryDelay = MIN_RETRY_DELAY;
+
+    private PlaceholderImage(final Vertx aVertx, final JsonObject aConfig, final String aURL) {
+        myVertx = aVertx;
+        myLookup = new ImageInfoLookup(aVertx, aConfig);
+        myURL = aURL;
+    }
+
+    /**
+     * Gets the placeholder image at the supplied URL, starting to look up its width and height if this is the first
+     * time it's been asked for.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aConfig An application configuration
+     * @param aURL The URL of the placeholder image's image service
+     * @return The placeholder image
+     */
+    public static PlaceholderImage getPlaceholderImage(final Vertx aVertx, final JsonObject aConfig,
+            final String aURL) {
+        final LocalMap<String, SharedPlaceholderImage> map = aVertx.sharedData().getLocalMap(PLACEHOLDER_MAP);
+        final PlaceholderImage placeholderImage;
+
+        synchronized (map) {
+            final SharedPlaceholderImage sharedPlaceholderImage = map.get(aURL);
+
+            if (sharedPlaceholderImage != null) {
+                return sharedPlaceholderImage.myPlaceholderImage;
+            }
+
+            placeholderImage = new PlaceholderImage(aVertx, aConfig, aURL);
+            map.put(aURL, new SharedPlaceholderImage(placeholderImage));
+        }
+
+        placeholderImage.lookUp();
+        return placeholderImage;
+    }
+
+    /**
+     * Gets the placeholder image's width and height. If the first lookup of them hasn't finished yet, the returned
+     * future waits for it; after that, it's completed straight away, with nothing if the placeholder image couldn't
+     * be looked up. If the image server said that it doesn't have the placeholder image, the future fails with an
+     * {@link ImageNotFoundException}. The future completes on the caller's context.
+     *
+     * @return A future with the placeholder image's width and height, if they're known
+     */
+    public Future<Optional<ImageInfo>> getImageInfo() {
+        final Context context = myVertx.getOrCreateContext();
+        final Promise<Optional<ImageInfo>> promise = Promise.promise();
+
+        synchronized (this) {
+            if (myFirstLookup.future().isComplete()) {
+                return getResult();
+            }
+        }
+
+        myFirstLookup.future().onComplete(lookup -> {
+            context.runOnContext(run -> {
+                synchronized (this) {
+                    getResult().onComplete(promise);
+                }
+            });
+        });
+
+        return promise.future();
+    }
+
+    private Future<Optional<ImageInfo>> getResult() {
+        if (myImageInfo == null && myError instanceof ImageNotFoundException) {
+            return Future.failedFuture(myError);
+        }
+
+        return Future.succeededFuture(Optional.ofNullable(myImageInfo));
+    }
+
+    /**
+     * Looks up the placeholder image's width and height, scheduling another try if the lookup fails.
+     */
+    private void lookUp() {
+        myLookup.lookup(myURL).onComplete(lookup -> {
+            synchronized (this) {
+                if (lookup.succeeded()) {
+                    myImageInfo = lookup.result();
+                    myError = null;
+                    LOGGER.info(MessageCodes.MFS_227, myURL, myImageInfo.getWidth(), myImageInfo.getHeight());
+                } else {
+                    final long delay = myRetryDelay;
+
+                    myError = lookup.cause();
+                    LOGGER.warn(MessageCodes.MFS_228, myURL, lookup.cause().getMessage(), delay);
+
+                    myRetryDelay = Math.min(MAX_RETRY_DELAY, myRetryDelay * 2);
+                    myVertx.setTimer(delay, timer -> lookUp());
+                }
+
+                myFirstLookup.tryComplete();
+            }
+        });
+    }
+
+    /**
+     * A wrapper that lets a placeholder image be put in a Vert.x local map.
+     */
+    private static final class SharedPlaceholderImage implements Shareable {
+
+        private final PlaceholderImage myPlaceholderImage;
+
+        private SharedPlaceholderImage(final PlaceholderImage aPlaceholderImage) {
+            myPlaceholderImage = aPlaceholderImage;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Coalesces concurrent requests for the same thing, so that only one of them does the work and the rest share its
+ * result. A request that's made while another for the same key is in flight joins it instead of starting its own;
+ * once the in-flight request completes, the key is free and the next request starts a new one.
+ * <p>
+ * The coalescer is thread-safe, so it can be shared by verticles that run on different contexts. A request's
+ * handlers are all called on the thread that completes it, though, so callers that joined from another context
+ * should hop back to their own before they touch anything that belongs to it.
+ * </p>
+ *
+ * @param <K> The type of the keys that requests are coalesced by
+ * @param <V> The type of the requests' results
+ */
+public class RequestCoalescer<K, V> {
+
+    private final Map<K, Flight<V>> myFlights = new HashMap<>();
+
+    private long myRequestCount;
+
+    private long myCoalescedCount;
+
+    /**
+     * Makes a request, or joins the one that's already in flight for the supplied key. The operation is only run if
+     * there isn't already a request in flight; it should complete or fail the promise it's given.
+     *
+     * @param aKey The key of the thing being requested
+     * @param aOperation The operation that does the work of the request
+     * @param aHandler A handler for the request's result
+     */
+    public void request(final K aKey, final Handler<Promise<V>> aOperation,
+            final Handler<AsyncResult<V>> aHandler) {
+        final Promise<V> promise = Promise.promise();
+        final Flight<V> flight = new Flight<>(promise);
+
+        synchronized (this) {
+            final Flight<V> inFlight = myFlights.get(aKey);
+
+            if (inFlight != null) {
+                inFlight.myHandlers.add(aHandler);
+                myCoalescedCount += 1;
+                return;
+            }
+
+            flight.myHandlers.add(aHandler);
+            myFlights.put(aKey, flight);
+            myRequestCount += 1;
+        }
+
+        promise.future().onComplete(result -> {
+            final List<Handler<AsyncResult<V>>> handlers;
+
+            synchronized (this) {
+                // The key may already belong to a newer request if this one was forgotten
+                myFlights.remove(aKey, flight);
+                handlers = new ArrayList<>(flight.myHandlers);
+            }
+
+            handlers.forEach(handler -> handler.handle(result));
+        });
+
+        try {
+            aOperation.handle(promise);
+        } catch (final RuntimeException details) {
+            promise.tryFail(details);
+        }
+    }
+
+    /**
+     * Forgets the request that's in flight for the supplied key, so that later requests start a new one instead of
+     * joining it. This is used when the thing being requested changes: requests that have already joined will still
+     * get the old result, but nobody else will. It does nothing if there isn't a request in flight.
+     *
+     * @param aKey The key of the thing that has changed
+     */
+    public synchronized void forget(final K aKey) {
+        myFlights.remove(aKey);
+    }
+
+    /**
+     * Checks whether the supplied promise belongs to the request that's in flight for the supplied key; it won't if
+     * the key has been forgotten since the request started.
+     *
+     * @param aKey The key of the thing being requested
+     * @param aPromise The promise an operation was given
+     * @return True if the promise belongs to the current request for the key; else, false
+     */
+    public synchronized boolean isCurrent(final K aKey, final Promise<V> aPromise) {
+        final Flight<V> flight = myFlights.get(aKey);
+        return flight != null && flight.myPromise == aPromise;
+    }
+
+    /**
+     * Gets the number of requests that are in flight.
+     *
+     * @return The number of requests in flight
+     */
+    public synchronized int getInFlightCount() {
+        return myFlights.size();
+    }
+
+    /**
+     * Gets the number of requests in flight, the number that have been made, and the number that were coalesced with
+     * a request that was already in flight.
+     *
+     * @return The coalescer's statistics
+     */
+    public synchronized JsonObject getStats() {
+        return new JsonObject().put(Status.IN_FLIGHT, myFlights.size()).put(Status.REQUESTS, myRequestCount)
+                .put(Status.COALESCED, myCoalescedCount);
+    }
+
+    /**
+     * A request that's in flight, along with the handlers that are waiting for its result.
+     *
+     * @param <V> The type of the request's result
+     */
+    private static final class Flight<V> {
+
+        private final List<Handler<AsyncResult<V>>> myHandlers = new ArrayList<>();
+
+        private final Promise<V> myPromise;
+
+        private Flight(final Promise<V> aPromise) {
+            myPromise = aPromise;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Keeps track of how many times the uploads of each manifest have failed, so a manifest that keeps failing isn't
+ * retried forever. The number of manifests tracked is bounded: the least recently failed are forgotten first, and a
+ * manifest that hasn't failed for a while is forgotten altogether. The tracker isn't thread-safe; it's meant to be
+ * owned by a single verticle's event loop.
+ */
+public class RetryTracker {
+
+    /**
+     * The status code that's used for failures that didn't get a response from S3.
+     */
+    public static final int NO_RESPONSE = 0;
+
+    /**
+     * The number of failed attempts after which an upload isn't retried, if one isn't configured.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 10;
+
+    private static final String NO_RESPONSE_LABEL = "no_response";
+
+    private final Map<String, Attempts> myAttempts = new LinkedHashMap<>(16, 0.75f, true);
+
+    /* The number of retries for each status code, sorted so the status report is stable */
+    private final Map<Integer, Long> myRetryCounts = new TreeMap<>();
+
+    private final int myMaxAttempts;
+
+    private final Set<Integer> myRetryableStatusCodes;
+
+    private final int myMaxEntries;
+
+    private final long myTTL;
+
+    private long myExhaustedCount;
+
+    private long myEvictionCount;
+
+    /**
+     * Creates a new retry tracker.
+     *
+     * @param aMaxAttempts The number of failed attempts after which an upload isn't retried
+     * @param aRetryableStatusCodes The S3 response codes that are worth retrying
+     * @param aMaxEntries The maximum number of manifests that can be tracked at once
+     * @param aTTL How long a manifest is tracked after its last failure, in milliseconds (zero means forever)
+     */
+    public RetryTracker(final int aMaxAttempts, final Set<Integer> aRetryableStatusCodes, final int aMaxEntries,
+            final long aTTL) {
+        myMaxAttempts = Math.max(1, aMaxAttempts);
+        myRetryableStatusCodes = Set.copyOf(aRetryableStatusCodes);
+        myMaxEntries = Math.max(1, aMaxEntries);
+        myTTL = Math.max(0, aTTL);
+    }
+
+    /**
+     * Records a failed upload and checks whether it should be tried again. Failures that didn't get a response from
+     * S3 (i.e., those with a {@link #NO_RESPONSE} status code) are always worth retrying, until the manifest runs out
+     * of attempts.
+     *
+     * @param aID The ID of the manifest whose upload failed
+     * @param aStatusCode The S3 response code, or {@link #NO_RESPONSE}
+     * @return True if the upload should be retried; else, false
+     */
+    public boolean shouldRetry(final String aID, final int aStatusCode) {
+        final long now = System.currentTimeMillis();
+        Attempts attempts = myAttempts.get(aID);
+
+        if (aStatusCode != NO_RESPONSE && !myRetryableStatusCodes.contains(aStatusCode)) {
+            myAttempts.remove(aID);
+            return false;
+        }
+
+        if (attempts == null || attempts.isExpired(now, myTTL)) {
+            attempts = new Attempts();
+            myAttempts.put(aID, attempts);
+        }
+
+        attempts.myCount += 1;
+        attempts.myLastFailure = now;
+        evict(now);
+
+        if (attempts.myCount >= myMaxAttempts) {
+            // Forget the manifest in case we ever need to process it again
+            myAttempts.remove(aID);
+            myExhaustedCount += 1;
+            return false;
+        }
+
+        myRetryCounts.merge(aStatusCode, 1L, Long::sum);
+        return true;
+    }
+
+    /**
+     * Forgets a manifest's failed attempts, once it has been uploaded successfully.
+     *
+     * @param aID The ID of the manifest
+     */
+    public void reset(final String aID) {
+        myAttempts.remove(aID);
+    }
+
+    /**
+     * Gets the number of manifests that are being tracked.
+     *
+     * @return The number of manifests with failed uploads
+     */
+    public int size() {
+        return myAttempts.size();
+    }
+
+    /**
+     * Gets the number of retries for each status code, along with the number of manifests being tracked.
+     *
+     * @return The tracker's statistics
+     */
+    public JsonObject getStats() {
+        final JsonObject retries = new JsonObject();
+
+        myRetryCounts.forEach((statusCode, count) -> {
+            retries.put(statusCode == NO_RESPONSE ? NO_RESPONSE_LABEL : Integer.toString(statusCode), count);
+        });
+
+        return new JsonObject().put(Status.BY_STATUS, retries).put(Status.EXHAUSTED, myExhaustedCount)
+                .put(Status.ENTRIES, myAttempts.size()).put(Status.MAX_ENTRIES, myMaxEntries)
+                .put(Status.EVICTIONS, myEvictionCount);
+    }
+
+    /**
+     * Forgets the manifests that haven't failed recently, and then the least recently failed ones, until we're back
+     * within our bounds.
+     *
+     * @param aTime The current time
+     */
+    private void evict(final long aTime) {
+        final Iterator<Attempts> iterator = myAttempts.values().iterator();
+
+        while (iterator.hasNext()) {
+            final Attempts attempts = iterator.next();
+
+            // Entries are in access order, so we can stop at the first one that can stay
+            if (myAttempts.size() > myMaxEntries || attempts.isExpired(aTime, myTTL)) {
+                iterator.remove();
+                myEvictionCount += 1;
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * The failed attempts to upload a manifest.
+     */
+    private static final class Attempts {
+
+        private int myCount;
+
+        private long myLastFailure;
+
+        private boolean isExpired(final long aTime, final long aTTL) {
+            return aTTL != 0 && aTime - myLastFailure > aTTL;
+        }
+    }
+}
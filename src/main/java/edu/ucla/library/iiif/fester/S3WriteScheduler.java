@@ -0,0 +1,352 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ThreadLocalRandom;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Schedules writes to S3 so that no more than a fixed number are in flight at once. Writes beyond that window wait
+ * in a bounded queue, for no longer than a maximum wait; once the queue is full, or a write has waited too long, the
+ * write is turned away with a {@link HTTP#SERVICE_UNAVAILABLE} so its producer knows to back off and try again (see
+ * {@link #getRetryDelay(JsonObject, int)}). A write that fails with a {@link RetryException} is retried after an
+ * exponential backoff with full jitter. The scheduler isn't thread-safe; it's meant to be owned by a single
+ * verticle's event loop.
+ */
+public class S3WriteScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(S3WriteScheduler.class, Constants.MESSAGES);
+
+    private static final int DEFAULT_WRITE_CONCURRENCY = 20;
+
+    private static final int DEFAULT_WRITE_QUEUE = 1000;
+
+    private static final long DEFAULT_WRITE_MAX_QUEUE_WAIT = 60000; // In milliseconds
+
+    private static final long DEFAULT_WRITE_BACKOFF = 100; // In milliseconds
+
+    private static final long DEFAULT_WRITE_MAX_BACKOFF = 10000; // In milliseconds
+
+    private static final double DEFAULT_WRITE_BACKOFF_MULTIPLIER = 2;
+
+    private final Queue<Write> myQueue = new ArrayDeque<>();
+
+    private final Vertx myVertx;
+
+    private final int myMaxInFlight;
+
+    private final int myMaxQueued;
+
+    private final long myMaxQueueWait;
+
+    private final long myBaseDelay;
+
+    private final long myMaxDelay;
+
+    private final double myMultiplier;
+
+    private int myInFlightCount;
+
+    /* Writes that are waiting out a backoff delay; they still hold their place in the in-flight window */
+    private int myBackoffCount;
+
+    private long myCompletedCount;
+
+    private long myRejectedCount;
+
+    private long myRetryCount;
+
+    /**
+     * Creates a new S3 write scheduler.
+     *
+     * @param aVertx A Vert.x instance to schedule retries with
+     * @param aMaxInFlight The maximum number of writes that can be in flight at once
+     * @param aMaxQueued The maximum number of writes that can be waiting for a place in the in-flight window
+     * @param aBaseDelay The backoff delay before the first retry, in milliseconds
+     * @param aMaxDelay The maximum backoff delay, in milliseconds
+     * @param aMultiplier The factor by which the backoff delay grows with each failed attempt
+     */
+    public S3WriteScheduler(final Vertx aVertx, final int aMaxInFlight, final int aMaxQueued, final long aBaseDelay,
+            final long aMaxDelay, final double aMultiplier) {
+        this(aVertx, aMaxInFlight, aMaxQueued, 0, aBaseDelay, aMaxDelay, aMultiplier);
+    }
+
+    /**
+     * Creates a new S3 write scheduler whose queued writes are turned away if they wait too long.
+     *
+     * @param aVertx A Vert.x instance to schedule retries with
+     * @param aMaxInFlight The maximum number of writes that can be in flight at once
+     * @param aMaxQueued The maximum number of writes that can be waiting for a place in the in-flight window
+     * @param aMaxQueueWait How long a write can wait for a place in the in-flight window, in milliseconds (zero means
+     *        for as long as it takes)
+     * @param aBaseDelay The backoff delay before the first retry, in milliseconds
+     * @param aMaxDelay The maximum backoff delay, in milliseconds
+     * @param aMultiplier The factor by which the backoff delay grows with each failed attempt
+     */
+    public S3WriteScheduler(final Vertx aVertx, final int aMaxInFlight, final int aMaxQueued,
+            final long aMaxQueueWait, final long aBaseDelay, final long aMaxDelay, final double aMultiplier) {
+        myVertx = aVertx;
+        myMaxInFlight = Math.max(1, aMaxInFlight);
+        myMaxQueued = Math.max(0, aMaxQueued);
+        myMaxQueueWait = Math.max(0, aMaxQueueWait);
+        myBaseDelay = Math.max(1, aBaseDelay);
+        myMaxDelay = Math.max(myBaseDelay, aMaxDelay);
+        myMultiplier = Math.max(1, aMultiplier);
+    }
+
+    /**
+     * Creates a new S3 write scheduler from Fester's configuration.
+     *
+     * @param aVertx A Vert.x instance to schedule retries with
+     * @param aConfig A configuration
+     * @return A new S3 write scheduler
+     */
+    public static S3WriteScheduler fromConfig(final Vertx aVertx, final JsonObject aConfig) {
+        final int concurrency = aConfig.getInteger(Config.S3_WRITE_CONCURRENCY, DEFAULT_WRITE_CONCURRENCY);
+        final int queueSize = aConfig.getInteger(Config.S3_WRITE_QUEUE, DEFAULT_WRITE_QUEUE);
+
+        LOGGER.debug(MessageCodes.MFS_197, concurrency, queueSize);
+
+        return new S3WriteScheduler(aVertx, concurrency, queueSize, getMaxQueueWait(aConfig),
+                aConfig.getLong(Config.S3_WRITE_BACKOFF, DEFAULT_WRITE_BACKOFF),
+                aConfig.getLong(Config.S3_WRITE_MAX_BACKOFF, DEFAULT_WRITE_MAX_BACKOFF),
+                aConfig.getDouble(Config.S3_WRITE_BACKOFF_MULTIPLIER, DEFAULT_WRITE_BACKOFF_MULTIPLIER));
+    }
+
+    /**
+     * Gets the number of writes a scheduler created from the supplied configuration can take without turning any
+     * away: the ones in flight plus the ones queued.
+     *
+     * @param aConfig A configuration
+     * @return The number of writes that can be in flight or queued at once
+     */
+    public static int getCapacity(final JsonObject aConfig) {
+        return Math.max(1, aConfig.getInteger(Config.S3_WRITE_CONCURRENCY, DEFAULT_WRITE_CONCURRENCY)) +
+                Math.max(0, aConfig.getInteger(Config.S3_WRITE_QUEUE, DEFAULT_WRITE_QUEUE));
+    }
+
+    /**
+     * Gets how long the sender of a write should wait for its reply: the longest the write can be queued, plus the
+     * time it takes to try it as many times as it's allowed, with an event bus timeout's worth of time for each
+     * attempt and the longest backoff delay between them.
+     *
+     * @param aConfig A configuration
+     * @return A reply timeout in milliseconds
+     */
+    public static long getReplyTimeout(final JsonObject aConfig) {
+        final int attempts = Math.max(1, aConfig.getInteger(Config.S3_RETRY_MAX_ATTEMPTS,
+                RetryTracker.DEFAULT_MAX_ATTEMPTS));
+        final long maxBackoff = aConfig.getLong(Config.S3_WRITE_MAX_BACKOFF, DEFAULT_WRITE_MAX_BACKOFF);
+
+        return getMaxQueueWait(aConfig) + attempts * (DeliveryOptions.DEFAULT_TIMEOUT + maxBackoff);
+    }
+
+    /**
+     * Gets how long the producer of a write that was turned away should wait before it tries again. This uses the
+     * same backoff as the scheduler's own retries.
+     *
+     * @param aConfig A configuration
+     * @param aAttempt The number of times the write has already been turned away
+     * @return A delay in milliseconds
+     */
+    public static long getRetryDelay(final JsonObject aConfig, final int aAttempt) {
+        final long baseDelay = Math.max(1, aConfig.getLong(Config.S3_WRITE_BACKOFF, DEFAULT_WRITE_BACKOFF));
+        final long maxDelay = Math.max(baseDelay, aConfig.getLong(Config.S3_WRITE_MAX_BACKOFF,
+                DEFAULT_WRITE_MAX_BACKOFF));
+        final double multiplier = Math.max(1, aConfig.getDouble(Config.S3_WRITE_BACKOFF_MULTIPLIER,
+                DEFAULT_WRITE_BACKOFF_MULTIPLIER));
+
+        return getBackoffDelay(aAttempt, baseDelay, maxDelay, multiplier);
+    }
+
+    /**
+     * Returns whether a write was turned away by the scheduler, rather than tried and failed.
+     *
+     * @param aCause The cause of a failed write
+     * @return True if the write was turned away and can be submitted again; else, false
+     */
+    public static boolean isTurnedAway(final Throwable aCause) {
+        return aCause instanceof ReplyException &&
+                ((ReplyException) aCause).failureCode() == HTTP.SERVICE_UNAVAILABLE;
+    }
+
+    /**
+     * Submits a write to the scheduler. The write is started once there is room for it in the in-flight window; it
+     * should complete the promise it's given when S3 has accepted the upload, fail it with a {@link RetryException}
+     * if the upload should be tried again, or fail it with any other exception to give up.
+     *
+     * @param aWrite A write to S3
+     * @param aHandler A handler for the final result of the write
+     */
+    public void submit(final Handler<Promise<Void>> aWrite, final Handler<AsyncResult<Void>> aHandler) {
+        final Write write = new Write(aWrite, aHandler);
+
+        if (myInFlightCount < myMaxInFlight) {
+            start(write);
+        } else if (myQueue.size() < myMaxQueued) {
+            myQueue.add(write);
+
+            // A write that can't get a place in time is turned away, so its producer can decide what to do
+            if (myMaxQueueWait > 0) {
+                write.myTimerID = myVertx.setTimer(myMaxQueueWait, timer -> {
+                    if (myQueue.remove(write)) {
+                        turnAway(write, LOGGER.getMessage(MessageCodes.MFS_238, myMaxQueueWait));
+                    }
+                });
+            }
+        } else {
+            turnAway(write, LOGGER.getMessage(MessageCodes.MFS_196, myMaxQueued));
+        }
+    }
+
+    /**
+     * Gets the number of writes that are waiting for a place in the in-flight window.
+     *
+     * @return The depth of the write queue
+     */
+    public int getQueueDepth() {
+        return myQueue.size();
+    }
+
+    /**
+     * Gets the number of writes that hold a place in the in-flight window, including those waiting to be retried.
+     *
+     * @return The number of in-flight writes
+     */
+    public int getInFlightCount() {
+        return myInFlightCount;
+    }
+
+    /**
+     * Gets statistics about the scheduler's writes.
+     *
+     * @return The scheduler's statistics
+     */
+    public JsonObject getStats() {
+        return new JsonObject().put(Status.IN_FLIGHT, myInFlightCount).put(Status.MAX_IN_FLIGHT, myMaxInFlight)
+                .put(Status.QUEUED, myQueue.size()).put(Status.MAX_QUEUED, myMaxQueued)
+                .put(Status.BACKING_OFF, myBackoffCount).put(Status.COMPLETED, myCompletedCount)
+                .put(Status.REJECTED, myRejectedCount).put(Status.RETRIES, myRetryCount);
+    }
+
+    /**
+     * Gets the backoff delay before a retry, using the "full jitter" approach of picking a random delay between zero
+     * and an exponentially increasing ceiling.
+     *
+     * @param aAttempt The number of attempts that have already failed
+     * @return A delay in milliseconds
+     */
+    long getBackoffDelay(final int aAttempt) {
+        return getBackoffDelay(aAttempt, myBaseDelay, myMaxDelay, myMultiplier);
+    }
+
+    private static long getBackoffDelay(final int aAttempt, final long aBaseDelay, final long aMaxDelay,
+            final double aMultiplier) {
+        final double growth = Math.pow(aMultiplier, Math.max(aAttempt - 1, 0));
+        final long ceiling = (long) Math.min(aMaxDelay, aBaseDelay * growth); // Infinity is capped by the min
+
+        return 1 + ThreadLocalRandom.current().nextLong(ceiling);
+    }
+
+    private static long getMaxQueueWait(final JsonObject aConfig) {
+        return aConfig.getLong(Config.S3_WRITE_MAX_QUEUE_WAIT, DEFAULT_WRITE_MAX_QUEUE_WAIT);
+    }
+
+    private void turnAway(final Write aWrite, final String aMessage) {
+        myRejectedCount += 1;
+        LOGGER.warn(aMessage);
+        aWrite.myHandler.handle(Future.failedFuture(
+                new ReplyException(ReplyFailure.RECIPIENT_FAILURE, HTTP.SERVICE_UNAVAILABLE, aMessage)));
+    }
+
+    private void start(final Write aWrite) {
+        final Promise<Void> promise = Promise.promise();
+
+        myInFlightCount += 1;
+        aWrite.myAttemptCount += 1;
+
+        promise.future().onComplete(result -> {
+            if (result.failed() && result.cause() instanceof RetryException) {
+                myRetryCount += 1;
+                myBackoffCount += 1;
+
+                // Hold on to our place in the window while we wait, so retries don't jump ahead of the queue
+                myVertx.setTimer(getBackoffDelay(aWrite.myAttemptCount), timer -> {
+                    myBackoffCount -= 1;
+                    myInFlightCount -= 1;
+                    start(aWrite);
+                });
+            } else {
+                myInFlightCount -= 1;
+                myCompletedCount += 1;
+                aWrite.myHandler.handle(result);
+
+                if (!myQueue.isEmpty() && myInFlightCount < myMaxInFlight) {
+                    final Write next = myQueue.remove();
+
+                    myVertx.cancelTimer(next.myTimerID);
+                    start(next);
+                }
+            }
+        });
+
+        try {
+            aWrite.myWrite.handle(promise);
+        } catch (final RuntimeException details) {
+            promise.tryFail(details);
+        }
+    }
+
+    /**
+     * An exception a write can fail with to indicate that it should be retried.
+     */
+    public static class RetryException extends Exception {
+
+        /**
+         * The <code>serialVersionUID</code> for RetryException.
+         */
+        private static final long serialVersionUID = -7716213424652210318L;
+
+        /**
+         * Creates a new retry exception.
+         *
+         * @param aMessage The reason the write should be retried
+         */
+        public RetryException(final String aMessage) {
+            super(aMessage);
+        }
+    }
+
+    /**
+     * A write that's been submitted to the scheduler.
+     */
+    private static final class Write {
+
+        private final Handler<Promise<Void>> myWrite;
+
+        private final Handler<AsyncResult<Void>> myHandler;
+
+        private int myAttemptCount;
+
+        /* The timer that turns the write away if it waits in the queue for too long */
+        private long myTimerID = -1;
+
+        private Write(final Handler<Promise<Void>> aWrite, final Handler<AsyncResult<Void>> aHandler) {
+            myWrite = aWrite;
+            myHandler = aHandler;
+        }
+    }
+}
@@ -45,6 +45,219 @@ public final class Status {
     /* The DELETE response HTTP code */
     public static final String DELETE_RESPONSE = "delete.response";
 
+    /* The S3 storage layer category for property values */
+    public static final String S3 = "s3";
+
+    /* The manifest cache category for property values */
+    public static final String CACHE = "cache";
+
+    /* A count of cache hits */
+    public static final String HITS = "hits";
+
+    /* A count of cache misses */
+    public static final String MISSES = "misses";
+
+    /* A count of cache evictions */
+    public static final String EVICTIONS = "evictions";
+
+    /* A count of cache entries */
+    public static final String ENTRIES = "entries";
+
+    /* A current size in bytes */
+    public static final String SIZE = "size";
+
+    /* A maximum size in bytes */
+    public static final String MAX_SIZE = "max_size";
+
+    /* The S3 write scheduler's metrics */
+    public static final String WRITES = "writes";
+
+    /* A number of operations that are in progress */
+    public static final String IN_FLIGHT = "in_flight";
+
+    /* A maximum number of operations that can be in progress */
+    public static final String MAX_IN_FLIGHT = "max_in_flight";
+
+    /* A number of operations that are waiting to be started */
+    public static final String QUEUED = "queued";
+
+    /* A maximum number of operations that can wait to be started */
+    public static final String MAX_QUEUED = "max_queued";
+
+    /* A number of operations that are waiting to be retried */
+    public static final String BACKING_OFF = "backing_off";
+
+    /* A number of operations that have finished, successfully or not */
+    public static final String COMPLETED = "completed";
+
+    /* A number of operations that were turned away */
+    public static final String REJECTED = "rejected";
+
+    /* A number of retried operations */
+    public static final String RETRIES = "retries";
+
+    /* Counts that are broken down by status code */
+    public static final String BY_STATUS = "by_status";
+
+    /* A number of operations that ran out of retries */
+    public static final String EXHAUSTED = "exhausted";
+
+    /* A maximum number of entries */
+    public static final String MAX_ENTRIES = "max_entries";
+
+    /* The storage backend's metrics */
+    public static final String STORAGE = "storage";
+
+    /* The name of a storage backend */
+    public static final String BACKEND = "backend";
+
+    /* The name of an S3 bucket */
+    public static final String BUCKET = "bucket";
+
+    /* A file system path */
+    public static final String PATH = "path";
+
+    /* The metrics of memory-mapped files */
+    public static final String MAPPED = "mapped";
+
+    /* The metrics of the cache of missing manifests and collection docs */
+    public static final String NOT_FOUND_CACHE = "not_found_cache";
+
+    /* The fraction of lookups that were hits */
+    public static final String HIT_RATE = "hit_rate";
+
+    /* The metrics of a connection pool */
+    public static final String POOL = "pool";
+
+    /* A maximum number of pooled connections */
+    public static final String MAX_POOL_SIZE = "max_pool_size";
+
+    /* A maximum number of requests that can wait for a pooled connection */
+    public static final String MAX_WAIT_QUEUE = "max_wait_queue";
+
+    /* The fraction of something's capacity that's in use */
+    public static final String UTILIZATION = "utilization";
+
+    /* A number of requests */
+    public static final String REQUESTS = "requests";
+
+    /* The metrics of reads */
+    public static final String READS = "reads";
+
+    /* A number of requests that shared the result of another request */
+    public static final String COALESCED = "coalesced";
+
+    /* The metrics of the cache of image widths and heights */
+    public static final String IMAGE_INFO_CACHE = "image_info_cache";
+
+    /* A count of cache hits that had to be read from disk */
+    public static final String DISK_HITS = "disk_hits";
+
+    /* A count of cache entries that are kept in memory */
+    public static final String RECENT_ENTRIES = "recent_entries";
+
+    /* The number of slots in a table */
+    public static final String CAPACITY = "capacity";
+
+    /* A count of tasks that had to wait for their turn */
+    public static final String WAITED = "waited";
+
+    /* The metrics of calls to the IIIF image server */
+    public static final String IMAGE_SERVER = "image_server";
+
+    /* The metrics of a concurrency limiter */
+    public static final String LIMITER = "limiter";
+
+    /* The metrics of a circuit breaker */
+    public static final String BREAKER = "breaker";
+
+    /* The state of a circuit breaker */
+    public static final String STATE = "state";
+
+    /* A number of recent calls */
+    public static final String CALLS = "calls";
+
+    /* The fraction of recent calls that failed */
+    public static final String FAILURE_RATE = "failure_rate";
+
+    /* The 99th percentile latency of recent calls, in milliseconds */
+    public static final String P99_LATENCY = "p99_latency";
+
+    /* A timeout, in milliseconds */
+    public static final String TIMEOUT = "timeout";
+
+    /* A count of the times a circuit breaker has opened */
+    public static final String OPENED = "opened";
+
+    /* Recent transitions from one state to another */
+    public static final String TRANSITIONS = "transitions";
+
+    /* The state a transition was from */
+    public static final String FROM = "from";
+
+    /* The state a transition was to */
+    public static final String TO = "to";
+
+    /* When something happened */
+    public static final String AT = "at";
+
+    /* The number of requests that failed */
+    public static final String FAILURES = "failures";
+
+    /* The median latency of recent calls (in milliseconds) */
+    public static final String P50_LATENCY = "p50_latency";
+
+    /* The number of open connections */
+    public static final String CONNECTIONS = "connections";
+
+    /* The number of connections that have been opened */
+    public static final String CONNECTIONS_OPENED = "connections_opened";
+
+    /* Per-host metrics */
+    public static final String HOSTS = "hosts";
+
+    /* Image width and height lookups */
+    public static final String LOOKUPS = "lookups";
+
+    /* Static image header probes */
+    public static final String PROBES = "probes";
+
+    /* A job that hasn't been run yet */
+    public static final String IDLE = "idle";
+
+    /* A job that's running */
+    public static final String RUNNING = "running";
+
+    /* A job that's finished */
+    public static final String DONE = "done";
+
+    /* A job that stopped before it finished */
+    public static final String FAILED = "failed";
+
+    /* When a job started */
+    public static final String STARTED = "started";
+
+    /* When a job finished */
+    public static final String FINISHED = "finished";
+
+    /* How long a job has been running, in milliseconds */
+    public static final String ELAPSED = "elapsed";
+
+    /* The number of manifests that have been found */
+    public static final String MANIFESTS = "manifests";
+
+    /* The number of images that have been found */
+    public static final String IMAGES = "images";
+
+    /* The number of entries that have been added */
+    public static final String ADDED = "added";
+
+    /* The number of manifests read per second */
+    public static final String MANIFESTS_PER_SECOND = "manifests_per_second";
+
+    /* The number of images found per second */
+    public static final String IMAGES_PER_SECOND = "images_per_second";
+
     private Status() {
     }
 
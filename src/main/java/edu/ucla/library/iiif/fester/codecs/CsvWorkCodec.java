@@ -0,0 +1,22 @@
+
+package edu.ucla.library.iiif.fester.codecs;
+
+import edu.ucla.library.iiif.fester.CsvWork;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A codec that passes a work's CSV rows and headers to a local manifest verticle without copying them.
+ */
+public class CsvWorkCodec extends LocalMessageCodec<CsvWork> {
+
+    @Override
+    protected JsonObject toJSON(final CsvWork aBody) {
+        return aBody.toJSON();
+    }
+
+    @Override
+    protected CsvWork fromJSON(final JsonObject aJsonObject) {
+        return CsvWork.fromJSON(aJsonObject);
+    }
+}
@@ -0,0 +1,37 @@
+
+package edu.ucla.library.iiif.fester.codecs;
+
+import edu.ucla.library.iiif.fester.CsvWork;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.shareddata.LocalMap;
+
+/**
+ * Registers Fester's message codecs with a Vert.x instance's event bus.
+ */
+public final class LocalCodecs {
+
+    private static final String CODECS_MAP = "fester.codecs";
+
+    private static final String REGISTERED = "registered";
+
+    private LocalCodecs() {
+    }
+
+    /**
+     * Registers the codecs with the supplied Vert.x instance's event bus, unless they've already been registered.
+     *
+     * @param aVertx A Vert.x instance
+     */
+    public static void register(final Vertx aVertx) {
+        final LocalMap<String, Boolean> map = aVertx.sharedData().getLocalMap(CODECS_MAP);
+
+        if (map.putIfAbsent(REGISTERED, Boolean.TRUE) == null) {
+            final EventBus eventBus = aVertx.eventBus();
+
+            eventBus.registerCodec(new SharedJsonObjectCodec());
+            eventBus.registerDefaultCodec(CsvWork.class, new CsvWorkCodec());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+
+package edu.ucla.library.iiif.fester.codecs;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A codec that hands a message's body over as it is when the message is delivered inside the JVM, and only encodes
+ * it as JSON when the message has to go over the wire to another node in a cluster. A message that's sent with one
+ * of these codecs mustn't be changed by its sender once it's been sent.
+ *
+ * @param <T> The type of the messages' bodies
+ */
+public abstract class LocalMessageCodec<T> implements MessageCodec<T, T> {
+
+    @Override
+    public void encodeToWire(final Buffer aBuffer, final T aBody) {
+        final Buffer json = toJSON(aBody).toBuffer();
+
+        aBuffer.appendInt(json.length()).appendBuffer(json);
+    }
+
+    @Override
+    public T decodeFromWire(final int aPosition, final Buffer aBuffer) {
+        final int start = aPosition + Integer.BYTES;
+        final int end = start + aBuffer.getInt(aPosition);
+
+        return fromJSON(new JsonObject(aBuffer.getBuffer(start, end)));
+    }
+
+    @Override
+    public T transform(final T aBody) {
+        return aBody;
+    }
+
+    @Override
+    public String name() {
+        return getClass().getName();
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+
+    /**
+     * Returns a message body in JSON form.
+     *
+     * @param aBody A message body
+     * @return The message body in JSON form
+     */
+    protected abstract JsonObject toJSON(T aBody);
+
+    /**
+     * Returns a message body from its JSON form.
+     *
+     * @param aJsonObject A message body in JSON form
+     * @return The message body
+     */
+    protected abstract T fromJSON(JsonObject aJsonObject);
+}
@@ -0,0 +1,27 @@
+
+package edu.ucla.library.iiif.fester.codecs;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A codec that shares a JSON object with the receiver of a local message, instead of giving it a copy like the
+ * event bus's default JSON codec does. Since the event bus always uses its own codec for JSON objects, this one has
+ * to be asked for by name.
+ */
+public class SharedJsonObjectCodec extends LocalMessageCodec<JsonObject> {
+
+    /**
+     * The name of the shared JSON object codec.
+     */
+    public static final String NAME = SharedJsonObjectCodec.class.getName();
+
+    @Override
+    protected JsonObject toJSON(final JsonObject aBody) {
+        return aBody;
+    }
+
+    @Override
+    protected JsonObject fromJSON(final JsonObject aJsonObject) {
+        return aJsonObject;
+    }
+}
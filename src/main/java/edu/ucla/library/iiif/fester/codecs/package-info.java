@@ -0,0 +1,5 @@
+/**
+ * The codecs that Fester's messages are passed along the event bus with.
+ */
+
+package edu.ucla.library.iiif.fester.codecs;
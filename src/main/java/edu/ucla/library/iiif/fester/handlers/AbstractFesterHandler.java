@@ -1,10 +1,7 @@
 
 package edu.ucla.library.iiif.fester.handlers;
 
-import java.net.MalformedURLException;
-
-import com.amazonaws.regions.Region;
-import com.amazonaws.regions.RegionUtils;
+import java.io.IOException;
 
 import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
@@ -16,22 +13,37 @@ import info.freelibrary.iiif.presentation.v3.ResourceTypes;
 import info.freelibrary.iiif.presentation.v3.utils.JsonKeys;
 import info.freelibrary.iiif.presentation.v3.utils.Manifestor;
 
-import info.freelibrary.vertx.s3.S3Client;
-
 import edu.ucla.library.iiif.fester.Config;
 import edu.ucla.library.iiif.fester.Constants;
+import edu.ucla.library.iiif.fester.HTTP;
 import edu.ucla.library.iiif.fester.MessageCodes;
+import edu.ucla.library.iiif.fester.Op;
+import edu.ucla.library.iiif.fester.storage.Storage;
+import edu.ucla.library.iiif.fester.storage.StorageException;
+import edu.ucla.library.iiif.fester.storage.StorageFactory;
+import edu.ucla.library.iiif.fester.storage.StoredObject;
+import edu.ucla.library.iiif.fester.utils.CompressionUtils;
+import edu.ucla.library.iiif.fester.utils.GzipInflater;
+import edu.ucla.library.iiif.fester.utils.PlaceholderRewriter;
+import edu.ucla.library.iiif.fester.utils.ValidatorUtils;
+import edu.ucla.library.iiif.fester.verticles.S3BucketVerticle;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.web.RoutingContext;
 
 /**
- * Creates an abstract handler so that other instantiated handlers can use its S3Client.
+ * Creates an abstract handler so that other instantiated handlers can use its storage backend.
  */
 abstract class AbstractFesterHandler implements Handler<RoutingContext> {
 
@@ -39,52 +51,26 @@ abstract class AbstractFesterHandler implements Handler<RoutingContext> {
 
     protected final Vertx myVertx;
 
-    protected S3Client myS3Client;
+    protected Storage myStorage;
+
+    protected final String myUrl;
 
-    protected String myS3Bucket;
+    protected final boolean isStreaming;
 
     /**
-     * An abstract handler that initializes an S3 client.
+     * An abstract handler that initializes a storage backend.
      *
      * @param aVertx A Vert.x instance
      * @param aConfig An application configuration
      */
     AbstractFesterHandler(final Vertx aVertx, final JsonObject aConfig) {
-        if (myS3Client == null) {
-            final String s3AccessKey = aConfig.getString(Config.S3_ACCESS_KEY);
-            final String s3SecretKey = aConfig.getString(Config.S3_SECRET_KEY);
-            final String s3RegionName = aConfig.getString(Config.S3_REGION);
-            final Region s3Region = RegionUtils.getRegion(s3RegionName);
-
-            LOGGER.debug(MessageCodes.MFS_003, s3RegionName);
-
-            if (s3Region != null) {
-                final String endpoint = aConfig.getString(Config.S3_ENDPOINT);
-
-                try {
-                    // Check to see that we're not overriding the default S3 endpoint
-                    if (endpoint == null || Constants.S3_ENDPOINT.equals(endpoint)) {
-                        final String regionEndpoint = RegionUtils.getRegion(s3RegionName).getServiceEndpoint("s3");
-
-                        LOGGER.debug(MessageCodes.MFS_034, regionEndpoint, "default");
-                        myS3Client = new S3Client(aVertx, s3AccessKey, s3SecretKey, "https://" + regionEndpoint);
-                    } else {
-                        LOGGER.debug(MessageCodes.MFS_034, endpoint, "supplied");
-                        myS3Client = new S3Client(aVertx, s3AccessKey, s3SecretKey, endpoint);
-                    }
-
-                    myS3Client.useV2Signature(true);
-                } catch (final MalformedURLException details) {
-                    throw new IllegalArgumentException(details);
-                }
-            } else {
-                myS3Client = new S3Client(aVertx, s3AccessKey, s3SecretKey);
-            }
-
-            myS3Bucket = aConfig.getString(Config.S3_BUCKET);
+        if (myStorage == null) {
+            myStorage = StorageFactory.getStorage(aVertx, aConfig);
         }
 
         myVertx = aVertx;
+        myUrl = aConfig.getString(Config.FESTER_URL);
+        isStreaming = aConfig.getBoolean(Config.S3_STREAMING, false);
     }
 
     /**
@@ -117,6 +103,351 @@ abstract class AbstractFesterHandler implements Handler<RoutingContext> {
         sendMessage(aVerticleName, aMessage, aHeaders, DeliveryOptions.DEFAULT_TIMEOUT, aHandler);
     }
 
+    /**
+     * Whether a request should be streamed straight from S3. Conditional requests aren't streamed since the S3 bucket
+     * verticle can usually answer them from its cached validators.
+     *
+     * @param aRequest An HTTP request
+     * @return True if the requested resource should be streamed from S3; else, false
+     */
+    protected boolean isStreamable(final HttpServerRequest aRequest) {
+        final MultiMap headers = aRequest.headers();
+
+        return isStreaming && !headers.contains(Constants.IF_NONE_MATCH) &&
+                !headers.contains(Constants.IF_MODIFIED_SINCE);
+    }
+
+    /**
+     * Streams a manifest or collection document from S3 to the client, replacing its placeholder URLs as the bytes go
+     * by. The document is never decoded into a string or parsed into a JSON object. A compressed document is inflated
+     * a chunk at a time, unless the client can take it compressed and there aren't any placeholders to replace, in
+     * which case it's passed through just as it's stored.
+     * <p>
+     * The S3 bucket verticle is asked first, though, so a document it has in memory is served from there and one it
+     * knows isn't in S3 isn't looked for again. Streamed requests aren't coalesced and what's streamed isn't cached,
+     * but a document that's streamed and turns out not to be in S3 is remembered by the S3 bucket verticle.
+     *
+     * @param aID The ID of the manifest or collection
+     * @param aS3Key The S3 key of the manifest or collection
+     * @param aMessage A message that gets the manifest or collection from the S3 bucket verticle
+     * @param aOptions The options of the message, including its action
+     * @param aRequest The HTTP request to stream a response to
+     */
+    protected void stream(final String aID, final String aS3Key, final JsonObject aMessage,
+            final DeliveryOptions aOptions, final HttpServerRequest aRequest) {
+        final HttpServerResponse response = aRequest.response();
+
+        aOptions.addHeader(Constants.CACHED_ONLY, Boolean.TRUE.toString());
+
+        sendMessage(S3BucketVerticle.class.getName(), aMessage, aOptions, send -> {
+            if (send.succeeded()) {
+                final Message<JsonObject> reply = send.result();
+                final String writeCount = reply.headers().get(Constants.NOT_CACHED);
+
+                if (writeCount != null) {
+                    streamFromStorage(aID, aS3Key, aMessage, writeCount, aRequest);
+                } else {
+                    copyValidators(reply, response);
+                    response.setStatusCode(HTTP.OK);
+                    response.putHeader(Constants.CONTENT_TYPE, Constants.JSON_MEDIA_TYPE);
+                    response.end(reply.body().toString());
+                }
+            } else if (((ReplyException) send.cause()).failureCode() == HTTP.NOT_FOUND) {
+                final String statusMessage = send.cause().getMessage();
+                final String errorMessage = LOGGER.getMessage(MessageCodes.MFS_009, aID, HTTP.NOT_FOUND, statusMessage);
+
+                LOGGER.error(errorMessage);
+                fail(response, HTTP.NOT_FOUND, errorMessage);
+            } else {
+                // We can still stream the document if the S3 bucket verticle couldn't tell us whether it has it
+                LOGGER.warn(MessageCodes.MFS_097, aS3Key, send.cause().getMessage());
+                streamFromStorage(aID, aS3Key, aMessage, null, aRequest);
+            }
+        });
+    }
+
+    /**
+     * Streams a manifest or collection document that the S3 bucket verticle doesn't have in memory from S3.
+     *
+     * @param aID The ID of the manifest or collection
+     * @param aS3Key The S3 key of the manifest or collection
+     * @param aMessage The message that asked the S3 bucket verticle for the manifest or collection
+     * @param aWriteCount The S3 bucket verticle's write count when it was asked (may be null)
+     * @param aRequest The HTTP request to stream a response to
+     */
+    @SuppressWarnings("checkstyle:indentation")
+    private void streamFromStorage(final String aID, final String aS3Key, final JsonObject aMessage,
+            final String aWriteCount, final HttpServerRequest aRequest) {
+        final HttpServerResponse response = aRequest.response();
+
+        myStorage.stream(aS3Key, get -> {
+            if (get.succeeded()) {
+                final StoredObject object = get.result();
+                final boolean gzipped = CompressionUtils.isGzipped(object.getContentEncoding());
+                final PlaceholderRewriter rewriter;
+                final GzipInflater inflater;
+
+                LOGGER.debug(MessageCodes.MFS_096, aS3Key, HTTP.OK);
+
+                // The stored ETag is for the stored bytes, which aren't necessarily the ones we're going to send
+                if (object.getETag() != null) {
+                    response.putHeader(Constants.ETAG, ValidatorUtils.toWeak(object.getETag()));
+                }
+
+                if (object.getLastModified() != null) {
+                    response.putHeader(Constants.LAST_MODIFIED, object.getLastModified());
+                }
+
+                // Our substitutions change the length of the document, so we don't know its final length up front
+                response.setStatusCode(HTTP.OK).setChunked(true);
+                response.putHeader(Constants.CONTENT_TYPE, Constants.JSON_MEDIA_TYPE);
+                response.putHeader(Constants.VARY, Constants.ACCEPT_ENCODING);
+
+                if (gzipped && !isRewriting() &&
+                        CompressionUtils.acceptsGzip(aRequest.getHeader(Constants.ACCEPT_ENCODING))) {
+                    // An encoded response isn't encoded again by the server's own compression
+                    response.putHeader(Constants.CONTENT_ENCODING, CompressionUtils.GZIP);
+                    rewriter = null;
+                    inflater = null;
+                } else {
+                    rewriter = isRewriting() ? new PlaceholderRewriter(Constants.URL_PLACEHOLDER, myUrl) : null;
+                    inflater = gzipped ? new GzipInflater() : null;
+                }
+
+                pipe(aS3Key, object, inflater, rewriter, response);
+            } else if (get.cause() instanceof StorageException) {
+                final int statusCode = ((StorageException) get.cause()).getStatusCode();
+                final String statusMessage = get.cause().getMessage();
+                final String errorMessage = LOGGER.getMessage(MessageCodes.MFS_009, aID, statusCode, statusMessage);
+
+                LOGGER.error(errorMessage);
+
+                // Let the S3 bucket verticle know, so it doesn't have to ask S3 again for a while
+                if (statusCode == HTTP.NOT_FOUND && aWriteCount != null) {
+                    myVertx.eventBus().send(S3BucketVerticle.class.getName(), aMessage, new DeliveryOptions()
+                            .addHeader(Constants.ACTION, Op.RECORD_NOT_FOUND)
+                            .addHeader(Constants.NOT_CACHED, aWriteCount));
+                }
+
+                fail(response, statusCode == HTTP.NOT_FOUND ? HTTP.NOT_FOUND : HTTP.INTERNAL_SERVER_ERROR,
+                        errorMessage);
+            } else {
+                final Throwable exception = get.cause();
+                final String errorMessage = LOGGER.getMessage(MessageCodes.MFS_097, aS3Key, exception.getMessage());
+
+                LOGGER.error(exception, errorMessage);
+                fail(response, HTTP.INTERNAL_SERVER_ERROR, errorMessage);
+            }
+        });
+    }
+
+    /**
+     * Ends a streamed response with an error.
+     *
+     * @param aResponse An HTTP response
+     * @param aStatusCode The response's status code
+     * @param aErrorMessage The response's error message
+     */
+    private static void fail(final HttpServerResponse aResponse, final int aStatusCode, final String aErrorMessage) {
+        aResponse.setStatusCode(aStatusCode);
+        aResponse.putHeader(Constants.CONTENT_TYPE, Constants.PLAIN_TEXT_TYPE);
+        aResponse.end(aErrorMessage);
+    }
+
+    /**
+     * Whether the placeholder URLs in our documents need to be replaced before they're sent out.
+     *
+     * @return True if the placeholder URLs need to be replaced; else, false
+     */
+    private boolean isRewriting() {
+        return myUrl != null && !Constants.URL_PLACEHOLDER.equals(myUrl);
+    }
+
+    /**
+     * Pipes a stored document to the client, inflating it and replacing its placeholder URLs on the way, as needed.
+     *
+     * @param aS3Key The S3 key of the document
+     * @param aObject The stored document
+     * @param aInflater An inflater, if the document needs to be inflated (may be null)
+     * @param aRewriter A placeholder rewriter, if the document's placeholders need to be replaced (may be null)
+     * @param aResponse The HTTP response to write to
+     */
+    private void pipe(final String aS3Key, final StoredObject aObject, final GzipInflater aInflater,
+            final PlaceholderRewriter aRewriter, final HttpServerResponse aResponse) {
+        final ReadStream<Buffer> stream = aObject.getStream();
+
+        if (stream == null) {
+            try {
+                final Buffer body = transform(aObject.getContent(), aInflater, aRewriter);
+
+                if (!aResponse.closed()) {
+                    aResponse.write(body).end(finish(aInflater, aRewriter));
+                }
+            } catch (final IOException details) {
+                close(aS3Key, details, aInflater, aResponse);
+            }
+
+            return;
+        }
+
+        // If the client goes away, stop reading from storage instead of waiting on a drain that won't come
+        aResponse.closeHandler(closed -> cancel(aObject, aInflater, aResponse));
+        aResponse.exceptionHandler(details -> cancel(aObject, aInflater, aResponse));
+
+        stream.handler(chunk -> {
+            if (!aResponse.closed()) {
+                try {
+                    aResponse.write(transform(chunk, aInflater, aRewriter));
+                } catch (final IOException details) {
+                    cancel(aObject, aInflater, aResponse);
+                    close(aS3Key, details, aInflater, aResponse);
+                    return;
+                }
+
+                // Don't read from storage faster than the client can read from us
+                if (aResponse.writeQueueFull()) {
+                    stream.pause();
+                    aResponse.drainHandler(drain -> stream.resume());
+                }
+            }
+        });
+
+        stream.exceptionHandler(details -> close(aS3Key, details, aInflater, aResponse));
+
+        stream.endHandler(end -> {
+            // The whole document has been read, so there's nothing left to stop reading
+            aResponse.closeHandler(null).exceptionHandler(null);
+
+            try {
+                final Buffer tail = finish(aInflater, aRewriter);
+
+                if (!aResponse.closed()) {
+                    aResponse.end(tail);
+                }
+            } catch (final IOException details) {
+                close(aS3Key, details, aInflater, aResponse);
+            }
+        });
+    }
+
+    /**
+     * Stops streaming a stored document that won't be sent in full, letting go of the storage connection it's being
+     * read from and the inflater it's being inflated with. A response that's already ended has had all of its
+     * document, so there's nothing to stop.
+     *
+     * @param aObject The stored document
+     * @param aInflater The inflater the document is being inflated with (may be null)
+     * @param aResponse The HTTP response the document is being sent in
+     */
+    private static void cancel(final StoredObject aObject, final GzipInflater aInflater,
+            final HttpServerResponse aResponse) {
+        if (!aResponse.ended()) {
+            aObject.getStream().handler(null).exceptionHandler(null).endHandler(null);
+            aObject.cancel();
+
+            if (aInflater != null) {
+                aInflater.close();
+            }
+        }
+    }
+
+    /**
+     * Transforms the next chunk of a stored document into what's sent to the client.
+     *
+     * @param aChunk The next chunk of the stored document
+     * @param aInflater An inflater (may be null)
+     * @param aRewriter A placeholder rewriter (may be null)
+     * @return The bytes that are ready to be sent
+     * @throws IOException If the document can't be inflated
+     */
+    private static Buffer transform(final Buffer aChunk, final GzipInflater aInflater,
+            final PlaceholderRewriter aRewriter) throws IOException {
+        final Buffer inflated = aInflater == null ? aChunk : aInflater.inflate(aChunk);
+        return aRewriter == null ? inflated : aRewriter.rewrite(inflated);
+    }
+
+    /**
+     * Finishes transforming a stored document, returning whatever was held back.
+     *
+     * @param aInflater An inflater (may be null)
+     * @param aRewriter A placeholder rewriter (may be null)
+     * @return The bytes that were held back
+     * @throws IOException If the document was cut short
+     */
+    private static Buffer finish(final GzipInflater aInflater, final PlaceholderRewriter aRewriter)
+            throws IOException {
+        if (aInflater != null) {
+            aInflater.finish();
+        }
+
+        return aRewriter == null ? Buffer.buffer() : aRewriter.flush();
+    }
+
+    /**
+     * Closes a response that can't be completed, since its status code has already been sent.
+     *
+     * @param aS3Key The S3 key of the document that was being sent
+     * @param aThrowable What went wrong
+     * @param aInflater The inflater the document was being inflated with (may be null)
+     * @param aResponse The HTTP response to close
+     */
+    private void close(final String aS3Key, final Throwable aThrowable, final GzipInflater aInflater,
+            final HttpServerResponse aResponse) {
+        LOGGER.error(aThrowable, MessageCodes.MFS_097, aS3Key, aThrowable.getMessage());
+
+        if (aInflater != null) {
+            aInflater.close();
+        }
+
+        aResponse.close();
+    }
+
+    /**
+     * Passes a request's conditional headers along to the S3 bucket verticle, so it can tell whether the requester's
+     * copy of a resource is still current.
+     *
+     * @param aRequest An HTTP request
+     * @param aOptions The options of a message that's going to be sent to the S3 bucket verticle
+     */
+    protected void addConditionalHeaders(final HttpServerRequest aRequest, final DeliveryOptions aOptions) {
+        final String ifNoneMatch = aRequest.getHeader(Constants.IF_NONE_MATCH);
+        final String ifModifiedSince = aRequest.getHeader(Constants.IF_MODIFIED_SINCE);
+
+        if (ifNoneMatch != null) {
+            aOptions.addHeader(Constants.IF_NONE_MATCH, ifNoneMatch);
+        }
+
+        if (ifModifiedSince != null) {
+            aOptions.addHeader(Constants.IF_MODIFIED_SINCE, ifModifiedSince);
+        }
+    }
+
+    /**
+     * Copies a resource's validators from the S3 bucket verticle's reply to an HTTP response.
+     *
+     * @param aReply A reply from the S3 bucket verticle
+     * @param aResponse An HTTP response
+     * @return True if the requester's copy of the resource is still current; else, false
+     */
+    protected boolean copyValidators(final Message<JsonObject> aReply, final HttpServerResponse aResponse) {
+        final MultiMap headers = aReply.headers();
+        final String etag = headers.get(Constants.ETAG);
+        final String lastModified = headers.get(Constants.LAST_MODIFIED);
+
+        if (etag != null) {
+            aResponse.putHeader(Constants.ETAG, ValidatorUtils.toWeak(etag));
+        }
+
+        if (lastModified != null) {
+            aResponse.putHeader(Constants.LAST_MODIFIED, lastModified);
+        }
+
+        // The server compresses what we send if the client accepts it, so the bytes vary with the client's encoding
+        aResponse.putHeader(Constants.VARY, Constants.ACCEPT_ENCODING);
+
+        return headers.contains(Constants.NOT_MODIFIED);
+    }
+
     /**
      * Validate a supplied manifest, considering its version of the spec (e.g., v2 or v3) and the resource type.
      *
@@ -5,11 +5,13 @@ import edu.ucla.library.iiif.fester.Constants;
 import edu.ucla.library.iiif.fester.HTTP;
 import edu.ucla.library.iiif.fester.MessageCodes;
 import edu.ucla.library.iiif.fester.Status;
+import edu.ucla.library.iiif.fester.storage.StorageException;
 
 import info.freelibrary.iiif.presentation.v2.Manifest;
 import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
 
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
@@ -47,28 +49,22 @@ public class CheckEndpointsHandler extends AbstractFesterHandler {
         final JsonObject status = new JsonObject();
 
         Future.future(put -> {
-            myS3Client.put(myS3Bucket, UPLOAD_KEY, Buffer.buffer(upload.toJSON().encodePrettily()), putResponse -> {
-                final int statusCode = putResponse.statusCode();
-                final String statusMessage = putResponse.statusMessage();
-                endpoints.put(Status.PUT_RESPONSE, statusCode);
-                determineEndpointStatus(statusCode, statusMessage, endpoints, put);
+            final Buffer content = Buffer.buffer(upload.toJSON().encodePrettily());
+
+            myStorage.put(UPLOAD_KEY, content, null, putResponse -> {
+                determineEndpointStatus(putResponse, HTTP.OK, Status.PUT_RESPONSE, endpoints, put);
             });
         }).compose(addGet -> {
             return Future.future(get -> {
-                myS3Client.get(myS3Bucket, UPLOAD_KEY, getResponse -> {
-                    final int statusCode = getResponse.statusCode();
-                    final String statusMessage = getResponse.statusMessage();
-                    endpoints.put(Status.GET_RESPONSE, statusCode);
-                    determineEndpointStatus(statusCode, statusMessage, endpoints, get);
+                myStorage.get(UPLOAD_KEY, getResponse -> {
+                    determineEndpointStatus(getResponse, HTTP.OK, Status.GET_RESPONSE, endpoints, get);
                 });
             });
         }).compose(addDel -> {
             return Future.future(delete -> {
-                myS3Client.delete(myS3Bucket, UPLOAD_KEY, deleteResponse -> {
-                    final int statusCode = deleteResponse.statusCode();
-                    final String statusMessage = deleteResponse.statusMessage();
-                    endpoints.put(Status.DELETE_RESPONSE, statusCode);
-                    determineEndpointStatus(statusCode, statusMessage, endpoints, delete);
+                myStorage.delete(UPLOAD_KEY, deleteResponse -> {
+                    determineEndpointStatus(deleteResponse, HTTP.SUCCESS_NO_CONTENT, Status.DELETE_RESPONSE,
+                            endpoints, delete);
                 });
             });
         }).onSuccess(success -> {
@@ -88,6 +84,26 @@ public class CheckEndpointsHandler extends AbstractFesterHandler {
 
     }
 
+    private void determineEndpointStatus(final AsyncResult<?> aResult, final int aSuccessCode, final String aKey,
+            final JsonObject aMessage, final Promise<Object> aPromise) {
+        final int statusCode;
+        final String statusMessage;
+
+        if (aResult.succeeded()) {
+            statusCode = aSuccessCode;
+            statusMessage = Status.OK;
+        } else if (aResult.cause() instanceof StorageException) {
+            statusCode = ((StorageException) aResult.cause()).getStatusCode();
+            statusMessage = aResult.cause().getMessage();
+        } else {
+            statusCode = HTTP.INTERNAL_SERVER_ERROR;
+            statusMessage = aResult.cause().getMessage();
+        }
+
+        aMessage.put(aKey, statusCode);
+        determineEndpointStatus(statusCode, statusMessage, aMessage, aPromise);
+    }
+
     private void determineEndpointStatus(final int aCode, final String aStatus, final JsonObject aMessage,
             final Promise<Object> aPromise) {
         if (aCode >= HTTP.BAD_REQUEST && aCode < HTTP.INTERNAL_SERVER_ERROR) {
@@ -7,8 +7,13 @@ import info.freelibrary.util.LoggerFactory;
 import edu.ucla.library.iiif.fester.Constants;
 import edu.ucla.library.iiif.fester.HTTP;
 import edu.ucla.library.iiif.fester.MessageCodes;
+import edu.ucla.library.iiif.fester.Op;
+import edu.ucla.library.iiif.fester.storage.StorageException;
 import edu.ucla.library.iiif.fester.utils.IDUtils;
+import edu.ucla.library.iiif.fester.verticles.S3BucketVerticle;
+
 import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
@@ -38,11 +43,25 @@ public class DeleteManifestHandler extends AbstractFesterHandler {
         final String manifestID = request.getParam(Constants.MANIFEST_ID);
         final String manifestS3Key = IDUtils.getWorkS3Key(manifestID);
 
-        myS3Client.delete(myS3Bucket, manifestS3Key, deleteResponse -> {
-            final int statusCode = deleteResponse.statusCode();
+        myStorage.delete(manifestS3Key, delete -> {
+            final int statusCode;
+
+            if (delete.succeeded()) {
+                statusCode = HTTP.SUCCESS_NO_CONTENT;
+            } else if (delete.cause() instanceof StorageException) {
+                statusCode = ((StorageException) delete.cause()).getStatusCode();
+            } else {
+                LOGGER.error(delete.cause(), delete.cause().getMessage());
+                statusCode = HTTP.INTERNAL_SERVER_ERROR;
+            }
 
             switch (statusCode) {
                 case HTTP.SUCCESS_NO_CONTENT:
+                    // Let the S3 bucket verticle know that it shouldn't serve this manifest from its cache
+                    myVertx.eventBus().send(S3BucketVerticle.class.getName(),
+                            new JsonObject().put(Constants.MANIFEST_ID, manifestID),
+                            new DeliveryOptions().addHeader(Constants.ACTION, Op.INVALIDATE_MANIFEST));
+
                     response.setStatusCode(HTTP.SUCCESS_NO_CONTENT);
                     response.putHeader(Constants.CONTENT_TYPE, Constants.PLAIN_TEXT_TYPE);
                     response.end(LOGGER.getMessage(MessageCodes.MFS_088, manifestID));
@@ -71,13 +71,19 @@ public class EndpointConfigHandler implements Handler<AsyncResult<OpenAPI3Router
             final Promise<Boolean> promise = Promise.promise();
 
             // We need to associate endpoint handlers with routes from our specification
-            factory.addHandlerByOperationId(Op.GET_STATUS, new GetStatusHandler());
+            factory.addHandlerByOperationId(Op.GET_STATUS, new GetStatusHandler(myVertx, myConfig));
             factory.addHandlerByOperationId(Op.GET_MANIFEST, new GetManifestHandler(myVertx, myConfig));
             factory.addHandlerByOperationId(Op.PUT_MANIFEST, new PutManifestHandler(myVertx, myConfig));
             factory.addHandlerByOperationId(Op.DELETE_MANIFEST, new DeleteManifestHandler(myVertx, myConfig));
             factory.addHandlerByOperationId(Op.GET_COLLECTION, new GetCollectionHandler(myVertx, myConfig));
             factory.addHandlerByOperationId(Op.PUT_COLLECTION, new PutCollectionHandler(myVertx, myConfig));
             factory.addHandlerByOperationId(Op.CHECK_ENDPOINTS, new CheckEndpointsHandler(myVertx, myConfig));
+            factory.addHandlerByOperationId(Op.INVALIDATE_IMAGE_INFO,
+                    new InvalidateImageInfoHandler(myVertx, myConfig));
+            factory.addHandlerByOperationId(Op.START_IMAGE_INFO_HARVEST,
+                    new StartImageInfoHarvestHandler(myVertx, myConfig));
+            factory.addHandlerByOperationId(Op.GET_IMAGE_INFO_HARVEST,
+                    new GetImageInfoHarvestHandler(myVertx, myConfig));
 
             // After the batch ingest feature is configured (or not), we complete the router configuration
             promise.future().onComplete(handler -> {
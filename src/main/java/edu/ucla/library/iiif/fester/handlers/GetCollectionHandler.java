@@ -8,11 +8,13 @@ import edu.ucla.library.iiif.fester.Constants;
 import edu.ucla.library.iiif.fester.HTTP;
 import edu.ucla.library.iiif.fester.MessageCodes;
 import edu.ucla.library.iiif.fester.Op;
+import edu.ucla.library.iiif.fester.utils.IDUtils;
 import edu.ucla.library.iiif.fester.verticles.S3BucketVerticle;
 
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.ReplyException;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
@@ -45,15 +47,29 @@ public class GetCollectionHandler extends AbstractFesterHandler implements Handl
         message.put(Constants.COLLECTION_NAME, collectionName);
         options.addHeader(Constants.ACTION, Op.GET_COLLECTION);
 
+        // If configured to do so, we pass the document straight through from S3 without parsing it
+        if (isStreamable(aContext.request())) {
+            response.headers().set(Constants.CORS_HEADER, Constants.STAR);
+            stream(collectionName, IDUtils.getCollectionS3Key(collectionName), message, options, aContext.request());
+            return;
+        }
+
+        addConditionalHeaders(aContext.request(), options);
+
         sendMessage(S3BucketVerticle.class.getName(), message, options, send -> {
             response.headers().set(Constants.CORS_HEADER, Constants.STAR);
 
             if (send.succeeded()) {
-                final String collection = send.result().body().toString();
+                final Message<JsonObject> reply = send.result();
 
-                response.setStatusCode(HTTP.OK);
-                response.putHeader(Constants.CONTENT_TYPE, Constants.JSON_MEDIA_TYPE);
-                response.end(collection);
+                if (copyValidators(reply, response)) {
+                    response.setStatusCode(HTTP.NOT_MODIFIED);
+                    response.end();
+                } else {
+                    response.setStatusCode(HTTP.OK);
+                    response.putHeader(Constants.CONTENT_TYPE, Constants.JSON_MEDIA_TYPE);
+                    response.end(reply.body().toString());
+                }
             } else {
                 final ReplyException failure = (ReplyException) send.cause();
                 final int statusCode = failure.failureCode();
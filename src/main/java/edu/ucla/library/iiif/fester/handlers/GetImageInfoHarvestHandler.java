@@ -0,0 +1,55 @@
+
+package edu.ucla.library.iiif.fester.handlers;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.iiif.fester.Constants;
+import edu.ucla.library.iiif.fester.HTTP;
+import edu.ucla.library.iiif.fester.ImageInfoHarvester;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * A handler that gets the progress and throughput of the harvest of image widths and heights.
+ */
+public class GetImageInfoHarvestHandler implements Handler<RoutingContext> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GetImageInfoHarvestHandler.class,
+            Constants.MESSAGES);
+
+    private final ImageInfoHarvester myHarvester;
+
+    /**
+     * Creates a handler that returns the progress of the harvest of image widths and heights.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aConfig A JSON configuration
+     */
+    public GetImageInfoHarvestHandler(final Vertx aVertx, final JsonObject aConfig) {
+        myHarvester = ImageInfoHarvester.getHarvester(aVertx, aConfig);
+    }
+
+    @Override
+    public void handle(final RoutingContext aContext) {
+        final HttpServerResponse response = aContext.response();
+
+        try {
+            response.setStatusCode(HTTP.OK);
+            response.putHeader(Constants.CONTENT_TYPE, Constants.JSON_MEDIA_TYPE);
+            response.end(myHarvester.getStats().encodePrettily());
+        } catch (final Throwable aThrowable) {
+            final String exceptionMessage = aThrowable.getMessage();
+
+            LOGGER.error(aThrowable, exceptionMessage);
+
+            response.setStatusCode(HTTP.INTERNAL_SERVER_ERROR);
+            response.putHeader(Constants.CONTENT_TYPE, Constants.PLAIN_TEXT_TYPE);
+            response.end(exceptionMessage);
+        }
+    }
+}
@@ -8,10 +8,12 @@ import edu.ucla.library.iiif.fester.Constants;
 import edu.ucla.library.iiif.fester.HTTP;
 import edu.ucla.library.iiif.fester.MessageCodes;
 import edu.ucla.library.iiif.fester.Op;
+import edu.ucla.library.iiif.fester.utils.IDUtils;
 import edu.ucla.library.iiif.fester.verticles.S3BucketVerticle;
 
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.ReplyException;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
@@ -44,15 +46,29 @@ public class GetManifestHandler extends AbstractFesterHandler {
         message.put(Constants.MANIFEST_ID, manifestID);
         options.addHeader(Constants.ACTION, Op.GET_MANIFEST);
 
+        // If configured to do so, we pass the document straight through from S3 without parsing it
+        if (isStreamable(aContext.request())) {
+            response.headers().set(Constants.CORS_HEADER, Constants.STAR);
+            stream(manifestID, IDUtils.getWorkS3Key(manifestID), message, options, aContext.request());
+            return;
+        }
+
+        addConditionalHeaders(aContext.request(), options);
+
         sendMessage(S3BucketVerticle.class.getName(), message, options, send -> {
             response.headers().set(Constants.CORS_HEADER, Constants.STAR);
 
             if (send.succeeded()) {
-                final String manifest = send.result().body().toString();
-
-                response.setStatusCode(HTTP.OK);
-                response.putHeader(Constants.CONTENT_TYPE, Constants.JSON_MEDIA_TYPE);
-                response.end(manifest);
+                final Message<JsonObject> reply = send.result();
+
+                if (copyValidators(reply, response)) {
+                    response.setStatusCode(HTTP.NOT_MODIFIED);
+                    response.end();
+                } else {
+                    response.setStatusCode(HTTP.OK);
+                    response.putHeader(Constants.CONTENT_TYPE, Constants.JSON_MEDIA_TYPE);
+                    response.end(reply.body().toString());
+                }
             } else {
                 final ReplyException failure = (ReplyException) send.cause();
                 final String statusMessage = failure.getMessage();
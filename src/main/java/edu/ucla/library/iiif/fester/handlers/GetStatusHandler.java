@@ -6,9 +6,16 @@ import info.freelibrary.util.LoggerFactory;
 
 import edu.ucla.library.iiif.fester.Constants;
 import edu.ucla.library.iiif.fester.HTTP;
+import edu.ucla.library.iiif.fester.ImageInfoCache;
+import edu.ucla.library.iiif.fester.ImageInfoLookup;
+import edu.ucla.library.iiif.fester.MessageCodes;
+import edu.ucla.library.iiif.fester.Op;
 import edu.ucla.library.iiif.fester.Status;
+import edu.ucla.library.iiif.fester.verticles.S3BucketVerticle;
 
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
@@ -26,6 +33,23 @@ public class GetStatusHandler implements Handler<RoutingContext> {
 
     private static final double ERROR_PERCENT = 95.0D;
 
+    private static final long STATUS_TIMEOUT = 5000;
+
+    private final Vertx myVertx;
+
+    private final ImageInfoCache myImageInfoCache;
+
+    /**
+     * Creates a handler that returns the status of the application.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aConfig A JSON configuration
+     */
+    public GetStatusHandler(final Vertx aVertx, final JsonObject aConfig) {
+        myVertx = aVertx;
+        myImageInfoCache = ImageInfoCache.getCache(aVertx, aConfig);
+    }
+
     @Override
     public void handle(final RoutingContext aContext) {
         final HttpServerResponse response = aContext.response();
@@ -41,6 +65,7 @@ public class GetStatusHandler implements Handler<RoutingContext> {
             final String totalMemStr = totalMem + Constants.SPACE + Constants.MB_STR;
             final String freeMemStr = freeMem + Constants.SPACE + Constants.MB_STR;
             final String usedMemStr = usedMem + Constants.SPACE + Constants.MB_STR;
+            final DeliveryOptions options = new DeliveryOptions();
 
             if (percentMem >= WARN_PERCENT && percentMem < ERROR_PERCENT) {
                 status.put(Status.STATUS, Status.WARN);
@@ -52,9 +77,24 @@ public class GetStatusHandler implements Handler<RoutingContext> {
             status.put(Status.MEMORY, memory);
             memory.put(Status.TOTAL_MEMORY, totalMemStr).put(Status.FREE_MEMORY, freeMemStr)
                     .put(Status.USED_MEMORY, usedMemStr).put(Status.PERCENT_MEMORY, percentMem);
-
-            response.setStatusCode(200);
-            response.putHeader(Constants.CONTENT_TYPE, Constants.JSON_MEDIA_TYPE).end(status.encodePrettily());
+            status.put(Status.IMAGE_INFO_CACHE, myImageInfoCache.getStats());
+            status.put(Status.IMAGE_SERVER, ImageInfoLookup.getStats(myVertx));
+
+            options.addHeader(Constants.ACTION, Op.GET_STATUS).setSendTimeout(STATUS_TIMEOUT);
+
+            // Add what the S3 storage layer can tell us about itself, but don't fail the request if it can't
+            myVertx.eventBus().<JsonObject>request(S3BucketVerticle.class.getName(), new JsonObject(), options,
+                    request -> {
+                        if (request.succeeded()) {
+                            status.put(Status.S3, request.result().body());
+                        } else {
+                            LOGGER.warn(MessageCodes.MFS_194, request.cause().getMessage());
+                        }
+
+                        response.setStatusCode(HTTP.OK);
+                        response.putHeader(Constants.CONTENT_TYPE, Constants.JSON_MEDIA_TYPE)
+                                .end(status.encodePrettily());
+                    });
         } catch (final Throwable aThrowable) {
             final String exceptionMessage = aThrowable.getMessage();
 
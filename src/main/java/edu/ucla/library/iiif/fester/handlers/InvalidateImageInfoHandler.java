@@ -0,0 +1,68 @@
+
+package edu.ucla.library.iiif.fester.handlers;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.iiif.fester.Constants;
+import edu.ucla.library.iiif.fester.HTTP;
+import edu.ucla.library.iiif.fester.ImageInfoCache;
+import edu.ucla.library.iiif.fester.MessageCodes;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * A handler that forgets the cached widths and heights of images, so they're looked up again.
+ */
+public class InvalidateImageInfoHandler implements Handler<RoutingContext> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvalidateImageInfoHandler.class,
+            Constants.MESSAGES);
+
+    private static final String ALL_IMAGES = "[ALL]";
+
+    private final ImageInfoCache myCache;
+
+    /**
+     * Creates a handler that invalidates entries in the image info cache.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aConfig A JSON configuration
+     */
+    public InvalidateImageInfoHandler(final Vertx aVertx, final JsonObject aConfig) {
+        myCache = ImageInfoCache.getCache(aVertx, aConfig);
+    }
+
+    @Override
+    public void handle(final RoutingContext aContext) {
+        final HttpServerResponse response = aContext.response();
+        final String imageURL = aContext.request().getParam(Constants.IMAGE_URL);
+
+        try {
+            final String message;
+
+            if (imageURL == null || imageURL.isBlank()) {
+                message = LOGGER.getMessage(MessageCodes.MFS_216, myCache.clear(), ALL_IMAGES);
+            } else {
+                message = LOGGER.getMessage(MessageCodes.MFS_216, myCache.invalidate(imageURL) ? 1 : 0, imageURL);
+            }
+
+            LOGGER.info(message);
+
+            response.setStatusCode(HTTP.OK);
+            response.putHeader(Constants.CONTENT_TYPE, Constants.PLAIN_TEXT_TYPE).end(message);
+        } catch (final Throwable aThrowable) {
+            final String exceptionMessage = aThrowable.getMessage();
+
+            LOGGER.error(aThrowable, exceptionMessage);
+
+            response.setStatusCode(HTTP.INTERNAL_SERVER_ERROR);
+            response.putHeader(Constants.CONTENT_TYPE, Constants.PLAIN_TEXT_TYPE);
+            response.end(exceptionMessage);
+        }
+    }
+}
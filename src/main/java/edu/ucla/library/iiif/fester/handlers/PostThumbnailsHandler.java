@@ -32,6 +32,7 @@ import info.freelibrary.iiif.presentation.v3.utils.JsonKeys;
 import edu.ucla.library.iiif.fester.CSV;
 import edu.ucla.library.iiif.fester.Config;
 import edu.ucla.library.iiif.fester.Constants;
+import edu.ucla.library.iiif.fester.CsvConsumer;
 import edu.ucla.library.iiif.fester.CsvParser;
 import edu.ucla.library.iiif.fester.CsvParsingException;
 import edu.ucla.library.iiif.fester.HTTP;
@@ -121,7 +122,9 @@ public class PostThumbnailsHandler extends AbstractFesterHandler {
             final String fileName = csvFile.fileName();
 
             try (CSVReader csvReader = new CSVReader(Files.newBufferedReader(Paths.get(filePath)))) {
-                final CsvParser parser = new CsvParser().parse(Paths.get(filePath), null, myAVUrlString);
+                // The CSV is only being checked, so its rows aren't kept
+                final CsvParser parser =
+                        new CsvParser().parse(Paths.get(filePath), null, myAVUrlString, new CsvConsumer() {});
                 final List<String[]> originalLines = csvReader.readAll();
                 final List<String[]> linesWithThumbs = ThumbnailUtils.addThumbnailColumn(originalLines);
                 final int manifestIndex = Arrays.asList(linesWithThumbs.get(0)).indexOf(CSV.MANIFEST_URL);
@@ -0,0 +1,62 @@
+
+package edu.ucla.library.iiif.fester.handlers;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.iiif.fester.Constants;
+import edu.ucla.library.iiif.fester.HTTP;
+import edu.ucla.library.iiif.fester.ImageInfoHarvester;
+import edu.ucla.library.iiif.fester.MessageCodes;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * A handler that starts harvesting the widths and heights of images from the stored manifests.
+ */
+public class StartImageInfoHarvestHandler implements Handler<RoutingContext> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartImageInfoHarvestHandler.class,
+            Constants.MESSAGES);
+
+    private final ImageInfoHarvester myHarvester;
+
+    /**
+     * Creates a handler that starts a harvest of image widths and heights.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aConfig A JSON configuration
+     */
+    public StartImageInfoHarvestHandler(final Vertx aVertx, final JsonObject aConfig) {
+        myHarvester = ImageInfoHarvester.getHarvester(aVertx, aConfig);
+    }
+
+    @Override
+    public void handle(final RoutingContext aContext) {
+        final HttpServerResponse response = aContext.response();
+
+        try {
+            if (myHarvester.start()) {
+                response.setStatusCode(HTTP.ACCEPTED);
+                response.putHeader(Constants.CONTENT_TYPE, Constants.JSON_MEDIA_TYPE);
+                response.end(myHarvester.getStats().encodePrettily());
+            } else {
+                response.setStatusCode(HTTP.CONFLICT);
+                response.putHeader(Constants.CONTENT_TYPE, Constants.PLAIN_TEXT_TYPE);
+                response.end(LOGGER.getMessage(MessageCodes.MFS_234));
+            }
+        } catch (final Throwable aThrowable) {
+            final String exceptionMessage = aThrowable.getMessage();
+
+            LOGGER.error(aThrowable, exceptionMessage);
+
+            response.setStatusCode(HTTP.INTERNAL_SERVER_ERROR);
+            response.putHeader(Constants.CONTENT_TYPE, Constants.PLAIN_TEXT_TYPE);
+            response.end(exceptionMessage);
+        }
+    }
+}
@@ -0,0 +1,547 @@
+
+package edu.ucla.library.iiif.fester.storage;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.iiif.fester.Config;
+import edu.ucla.library.iiif.fester.Constants;
+import edu.ucla.library.iiif.fester.HTTP;
+import edu.ucla.library.iiif.fester.MessageCodes;
+import edu.ucla.library.iiif.fester.Status;
+
+import io.netty.buffer.Unpooled;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A storage backend that keeps objects on the local file system, under a configured directory. An object's key is its
+ * path relative to that directory, and its ETag and content-coding are kept next to it in a metadata file. The most
+ * recently read objects stay memory-mapped, so hot objects are served from the page cache without being copied.
+ */
+public class FileSystemStorage implements Storage {
+
+    /**
+     * The name of the file system storage backend, as it's configured.
+     */
+    public static final String NAME = "filesystem";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileSystemStorage.class, Constants.MESSAGES);
+
+    private static final String METADATA_EXT = ".meta";
+
+    private static final String TMP_EXT = ".tmp";
+
+    private static final int DEFAULT_MAPPED_ENTRIES = 1024;
+
+    private static final int LIST_PAGE_SIZE = 1000;
+
+    private static final int MAX_LISTINGS = 16;
+
+    /* How long, in milliseconds, a listing's later pages can be served from its first walk of the directory */
+    private static final long LISTING_LIFETIME = 60_000;
+
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private final Vertx myVertx;
+
+    private final Path myRoot;
+
+    /* Keyed by the object's path; the map's lock also guards the mapped counts */
+    private final Map<Path, MappedObject> myMappedObjects;
+
+    private final int myMaxMappedEntries;
+
+    /* Listings that have more pages, keyed by their prefix and the last key of the page that was last listed */
+    private final Map<String, Listing> myListings;
+
+    private long myMappedHitCount;
+
+    private long myMappedMissCount;
+
+    /**
+     * Creates a new file system storage backend from the application's configuration.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aConfig An application configuration
+     * @throws IllegalArgumentException If the storage directory isn't configured or can't be created
+     */
+    public FileSystemStorage(final Vertx aVertx, final JsonObject aConfig) {
+        final String root = aConfig.getString(Config.STORAGE_PATH);
+
+        if (root == null) {
+            throw new IllegalArgumentException(LOGGER.getMessage(MessageCodes.MFS_202, Config.STORAGE_PATH));
+        }
+
+        myVertx = aVertx;
+        myRoot = Paths.get(root).toAbsolutePath().normalize();
+        myMaxMappedEntries = Math.max(0, aConfig.getInteger(Config.STORAGE_MAPPED_ENTRIES, DEFAULT_MAPPED_ENTRIES));
+        myMappedObjects = new LinkedHashMap<>(16, 0.75f, true) {
+
+            /**
+             * The <code>serialVersionUID</code> for the mapped objects.
+             */
+            private static final long serialVersionUID = 2866305640216473870L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Path, MappedObject> aEldest) {
+                return size() > myMaxMappedEntries;
+            }
+        };
+
+        myListings = new LinkedHashMap<>(16, 0.75f, true) {
+
+            /**
+             * The <code>serialVersionUID</code> for the listings.
+             */
+            private static final long serialVersionUID = -3385014939105470218L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Listing> aEldest) {
+                return size() > MAX_LISTINGS;
+            }
+        };
+
+        try {
+            Files.createDirectories(myRoot);
+        } catch (final IOException details) {
+            throw new IllegalArgumentException(details);
+        }
+
+        LOGGER.debug(MessageCodes.MFS_203, myRoot, myMaxMappedEntries);
+    }
+
+    @Override
+    public void get(final String aKey, final Handler<AsyncResult<StoredObject>> aHandler) {
+        myVertx.<StoredObject>executeBlocking(promise -> {
+            final Path path = getPath(aKey, promise);
+
+            if (path != null) {
+                try {
+                    final MappedObject mappedObject = getMappedObject(path);
+
+                    // Each reader gets its own view of the mapped bytes, so their read positions don't collide
+                    final Buffer content = Buffer.buffer(Unpooled.wrappedBuffer(mappedObject.myBuffer.duplicate()));
+
+                    promise.complete(mappedObject.toStoredObject(aKey).setContent(content));
+                } catch (final NoSuchFileException details) {
+                    promise.fail(new StorageException(HTTP.NOT_FOUND, MessageCodes.MFS_201, aKey));
+                } catch (final IOException details) {
+                    promise.fail(details);
+                }
+            }
+        }, false, aHandler);
+    }
+
+    /**
+     * Gets an object and its content. Objects are memory-mapped, so rather than a stream, the content of the mapped
+     * object is supplied.
+     *
+     * @param aKey The object's key
+     * @param aHandler A handler for the stored object
+     */
+    @Override
+    public void stream(final String aKey, final Handler<AsyncResult<StoredObject>> aHandler) {
+        get(aKey, aHandler);
+    }
+
+    @Override
+    public void head(final String aKey, final Handler<AsyncResult<StoredObject>> aHandler) {
+        myVertx.<StoredObject>executeBlocking(promise -> {
+            final Path path = getPath(aKey, promise);
+
+            if (path != null) {
+                try {
+                    final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    final JsonObject metadata = readMetadata(path);
+
+                    promise.complete(new StoredObject(aKey).setETag(metadata.getString(Constants.ETAG))
+                            .setContentEncoding(metadata.getString(Constants.CONTENT_ENCODING))
+                            .setLastModified(HTTP_DATE.format(attributes.lastModifiedTime().toInstant())));
+                } catch (final NoSuchFileException details) {
+                    promise.fail(new StorageException(HTTP.NOT_FOUND, MessageCodes.MFS_201, aKey));
+                } catch (final IOException details) {
+                    promise.fail(details);
+                }
+            }
+        }, false, aHandler);
+    }
+
+    @Override
+    public void put(final String aKey, final Buffer aContent, final String aContentEncoding,
+            final Handler<AsyncResult<StoredObject>> aHandler) {
+        myVertx.<StoredObject>executeBlocking(promise -> {
+            final Path path = getPath(aKey, promise);
+
+            if (path != null) {
+                try {
+                    final byte[] bytes = aContent.getBytes();
+                    final String etag = getETag(bytes);
+                    final JsonObject metadata = new JsonObject().put(Constants.ETAG, etag);
+
+                    if (aContentEncoding != null) {
+                        metadata.put(Constants.CONTENT_ENCODING, aContentEncoding);
+                    }
+
+                    Files.createDirectories(path.getParent());
+
+                    // Write the metadata first, so a reader never sees new content with old metadata
+                    write(getMetadataPath(path), metadata.toBuffer().getBytes());
+                    write(path, bytes);
+
+                    synchronized (myMappedObjects) {
+                        myMappedObjects.remove(path);
+                    }
+
+                    promise.complete(new StoredObject(aKey).setETag(etag).setContentEncoding(aContentEncoding)
+                            .setLastModified(HTTP_DATE.format(Files.getLastModifiedTime(path).toInstant())));
+                } catch (final IOException details) {
+                    promise.fail(details);
+                }
+            }
+        }, false, aHandler);
+    }
+
+    @Override
+    public void delete(final String aKey, final Handler<AsyncResult<Void>> aHandler) {
+        myVertx.<Void>executeBlocking(promise -> {
+            final Path path = getPath(aKey, promise);
+
+            if (path != null) {
+                try {
+                    Files.deleteIfExists(path);
+                    Files.deleteIfExists(getMetadataPath(path));
+
+                    synchronized (myMappedObjects) {
+                        myMappedObjects.remove(path);
+                    }
+
+                    promise.complete();
+                } catch (final IOException details) {
+                    promise.fail(details);
+                }
+            }
+        }, false, aHandler);
+    }
+
+    /**
+     * Lists a page of the keys of the objects that start with the supplied prefix. Like S3, a page has up to a
+     * thousand keys. The directory is walked once for a whole listing: the sorted keys from the walk are kept, and
+     * the request for the next page picks up where the last one left off. For up to a minute, a listing's later pages
+     * don't see objects that were added after its first page was listed.
+     *
+     * @param aPrefix A key prefix
+     * @param aStartAfter The last key of the previous page (or null for the first page)
+     * @param aHandler A handler for the page of keys
+     */
+    @Override
+    public void list(final String aPrefix, final String aStartAfter, final Handler<AsyncResult<KeyPage>> aHandler) {
+        myVertx.<KeyPage>executeBlocking(promise -> {
+            final Listing listing = getListing(aPrefix, aStartAfter, promise);
+
+            if (listing != null) {
+                final KeyPage page = listing.next();
+
+                if (page.isTruncated()) {
+                    synchronized (myListings) {
+                        myListings.put(getListingKey(aPrefix, page.getLastKey()), listing);
+                    }
+                }
+
+                promise.complete(page);
+            }
+        }, false, aHandler);
+    }
+
+    @Override
+    public JsonObject getStats() {
+        synchronized (myMappedObjects) {
+            return new JsonObject().put(Status.BACKEND, NAME).put(Status.PATH, myRoot.toString())
+                    .put(Status.MAPPED, new JsonObject().put(Status.ENTRIES, myMappedObjects.size())
+                            .put(Status.MAX_ENTRIES, myMaxMappedEntries).put(Status.HITS, myMappedHitCount)
+                            .put(Status.MISSES, myMappedMissCount));
+        }
+    }
+
+    /**
+     * Gets the listing that the requested page belongs to, picking up where an earlier page left off if we still
+     * have its listing, or walking the prefix's directory if we don't.
+     *
+     * @param aPrefix A key prefix
+     * @param aStartAfter The last key of the previous page (or null for the first page)
+     * @param aPromise A promise that's failed if the keys can't be listed
+     * @return The listing, or null if the promise has been failed
+     */
+    private Listing getListing(final String aPrefix, final String aStartAfter, final Promise<KeyPage> aPromise) {
+        final int index = aPrefix.lastIndexOf('/');
+        final Path directory;
+
+        if (aStartAfter != null) {
+            synchronized (myListings) {
+                final Listing listing = myListings.remove(getListingKey(aPrefix, aStartAfter));
+
+                if (listing != null && !listing.isExpired()) {
+                    return listing;
+                }
+            }
+        }
+
+        directory = index == -1 ? myRoot : getPath(aPrefix.substring(0, index), aPromise);
+
+        if (directory == null) {
+            return null;
+        }
+
+        if (!Files.isDirectory(directory)) {
+            return new Listing(Collections.emptyList());
+        }
+
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return new Listing(paths.filter(Files::isRegularFile).map(this::getKey)
+                    .filter(key -> key.startsWith(aPrefix))
+                    .filter(key -> !key.endsWith(METADATA_EXT) && !key.endsWith(TMP_EXT))
+                    .filter(key -> aStartAfter == null || key.compareTo(aStartAfter) > 0).sorted()
+                    .collect(Collectors.toList()));
+        } catch (final IOException details) {
+            aPromise.fail(details);
+            return null;
+        }
+    }
+
+    /**
+     * Gets the key that a listing is kept under between pages.
+     *
+     * @param aPrefix The listing's key prefix
+     * @param aLastKey The last key of the page that was last listed
+     * @return The key the listing is kept under
+     */
+    private static String getListingKey(final String aPrefix, final String aLastKey) {
+        return aPrefix + '\n' + aLastKey;
+    }
+
+    /**
+     * Gets the path of an object, failing the supplied promise if the key would take us outside of our directory.
+     *
+     * @param aKey An object's key
+     * @param aPromise The promise of the request for the object
+     * @return The object's path, or null if the key isn't a valid one
+     */
+    private Path getPath(final String aKey, final Promise<?> aPromise) {
+        final Path path = myRoot.resolve(aKey).normalize();
+
+        if (!path.startsWith(myRoot) || path.equals(myRoot)) {
+            aPromise.fail(new StorageException(HTTP.BAD_REQUEST, MessageCodes.MFS_204, aKey));
+            return null;
+        }
+
+        return path;
+    }
+
+    /**
+     * Gets the key of the object at the supplied path.
+     *
+     * @param aPath The path of an object
+     * @return The object's key
+     */
+    private String getKey(final Path aPath) {
+        return myRoot.relativize(aPath).toString().replace(aPath.getFileSystem().getSeparator(), "/");
+    }
+
+    /**
+     * Gets a memory-mapped object, mapping it if it isn't mapped already or has changed since it was mapped.
+     *
+     * @param aPath The object's path
+     * @return The mapped object
+     * @throws IOException If the object can't be read
+     */
+    private MappedObject getMappedObject(final Path aPath) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(aPath, BasicFileAttributes.class);
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        final MappedObject mappedObject;
+
+        synchronized (myMappedObjects) {
+            final MappedObject cachedObject = myMappedObjects.get(aPath);
+
+            if (cachedObject != null && cachedObject.isCurrent(lastModified, attributes.size())) {
+                myMappedHitCount += 1;
+                return cachedObject;
+            }
+
+            myMappedMissCount += 1;
+        }
+
+        try (FileChannel channel = FileChannel.open(aPath, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, attributes.size());
+
+            mappedObject = new MappedObject(buffer, readMetadata(aPath), lastModified, attributes.size());
+        }
+
+        if (myMaxMappedEntries > 0) {
+            synchronized (myMappedObjects) {
+                myMappedObjects.put(aPath, mappedObject);
+            }
+        }
+
+        return mappedObject;
+    }
+
+    /**
+     * Reads an object's metadata.
+     *
+     * @param aPath The object's path
+     * @return The object's metadata, which is empty if the metadata file is missing
+     * @throws IOException If the metadata file can't be read
+     */
+    private JsonObject readMetadata(final Path aPath) throws IOException {
+        final Path metadataPath = getMetadataPath(aPath);
+
+        if (Files.exists(metadataPath)) {
+            return new JsonObject(new String(Files.readAllBytes(metadataPath), StandardCharsets.UTF_8));
+        }
+
+        return new JsonObject();
+    }
+
+    /**
+     * Writes a file by writing to a temporary file and then moving it into place, so readers never see a partially
+     * written file.
+     *
+     * @param aPath A file path
+     * @param aBytes The file's contents
+     * @throws IOException If the file can't be written
+     */
+    private static void write(final Path aPath, final byte[] aBytes) throws IOException {
+        final Path tmpPath = Files.createTempFile(aPath.getParent(), aPath.getFileName().toString(), TMP_EXT);
+
+        try {
+            Files.write(tmpPath, aBytes);
+
+            try {
+                Files.move(tmpPath, aPath, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException details) {
+                Files.move(tmpPath, aPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmpPath);
+        }
+    }
+
+    /**
+     * Gets the path of an object's metadata file.
+     *
+     * @param aPath The object's path
+     * @return The path of the object's metadata file
+     */
+    private static Path getMetadataPath(final Path aPath) {
+        return aPath.resolveSibling(aPath.getFileName() + METADATA_EXT);
+    }
+
+    /**
+     * Gets an S3-style ETag (i.e., a quoted MD5 digest) for the supplied content.
+     *
+     * @param aBytes An object's content
+     * @return The content's ETag
+     */
+    private static String getETag(final byte[] aBytes) {
+        try {
+            final StringBuilder etag = new StringBuilder("\"");
+
+            for (final byte value : MessageDigest.getInstance("MD5").digest(aBytes)) {
+                etag.append(Character.forDigit(value >> 4 & 0xF, 16)).append(Character.forDigit(value & 0xF, 16));
+            }
+
+            return etag.append('"').toString();
+        } catch (final NoSuchAlgorithmException details) {
+            throw new IllegalStateException(details); // Every JVM is required to support MD5
+        }
+    }
+
+    /**
+     * A memory-mapped object and the metadata that's needed to tell whether it's still current.
+     */
+    private static final class MappedObject {
+
+        private final MappedByteBuffer myBuffer;
+
+        private final JsonObject myMetadata;
+
+        private final long myLastModified;
+
+        private final long mySize;
+
+        private MappedObject(final MappedByteBuffer aBuffer, final JsonObject aMetadata, final long aLastModified,
+                final long aSize) {
+            myBuffer = aBuffer;
+            myMetadata = aMetadata;
+            myLastModified = aLastModified;
+            mySize = aSize;
+        }
+
+        private boolean isCurrent(final long aLastModified, final long aSize) {
+            return myLastModified == aLastModified && mySize == aSize;
+        }
+
+        private StoredObject toStoredObject(final String aKey) {
+            return new StoredObject(aKey).setETag(myMetadata.getString(Constants.ETAG))
+                    .setContentEncoding(myMetadata.getString(Constants.CONTENT_ENCODING))
+                    .setLastModified(HTTP_DATE.format(Instant.ofEpochMilli(myLastModified)));
+        }
+    }
+
+    /**
+     * The sorted keys of a listing, and how far through them its pages have got.
+     */
+    private static final class Listing {
+
+        private final List<String> myKeys;
+
+        private final long myCreated = System.currentTimeMillis();
+
+        private int myIndex;
+
+        private Listing(final List<String> aKeys) {
+            myKeys = aKeys;
+        }
+
+        private KeyPage next() {
+            final int end = Math.min(myIndex + LIST_PAGE_SIZE, myKeys.size());
+            final KeyPage page = new KeyPage(new ArrayList<>(myKeys.subList(myIndex, end)), end < myKeys.size());
+
+            myIndex = end;
+            return page;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() - myCreated > LISTING_LIFETIME;
+        }
+    }
+}
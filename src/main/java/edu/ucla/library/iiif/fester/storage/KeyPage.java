@@ -0,0 +1,52 @@
+package edu.ucla.library.iiif.fester.storage;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of the keys from a storage listing, along with whether there are more keys after it.
+ */
+public class KeyPage {
+
+    private final List<String> myKeys;
+
+    private final boolean isTruncated;
+
+    /**
+     * Creates a new page of keys.
+     *
+     * @param aKeys The page's keys, in key order
+     * @param aTruncated Whether there are more keys after the page's
+     */
+    public KeyPage(final List<String> aKeys, final boolean aTruncated) {
+        myKeys = Collections.unmodifiableList(aKeys);
+        isTruncated = aTruncated;
+    }
+
+    /**
+     * Gets the page's keys.
+     *
+     * @return The page's keys, in key order
+     */
+    public List<String> getKeys() {
+        return myKeys;
+    }
+
+    /**
+     * Whether there are more keys after this page's. The next page is listed by starting after this page's last key.
+     *
+     * @return True if there are more keys; else, false
+     */
+    public boolean isTruncated() {
+        return isTruncated;
+    }
+
+    /**
+     * Gets the page's last key, which is where the next page starts after.
+     *
+     * @return The page's last key, or null if the page is empty
+     */
+    public String getLastKey() {
+        return myKeys.isEmpty() ? null : myKeys.get(myKeys.size() - 1);
+    }
+}
@@ -0,0 +1,411 @@
+
+package edu.ucla.library.iiif.fester.storage;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.RegionUtils;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import info.freelibrary.vertx.s3.S3Client;
+import info.freelibrary.vertx.s3.S3ClientRequest;
+
+import edu.ucla.library.iiif.fester.Config;
+import edu.ucla.library.iiif.fester.Constants;
+import edu.ucla.library.iiif.fester.HTTP;
+import edu.ucla.library.iiif.fester.MessageCodes;
+import edu.ucla.library.iiif.fester.Status;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.ConnectionPoolTooBusyException;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A storage backend that keeps objects in an S3 bucket. All of the backend's requests share a single, configurable S3
+ * connection pool.
+ */
+public class S3Storage implements Storage {
+
+    /**
+     * The name of the S3 storage backend, as it's configured.
+     */
+    public static final String NAME = "s3";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(S3Storage.class, Constants.MESSAGES);
+
+    private static final String CONTENTS_KEY = "Contents > Key";
+
+    private static final String IS_TRUNCATED = "ListBucketResult > IsTruncated";
+
+    private static final String PREFIX_PARAM = "?prefix=";
+
+    private static final String MARKER_PARAM = "&marker=";
+
+    private static final String HTTPS = "https";
+
+    private static final int DEFAULT_POOL_SIZE = 50;
+
+    private static final int DEFAULT_POOL_WAIT_QUEUE = 1000;
+
+    private static final int DEFAULT_POOL_IDLE_TIMEOUT = 60; // In seconds
+
+    private final S3Client myS3Client;
+
+    private final String myS3Bucket;
+
+    private final HttpClientOptions myPoolOptions;
+
+    /* The number of requests that are waiting on S3, which is a proxy for how busy the connection pool is */
+    private final AtomicInteger myInFlightCount = new AtomicInteger();
+
+    private final AtomicLong myRequestCount = new AtomicLong();
+
+    private final AtomicLong myRejectedCount = new AtomicLong();
+
+    /**
+     * Creates a new S3 storage backend from the application's configuration. The backend's client has its own
+     * connection pool, so it's meant to be shared; see {@link StorageFactory#getStorage(Vertx, JsonObject)}.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aConfig An application configuration
+     * @throws IllegalArgumentException If the configured S3 endpoint isn't a valid URL
+     */
+    public S3Storage(final Vertx aVertx, final JsonObject aConfig) {
+        final String s3AccessKey = aConfig.getString(Config.S3_ACCESS_KEY);
+        final String s3SecretKey = aConfig.getString(Config.S3_SECRET_KEY);
+        final String s3RegionName = aConfig.getString(Config.S3_REGION, "us-east-1");
+        final Region s3Region = RegionUtils.getRegion(s3RegionName);
+        final String endpoint = aConfig.getString(Config.S3_ENDPOINT);
+        final URL endpointURL;
+
+        LOGGER.debug(MessageCodes.MFS_003, s3RegionName);
+
+        try {
+            // Check to see that we're not overriding the default S3 endpoint
+            if (s3Region != null && (endpoint == null || Constants.S3_ENDPOINT.equals(endpoint))) {
+                final String regionEndpoint = s3Region.getServiceEndpoint("s3");
+
+                LOGGER.debug(MessageCodes.MFS_034, regionEndpoint, "default");
+                endpointURL = new URL("https://" + regionEndpoint);
+            } else if (endpoint == null) {
+                LOGGER.debug(MessageCodes.MFS_034, Constants.S3_ENDPOINT, "default");
+                endpointURL = new URL(Constants.S3_ENDPOINT);
+            } else {
+                LOGGER.debug(MessageCodes.MFS_034, endpoint, "supplied");
+                endpointURL = new URL(endpoint);
+            }
+        } catch (final MalformedURLException details) {
+            throw new IllegalArgumentException(details);
+        }
+
+        myPoolOptions = getPoolOptions(endpointURL, aConfig);
+        myS3Client = new S3Client(aVertx, s3AccessKey, s3SecretKey, myPoolOptions);
+        myS3Client.useV2Signature(true);
+        myS3Bucket = aConfig.getString(Config.S3_BUCKET);
+
+        // Trace is only for developer use; don't turn on when running on a server
+        LOGGER.trace(MessageCodes.MFS_046, s3AccessKey, s3SecretKey);
+        LOGGER.debug(MessageCodes.MFS_047, s3RegionName);
+        LOGGER.debug(MessageCodes.MFS_132, myS3Bucket);
+        LOGGER.debug(MessageCodes.MFS_207, myPoolOptions.getMaxPoolSize(), myPoolOptions.getMaxWaitQueueSize(),
+                myPoolOptions.isKeepAlive(), myPoolOptions.getIdleTimeout(), myPoolOptions.isPipelining());
+    }
+
+    @Override
+    public void get(final String aKey, final Handler<AsyncResult<StoredObject>> aHandler) {
+        final Handler<AsyncResult<StoredObject>> handler = track(aHandler);
+
+        try {
+            myS3Client.get(myS3Bucket, aKey, response -> {
+                LOGGER.debug(MessageCodes.MFS_096, aKey, response.statusCode());
+
+                if (response.statusCode() == HTTP.OK) {
+                    response.bodyHandler(body -> {
+                        handler.handle(Future.succeededFuture(getObject(aKey, response).setContent(body)));
+                    });
+                } else {
+                    fail(aKey, response, handler);
+                }
+            }, exception -> {
+                handler.handle(Future.failedFuture(exception));
+            });
+        } catch (final ConnectionPoolTooBusyException details) {
+            handler.handle(Future.failedFuture(details));
+        }
+    }
+
+    @Override
+    public void stream(final String aKey, final Handler<AsyncResult<StoredObject>> aHandler) {
+        final Handler<AsyncResult<StoredObject>> handler = track(aHandler);
+
+        try {
+            myS3Client.get(myS3Bucket, aKey, response -> {
+                LOGGER.debug(MessageCodes.MFS_096, aKey, response.statusCode());
+
+                if (response.statusCode() == HTTP.OK) {
+                    // Resetting the request closes its connection, rather than reading the rest of the object
+                    handler.handle(Future.succeededFuture(getObject(aKey, response).setStream(response)
+                            .setCanceler(() -> response.request().reset())));
+                } else {
+                    fail(aKey, response, handler);
+                }
+            }, exception -> {
+                handler.handle(Future.failedFuture(exception));
+            });
+        } catch (final ConnectionPoolTooBusyException details) {
+            handler.handle(Future.failedFuture(details));
+        }
+    }
+
+    @Override
+    public void head(final String aKey, final Handler<AsyncResult<StoredObject>> aHandler) {
+        final Handler<AsyncResult<StoredObject>> handler = track(aHandler);
+
+        try {
+            myS3Client.head(myS3Bucket, aKey, response -> {
+                if (response.statusCode() == HTTP.OK) {
+                    handler.handle(Future.succeededFuture(getObject(aKey, response)));
+                } else {
+                    fail(aKey, response, handler);
+                }
+            }, exception -> {
+                handler.handle(Future.failedFuture(exception));
+            });
+        } catch (final ConnectionPoolTooBusyException details) {
+            handler.handle(Future.failedFuture(details));
+        }
+    }
+
+    @Override
+    public void put(final String aKey, final Buffer aContent, final String aContentEncoding,
+            final Handler<AsyncResult<StoredObject>> aHandler) {
+        final Handler<AsyncResult<StoredObject>> handler = track(aHandler);
+        final Handler<HttpClientResponse> responseHandler = response -> {
+            if (response.statusCode() == HTTP.OK) {
+                final StoredObject object = new StoredObject(aKey).setETag(response.getHeader(Constants.ETAG));
+
+                // S3 doesn't send a Last-Modified date on PUT, but its Date header is a close approximation
+                object.setLastModified(response.getHeader(Constants.DATE)).setContentEncoding(aContentEncoding);
+                handler.handle(Future.succeededFuture(object));
+            } else {
+                fail(aKey, response, handler);
+            }
+        };
+        final Handler<Throwable> exceptionHandler = exception -> {
+            handler.handle(Future.failedFuture(exception));
+        };
+
+        try {
+            if (aContentEncoding != null) {
+                final S3ClientRequest request = myS3Client.createPutRequest(myS3Bucket, aKey, responseHandler);
+
+                // Let S3 tell readers how the object has been encoded
+                request.exceptionHandler(exceptionHandler);
+                request.putHeader(Constants.CONTENT_ENCODING, aContentEncoding);
+                request.end(aContent);
+            } else {
+                myS3Client.put(myS3Bucket, aKey, aContent, responseHandler, exceptionHandler);
+            }
+        } catch (final ConnectionPoolTooBusyException details) {
+            handler.handle(Future.failedFuture(details));
+        }
+    }
+
+    @Override
+    public void delete(final String aKey, final Handler<AsyncResult<Void>> aHandler) {
+        final Handler<AsyncResult<Void>> handler = track(aHandler);
+
+        try {
+            myS3Client.delete(myS3Bucket, aKey, response -> {
+                if (response.statusCode() == HTTP.SUCCESS_NO_CONTENT) {
+                    handler.handle(Future.succeededFuture());
+                } else {
+                    fail(aKey, response, handler);
+                }
+            }, exception -> {
+                handler.handle(Future.failedFuture(exception));
+            });
+        } catch (final ConnectionPoolTooBusyException details) {
+            handler.handle(Future.failedFuture(details));
+        }
+    }
+
+    /**
+     * Lists a page of the keys of the objects that start with the supplied prefix, which is up to a thousand keys.
+     * The S3 client's own listing only takes a prefix, so we make the ListObjects request ourselves, with the prefix
+     * and the key to start after (the V1 API's marker) as encoded query parameters.
+     *
+     * @param aPrefix A key prefix
+     * @param aStartAfter The last key of the previous page (or null for the first page)
+     * @param aHandler A handler for the page of keys
+     */
+    @Override
+    public void list(final String aPrefix, final String aStartAfter, final Handler<AsyncResult<KeyPage>> aHandler) {
+        final Handler<AsyncResult<KeyPage>> handler = track(aHandler);
+        final StringBuilder query = new StringBuilder(PREFIX_PARAM).append(encode(aPrefix));
+
+        if (aStartAfter != null) {
+            query.append(MARKER_PARAM).append(encode(aStartAfter));
+        }
+
+        try {
+            final S3ClientRequest request = myS3Client.createGetRequest(myS3Bucket, query.toString(), response -> {
+                if (response.statusCode() == HTTP.OK) {
+                    response.bodyHandler(body -> {
+                        handler.handle(Future.succeededFuture(getKeyPage(body.toString(StandardCharsets.UTF_8))));
+                    });
+                } else {
+                    fail(aPrefix, response, handler);
+                }
+            });
+
+            request.exceptionHandler(exception -> {
+                handler.handle(Future.failedFuture(exception));
+            });
+            request.end();
+        } catch (final ConnectionPoolTooBusyException details) {
+            handler.handle(Future.failedFuture(details));
+        }
+    }
+
+    @Override
+    public JsonObject getStats() {
+        final int inFlight = myInFlightCount.get();
+        final int maxPoolSize = myPoolOptions.getMaxPoolSize();
+        final JsonObject pool = new JsonObject().put(Status.IN_FLIGHT, inFlight).put(Status.MAX_POOL_SIZE, maxPoolSize)
+                .put(Status.UTILIZATION, (double) Math.min(inFlight, maxPoolSize) / maxPoolSize)
+                .put(Status.MAX_WAIT_QUEUE, myPoolOptions.getMaxWaitQueueSize())
+                .put(Status.REQUESTS, myRequestCount.get()).put(Status.REJECTED, myRejectedCount.get());
+
+        return new JsonObject().put(Status.BACKEND, NAME).put(Status.BUCKET, myS3Bucket).put(Status.POOL, pool);
+    }
+
+    /**
+     * Gets the options for the S3 client's connection pool.
+     *
+     * @param aEndpoint The S3 endpoint
+     * @param aConfig An application configuration
+     * @return The S3 client's options
+     */
+    private static HttpClientOptions getPoolOptions(final URL aEndpoint, final JsonObject aConfig) {
+        final boolean ssl = HTTPS.equalsIgnoreCase(aEndpoint.getProtocol());
+        final int port = aEndpoint.getPort() == -1 ? aEndpoint.getDefaultPort() : aEndpoint.getPort();
+
+        return new HttpClientOptions().setDefaultHost(aEndpoint.getHost()).setDefaultPort(port).setSsl(ssl)
+                .setMaxPoolSize(aConfig.getInteger(Config.S3_POOL_SIZE, DEFAULT_POOL_SIZE))
+                .setMaxWaitQueueSize(aConfig.getInteger(Config.S3_POOL_WAIT_QUEUE, DEFAULT_POOL_WAIT_QUEUE))
+                .setKeepAlive(aConfig.getBoolean(Config.S3_POOL_KEEP_ALIVE, true))
+                .setIdleTimeout(aConfig.getInteger(Config.S3_POOL_IDLE_TIMEOUT, DEFAULT_POOL_IDLE_TIMEOUT))
+                .setPipelining(aConfig.getBoolean(Config.S3_POOL_PIPELINING, false));
+    }
+
+    /**
+     * Wraps a request's handler so the request is counted as in flight until the handler is called.
+     *
+     * @param aHandler A request's handler
+     * @return A handler that keeps track of the request
+     */
+    private <T> Handler<AsyncResult<T>> track(final Handler<AsyncResult<T>> aHandler) {
+        final AtomicBoolean done = new AtomicBoolean();
+
+        myInFlightCount.incrementAndGet();
+        myRequestCount.incrementAndGet();
+
+        return result -> {
+            if (done.compareAndSet(false, true)) {
+                myInFlightCount.decrementAndGet();
+
+                if (result.failed() && result.cause() instanceof ConnectionPoolTooBusyException) {
+                    myRejectedCount.incrementAndGet();
+                }
+
+                aHandler.handle(result);
+            }
+        };
+    }
+
+    /**
+     * Gets a page of keys from the body of an S3 ListObjects response.
+     *
+     * @param aXML The body of a ListObjects response
+     * @return The page of keys
+     */
+    static KeyPage getKeyPage(final String aXML) {
+        final Document listing = Jsoup.parse(aXML, "", Parser.xmlParser());
+        final List<String> keys = new ArrayList<>();
+
+        for (final Element key : listing.select(CONTENTS_KEY)) {
+            keys.add(key.text());
+        }
+
+        return new KeyPage(keys, Boolean.parseBoolean(listing.select(IS_TRUNCATED).text().trim()));
+    }
+
+    /**
+     * URL encodes a query parameter's value.
+     *
+     * @param aValue A query parameter's value
+     * @return The encoded value
+     */
+    private static String encode(final String aValue) {
+        // S3 decodes a plus as a space, but an explicitly encoded space is less ambiguous
+        return URLEncoder.encode(aValue, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    /**
+     * Gets a stored object's metadata from an S3 response.
+     *
+     * @param aKey The object's key
+     * @param aResponse An S3 response
+     * @return The stored object
+     */
+    private StoredObject getObject(final String aKey, final HttpClientResponse aResponse) {
+        return new StoredObject(aKey).setETag(aResponse.getHeader(Constants.ETAG))
+                .setLastModified(aResponse.getHeader(Constants.LAST_MODIFIED))
+                .setContentEncoding(aResponse.getHeader(Constants.CONTENT_ENCODING));
+    }
+
+    /**
+     * Fails a request that S3 responded to with an error, logging the details S3 supplied.
+     *
+     * @param aKey The key of the requested object
+     * @param aResponse An S3 response
+     * @param aHandler The request's handler
+     */
+    private <T> void fail(final String aKey, final HttpClientResponse aResponse,
+            final Handler<AsyncResult<T>> aHandler) {
+        final int statusCode = aResponse.statusCode();
+        final String statusMessage = aResponse.statusMessage();
+
+        // Log the detailed reason we failed so we can track down the issue
+        if (statusCode != HTTP.NOT_FOUND) {
+            aResponse.bodyHandler(body -> {
+                LOGGER.error(MessageCodes.MFS_052, body.toString(StandardCharsets.UTF_8));
+            });
+        }
+
+        aHandler.handle(Future.failedFuture(new StorageException(statusCode, MessageCodes.MFS_200, aKey, statusCode,
+                statusMessage)));
+    }
+}
@@ -0,0 +1,87 @@
+
+package edu.ucla.library.iiif.fester.storage;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A backend that Fester's manifests and collection docs can be stored in. Requests that the backend responds to with
+ * an error fail with a {@link StorageException}; requests that can't reach the backend fail with whatever went
+ * wrong. Implementations are expected to call their handlers on the Vert.x context the request was made from.
+ */
+public interface Storage {
+
+    /**
+     * Gets an object and its content.
+     *
+     * @param aKey The object's key
+     * @param aHandler A handler for the stored object
+     */
+    void get(String aKey, Handler<AsyncResult<StoredObject>> aHandler);
+
+    /**
+     * Gets an object and a stream of its content. The handler should set up the stream's handlers before it returns,
+     * since the stream may start flowing after that. A backend that already has the content in memory may supply it
+     * instead of a stream.
+     *
+     * @param aKey The object's key
+     * @param aHandler A handler for the stored object
+     */
+    void stream(String aKey, Handler<AsyncResult<StoredObject>> aHandler);
+
+    /**
+     * Gets an object's metadata, without its content.
+     *
+     * @param aKey The object's key
+     * @param aHandler A handler for the stored object
+     */
+    void head(String aKey, Handler<AsyncResult<StoredObject>> aHandler);
+
+    /**
+     * Puts an object into storage, replacing any object that's already stored with the same key.
+     *
+     * @param aKey The object's key
+     * @param aContent The object's content
+     * @param aContentEncoding The content-coding the content is encoded with (or null if it isn't encoded)
+     * @param aHandler A handler for the stored object's metadata
+     */
+    void put(String aKey, Buffer aContent, String aContentEncoding, Handler<AsyncResult<StoredObject>> aHandler);
+
+    /**
+     * Deletes an object. Deleting an object that doesn't exist isn't an error.
+     *
+     * @param aKey The object's key
+     * @param aHandler A handler for the result of the deletion
+     */
+    void delete(String aKey, Handler<AsyncResult<Void>> aHandler);
+
+    /**
+     * Lists the keys of the objects that start with the supplied prefix. Backends may return the keys a page at a
+     * time, in key order; use {@link #list(String, String, Handler)} to get the pages after the first.
+     *
+     * @param aPrefix A key prefix
+     * @param aHandler A handler for the first page of keys
+     */
+    default void list(final String aPrefix, final Handler<AsyncResult<KeyPage>> aHandler) {
+        list(aPrefix, null, aHandler);
+    }
+
+    /**
+     * Lists, in key order, a page of the keys of the objects that start with the supplied prefix and come after the
+     * supplied key. The page says whether there are more keys after it.
+     *
+     * @param aPrefix A key prefix
+     * @param aStartAfter The last key of the previous page (or null for the first page)
+     * @param aHandler A handler for the page of keys
+     */
+    void list(String aPrefix, String aStartAfter, Handler<AsyncResult<KeyPage>> aHandler);
+
+    /**
+     * Gets statistics about the backend.
+     *
+     * @return The backend's statistics
+     */
+    JsonObject getStats();
+}
@@ -0,0 +1,41 @@
+
+package edu.ucla.library.iiif.fester.storage;
+
+import info.freelibrary.util.I18nException;
+
+import edu.ucla.library.iiif.fester.Constants;
+
+/**
+ * An exception thrown when a storage backend responds to a request with an error. The exception's status code
+ * follows the HTTP conventions that S3 uses, whatever the backend.
+ */
+public class StorageException extends I18nException {
+
+    /**
+     * The <code>serialVersionUID</code> for a StorageException.
+     */
+    private static final long serialVersionUID = 4151236512624381570L;
+
+    private final int myStatusCode;
+
+    /**
+     * Creates a new storage exception.
+     *
+     * @param aStatusCode The status code of the storage backend's response
+     * @param aMessageCode A message code
+     * @param aDetails Additional details about the exception
+     */
+    public StorageException(final int aStatusCode, final String aMessageCode, final Object... aDetails) {
+        super(Constants.MESSAGES, aMessageCode, aDetails);
+        myStatusCode = aStatusCode;
+    }
+
+    /**
+     * Gets the status code of the storage backend's response.
+     *
+     * @return The status code
+     */
+    public int getStatusCode() {
+        return myStatusCode;
+    }
+}
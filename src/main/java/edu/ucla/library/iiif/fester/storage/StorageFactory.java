@@ -0,0 +1,91 @@
+
+package edu.ucla.library.iiif.fester.storage;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.iiif.fester.Config;
+import edu.ucla.library.iiif.fester.Constants;
+import edu.ucla.library.iiif.fester.MessageCodes;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * A factory for the configured storage backend.
+ */
+public final class StorageFactory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StorageFactory.class, Constants.MESSAGES);
+
+    private static final String STORAGE_MAP = "fester.storage";
+
+    private static final String STORAGE_KEY = "storage";
+
+    private StorageFactory() {
+    }
+
+    /**
+     * Gets the storage backend that's shared by everything running in the supplied Vert.x instance, creating it from
+     * the application's configuration if it hasn't been created yet. Sharing the backend means sharing its connection
+     * pool, so there's a single limit on how many connections are open to S3 at once.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aConfig An application configuration
+     * @return A storage backend
+     * @throws IllegalArgumentException If the configured backend is unknown or misconfigured
+     */
+    public static Storage getStorage(final Vertx aVertx, final JsonObject aConfig) {
+        final LocalMap<String, SharedStorage> map = aVertx.sharedData().getLocalMap(STORAGE_MAP);
+
+        synchronized (map) {
+            SharedStorage sharedStorage = map.get(STORAGE_KEY);
+
+            if (sharedStorage == null) {
+                sharedStorage = new SharedStorage(createStorage(aVertx, aConfig));
+                map.put(STORAGE_KEY, sharedStorage);
+            }
+
+            return sharedStorage.myStorage;
+        }
+    }
+
+    /**
+     * Creates a new storage backend of the kind that's named in the application's configuration. S3 is used if no
+     * backend is configured. Most callers should use {@link #getStorage(Vertx, JsonObject)} instead.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aConfig An application configuration
+     * @return A storage backend
+     * @throws IllegalArgumentException If the configured backend is unknown or misconfigured
+     */
+    public static Storage createStorage(final Vertx aVertx, final JsonObject aConfig) {
+        final String backend = aConfig.getString(Config.STORAGE, S3Storage.NAME);
+
+        LOGGER.debug(MessageCodes.MFS_205, backend);
+
+        switch (backend) {
+            case S3Storage.NAME:
+                return new S3Storage(aVertx, aConfig);
+            case FileSystemStorage.NAME:
+                return new FileSystemStorage(aVertx, aConfig);
+            default:
+                throw new IllegalArgumentException(LOGGER.getMessage(MessageCodes.MFS_206, backend));
+        }
+    }
+
+    /**
+     * A wrapper that lets a storage backend be put in a Vert.x local map. The backends are safe to use from more than
+     * one event loop.
+     */
+    private static final class SharedStorage implements Shareable {
+
+        private final Storage myStorage;
+
+        private SharedStorage(final Storage aStorage) {
+            myStorage = aStorage;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+
+package edu.ucla.library.iiif.fester.storage;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.ReadStream;
+
+/**
+ * An object that's kept in a storage backend, along with the metadata that's needed to serve it. Depending on how it
+ * was requested, an object may have its content, a stream of its content, or neither (e.g., for a HEAD request).
+ */
+public class StoredObject {
+
+    private final String myKey;
+
+    private Buffer myContent;
+
+    private ReadStream<Buffer> myStream;
+
+    private Runnable myCanceler;
+
+    private String myETag;
+
+    private String myLastModified;
+
+    private String myContentEncoding;
+
+    /**
+     * Creates a new stored object.
+     *
+     * @param aKey The object's key
+     */
+    public StoredObject(final String aKey) {
+        myKey = aKey;
+    }
+
+    /**
+     * Gets the object's key.
+     *
+     * @return The object's key
+     */
+    public String getKey() {
+        return myKey;
+    }
+
+    /**
+     * Sets the object's content.
+     *
+     * @param aContent The object's content, as it's stored
+     * @return The stored object
+     */
+    public StoredObject setContent(final Buffer aContent) {
+        myContent = aContent;
+        return this;
+    }
+
+    /**
+     * Gets the object's content, as it's stored.
+     *
+     * @return The object's content, or null if it wasn't requested or is being streamed
+     */
+    public Buffer getContent() {
+        return myContent;
+    }
+
+    /**
+     * Sets a stream of the object's content.
+     *
+     * @param aStream A stream of the object's content, as it's stored
+     * @return The stored object
+     */
+    public StoredObject setStream(final ReadStream<Buffer> aStream) {
+        myStream = aStream;
+        return this;
+    }
+
+    /**
+     * Gets a stream of the object's content, as it's stored.
+     *
+     * @return A stream of the object's content, or null if it wasn't requested or the content is already in memory
+     */
+    public ReadStream<Buffer> getStream() {
+        return myStream;
+    }
+
+    /**
+     * Sets what stops the object's stream before it's been read to the end.
+     *
+     * @param aCanceler Something that lets go of whatever the object's stream is being read from
+     * @return The stored object
+     */
+    public StoredObject setCanceler(final Runnable aCanceler) {
+        myCanceler = aCanceler;
+        return this;
+    }
+
+    /**
+     * Stops the object's stream before it's been read to the end, so whatever it's being read from can be let go of.
+     * This does nothing if the object isn't being streamed from somewhere that has to be let go of.
+     */
+    public void cancel() {
+        if (myCanceler != null) {
+            myCanceler.run();
+        }
+    }
+
+    /**
+     * Sets the object's ETag.
+     *
+     * @param aETag The object's ETag
+     * @return The stored object
+     */
+    public StoredObject setETag(final String aETag) {
+        myETag = aETag;
+        return this;
+    }
+
+    /**
+     * Gets the object's ETag.
+     *
+     * @return The object's ETag, or null if it isn't known
+     */
+    public String getETag() {
+        return myETag;
+    }
+
+    /**
+     * Sets the object's Last-Modified date.
+     *
+     * @param aLastModified The object's Last-Modified date, in the HTTP date format
+     * @return The stored object
+     */
+    public StoredObject setLastModified(final String aLastModified) {
+        myLastModified = aLastModified;
+        return this;
+    }
+
+    /**
+     * Gets the object's Last-Modified date.
+     *
+     * @return The object's Last-Modified date, or null if it isn't known
+     */
+    public String getLastModified() {
+        return myLastModified;
+    }
+
+    /**
+     * Sets the content-coding the object is stored with.
+     *
+     * @param aContentEncoding The object's content-coding
+     * @return The stored object
+     */
+    public StoredObject setContentEncoding(final String aContentEncoding) {
+        myContentEncoding = aContentEncoding;
+        return this;
+    }
+
+    /**
+     * Gets the content-coding the object is stored with.
+     *
+     * @return The object's content-coding, or null if it isn't encoded
+     */
+    public String getContentEncoding() {
+        return myContentEncoding;
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * The storage backends that Fester's manifests and collection docs can be kept in.
+ */
+
+package edu.ucla.library.iiif.fester.storage;
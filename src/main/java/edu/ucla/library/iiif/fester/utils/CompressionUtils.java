@@ -0,0 +1,107 @@
+
+package edu.ucla.library.iiif.fester.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Utilities for compressing and decompressing the manifests and collection documents we store.
+ */
+public final class CompressionUtils {
+
+    /**
+     * The content-coding value for gzip compressed content.
+     */
+    public static final String GZIP = "gzip";
+
+    private CompressionUtils() {
+    }
+
+    /**
+     * Whether the supplied content-coding is one we know how to decode.
+     *
+     * @param aContentEncoding The value of a Content-Encoding header (may be null)
+     * @return True if the content is gzip compressed; else, false
+     */
+    public static boolean isGzipped(final String aContentEncoding) {
+        return aContentEncoding != null && GZIP.equalsIgnoreCase(aContentEncoding.trim());
+    }
+
+    /**
+     * Whether a client will take gzip compressed content, going by its Accept-Encoding header.
+     *
+     * @param aAcceptEncoding The value of an Accept-Encoding header (may be null)
+     * @return True if the client accepts gzip compressed content; else, false
+     */
+    public static boolean acceptsGzip(final String aAcceptEncoding) {
+        if (aAcceptEncoding == null) {
+            return false;
+        }
+
+        for (final String coding : aAcceptEncoding.split(",")) {
+            final String[] parts = coding.split(";");
+            final String name = parts[0].trim();
+
+            if (GZIP.equalsIgnoreCase(name) || "x-gzip".equalsIgnoreCase(name) || "*".equals(name)) {
+                return parts.length == 1 || !isZeroQuality(parts[1]);
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Compresses the supplied content with gzip.
+     *
+     * @param aBuffer Uncompressed content
+     * @return Compressed content
+     * @throws IOException If the content can't be compressed
+     */
+    public static Buffer gzip(final Buffer aBuffer) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(aBuffer.length() / 8);
+
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(aBuffer.getBytes());
+        }
+
+        return Buffer.buffer(bytes.toByteArray());
+    }
+
+    /**
+     * Decompresses the supplied gzip compressed content.
+     *
+     * @param aBuffer Compressed content
+     * @return Uncompressed content
+     * @throws IOException If the content isn't valid gzip
+     */
+    public static Buffer gunzip(final Buffer aBuffer) throws IOException {
+        try (GZIPInputStream gunzip = new GZIPInputStream(new ByteArrayInputStream(aBuffer.getBytes()))) {
+            return Buffer.buffer(gunzip.readAllBytes());
+        }
+    }
+
+    /**
+     * Whether a content-coding's parameter gives it a quality of zero, which means it's not acceptable.
+     *
+     * @param aParameter A content-coding parameter, like <code>q=0.5</code>
+     * @return True if the parameter is a zero quality value; else, false
+     */
+    private static boolean isZeroQuality(final String aParameter) {
+        final String[] parts = aParameter.split("=");
+
+        if (parts.length != 2 || !"q".equalsIgnoreCase(parts[0].trim())) {
+            return false;
+        }
+
+        try {
+            return Double.parseDouble(parts[1].trim()) == 0;
+        } catch (final NumberFormatException details) {
+            return false;
+        }
+    }
+}
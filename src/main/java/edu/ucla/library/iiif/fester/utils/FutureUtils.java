@@ -0,0 +1,136 @@
+
+package edu.ucla.library.iiif.fester.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+/**
+ * A utilities class for working with futures.
+ */
+public final class FutureUtils {
+
+    private FutureUtils() {
+    }
+
+    /**
+     * Maps each of a list's items to a future, with no more than the supplied number of futures outstanding at once.
+     * The items are mapped in list order, and their results are returned in list order, however the futures happen
+     * to complete. If any future fails, no more items are mapped and the returned future fails with its cause.
+     * <p>
+     * The mapping isn't thread-safe: the supplied futures should complete on the context that this is called from.
+     * </p>
+     *
+     * @param <T> The type of the list's items
+     * @param <R> The type of the results
+     * @param aList A list of items
+     * @param aMaxConcurrency The maximum number of futures that can be outstanding at once
+     * @param aMapper A function that maps an item to a future
+     * @return A future with the results, in list order
+     */
+    public static <T, R> Future<List<R>> mapInOrder(final List<T> aList, final int aMaxConcurrency,
+            final Function<T, Future<R>> aMapper) {
+        return new OrderedMapping<>(aList, Math.max(1, aMaxConcurrency), aMapper).start();
+    }
+
+    /**
+     * The state of a mapping of a list's items to futures.
+     *
+     * @param <T> The type of the list's items
+     * @param <R> The type of the results
+     */
+    private static final class OrderedMapping<T, R> {
+
+        private final Promise<List<R>> myPromise = Promise.promise();
+
+        private final List<T> myList;
+
+        private final List<R> myResults;
+
+        private final int myMaxConcurrency;
+
+        private final Function<T, Future<R>> myMapper;
+
+        private int myNextIndex;
+
+        private int myOutstandingCount;
+
+        private int myRemainingCount;
+
+        private boolean isFilling;
+
+        private boolean isFailed;
+
+        private OrderedMapping(final List<T> aList, final int aMaxConcurrency, final Function<T, Future<R>> aMapper) {
+            myList = aList;
+            myResults = new ArrayList<>(Collections.nCopies(aList.size(), null));
+            myMaxConcurrency = aMaxConcurrency;
+            myMapper = aMapper;
+            myRemainingCount = aList.size();
+        }
+
+        private Future<List<R>> start() {
+            if (myRemainingCount == 0) {
+                myPromise.complete(myResults);
+            } else {
+                fill();
+            }
+
+            return myPromise.future();
+        }
+
+        /**
+         * Maps items until the window of outstanding futures is full. Futures that have already completed call this
+         * again, so the loop is guarded against re-entry rather than letting the stack grow with each item.
+         */
+        private void fill() {
+            if (!isFilling) {
+                isFilling = true;
+
+                while (!isFailed && myOutstandingCount < myMaxConcurrency && myNextIndex < myList.size()) {
+                    map(myNextIndex++);
+                }
+
+                isFilling = false;
+            }
+        }
+
+        private void map(final int aIndex) {
+            Future<R> future;
+
+            myOutstandingCount += 1;
+
+            try {
+                future = myMapper.apply(myList.get(aIndex));
+            } catch (final RuntimeException details) {
+                future = Future.failedFuture(details);
+            }
+
+            future.onComplete(result -> {
+                myOutstandingCount -= 1;
+
+                if (isFailed) {
+                    return;
+                }
+
+                if (result.succeeded()) {
+                    myResults.set(aIndex, result.result());
+                    myRemainingCount -= 1;
+
+                    if (myRemainingCount == 0) {
+                        myPromise.complete(myResults);
+                    } else {
+                        fill();
+                    }
+                } else {
+                    isFailed = true;
+                    myPromise.fail(result.cause());
+                }
+            });
+        }
+    }
+}
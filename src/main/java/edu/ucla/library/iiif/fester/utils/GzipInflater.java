@@ -0,0 +1,251 @@
+
+package edu.ucla.library.iiif.fester.utils;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Decompresses gzip compressed content a chunk at a time, as it's read from a stream, so the whole of the compressed
+ * content never has to be held at once. The gzip header and trailer are checked as they go by, and the trailer's
+ * checksum and length are compared with what was inflated. An instance should only be used for a single stream, and
+ * should be closed once it's no longer needed.
+ */
+public class GzipInflater implements AutoCloseable {
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private static final int DEFLATE = 8;
+
+    private static final int HEADER_SIZE = 10;
+
+    private static final int TRAILER_SIZE = 8;
+
+    private static final int FHCRC = 2;
+
+    private static final int FEXTRA = 4;
+
+    private static final int FNAME = 8;
+
+    private static final int FCOMMENT = 16;
+
+    private static final int OUTPUT_SIZE = 8192;
+
+    private final Inflater myInflater = new Inflater(true);
+
+    private final CRC32 myChecksum = new CRC32();
+
+    private final byte[] myOutput = new byte[OUTPUT_SIZE];
+
+    /* The bytes of a header or trailer that's been split across chunks */
+    private byte[] myPending = new byte[0];
+
+    private Part myPart = Part.HEADER;
+
+    private boolean isEnded;
+
+    /**
+     * Inflates the next chunk of a gzip stream.
+     *
+     * @param aChunk The next chunk of compressed content
+     * @return The content that could be inflated from the chunk, which may be empty
+     * @throws ZipException If the content isn't valid gzip
+     */
+    public Buffer inflate(final Buffer aChunk) throws ZipException {
+        final Buffer buffer = Buffer.buffer(aChunk.length() * 4);
+        byte[] bytes = aChunk.getBytes();
+
+        while (bytes.length > 0) {
+            switch (myPart) {
+                case BODY:
+                    bytes = inflateBody(bytes, buffer);
+                    break;
+                case TRAILER:
+                    bytes = readTrailer(bytes);
+                    break;
+                default:
+                    // Concatenated gzip members make a valid gzip stream, too
+                    bytes = readHeader(bytes);
+                    break;
+            }
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Checks that the gzip stream ended where it should have.
+     *
+     * @throws ZipException If the gzip stream was cut short
+     */
+    public void finish() throws ZipException {
+        try {
+            if (myPart != Part.END) {
+                throw new ZipException("Unexpected end of gzip stream");
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Frees the native resources used to inflate the content.
+     */
+    @Override
+    public void close() {
+        if (!isEnded) {
+            myInflater.end();
+            isEnded = true;
+        }
+    }
+
+    private byte[] inflateBody(final byte[] aBytes, final Buffer aBuffer) throws ZipException {
+        myInflater.setInput(aBytes);
+
+        try {
+            while (!myInflater.finished() && !myInflater.needsInput()) {
+                final int count = myInflater.inflate(myOutput);
+
+                if (count == 0 && myInflater.needsDictionary()) {
+                    throw new ZipException("Unexpected preset dictionary in gzip stream");
+                }
+
+                myChecksum.update(myOutput, 0, count);
+                aBuffer.appendBytes(myOutput, 0, count);
+            }
+        } catch (final DataFormatException details) {
+            throw new ZipException(details.getMessage());
+        }
+
+        if (!myInflater.finished()) {
+            return new byte[0];
+        }
+
+        // Whatever the inflater didn't need belongs to the trailer
+        myPart = Part.TRAILER;
+        return Arrays.copyOfRange(aBytes, aBytes.length - myInflater.getRemaining(), aBytes.length);
+    }
+
+    private byte[] readHeader(final byte[] aBytes) throws ZipException {
+        final byte[] bytes = concat(myPending, aBytes);
+        final int length = getHeaderLength(bytes);
+
+        if (length < 0) {
+            myPending = bytes;
+            return new byte[0];
+        }
+
+        myPending = new byte[0];
+        myInflater.reset();
+        myChecksum.reset();
+        myPart = Part.BODY;
+
+        return Arrays.copyOfRange(bytes, length, bytes.length);
+    }
+
+    private byte[] readTrailer(final byte[] aBytes) throws ZipException {
+        final byte[] bytes = concat(myPending, aBytes);
+
+        if (bytes.length < TRAILER_SIZE) {
+            myPending = bytes;
+            return new byte[0];
+        }
+
+        if (getInt(bytes, 0) != (int) myChecksum.getValue()) {
+            throw new ZipException("Corrupt gzip trailer: checksum mismatch");
+        }
+
+        if (getInt(bytes, 4) != (int) myInflater.getBytesWritten()) {
+            throw new ZipException("Corrupt gzip trailer: length mismatch");
+        }
+
+        myPending = new byte[0];
+        myPart = Part.END;
+
+        return Arrays.copyOfRange(bytes, TRAILER_SIZE, bytes.length);
+    }
+
+    /**
+     * Gets the length of the gzip header at the start of the supplied bytes.
+     *
+     * @param aBytes Bytes that start with a gzip header
+     * @return The length of the header, or -1 if the bytes don't have all of it yet
+     * @throws ZipException If the bytes don't start with a gzip header
+     */
+    private static int getHeaderLength(final byte[] aBytes) throws ZipException {
+        final int flags;
+        int length = HEADER_SIZE;
+
+        if (aBytes.length < HEADER_SIZE) {
+            return -1;
+        }
+
+        if (getShort(aBytes, 0) != GZIP_MAGIC || aBytes[2] != DEFLATE) {
+            throw new ZipException("Not in gzip format");
+        }
+
+        flags = aBytes[3] & 0xff;
+
+        if ((flags & FEXTRA) != 0) {
+            if (aBytes.length < length + 2) {
+                return -1;
+            }
+
+            length += 2 + getShort(aBytes, length);
+        }
+
+        if ((flags & FNAME) != 0) {
+            length = skipString(aBytes, length);
+        }
+
+        if ((flags & FCOMMENT) != 0) {
+            length = skipString(aBytes, length);
+        }
+
+        if ((flags & FHCRC) != 0 && length >= 0) {
+            length += 2;
+        }
+
+        return length > aBytes.length ? -1 : length;
+    }
+
+    private static int skipString(final byte[] aBytes, final int aStart) {
+        if (aStart < 0) {
+            return -1;
+        }
+
+        for (int index = aStart; index < aBytes.length; index++) {
+            if (aBytes[index] == 0) {
+                return index + 1;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int getShort(final byte[] aBytes, final int aIndex) {
+        return aBytes[aIndex] & 0xff | (aBytes[aIndex + 1] & 0xff) << 8;
+    }
+
+    private static int getInt(final byte[] aBytes, final int aIndex) {
+        return getShort(aBytes, aIndex) | getShort(aBytes, aIndex + 2) << 16;
+    }
+
+    private static byte[] concat(final byte[] aFirst, final byte[] aSecond) {
+        final byte[] bytes = Arrays.copyOf(aFirst, aFirst.length + aSecond.length);
+
+        System.arraycopy(aSecond, 0, bytes, aFirst.length, aSecond.length);
+        return bytes;
+    }
+
+    /**
+     * The parts of a gzip member.
+     */
+    private enum Part {
+        HEADER, BODY, TRAILER, END
+    }
+}
@@ -0,0 +1,100 @@
+
+package edu.ucla.library.iiif.fester.utils;
+
+import java.nio.charset.StandardCharsets;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Replaces a placeholder with a substitute value in a stream of byte chunks, without decoding the bytes into a
+ * string. A placeholder that's split across chunk boundaries is still replaced, since a partial match is held back
+ * until the next chunk tells us whether it's a match or not. An instance should only be used for a single stream.
+ */
+public class PlaceholderRewriter {
+
+    private final byte[] myPlaceholder;
+
+    private final byte[] mySubstitute;
+
+    /* For each prefix of the placeholder, the length of its longest proper prefix that's also a suffix */
+    private final int[] myFallbacks;
+
+    /* The number of placeholder bytes that have been matched, but not yet written out */
+    private int myMatchCount;
+
+    /**
+     * Creates a new placeholder rewriter.
+     *
+     * @param aPlaceholder A placeholder to find in the stream
+     * @param aSubstitute A value to replace the placeholder with
+     */
+    public PlaceholderRewriter(final String aPlaceholder, final String aSubstitute) {
+        myPlaceholder = aPlaceholder.getBytes(StandardCharsets.UTF_8);
+        mySubstitute = aSubstitute.getBytes(StandardCharsets.UTF_8);
+        myFallbacks = new int[myPlaceholder.length];
+
+        if (myPlaceholder.length == 0) {
+            throw new IllegalArgumentException("Placeholder cannot be empty");
+        }
+
+        // Build the fallback table that lets us resume a partial match without re-reading bytes
+        for (int index = 1, length = 0; index < myPlaceholder.length; index++) {
+            while (length > 0 && myPlaceholder[index] != myPlaceholder[length]) {
+                length = myFallbacks[length - 1];
+            }
+
+            if (myPlaceholder[index] == myPlaceholder[length]) {
+                length += 1;
+            }
+
+            myFallbacks[index] = length;
+        }
+    }
+
+    /**
+     * Rewrites the next chunk of the stream. Bytes that might be the start of a placeholder are held back until a
+     * later chunk (or {@link #flush()}) resolves them.
+     *
+     * @param aChunk The next chunk of the stream
+     * @return The rewritten bytes that are ready to be written out
+     */
+    public Buffer rewrite(final Buffer aChunk) {
+        final byte[] bytes = aChunk.getBytes();
+        final Buffer buffer = Buffer.buffer(bytes.length + mySubstitute.length);
+
+        for (final byte value : bytes) {
+            // On a mismatch, release the held back bytes that can no longer be part of a match
+            while (myMatchCount > 0 && myPlaceholder[myMatchCount] != value) {
+                final int fallback = myFallbacks[myMatchCount - 1];
+
+                buffer.appendBytes(myPlaceholder, 0, myMatchCount - fallback);
+                myMatchCount = fallback;
+            }
+
+            if (myPlaceholder[myMatchCount] == value) {
+                myMatchCount += 1;
+
+                if (myMatchCount == myPlaceholder.length) {
+                    buffer.appendBytes(mySubstitute);
+                    myMatchCount = 0;
+                }
+            } else {
+                buffer.appendByte(value);
+            }
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Releases any bytes that were held back at the end of the stream.
+     *
+     * @return The bytes that were held back
+     */
+    public Buffer flush() {
+        final Buffer buffer = Buffer.buffer().appendBytes(myPlaceholder, 0, myMatchCount);
+
+        myMatchCount = 0;
+        return buffer;
+    }
+}
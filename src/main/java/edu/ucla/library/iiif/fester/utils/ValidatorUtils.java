@@ -0,0 +1,95 @@
+
+package edu.ucla.library.iiif.fester.utils;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import edu.ucla.library.iiif.fester.Constants;
+
+/**
+ * Utilities for evaluating HTTP cache validators (i.e., <code>ETag</code> and <code>Last-Modified</code>) against a
+ * client's conditional request headers.
+ */
+public final class ValidatorUtils {
+
+    private static final String WEAK_PREFIX = "W/";
+
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME;
+
+    private ValidatorUtils() {
+    }
+
+    /**
+     * Checks whether a client's cached copy of a resource is still current. As in RFC 7232, an
+     * <code>If-None-Match</code> header takes precedence over an <code>If-Modified-Since</code> header.
+     *
+     * @param aETag The resource's current ETag (may be null)
+     * @param aLastModified The resource's current Last-Modified date (may be null)
+     * @param aIfNoneMatch The value of the client's If-None-Match header (may be null)
+     * @param aIfModifiedSince The value of the client's If-Modified-Since header (may be null)
+     * @return True if the resource hasn't changed since the client got it; else, false
+     */
+    public static boolean isNotModified(final String aETag, final String aLastModified, final String aIfNoneMatch,
+            final String aIfModifiedSince) {
+        if (aIfNoneMatch != null) {
+            return aETag != null && matches(aETag, aIfNoneMatch);
+        }
+
+        if (aIfModifiedSince != null && aLastModified != null) {
+            try {
+                final ZonedDateTime lastModified = ZonedDateTime.parse(aLastModified, HTTP_DATE);
+                final ZonedDateTime since = ZonedDateTime.parse(aIfModifiedSince, HTTP_DATE);
+
+                return !lastModified.isAfter(since);
+            } catch (final DateTimeParseException details) {
+                return false; // An unparseable date should be ignored, per the spec
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Makes an ETag weak, if it isn't already. The ETag we store a resource with belongs to the bytes in storage, but
+     * the bytes we send may be compressed or rewritten differently, so we only ever claim they're equivalent.
+     *
+     * @param aETag An ETag
+     * @return The ETag as a weak validator
+     */
+    public static String toWeak(final String aETag) {
+        final String etag = aETag.trim();
+        return etag.startsWith(WEAK_PREFIX) ? etag : WEAK_PREFIX + etag;
+    }
+
+    /**
+     * Checks whether an ETag is found in the list of ETags from an If-None-Match header, using weak comparison.
+     *
+     * @param aETag A resource's ETag
+     * @param aIfNoneMatch The value of an If-None-Match header
+     * @return True if the ETag matches; else, false
+     */
+    private static boolean matches(final String aETag, final String aIfNoneMatch) {
+        final String etag = stripWeakPrefix(aETag.trim());
+
+        for (final String candidate : aIfNoneMatch.split(Constants.COMMA)) {
+            final String trimmed = candidate.trim();
+
+            if (Constants.STAR.equals(trimmed) || etag.equals(stripWeakPrefix(trimmed))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes the weak indicator from an ETag, if it has one.
+     *
+     * @param aETag An ETag
+     * @return The ETag without a weak indicator
+     */
+    private static String stripWeakPrefix(final String aETag) {
+        return aETag.startsWith(WEAK_PREFIX) ? aETag.substring(WEAK_PREFIX.length()) : aETag;
+    }
+}
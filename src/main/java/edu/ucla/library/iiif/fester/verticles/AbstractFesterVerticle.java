@@ -8,12 +8,18 @@ import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
 
 import edu.ucla.library.iiif.fester.Constants;
+import edu.ucla.library.iiif.fester.CsvWork;
 import edu.ucla.library.iiif.fester.HTTP;
 import edu.ucla.library.iiif.fester.MessageCodes;
+import edu.ucla.library.iiif.fester.S3WriteScheduler;
+import edu.ucla.library.iiif.fester.codecs.LocalCodecs;
+import edu.ucla.library.iiif.fester.codecs.SharedJsonObjectCodec;
 
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.MessageConsumer;
@@ -30,6 +36,14 @@ public abstract class AbstractFesterVerticle extends AbstractVerticle {
 
     private static final Set<String> WEB_IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "webp", "svg");
 
+    @Override
+    public void init(final Vertx aVertx, final Context aContext) {
+        super.init(aVertx, aContext);
+
+        // Our messages are passed between verticles by reference, so the codecs need to be there before we send any
+        LocalCodecs.register(aVertx);
+    }
+
     @Override
     public void start() throws Exception {
         LOGGER.debug(MessageCodes.MFS_110, getClass().getName(), deploymentID());
@@ -65,7 +79,30 @@ public abstract class AbstractFesterVerticle extends AbstractVerticle {
     }
 
     /**
-     * Sends a message to another verticle with a supplied timeout value.
+     * Gets the verticle's consumer for messages whose bodies aren't all of the same type.
+     *
+     * @return A message consumer
+     */
+    protected MessageConsumer<Object> getConsumer() {
+        LOGGER.debug(MessageCodes.MFS_101, getClass().getName());
+        return vertx.eventBus().consumer(getClass().getName());
+    }
+
+    /**
+     * Gets a message from a consumer of mixed messages as one whose body has the type that its action says it has.
+     *
+     * @param <T> The type of the message's body
+     * @param aMessage A message
+     * @return The message
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> Message<T> typed(final Message<Object> aMessage) {
+        return (Message<T>) (Message<?>) aMessage;
+    }
+
+    /**
+     * Sends a message to another verticle with a supplied timeout value. The message is shared with the verticle
+     * that receives it rather than copied, so it mustn't be changed once it's been sent.
      *
      * @param aVerticleName A verticle name that will respond to the message
      * @param aMessage A JSON message
@@ -75,12 +112,49 @@ public abstract class AbstractFesterVerticle extends AbstractVerticle {
      */
     protected void sendMessage(final String aVerticleName, final JsonObject aMessage, final DeliveryOptions aHeaders,
             final long aTimeout, final Handler<AsyncResult<Message<JsonObject>>> aHandler) {
-        aHeaders.setSendTimeout(aTimeout);
+        aHeaders.setSendTimeout(aTimeout).setCodecName(SharedJsonObjectCodec.NAME);
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(MessageCodes.MFS_102, aVerticleName, aMessage.encodePrettily());
+        }
 
-        LOGGER.debug(MessageCodes.MFS_102, aVerticleName, aMessage.encodePrettily());
         vertx.eventBus().request(aVerticleName, aMessage, aHeaders, aHandler);
     }
 
+    /**
+     * Sends a work's CSV rows to a manifest verticle with a supplied timeout value. The rows are handed over rather
+     * than copied, so they mustn't be changed once they've been sent.
+     *
+     * @param aVerticleName A verticle name that will respond to the message
+     * @param aWork A work's CSV rows
+     * @param aHeaders Message headers
+     * @param aTimeout A timeout measured in milliseconds
+     * @param aHandler A handler to handle the result of the message delivery
+     */
+    protected void sendMessage(final String aVerticleName, final CsvWork aWork, final DeliveryOptions aHeaders,
+            final long aTimeout, final Handler<AsyncResult<Message<JsonObject>>> aHandler) {
+        aHeaders.setSendTimeout(aTimeout);
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(MessageCodes.MFS_102, aVerticleName, aWork.toJSON().encodePrettily());
+        }
+
+        vertx.eventBus().request(aVerticleName, aWork, aHeaders, aHandler);
+    }
+
+    /**
+     * Sends a work's CSV rows to a manifest verticle.
+     *
+     * @param aVerticleName A verticle name that will respond to the message
+     * @param aWork A work's CSV rows
+     * @param aHeaders Message headers
+     * @param aHandler A handler to handle the result of the message delivery
+     */
+    protected void sendMessage(final String aVerticleName, final CsvWork aWork, final DeliveryOptions aHeaders,
+            final Handler<AsyncResult<Message<JsonObject>>> aHandler) {
+        sendMessage(aVerticleName, aWork, aHeaders, DeliveryOptions.DEFAULT_TIMEOUT, aHandler);
+    }
+
     /**
      * Send a message to another verticle.
      *
@@ -94,6 +168,47 @@ public abstract class AbstractFesterVerticle extends AbstractVerticle {
         sendMessage(aVerticleName, aMessage, aHeaders, DeliveryOptions.DEFAULT_TIMEOUT, aHandler);
     }
 
+    /**
+     * Sends a manifest or collection doc to be written to S3. The S3 bucket verticle turns writes away when it has
+     * more than it can take on, so a write that's turned away is sent again after a backoff delay, for as long as the
+     * write's reply timeout allows. The reply timeout covers the time the write can spend queued and being retried.
+     *
+     * @param aMessage A PUT_MANIFEST or PUT_COLLECTION message
+     * @param aHeaders Message headers
+     * @param aHandler A handler to handle the result of the write
+     */
+    protected void sendWrite(final JsonObject aMessage, final DeliveryOptions aHeaders,
+            final Handler<AsyncResult<Message<JsonObject>>> aHandler) {
+        final long timeout = S3WriteScheduler.getReplyTimeout(config());
+
+        sendWrite(aMessage, aHeaders, System.currentTimeMillis() + timeout, 1, aHandler);
+    }
+
+    private void sendWrite(final JsonObject aMessage, final DeliveryOptions aHeaders, final long aDeadline,
+            final int aAttempt, final Handler<AsyncResult<Message<JsonObject>>> aHandler) {
+        final long timeout = Math.max(1, aDeadline - System.currentTimeMillis());
+
+        sendMessage(S3BucketVerticle.class.getName(), aMessage, aHeaders, timeout, write -> {
+            if (write.failed() && S3WriteScheduler.isTurnedAway(write.cause())) {
+                final long delay = S3WriteScheduler.getRetryDelay(config(), aAttempt);
+
+                // Only try again if there'd be time left for the write once the delay is over
+                if (System.currentTimeMillis() + delay < aDeadline) {
+                    LOGGER.debug(MessageCodes.MFS_239, getWriteID(aMessage), delay);
+                    vertx.setTimer(delay, timer -> sendWrite(aMessage, aHeaders, aDeadline, aAttempt + 1, aHandler));
+                    return;
+                }
+            }
+
+            aHandler.handle(write);
+        });
+    }
+
+    private static String getWriteID(final JsonObject aMessage) {
+        final String manifestID = aMessage.getString(Constants.MANIFEST_ID);
+        return manifestID != null ? manifestID : aMessage.getString(Constants.COLLECTION_NAME);
+    }
+
     /**
      * Wraps how exceptions are thrown in a reusable method.
      *
@@ -102,7 +217,7 @@ public abstract class AbstractFesterVerticle extends AbstractVerticle {
      * @param aMessageCode A message code for the exception
      * @param aDetailsArray Additional details about the exception to be thrown
      */
-    protected void error(final Message<JsonObject> aMessage, final Throwable aThrowable, final String aMessageCode,
+    protected void error(final Message<?> aMessage, final Throwable aThrowable, final String aMessageCode,
             final Object... aDetailsArray) {
         if (aThrowable instanceof ReplyException) {
             final ReplyException reply = (ReplyException) aThrowable;
@@ -23,6 +23,7 @@ import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.api.contract.openapi3.OpenAPI3RouterFactory;
@@ -58,7 +59,9 @@ public class MainVerticle extends AbstractVerticle {
                 promise.future().onComplete(handler -> {
                     if (handler.succeeded()) {
                         final int port = config.getInteger(Config.HTTP_PORT, DEFAULT_PORT);
-                        final HttpServer server = vertx.createHttpServer();
+                        final boolean compressing = config.getBoolean(Config.HTTP_COMPRESSION, true);
+                        final HttpServerOptions options = new HttpServerOptions().setCompressionSupported(compressing);
+                        final HttpServer server = vertx.createHttpServer(options);
                         final Router router = handler.result();
 
                         LOGGER.info(MessageCodes.MFS_041, port);
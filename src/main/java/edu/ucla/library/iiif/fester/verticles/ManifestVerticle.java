@@ -2,14 +2,19 @@
 package edu.ucla.library.iiif.fester.verticles;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -21,17 +26,22 @@ import info.freelibrary.util.StringUtils;
 
 import edu.ucla.library.iiif.fester.Config;
 import edu.ucla.library.iiif.fester.Constants;
+import edu.ucla.library.iiif.fester.CsvConsumer;
 import edu.ucla.library.iiif.fester.CsvHeaders;
 import edu.ucla.library.iiif.fester.CsvMetadata;
 import edu.ucla.library.iiif.fester.CsvParser;
 import edu.ucla.library.iiif.fester.CsvParsingException;
+import edu.ucla.library.iiif.fester.CsvWork;
 import edu.ucla.library.iiif.fester.HTTP;
+import edu.ucla.library.iiif.fester.ImageInfo;
+import edu.ucla.library.iiif.fester.ImageInfoLookup;
 import edu.ucla.library.iiif.fester.LockedIiifResource;
 import edu.ucla.library.iiif.fester.ManifestNotFoundException;
 import edu.ucla.library.iiif.fester.MessageCodes;
 import edu.ucla.library.iiif.fester.Op;
+import edu.ucla.library.iiif.fester.S3WriteScheduler;
+import edu.ucla.library.iiif.fester.utils.FutureUtils;
 
-import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.eventbus.DeliveryOptions;
@@ -78,12 +88,34 @@ public class ManifestVerticle extends AbstractFesterVerticle {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ManifestVerticle.class, Constants.MESSAGES);
 
-    private static final long TIMEOUT = Long.MAX_VALUE; // A temporary over the top setting for image lookups
+    private static final String SIMPLE_URI = "{}/{}";
+
+    private static final int DEFAULT_PREFETCH_CONCURRENCY = 20;
+
+    private static final int DEFAULT_LOOKUP_CONCURRENCY = 8;
+
+    private static final long DEFAULT_PAGE_HEAP_BUDGET = 268_435_456L;
+
+    private static final int DEFAULT_SPILLED_WORK_CONCURRENCY = 4;
 
     private String myPlaceholderImage;
 
     private String myImageHost;
 
+    private ImageInfoLookup myImageInfoLookup;
+
+    private int myPrefetchConcurrency;
+
+    private int myLookupConcurrency;
+
+    private long myPageHeapBudget;
+
+    private int mySpilledWorkConcurrency;
+
+    private int myWorkConcurrency;
+
+    private long myWriteTimeout;
+
     /**
      * Starts a verticle to handle manifest creation requests.
      */
@@ -97,6 +129,21 @@ public class ManifestVerticle extends AbstractFesterVerticle {
             myPlaceholderImage = StringUtils.trimTo(config().getString(Config.PLACEHOLDER_IMAGE), Constants.EMPTY);
         }
 
+        if (myImageInfoLookup == null) {
+            myImageInfoLookup = new ImageInfoLookup(vertx, config());
+        }
+
+        myPrefetchConcurrency = config().getInteger(Config.IIIF_PREFETCH_CONCURRENCY, DEFAULT_PREFETCH_CONCURRENCY);
+        myLookupConcurrency = Math.max(1,
+                config().getInteger(Config.IIIF_LOOKUP_WORK_CONCURRENCY, DEFAULT_LOOKUP_CONCURRENCY));
+        myPageHeapBudget = config().getLong(Config.CSV_PAGE_HEAP_BUDGET, DEFAULT_PAGE_HEAP_BUDGET);
+        mySpilledWorkConcurrency = Math.max(1,
+                config().getInteger(Config.CSV_SPILLED_WORK_CONCURRENCY, DEFAULT_SPILLED_WORK_CONCURRENCY));
+
+        // Each work ends with an S3 write, so no more works are started than the S3 write scheduler can take on
+        myWorkConcurrency = S3WriteScheduler.getCapacity(config());
+        myWriteTimeout = DeliveryOptions.DEFAULT_TIMEOUT + S3WriteScheduler.getReplyTimeout(config());
+
         getJsonConsumer().handler(message -> {
             try {
                 final JsonObject body = message.body();
@@ -104,14 +151,17 @@ public class ManifestVerticle extends AbstractFesterVerticle {
                 final Path filePath = Paths.get(body.getString(Constants.CSV_FILE_PATH));
                 final String iiifVersion = body.getString(Constants.IIIF_API_VERSION);
                 final String avUrlString = config().getString(Config.AV_URL_STRING, Constants.DEFAULT_AV_STRING);
-                final CsvParser csvParser = new CsvParser().parse(filePath, iiifVersion, avUrlString);
-                final CsvMetadata csvMetadata = csvParser.getCsvMetadata();
+                final String imageHost = Optional.ofNullable(body.getString(Constants.IIIF_HOST)).orElse(myImageHost);
+                final CsvParser csvParser = new CsvParser(myPageHeapBudget);
+                final ImageCollector images =
+                        new ImageCollector(csvParser, Op.POST_CSV.equals(action) ? imageHost : null);
+                final CsvMetadata csvMetadata =
+                        csvParser.collect(filePath, iiifVersion, avUrlString, images).getCsvMetadata();
 
                 if (Op.POST_CSV.equals(action)) {
-                    final Optional<String> optImageHost = Optional.ofNullable(body.getString(Constants.IIIF_HOST));
                     final Optional<String[]> csvCollection = csvParser.getCsvCollection();
-                    final String imageHost = optImageHost.orElse(myImageHost);
                     final CsvHeaders csvHeaders = csvParser.getCsvHeaders();
+                    final Future<Void> prefetch = prefetchImageInfo(images);
 
                     // If we have a collection record in the CSV we're processing, create a collection manifest
                     if (csvCollection.isPresent()) {
@@ -120,8 +170,11 @@ public class ManifestVerticle extends AbstractFesterVerticle {
                         // On completion of creating the collection doc, check to see if works need to be added
                         promise.future().onComplete(creation -> {
                             if (creation.succeeded()) {
-                                createWorks(csvHeaders, csvMetadata, imageHost, iiifVersion, message);
+                                prefetch.onComplete(prefetched -> {
+                                    createWorks(csvHeaders, csvMetadata, imageHost, iiifVersion, message);
+                                });
                             } else {
+                                csvMetadata.close();
                                 error(message, creation.cause(), MessageCodes.MFS_125, creation.cause().getMessage());
                             }
                         });
@@ -129,25 +182,22 @@ public class ManifestVerticle extends AbstractFesterVerticle {
                         createCollection(promise, csvCollection.get(), csvHeaders, csvMetadata, iiifVersion);
                     } else if (csvMetadata.hasWorks()) {
                         LOGGER.debug(MessageCodes.MFS_043, filePath);
-                        updateWorks(csvHeaders, csvMetadata, imageHost, iiifVersion, message);
+                        updateWorks(csvHeaders, csvMetadata, imageHost, iiifVersion, prefetch, message);
                     } else if (csvMetadata.hasPages()) {
-                        @SuppressWarnings("rawtypes")
-                        final List<Future> futures = new ArrayList<>();
-                        final Iterator<Entry<String, List<String[]>>> iterator = csvMetadata.getPageIterator();
+                        final List<String> workIDs = new ArrayList<>(csvMetadata.getPageWorkIDs());
 
                         LOGGER.debug(MessageCodes.MFS_069, filePath);
 
-                        while (iterator.hasNext()) {
-                            final Entry<String, List<String[]>> pageEntry = iterator.next();
-                            final List<String[]> pagesList = pageEntry.getValue();
+                        // A work's pages are only read back from disk when it's its turn to be updated
+                        mapWorks(csvMetadata, workIDs, workID -> {
                             final Promise<Void> promise = Promise.promise();
-                            final String workID = pageEntry.getKey();
 
-                            futures.add(promise.future());
-                            updatePages(promise, workID, csvHeaders, pagesList, imageHost, iiifVersion);
-                        }
+                            updatePages(promise, workID, csvHeaders, csvMetadata.getPages(workID), imageHost,
+                                    iiifVersion, prefetch);
+                            return promise.future();
+                        }).onComplete(handler -> {
+                            csvMetadata.close();
 
-                        CompositeFuture.all(futures).onComplete(handler -> {
                             if (handler.succeeded()) {
                                 message.reply(Op.SUCCESS);
                             } else {
@@ -157,21 +207,20 @@ public class ManifestVerticle extends AbstractFesterVerticle {
                     } else {
                         final Exception details = new CsvParsingException(MessageCodes.MFS_042);
 
+                        csvMetadata.close();
                         LOGGER.error(details, details.getMessage());
                         message.fail(HTTP.BAD_REQUEST, details.getMessage());
                     }
                 } else if (Op.POST_UPDATE_CSV.equals(action)) {
-                    @SuppressWarnings("rawtypes")
-                    final List<Future> futures = new ArrayList<>();
+                    // Only the works are updated, so any pages that were spilled to disk aren't needed
+                    csvMetadata.close();
 
-                    csvMetadata.getWorksList().forEach(work -> {
+                    mapWorks(csvMetadata, csvMetadata.getWorksList(), work -> {
                         final Promise<Void> promise = Promise.promise();
 
-                        futures.add(promise.future());
                         updateWork(promise, csvParser.getCsvHeaders(), work, iiifVersion);
-                    });
-
-                    CompositeFuture.all(futures).onComplete(handler -> {
+                        return promise.future();
+                    }).onComplete(handler -> {
                         if (handler.succeeded()) {
                             message.reply(Op.SUCCESS);
                         } else {
@@ -183,6 +232,7 @@ public class ManifestVerticle extends AbstractFesterVerticle {
                     final String verticleName = getClass().getSimpleName();
                     final String errorMessage = StringUtils.format(MessageCodes.MFS_139, verticleName, jsonMsg, action);
 
+                    csvMetadata.close();
                     message.fail(HTTP.INTERNAL_SERVER_ERROR, errorMessage);
                 }
             } catch (final IOException details) {
@@ -216,29 +266,21 @@ public class ManifestVerticle extends AbstractFesterVerticle {
             if (handler.succeeded()) {
                 final LockedIiifResource lockedManifest = handler.result();
                 final DeliveryOptions options = new DeliveryOptions();
-                final ObjectMapper mapper = new ObjectMapper();
-                final JsonObject message = new JsonObject();
+                final CsvWork work = new CsvWork(aCsvHeaders, aWork, null);
 
-                try {
-                    options.addHeader(Constants.ACTION, ManifestVerticle.UPDATE_WORK);
-                    message.put(Constants.UPDATED_CONTENT, new JsonArray(mapper.writeValueAsString(aWork)));
-                    message.put(Constants.CSV_HEADERS, aCsvHeaders.toJSON());
-                    message.put(Constants.MANIFEST_CONTENT, lockedManifest.toJSON());
-                    message.put(Constants.MANIFEST_ID, id);
-
-                    sendMessage(getManifestVerticleName(aApiVersion), message, options, workUpdate -> {
-                        if (workUpdate.succeeded()) {
-                            aPromise.complete();
-                        } else {
-                            aPromise.fail(workUpdate.cause());
-                        }
+                options.addHeader(Constants.ACTION, ManifestVerticle.UPDATE_WORK);
+                work.getProperties().put(Constants.MANIFEST_CONTENT, lockedManifest.toJSON());
+                work.getProperties().put(Constants.MANIFEST_ID, id);
+
+                sendMessage(getManifestVerticleName(aApiVersion), work, options, myWriteTimeout, workUpdate -> {
+                    if (workUpdate.succeeded()) {
+                        aPromise.complete();
+                    } else {
+                        aPromise.fail(workUpdate.cause());
+                    }
 
-                        lockedManifest.release();
-                    });
-                } catch (final JsonProcessingException details) {
                     lockedManifest.release();
-                    aPromise.fail(details.getCause());
-                }
+                });
             } else {
                 aPromise.fail(handler.cause());
             }
@@ -279,11 +321,11 @@ public class ManifestVerticle extends AbstractFesterVerticle {
 
             LOGGER.debug(MessageCodes.MFS_122, collectionID);
 
-            sendMessage(getManifestVerticleName(aApiVersion), message, options, collectionCreation -> {
-                if (collectionCreation.succeeded()) {
+            sendMessage(getManifestVerticleName(aApiVersion), message, options, myWriteTimeout, creation -> {
+                if (creation.succeeded()) {
                     aPromise.complete();
                 } else {
-                    aPromise.fail(collectionCreation.cause());
+                    aPromise.fail(creation.cause());
                 }
             });
         } catch (final JsonProcessingException details) {
@@ -300,48 +342,47 @@ public class ManifestVerticle extends AbstractFesterVerticle {
      * @param aPagesList A list of pages
      * @param aImageHost An image host
      * @param aApiVersion The version of the IIIF Presentation API being requested
+     * @param aPrefetch A prefetch of the pages' image widths and heights
      */
     private void updatePages(final Promise<Void> aPromise, final String aWorkID, final CsvHeaders aCsvHeaders,
-            final List<String[]> aPagesList, final String aImageHost, final String aApiVersion) {
-        final Promise<LockedIiifResource> promise = Promise.promise();
-
-        promise.future().onComplete(handler -> {
+            final List<String[]> aPagesList, final String aImageHost, final String aApiVersion,
+            final Future<Void> aPrefetch) {
+        // The manifest isn't locked until its image widths and heights have been prefetched, so the lock is only held
+        // for as long as the update itself takes
+        aPrefetch.compose(prefetched -> {
+            final Promise<LockedIiifResource> promise = Promise.promise();
+
+            getLockedIiifResource(aWorkID, false, promise);
+            return promise.future();
+        }).onComplete(handler -> {
             if (handler.succeeded()) {
                 final LockedIiifResource lockedManifest = handler.result();
                 final DeliveryOptions options = new DeliveryOptions();
-                final ObjectMapper mapper = new ObjectMapper();
-                final JsonObject message = new JsonObject();
 
-                options.addHeader(Constants.ACTION, ManifestVerticle.UPDATE_PAGES);
-                message.put(Constants.MANIFEST_ID, aWorkID);
-                message.put(Constants.PLACEHOLDER_IMAGE, myPlaceholderImage);
-                message.put(Constants.MANIFEST_CONTENT, lockedManifest.toJSON());
-                message.put(Constants.CSV_HEADERS, aCsvHeaders.toJSON());
-                message.put(Constants.IIIF_HOST, aImageHost);
-
-                try {
-                    message.put(Constants.MANIFEST_PAGES, new JsonArray(mapper.writeValueAsString(aPagesList)));
+                // The manifest verticle sorts the pages it's sent, so it gets its own list of them
+                final CsvWork work = new CsvWork(aCsvHeaders, null, new ArrayList<>(aPagesList));
 
-                    // Override default timeout because we look up image dimensions as a part of this process
-                    sendMessage(getManifestVerticleName(aApiVersion), message, options, TIMEOUT, update -> {
-                        if (update.succeeded()) {
-                            aPromise.complete();
-                        } else {
-                            aPromise.fail(update.cause());
-                        }
+                options.addHeader(Constants.ACTION, ManifestVerticle.UPDATE_PAGES);
+                work.getProperties().put(Constants.MANIFEST_ID, aWorkID);
+                work.getProperties().put(Constants.PLACEHOLDER_IMAGE, myPlaceholderImage);
+                work.getProperties().put(Constants.MANIFEST_CONTENT, lockedManifest.toJSON());
+                work.getProperties().put(Constants.IIIF_HOST, aImageHost);
+
+                // Override default timeout because we look up image dimensions as a part of this process
+                sendMessage(getManifestVerticleName(aApiVersion), work, options, getSendTimeout(aPagesList.size()),
+                        update -> {
+                    if (update.succeeded()) {
+                        aPromise.complete();
+                    } else {
+                        aPromise.fail(update.cause());
+                    }
 
-                        lockedManifest.release();
-                    });
-                } catch (final JsonProcessingException details) {
                     lockedManifest.release();
-                    aPromise.fail(details);
-                }
+                });
             } else {
                 aPromise.fail(handler.cause());
             }
         });
-
-        getLockedIiifResource(aWorkID, false, promise);
     }
 
     /**
@@ -351,10 +392,11 @@ public class ManifestVerticle extends AbstractFesterVerticle {
      * @param aCsvMetadata Metadata from the supplied CSV file
      * @param aImageHost An image host
      * @param aApiVersion The version of the IIIF Presentation API being requested
+     * @param aPrefetch A prefetch of the works' image widths and heights
      * @param aMessage A message
      */
     private void updateWorks(final CsvHeaders aCsvHeaders, final CsvMetadata aCsvMetadata, final String aImageHost,
-            final String aApiVersion, final Message<JsonObject> aMessage) {
+            final String aApiVersion, final Future<Void> aPrefetch, final Message<JsonObject> aMessage) {
         final Promise<LockedIiifResource> promise = Promise.promise();
         final String collectionID = aCsvMetadata.getFirstCollectionID(aCsvHeaders.getParentArkIndex()).get();
 
@@ -373,19 +415,24 @@ public class ManifestVerticle extends AbstractFesterVerticle {
                     message.put(Constants.COLLECTION_NAME, collectionID);
                     message.put(Constants.MANIFEST_CONTENT, new JsonObject(mapper.writeValueAsString(worksMap)));
 
-                    sendMessage(getManifestVerticleName(aApiVersion), message, options, update -> {
+                    sendMessage(getManifestVerticleName(aApiVersion), message, options, myWriteTimeout, update -> {
                         lockedCollection.release();
 
                         if (update.succeeded()) {
-                            createWorks(aCsvHeaders, aCsvMetadata, aImageHost, aApiVersion, aMessage);
+                            aPrefetch.onComplete(prefetched -> {
+                                createWorks(aCsvHeaders, aCsvMetadata, aImageHost, aApiVersion, aMessage);
+                            });
                         } else {
+                            aCsvMetadata.close();
                             error(aMessage, update.cause(), MessageCodes.MFS_150, update.cause().getMessage());
                         }
                     });
                 } catch (final JsonProcessingException details) {
+                    aCsvMetadata.close();
                     aMessage.fail(HTTP.INTERNAL_SERVER_ERROR, details.getMessage());
                 }
             } else {
+                aCsvMetadata.close();
                 aMessage.fail(HTTP.INTERNAL_SERVER_ERROR, handler.cause().getMessage());
             }
         });
@@ -394,7 +441,26 @@ public class ManifestVerticle extends AbstractFesterVerticle {
     }
 
     /**
-     * Creates manifest records for the supplied works.
+     * Gets how long to wait for a manifest verticle to build a work that looks up its images' widths and heights.
+     * The work's pages are looked up a few at a time, so the wait allows for each round of lookups to take twice as
+     * long as a lookup is currently allowed, on top of the time the work's S3 write can take. The works' images have
+     * already been prefetched by the time they're built, so most lookups are answered from the image info cache.
+     *
+     * @param aPageCount The number of pages in the work
+     * @return A send timeout in milliseconds
+     */
+    private long getSendTimeout(final int aPageCount) {
+        // The work looks up its pages in rounds, with its last round possibly only partly full; an image-only work
+        // looks up its own image
+        final long rounds = Math.max(1, ((long) aPageCount + myLookupConcurrency - 1) / myLookupConcurrency);
+
+        return myWriteTimeout + rounds * 2 * myImageInfoLookup.getTimeout();
+    }
+
+    /**
+     * Creates manifest records for the supplied works. Each work is only sent its own pages, so the cost of sending
+     * the works grows with the size of the CSV rather than with the number of works times the number of pages. The
+     * CSV metadata is closed once all the works have been built.
      *
      * @param aCsvHeaders Headers from the CSV file
      * @param aCsvMetadata Metadata from the supplied CSV file
@@ -404,43 +470,37 @@ public class ManifestVerticle extends AbstractFesterVerticle {
      */
     private void createWorks(final CsvHeaders aCsvHeaders, final CsvMetadata aCsvMetadata, final String aImageHost,
             final String aApiVersion, final Message<JsonObject> aMessage) {
-        final Map<String, List<String[]>> aPagesMap = aCsvMetadata.getPagesMap();
         final List<String[]> aWorksDataList = aCsvMetadata.getWorksList();
         final DeliveryOptions options = new DeliveryOptions();
-        final ObjectMapper mapper = new ObjectMapper();
-        @SuppressWarnings("rawtypes")
-        final List<Future> futures = new ArrayList<>();
 
         options.addHeader(Constants.ACTION, ManifestVerticle.CREATE_WORK);
 
         // Cycle through the works creating a manifest for each
-        aWorksDataList.forEach(worksData -> {
+        mapWorks(aCsvMetadata, aWorksDataList, worksData -> {
+            final List<String[]> pages = aCsvMetadata.getPages(worksData[aCsvHeaders.getItemArkIndex()]);
             final Promise<Void> promise = Promise.promise();
-            final JsonObject message = new JsonObject();
 
-            futures.add(promise.future());
+            // This is the call that looks up the work's image dimensions, so how long it can take depends on its pages
+            final long timeout = getSendTimeout(pages == null ? 0 : pages.size());
 
-            try {
-                message.put(Constants.CSV_HEADERS, aCsvHeaders.toJSON());
-                message.put(Constants.MANIFEST_PAGES, new JsonObject(mapper.writeValueAsString(aPagesMap)));
-                message.put(Constants.MANIFEST_CONTENT, new JsonArray(mapper.writeValueAsString(worksData)));
-                message.put(Constants.IIIF_HOST, aImageHost);
-
-                // This is the call that looks up all the image dimensions; we need to bump default timeout
-                sendMessage(getManifestVerticleName(aApiVersion), message, options, TIMEOUT, workCreation -> {
-                    if (workCreation.succeeded()) {
-                        promise.complete();
-                    } else {
-                        promise.fail(workCreation.cause());
-                    }
-                });
-            } catch (final JsonProcessingException details) {
-                promise.fail(details);
-            }
-        });
+            // A work without pages of its own may be an image itself; its pages get sorted by the manifest verticle
+            final CsvWork work = new CsvWork(aCsvHeaders, worksData, pages == null ? null : new ArrayList<>(pages));
+
+            work.getProperties().put(Constants.IIIF_HOST, aImageHost);
+
+            sendMessage(getManifestVerticleName(aApiVersion), work, options, timeout, workCreation -> {
+                if (workCreation.succeeded()) {
+                    promise.complete();
+                } else {
+                    promise.fail(workCreation.cause());
+                }
+            });
+
+            return promise.future();
+        }).onComplete(handler -> {
+            // Keep track of our progress and fail our promise if we don't succeed
+            aCsvMetadata.close();
 
-        // Keep track of our progress and fail our promise if we don't succeed
-        CompositeFuture.all(futures).onComplete(handler -> {
             if (handler.succeeded()) {
                 aMessage.reply(LOGGER.getMessage(MessageCodes.MFS_126));
             } else {
@@ -449,6 +509,66 @@ public class ManifestVerticle extends AbstractFesterVerticle {
         });
     }
 
+    /**
+     * Maps each of a CSV's works to a future that completes once the work has been handled. No more works are handled
+     * at once than the S3 write scheduler can take without turning writes away, and if the CSV's pages have been
+     * spilled to disk, only a few are handled at a time so that no more than a few works' pages are read back into
+     * the heap at once.
+     *
+     * @param <T> The type of the works
+     * @param aCsvMetadata Metadata from the CSV file
+     * @param aWorks The CSV's works
+     * @param aMapper A function that starts handling a work
+     * @return A future that completes once all the works have been handled
+     */
+    private <T> Future<Void> mapWorks(final CsvMetadata aCsvMetadata, final List<T> aWorks,
+            final Function<T, Future<Void>> aMapper) {
+        final int concurrency;
+
+        if (aCsvMetadata.hasSpilledPages()) {
+            LOGGER.debug(MessageCodes.MFS_237, mySpilledWorkConcurrency);
+            concurrency = Math.min(mySpilledWorkConcurrency, myWorkConcurrency);
+        } else {
+            concurrency = myWorkConcurrency;
+        }
+
+        return FutureUtils.mapInOrder(aWorks, concurrency, work -> {
+            try {
+                return aMapper.apply(work);
+            } catch (final UncheckedIOException details) {
+                // The work's pages couldn't be read back from disk
+                return Future.failedFuture(details.getCause());
+            }
+        }).mapEmpty();
+    }
+
+    /**
+     * Starts looking up the image widths and heights of the pages that don't have them in the CSV data, so they're in
+     * the image info cache by the time the works that use them are built. Pages with static images have their images'
+     * headers read instead. The lookups overlap with the creation and
+     * locking of the CSV's collection and works. Lookups that fail are left for the manifest verticles to retry and
+     * report, so the returned future doesn't fail.
+     *
+     * @param aImages The images that were picked out of the CSV's pages as they were parsed
+     * @return A future that completes once all the lookups have finished
+     */
+    private Future<Void> prefetchImageInfo(final ImageCollector aImages) {
+        final Set<String> imageURLs = aImages.myImageURLs;
+
+        if (imageURLs.isEmpty()) {
+            return Future.succeededFuture();
+        }
+
+        LOGGER.debug(MessageCodes.MFS_218, imageURLs.size(), myPrefetchConcurrency);
+
+        return FutureUtils.mapInOrder(new ArrayList<>(imageURLs), myPrefetchConcurrency, imageURL -> {
+            final Future<ImageInfo> imageInfo = aImages.myStaticImageURLs.contains(imageURL)
+                    ? myImageInfoLookup.probe(imageURL) : myImageInfoLookup.lookup(imageURL);
+
+            return imageInfo.<Void>mapEmpty().otherwise((Void) null);
+        }).mapEmpty();
+    }
+
     /**
      * Tries to lock an S3 manifest or collection so we can update it.
      *
@@ -517,4 +637,60 @@ public class ManifestVerticle extends AbstractFesterVerticle {
             return V2ManifestVerticle.class.getName();
         }
     }
+
+    /**
+     * A consumer that picks the images to prefetch out of a CSV's pages as they're parsed, so the pages that get
+     * spilled to disk don't have to be read back just to find them. Only the image URLs are kept.
+     */
+    private class ImageCollector implements CsvConsumer {
+
+        private final Set<String> myImageURLs = new LinkedHashSet<>();
+
+        private final Set<String> myStaticImageURLs = new HashSet<>();
+
+        private final CsvParser myParser;
+
+        private final String myHost;
+
+        /**
+         * Creates a consumer that picks out the images to prefetch.
+         *
+         * @param aParser The parser whose CSV's images are picked out
+         * @param aImageHost The URL of the IIIF image server, or null if there's nothing to prefetch
+         */
+        ImageCollector(final CsvParser aParser, final String aImageHost) {
+            myParser = aParser;
+            myHost = myPrefetchConcurrency > 0 ? aImageHost : null;
+        }
+
+        @Override
+        public void acceptPages(final String aWorkID, final List<String[]> aPages) {
+            final CsvHeaders csvHeaders = myParser.getCsvHeaders();
+
+            if (myHost == null || !csvHeaders.hasItemArkIndex()) {
+                return;
+            }
+
+            for (final String[] columns : aPages) {
+                final Optional<String> width = CsvParser.getMetadata(columns, csvHeaders.getMediaWidthIndex());
+                final Optional<String> height = CsvParser.getMetadata(columns, csvHeaders.getMediaHeightIndex());
+                final Optional<String> format = CsvParser.getMetadata(columns, csvHeaders.getMediaFormatIndex());
+                final String accessURI =
+                        CsvParser.getMetadata(columns, csvHeaders.getContentAccessUrlIndex()).orElse(null);
+                final String encodedPageID =
+                        URLEncoder.encode(columns[csvHeaders.getItemArkIndex()], StandardCharsets.UTF_8);
+
+                // Audio and video pages don't have images to look up
+                if ((width.isEmpty() || height.isEmpty()) &&
+                        format.filter(type -> type.contains("audio/") || type.contains("video/")).isEmpty()) {
+                    if (isStaticFile(accessURI)) {
+                        myImageURLs.add(accessURI);
+                        myStaticImageURLs.add(accessURI);
+                    } else {
+                        myImageURLs.add(StringUtils.format(SIMPLE_URI, myHost, encodedPageID));
+                    }
+                }
+            }
+        }
+    }
 }
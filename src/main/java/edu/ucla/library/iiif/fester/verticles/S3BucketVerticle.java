@@ -1,34 +1,52 @@
 
 package edu.ucla.library.iiif.fester.verticles;
 
+import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.regex.Pattern;
 
-import com.amazonaws.regions.RegionUtils;
-
 import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
 import info.freelibrary.util.StringUtils;
 
-import info.freelibrary.vertx.s3.S3Client;
-
 import edu.ucla.library.iiif.fester.Config;
 import edu.ucla.library.iiif.fester.Constants;
 import edu.ucla.library.iiif.fester.HTTP;
+import edu.ucla.library.iiif.fester.ManifestCache;
 import edu.ucla.library.iiif.fester.MessageCodes;
+import edu.ucla.library.iiif.fester.NotFoundCache;
 import edu.ucla.library.iiif.fester.Op;
+import edu.ucla.library.iiif.fester.RequestCoalescer;
+import edu.ucla.library.iiif.fester.RetryTracker;
+import edu.ucla.library.iiif.fester.S3WriteScheduler;
+import edu.ucla.library.iiif.fester.S3WriteScheduler.RetryException;
+import edu.ucla.library.iiif.fester.Status;
+import edu.ucla.library.iiif.fester.codecs.SharedJsonObjectCodec;
+import edu.ucla.library.iiif.fester.storage.Storage;
+import edu.ucla.library.iiif.fester.storage.StorageException;
+import edu.ucla.library.iiif.fester.storage.StorageFactory;
+import edu.ucla.library.iiif.fester.storage.StoredObject;
 import edu.ucla.library.iiif.fester.utils.CodeUtils;
+import edu.ucla.library.iiif.fester.utils.CompressionUtils;
 import edu.ucla.library.iiif.fester.utils.IDUtils;
+import edu.ucla.library.iiif.fester.utils.ValidatorUtils;
 
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
 import io.vertx.core.Promise;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
 import io.vertx.core.http.ConnectionPoolTooBusyException;
 import io.vertx.core.json.JsonObject;
-import io.vertx.core.shareddata.Counter;
 
 /**
  * Stores submitted manifests to an S3 bucket.
@@ -37,14 +55,45 @@ public class S3BucketVerticle extends AbstractFesterVerticle {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(S3BucketVerticle.class, Constants.MESSAGES);
 
-    private static final long MAX_RETRIES = 10;
+    private static final long DEFAULT_CACHE_SIZE = 256; // In megabytes
+
+    private static final long DEFAULT_CACHE_TTL = 3600; // In seconds
+
+    private static final long MB = 1024 * 1024;
+
+    private static final String NO_COMPRESSION = "none";
+
+    private static final int DEFAULT_NOT_FOUND_CACHE_SIZE = 10000; // In entries
 
-    private S3Client myS3Client;
+    private static final long DEFAULT_NOT_FOUND_CACHE_TTL = 30; // In seconds
+
+    private static final String DEFAULT_RETRY_STATUS_CODES = "408,429,500,502,503,504";
+
+    private static final int DEFAULT_RETRY_ENTRIES = 10000;
+
+    private static final long DEFAULT_RETRY_TTL = 3600; // In seconds
+
+    private Storage myStorage;
 
     private String myS3Bucket;
 
+    private ManifestCache myCache;
+
+    private NotFoundCache myNotFoundCache;
+
+    private S3WriteScheduler myWriteScheduler;
+
+    private RetryTracker myRetryTracker;
+
+    private final RequestCoalescer<String, FetchedManifest> myGets = new RequestCoalescer<>();
+
+    /* Counts the starts and ends of writes, so a streamed miss that's raced a write isn't remembered */
+    private long myWriteCount;
+
     private String myUrl;
 
+    private boolean isCompressing;
+
     private final String myUrlPlaceholderPattern = Pattern.quote(Constants.URL_PLACEHOLDER);
 
     /**
@@ -56,31 +105,44 @@ public class S3BucketVerticle extends AbstractFesterVerticle {
 
         final JsonObject config = config();
 
-        // Initialize the S3BucketVerticle by getting our s3 configs and setting up the S3 client
-        if (myS3Client == null) {
-            final String s3AccessKey = config.getString(Config.S3_ACCESS_KEY);
-            final String s3SecretKey = config.getString(Config.S3_SECRET_KEY);
-            final String s3RegionName = config.getString(Config.S3_REGION, "us-east-1");
-            final String endpoint = config.getString(Config.S3_ENDPOINT);
+        // Initialize the S3BucketVerticle by setting up the storage backend it reads from and writes to
+        if (myStorage == null) {
+            myStorage = StorageFactory.getStorage(getVertx(), config);
+            myS3Bucket = config.getString(Config.S3_BUCKET);
+        }
 
-            // Check to see that we're not overriding the default S3 endpoint
-            if (endpoint == null || Constants.S3_ENDPOINT.equals(endpoint)) {
-                final String regionEndpoint = RegionUtils.getRegion(s3RegionName).getServiceEndpoint("s3");
+        isCompressing = CompressionUtils.GZIP.equalsIgnoreCase(config.getString(Config.S3_COMPRESSION, NO_COMPRESSION));
+        LOGGER.debug(MessageCodes.MFS_195, isCompressing ? CompressionUtils.GZIP : NO_COMPRESSION);
 
-                LOGGER.debug(MessageCodes.MFS_034, regionEndpoint, "default");
-                myS3Client = new S3Client(getVertx(), s3AccessKey, s3SecretKey, "https://" + regionEndpoint);
-            } else {
-                LOGGER.debug(MessageCodes.MFS_034, endpoint, "supplied");
-                myS3Client = new S3Client(getVertx(), s3AccessKey, s3SecretKey, endpoint);
-            }
+        if (myCache == null) {
+            final long cacheSize = config.getLong(Config.S3_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+            final long cacheTTL = config.getLong(Config.S3_CACHE_TTL, DEFAULT_CACHE_TTL);
 
-            myS3Client.useV2Signature(true);
-            myS3Bucket = config.getString(Config.S3_BUCKET);
+            myCache = new ManifestCache(cacheSize * MB, cacheTTL * 1000);
+            LOGGER.debug(MessageCodes.MFS_192, cacheSize, cacheTTL);
+        }
 
-            // Trace is only for developer use; don't turn on when running on a server
-            LOGGER.trace(MessageCodes.MFS_046, s3AccessKey, s3SecretKey);
-            LOGGER.debug(MessageCodes.MFS_047, s3RegionName);
-            LOGGER.debug(MessageCodes.MFS_132, myS3Bucket);
+        if (myNotFoundCache == null) {
+            final int cacheSize = config.getInteger(Config.S3_NOT_FOUND_CACHE_SIZE, DEFAULT_NOT_FOUND_CACHE_SIZE);
+            final long cacheTTL = config.getLong(Config.S3_NOT_FOUND_CACHE_TTL, DEFAULT_NOT_FOUND_CACHE_TTL);
+
+            myNotFoundCache = new NotFoundCache(cacheSize, cacheTTL * 1000);
+            LOGGER.debug(MessageCodes.MFS_208, cacheSize, cacheTTL);
+        }
+
+        if (myWriteScheduler == null) {
+            myWriteScheduler = S3WriteScheduler.fromConfig(getVertx(), config);
+        }
+
+        if (myRetryTracker == null) {
+            final int maxAttempts = config.getInteger(Config.S3_RETRY_MAX_ATTEMPTS, RetryTracker.DEFAULT_MAX_ATTEMPTS);
+            final Set<Integer> statusCodes = getStatusCodes(
+                    config.getValue(Config.S3_RETRY_STATUS_CODES, DEFAULT_RETRY_STATUS_CODES).toString());
+            final int maxEntries = config.getInteger(Config.S3_RETRY_ENTRIES, DEFAULT_RETRY_ENTRIES);
+            final long ttl = config.getLong(Config.S3_RETRY_TTL, DEFAULT_RETRY_TTL);
+
+            myRetryTracker = new RetryTracker(maxAttempts, statusCodes, maxEntries, ttl * 1000);
+            LOGGER.debug(MessageCodes.MFS_199, maxAttempts, statusCodes);
         }
 
         getJsonConsumer().handler(message -> {
@@ -110,6 +172,23 @@ public class S3BucketVerticle extends AbstractFesterVerticle {
                     manifest = messageBody.getJsonObject(Constants.DATA);
                     put(IDUtils.getCollectionS3Key(manifestID), manifest, message);
                     break;
+                case Op.INVALIDATE_MANIFEST:
+                    manifestID = messageBody.getString(Constants.MANIFEST_ID);
+                    myCache.invalidate(IDUtils.getWorkS3Key(manifestID));
+                    myGets.forget(IDUtils.getWorkS3Key(manifestID));
+                    myWriteCount += 1;
+                    message.reply(Op.SUCCESS);
+                    break;
+                case Op.RECORD_NOT_FOUND:
+                    recordNotFound(getS3Key(messageBody), message);
+                    break;
+                case Op.GET_STATUS:
+                    message.reply(new JsonObject().put(Status.CACHE, myCache.getStats())
+                            .put(Status.NOT_FOUND_CACHE, myNotFoundCache.getStats())
+                            .put(Status.READS, myGets.getStats()).put(Status.WRITES, myWriteScheduler.getStats())
+                            .put(Status.RETRIES, myRetryTracker.getStats())
+                            .put(Status.STORAGE, myStorage.getStats()));
+                    break;
                 default:
                     message.fail(CodeUtils.getInt(MessageCodes.MFS_139), StringUtils.format(MessageCodes.MFS_139,
                             getClass().toString(), message.toString(), action));
@@ -120,48 +199,279 @@ public class S3BucketVerticle extends AbstractFesterVerticle {
     }
 
     /**
-     * Gets a manifest from our S3 bucket.
+     * Gets a manifest from our cache or S3 bucket. If the requester supplied conditional headers and its copy of the
+     * manifest is still current, the manifest isn't returned.
      *
      * @param aS3Key The S3 key to use for the manifest
      * @param aMessage A event queue message
      */
-    @SuppressWarnings("checkstyle:indentation")
     private void get(final String aS3Key, final Message<JsonObject> aMessage) {
-        myS3Client.get(myS3Bucket, aS3Key, get -> {
-            final int statusCode = get.statusCode();
-            final String statusMessage = get.statusMessage();
-
-            // This lets us know at what time we received a response, in addition to the code
-            LOGGER.debug(MessageCodes.MFS_096, aS3Key, statusCode);
-
-            if (statusCode == HTTP.OK) {
-                get.bodyHandler(body -> {
-                    final String serializedJson = body.toString(StandardCharsets.UTF_8);
-                    final String manifest;
-
-                    if (aMessage.headers().get(Constants.NO_REWRITE_URLS) != null) {
-                        manifest = serializedJson;
-                    } else {
-                        manifest = serializedJson.replaceAll(myUrlPlaceholderPattern, myUrl);
+        final Optional<ManifestCache.Entry> cachedEntry = myCache.get(aS3Key);
+
+        // Serve hot manifests and collection docs from memory if we can
+        if (cachedEntry.isPresent()) {
+            final ManifestCache.Entry entry = cachedEntry.get();
+
+            LOGGER.debug(MessageCodes.MFS_193, aS3Key);
+
+            if (isNotModified(entry.getETag(), entry.getLastModified(), aMessage)) {
+                replyNotModified(entry.getETag(), entry.getLastModified(), aMessage);
+            } else {
+                reply(entry.getJSON(), entry.getETag(), entry.getLastModified(), aMessage);
+            }
+        } else if (myNotFoundCache.isNotFound(aS3Key)) {
+            // Don't keep asking S3 for things we've just learned aren't there
+            LOGGER.debug(MessageCodes.MFS_209, aS3Key);
+            aMessage.fail(HTTP.NOT_FOUND, LOGGER.getMessage(MessageCodes.MFS_201, aS3Key));
+        } else if (aMessage.headers().contains(Constants.CACHED_ONLY)) {
+            // The requester streams it from S3 itself, and tells us if it turns out not to be there
+            aMessage.reply(new JsonObject(),
+                    new DeliveryOptions().addHeader(Constants.NOT_CACHED, Long.toString(myWriteCount)));
+        } else if (aMessage.headers().contains(Constants.IF_NONE_MATCH) ||
+                aMessage.headers().contains(Constants.IF_MODIFIED_SINCE)) {
+            checkValidators(aS3Key, aMessage);
+        } else {
+            getObject(aS3Key, aMessage);
+        }
+    }
+
+    /**
+     * Remembers that a manifest or collection that was streamed from our S3 bucket isn't there, unless it's been
+     * written since the requester found we didn't have it in memory.
+     *
+     * @param aS3Key The S3 key of the manifest or collection
+     * @param aMessage A event queue message
+     */
+    private void recordNotFound(final String aS3Key, final Message<JsonObject> aMessage) {
+        if (Long.toString(myWriteCount).equals(aMessage.headers().get(Constants.NOT_CACHED))) {
+            myNotFoundCache.put(aS3Key);
+        }
+    }
+
+    /**
+     * Gets the S3 key of the manifest or collection that a message is about.
+     *
+     * @param aMessageBody The body of an event queue message
+     * @return The S3 key of the manifest or collection
+     */
+    private static String getS3Key(final JsonObject aMessageBody) {
+        final String manifestID = aMessageBody.getString(Constants.MANIFEST_ID);
+
+        if (manifestID != null) {
+            return IDUtils.getWorkS3Key(manifestID);
+        }
+
+        return IDUtils.getCollectionS3Key(aMessageBody.getString(Constants.COLLECTION_NAME));
+    }
+
+    /**
+     * Checks a conditional request against the validators from an S3 HEAD request, only getting the manifest's body
+     * from S3 if the requester's copy is out of date.
+     *
+     * @param aS3Key The S3 key to use for the manifest
+     * @param aMessage A event queue message
+     */
+    private void checkValidators(final String aS3Key, final Message<JsonObject> aMessage) {
+        myStorage.head(aS3Key, head -> {
+            if (head.succeeded()) {
+                final StoredObject object = head.result();
+
+                if (isNotModified(object.getETag(), object.getLastModified(), aMessage)) {
+                    replyNotModified(object.getETag(), object.getLastModified(), aMessage);
+                    return;
+                }
+            } else if (!(head.cause() instanceof StorageException)) {
+                LOGGER.warn(MessageCodes.MFS_097, aS3Key, head.cause().getMessage());
+            }
+
+            getObject(aS3Key, aMessage); // This also takes care of reporting any errors
+        });
+    }
+
+    /**
+     * Gets a manifest from our S3 bucket. Concurrent requests for the same manifest share a single S3 request.
+     *
+     * @param aS3Key The S3 key to use for the manifest
+     * @param aMessage A event queue message
+     */
+    private void getObject(final String aS3Key, final Message<JsonObject> aMessage) {
+        myGets.request(aS3Key, promise -> fetch(aS3Key, promise), get -> {
+            if (get.succeeded()) {
+                final FetchedManifest manifest = get.result();
+                final String etag = manifest.myETag;
+                final String lastModified = manifest.myLastModified;
+
+                if (isNotModified(etag, lastModified, aMessage)) {
+                    replyNotModified(etag, lastModified, aMessage);
+                } else {
+                    reply(manifest.myJSON, etag, lastModified, aMessage);
+                }
+            } else if (get.cause() instanceof StorageException) {
+                final StorageException details = (StorageException) get.cause();
+
+                if (details.getStatusCode() == HTTP.NOT_FOUND) {
+                    aMessage.fail(HTTP.NOT_FOUND, details.getMessage());
+                } else {
+                    aMessage.fail(HTTP.INTERNAL_SERVER_ERROR, details.getMessage());
+                }
+            } else {
+                aMessage.fail(HTTP.INTERNAL_SERVER_ERROR, get.cause().getMessage());
+            }
+        });
+    }
+
+    /**
+     * Fetches a manifest from our S3 bucket, decoding and caching it. This is run once for all the requests that are
+     * waiting on the same manifest, so its errors are only logged once.
+     *
+     * @param aS3Key The S3 key to use for the manifest
+     * @param aPromise A promise that's completed with the manifest
+     */
+    private void fetch(final String aS3Key, final Promise<FetchedManifest> aPromise) {
+        myStorage.get(aS3Key, get -> {
+            if (get.succeeded()) {
+                final StoredObject object = get.result();
+
+                LOGGER.debug(MessageCodes.MFS_096, aS3Key, HTTP.OK);
+
+                decode(object, decode -> {
+                    final FetchedManifest manifest;
+
+                    if (decode.failed()) {
+                        final Throwable details = decode.cause();
+
+                        LOGGER.error(details, MessageCodes.MFS_097, aS3Key, details.getMessage());
+                        aPromise.fail(details);
+                        return;
+                    }
+
+                    manifest = new FetchedManifest(decode.result(), object.getETag(), object.getLastModified());
+
+                    // Don't cache what we got if the manifest has been replaced while we were getting it
+                    if (myCache.isEnabled() && myGets.isCurrent(aS3Key, aPromise)) {
+                        myCache.put(aS3Key, manifest.myJSON, manifest.myETag, manifest.myLastModified);
                     }
 
-                    aMessage.reply(new JsonObject(manifest));
+                    aPromise.complete(manifest);
                 });
-            } else if (statusCode == HTTP.NOT_FOUND) {
-                aMessage.fail(HTTP.NOT_FOUND, statusMessage);
+            } else if (get.cause() instanceof StorageException) {
+                final StorageException details = (StorageException) get.cause();
+                final int statusCode = details.getStatusCode();
+
+                LOGGER.debug(MessageCodes.MFS_096, aS3Key, statusCode);
+
+                if (statusCode != HTTP.NOT_FOUND) {
+                    LOGGER.error(details.getMessage());
+                } else if (myGets.isCurrent(aS3Key, aPromise)) {
+                    myNotFoundCache.put(aS3Key);
+                }
+
+                aPromise.fail(details);
             } else {
-                get.bodyHandler(body -> {
-                    LOGGER.error(body.toString(StandardCharsets.UTF_8));
-                });
+                final Throwable exception = get.cause();
 
-                aMessage.fail(HTTP.INTERNAL_SERVER_ERROR, statusMessage);
+                LOGGER.error(exception, MessageCodes.MFS_097, aS3Key, exception.getMessage());
+                aPromise.fail(exception);
             }
-        }, exception -> {
-            LOGGER.error(exception, MessageCodes.MFS_097, aS3Key, exception.getMessage());
-            aMessage.fail(HTTP.INTERNAL_SERVER_ERROR, exception.getMessage());
         });
     }
 
+    /**
+     * Decodes a stored manifest into a string. A compressed manifest is inflated on a worker thread, so the event loop
+     * isn't held up while it's being inflated.
+     *
+     * @param aObject A stored manifest
+     * @param aHandler A handler for the decoded manifest
+     */
+    private void decode(final StoredObject aObject, final Handler<AsyncResult<String>> aHandler) {
+        if (!CompressionUtils.isGzipped(aObject.getContentEncoding())) {
+            aHandler.handle(Future.succeededFuture(aObject.getContent().toString(StandardCharsets.UTF_8)));
+            return;
+        }
+
+        getVertx().<String>executeBlocking(promise -> {
+            try {
+                promise.complete(CompressionUtils.gunzip(aObject.getContent()).toString(StandardCharsets.UTF_8));
+            } catch (final IOException details) {
+                promise.fail(details);
+            }
+        }, false, aHandler);
+    }
+
+    /**
+     * Replies to a message with a manifest, rewriting its placeholder URLs unless the sender has asked us not to.
+     *
+     * @param aSerializedJson A manifest or collection document, as it's stored in S3
+     * @param aETag The manifest's ETag (may be null)
+     * @param aLastModified The manifest's Last-Modified date (may be null)
+     * @param aMessage A event queue message
+     */
+    private void reply(final String aSerializedJson, final String aETag, final String aLastModified,
+            final Message<JsonObject> aMessage) {
+        final String manifest;
+
+        if (aMessage.headers().get(Constants.NO_REWRITE_URLS) != null) {
+            manifest = aSerializedJson;
+        } else {
+            manifest = aSerializedJson.replaceAll(myUrlPlaceholderPattern, myUrl);
+        }
+
+        // The manifest is parsed just for this reply, so it can be handed over without being copied
+        aMessage.reply(new JsonObject(manifest),
+                getValidatorHeaders(aETag, aLastModified).setCodecName(SharedJsonObjectCodec.NAME));
+    }
+
+    /**
+     * Replies to a message with just the manifest's validators, since the requester's copy is still current.
+     *
+     * @param aETag The manifest's ETag (may be null)
+     * @param aLastModified The manifest's Last-Modified date (may be null)
+     * @param aMessage A event queue message
+     */
+    private void replyNotModified(final String aETag, final String aLastModified,
+            final Message<JsonObject> aMessage) {
+        final DeliveryOptions options = getValidatorHeaders(aETag, aLastModified);
+
+        aMessage.reply(new JsonObject(), options.addHeader(Constants.NOT_MODIFIED, Boolean.TRUE.toString()));
+    }
+
+    /**
+     * Gets message delivery options that pass along a manifest's validators.
+     *
+     * @param aETag The manifest's ETag (may be null)
+     * @param aLastModified The manifest's Last-Modified date (may be null)
+     * @return Delivery options with the validators as headers
+     */
+    private DeliveryOptions getValidatorHeaders(final String aETag, final String aLastModified) {
+        final DeliveryOptions options = new DeliveryOptions();
+
+        if (aETag != null) {
+            options.addHeader(Constants.ETAG, aETag);
+        }
+
+        if (aLastModified != null) {
+            options.addHeader(Constants.LAST_MODIFIED, aLastModified);
+        }
+
+        return options;
+    }
+
+    /**
+     * Checks whether the requester's copy of a manifest is still current.
+     *
+     * @param aETag The manifest's ETag (may be null)
+     * @param aLastModified The manifest's Last-Modified date (may be null)
+     * @param aMessage A event queue message, possibly containing conditional request headers
+     * @return True if the requester's copy is still current; else, false
+     */
+    private boolean isNotModified(final String aETag, final String aLastModified,
+            final Message<JsonObject> aMessage) {
+        final MultiMap headers = aMessage.headers();
+
+        return ValidatorUtils.isNotModified(aETag, aLastModified, headers.get(Constants.IF_NONE_MATCH),
+                headers.get(Constants.IF_MODIFIED_SINCE));
+    }
+
     /**
      * Puts a manifest into our S3 bucket.
      *
@@ -191,142 +501,157 @@ public class S3BucketVerticle extends AbstractFesterVerticle {
             LOGGER.warn(MessageCodes.MFS_138, aS3Key, derivedManifestS3Key);
         }
 
-        try {
-            myS3Client.put(myS3Bucket, aS3Key, manifestContent, response -> {
-                final int statusCode = response.statusCode();
+        // Whatever we have cached, or are in the middle of getting, is stale now; if the upload succeeds, we'll cache
+        // the new version
+        myCache.invalidate(aS3Key);
+        myNotFoundCache.invalidate(aS3Key);
+        myGets.forget(aS3Key);
+        myWriteCount += 1;
 
-                response.exceptionHandler(exception -> {
-                    LOGGER.error(exception, exception.getMessage());
-                    sendReply(aMessage, CodeUtils.getInt(MessageCodes.MFS_052), exception.getMessage());
-                });
+        myWriteScheduler.submit(promise -> upload(aS3Key, manifestContent, promise), upload -> {
+            if (upload.succeeded()) {
+                aMessage.reply(Op.SUCCESS);
+            } else if (upload.cause() instanceof ReplyException) {
+                final ReplyException details = (ReplyException) upload.cause();
 
-                // If we get a successful upload response code, send a reply to indicate so
-                if (statusCode == HTTP.OK) {
-                    LOGGER.info(MessageCodes.MFS_053, manifestID);
+                aMessage.fail(details.failureCode(), details.getMessage());
+            } else {
+                aMessage.fail(CodeUtils.getInt(MessageCodes.MFS_052), upload.cause().getMessage());
+            }
+        });
+    }
 
-                    // Send the success result and decrement the S3 request counter
-                    sendReply(aMessage, 0, Op.SUCCESS);
+    /**
+     * Uploads a manifest to our S3 bucket. This is run by the write scheduler, which decides when it can start and
+     * retries it if the promise is failed with a {@link RetryException}.
+     *
+     * @param aS3Key The S3 key to use for the manifest
+     * @param aManifest The serialized manifest
+     * @param aPromise A promise that's completed when the upload has finished
+     */
+    private void upload(final String aS3Key, final Buffer aManifest, final Promise<Void> aPromise) {
+        // Store the manifest compressed, if we've been configured to; the backend records how it's been encoded
+        if (isCompressing) {
+            getVertx().<Buffer>executeBlocking(promise -> {
+                try {
+                    promise.complete(CompressionUtils.gzip(aManifest));
+                } catch (final IOException details) {
+                    promise.fail(details);
+                }
+            }, false, gzip -> {
+                if (gzip.succeeded()) {
+                    put(aS3Key, aManifest, gzip.result(), aPromise);
                 } else {
-                    LOGGER.error(MessageCodes.MFS_054, statusCode, response.statusMessage());
-
-                    // Log the detailed reason we failed so we can track down the issue
-                    response.bodyHandler(body -> {
-                        LOGGER.error(MessageCodes.MFS_052, body.getString(0, body.length()));
-                    });
-
-                    // If there is some internal S3 server error, let's try again
-                    if (statusCode == HTTP.INTERNAL_SERVER_ERROR) {
-                        sendReply(aMessage, 0, Op.RETRY);
-                    } else {
-                        LOGGER.warn(MessageCodes.MFS_055, statusCode + " - " + response.statusMessage());
-                        retryUpload(manifestID, aMessage);
-                    }
+                    LOGGER.error(gzip.cause(), gzip.cause().getMessage());
+                    aPromise.fail(gzip.cause());
                 }
-            }, exception -> {
-                LOGGER.warn(MessageCodes.MFS_055, exception.getMessage());
-                retryUpload(manifestID, aMessage);
             });
-        } catch (final ConnectionPoolTooBusyException details) {
-            LOGGER.debug(MessageCodes.MFS_056, manifestID);
-            sendReply(aMessage, 0, Op.RETRY);
+        } else {
+            put(aS3Key, aManifest, aManifest, aPromise);
         }
     }
 
     /**
-     * A more tentative retry attempt. We count the number of times we've retried and give up after a certain point.
+     * Puts a manifest in our S3 bucket, as it's to be stored.
      *
-     * @param aManifestID A Manifest ID to retry
-     * @param aMessage A message to respond to with the retry request (or exception if we've failed)
+     * @param aS3Key The S3 key to use for the manifest
+     * @param aManifest The serialized manifest
+     * @param aContent The manifest as it's to be stored, which may be compressed
+     * @param aPromise A promise that's completed when the upload has finished
      */
-    private void retryUpload(final String aManifestID, final Message<JsonObject> aMessage) {
-        shouldRetry(aManifestID, retryCheck -> {
-            if (retryCheck.succeeded()) {
-                if (retryCheck.result()) {
-                    sendReply(aMessage, 0, Op.RETRY);
-                } else {
-                    sendReply(aMessage, CodeUtils.getInt(MessageCodes.MFS_058), Constants.EMPTY);
-                }
-            } else {
-                final Throwable retryException = retryCheck.cause();
-                final String details = retryException.getMessage();
+    private void put(final String aS3Key, final Buffer aManifest, final Buffer aContent, final Promise<Void> aPromise) {
+        final String manifestID = IDUtils.getResourceID(aS3Key);
+
+        myStorage.put(aS3Key, aContent, isCompressing ? CompressionUtils.GZIP : null, put -> {
+            myWriteCount += 1;
+
+            if (put.succeeded()) {
+                final StoredObject object = put.result();
+
+                LOGGER.info(MessageCodes.MFS_053, manifestID);
 
-                LOGGER.error(retryException, MessageCodes.MFS_059, details);
+                // A get that started while we were uploading may have the old version (or none at all)
+                myNotFoundCache.invalidate(aS3Key);
+                myGets.forget(aS3Key);
 
-                // If we have an exception, don't retry... just log the issue
-                sendReply(aMessage, CodeUtils.getInt(MessageCodes.MFS_059), details);
+                if (myCache.isEnabled()) {
+                    myCache.put(aS3Key, aManifest.toString(StandardCharsets.UTF_8), object.getETag(),
+                            object.getLastModified());
+                }
+
+                myRetryTracker.reset(manifestID);
+                aPromise.tryComplete();
+            } else if (put.cause() instanceof ConnectionPoolTooBusyException) {
+                // A full connection pool isn't the upload's fault, so we don't count it against its retries
+                LOGGER.debug(MessageCodes.MFS_056, manifestID);
+                aPromise.tryFail(new RetryException(put.cause().getMessage()));
+            } else if (put.cause() instanceof StorageException) {
+                final StorageException details = (StorageException) put.cause();
+
+                LOGGER.error(MessageCodes.MFS_054, details.getStatusCode(), details.getMessage());
+                retryUpload(manifestID, details.getStatusCode(), details.getMessage(), aPromise);
+            } else {
+                retryUpload(manifestID, RetryTracker.NO_RESPONSE, put.cause().getMessage(), aPromise);
             }
         });
     }
 
     /**
-     * A check to see whether an failed request should be retried.
+     * Asks the write scheduler to retry a failed upload, unless the failure isn't worth retrying or the manifest has
+     * already been retried too many times.
      *
-     * @param aManifestID A Manifest ID
-     * @param aHandler A retry handler
+     * @param aManifestID The ID of the manifest whose upload failed
+     * @param aStatusCode The S3 response code, or {@link RetryTracker#NO_RESPONSE} if there wasn't a response
+     * @param aReason The reason the upload failed
+     * @param aPromise The promise of the failed upload
      */
-    private void shouldRetry(final String aManifestID, final Handler<AsyncResult<Boolean>> aHandler) {
-        final Promise<Boolean> promise = Promise.promise();
-
-        promise.future().onComplete(aHandler);
-
-        vertx.sharedData().getLocalCounter(aManifestID, getCounter -> {
-            if (getCounter.succeeded()) {
-                final Counter counter = getCounter.result();
-
-                counter.addAndGet(1L, get -> {
-                    if (get.succeeded()) {
-                        if (get.result() == MAX_RETRIES) {
-                            promise.complete(Boolean.FALSE);
-
-                            // Reset the counter in case we ever need to process this item again
-                            counter.compareAndSet(MAX_RETRIES, 0L, reset -> {
-                                if (reset.failed()) {
-                                    LOGGER.error(MessageCodes.MFS_060, aManifestID);
-                                }
-                            });
-                        } else {
-                            promise.complete(Boolean.TRUE);
-                        }
-                    } else {
-                        promise.fail(get.cause());
-                    }
-                });
-            } else {
-                promise.fail(getCounter.cause());
-            }
-        });
+    private void retryUpload(final String aManifestID, final int aStatusCode, final String aReason,
+            final Promise<Void> aPromise) {
+        if (myRetryTracker.shouldRetry(aManifestID, aStatusCode)) {
+            LOGGER.warn(MessageCodes.MFS_198, aManifestID, aReason);
+            aPromise.tryFail(new RetryException(aReason));
+        } else {
+            final String message = LOGGER.getMessage(MessageCodes.MFS_058, aManifestID);
+
+            LOGGER.error(message);
+            aPromise.tryFail(new ReplyException(ReplyFailure.RECIPIENT_FAILURE,
+                    CodeUtils.getInt(MessageCodes.MFS_058), message));
+        }
     }
 
     /**
-     * Sends a message reply in the case that the S3 upload succeeded (or failed after the counter had been
-     * incremented).
+     * Gets the status codes from a comma-delimited list.
      *
-     * @param aMessage A message requesting an S3 upload
-     * @param aDetails The result of the S3 upload
+     * @param aStatusCodes A comma-delimited list of status codes
+     * @return A set of status codes
      */
-    private void sendReply(final Message<JsonObject> aMessage, final int aCode, final String aDetails) {
-        getVertx().sharedData().getLocalCounter(Constants.S3_REQUEST_COUNT, getCounter -> {
-            if (getCounter.succeeded()) {
-                getCounter.result().decrementAndGet(decrement -> {
-                    if (decrement.failed()) {
-                        LOGGER.error(MessageCodes.MFS_062);
-                    }
-
-                    if (aCode == 0) {
-                        aMessage.reply(aDetails);
-                    } else {
-                        aMessage.fail(aCode, aDetails);
-                    }
-                });
-            } else {
-                LOGGER.error(MessageCodes.MFS_063);
+    private static Set<Integer> getStatusCodes(final String aStatusCodes) {
+        final Set<Integer> statusCodes = new TreeSet<>();
 
-                if (aCode == 0) {
-                    aMessage.reply(aDetails);
-                } else {
-                    aMessage.fail(aCode, aDetails);
-                }
+        for (final String statusCode : aStatusCodes.split(",")) {
+            if (!statusCode.isBlank()) {
+                statusCodes.add(Integer.parseInt(statusCode.trim()));
             }
-        });
+        }
+
+        return statusCodes;
+    }
+
+    /**
+     * A manifest that's been fetched from S3 and decoded, ready to be shared by the requests that were waiting on it.
+     */
+    private static final class FetchedManifest {
+
+        private final String myJSON;
+
+        private final String myETag;
+
+        private final String myLastModified;
+
+        private FetchedManifest(final String aJSON, final String aETag, final String aLastModified) {
+            myJSON = aJSON;
+            myETag = aETag;
+            myLastModified = aLastModified;
+        }
     }
 }
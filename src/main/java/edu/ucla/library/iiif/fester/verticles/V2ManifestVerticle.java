@@ -1,7 +1,6 @@
 
 package edu.ucla.library.iiif.fester.verticles;
 
-import java.io.IOException;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -13,6 +12,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -24,7 +24,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
 import info.freelibrary.util.StringUtils;
-import info.freelibrary.util.ThrowingConsumer;
 
 import info.freelibrary.iiif.presentation.v2.Canvas;
 import info.freelibrary.iiif.presentation.v2.Collection;
@@ -40,19 +39,24 @@ import info.freelibrary.iiif.presentation.v2.properties.ViewingHint;
 import info.freelibrary.iiif.presentation.v2.services.APIComplianceLevel;
 import info.freelibrary.iiif.presentation.v2.services.ImageInfoService;
 
+import edu.ucla.library.iiif.fester.Config;
 import edu.ucla.library.iiif.fester.Constants;
 import edu.ucla.library.iiif.fester.CsvHeaders;
 import edu.ucla.library.iiif.fester.CsvParser;
+import edu.ucla.library.iiif.fester.CsvWork;
 import edu.ucla.library.iiif.fester.HTTP;
+import edu.ucla.library.iiif.fester.ImageInfo;
 import edu.ucla.library.iiif.fester.ImageInfoLookup;
-import edu.ucla.library.iiif.fester.ImageNotFoundException;
 import edu.ucla.library.iiif.fester.MessageCodes;
 import edu.ucla.library.iiif.fester.MetadataLabels;
 import edu.ucla.library.iiif.fester.Op;
+import edu.ucla.library.iiif.fester.PlaceholderImage;
+import edu.ucla.library.iiif.fester.utils.FutureUtils;
 import edu.ucla.library.iiif.fester.utils.IDUtils;
 import edu.ucla.library.iiif.fester.utils.ItemSequenceComparator;
 import edu.ucla.library.iiif.fester.utils.V2ManifestLabelComparator;
 
+import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
@@ -77,12 +81,34 @@ public class V2ManifestVerticle extends AbstractFesterVerticle {
 
     private static final String SIMPLE_URI = "{}/{}";
 
+    private static final int DEFAULT_LOOKUP_CONCURRENCY = 8;
+
+    private ImageInfoLookup myImageInfoLookup;
+
+    private int myLookupConcurrency;
+
+    /* The placeholder images' resources, which are shared by all the canvases they're painted on */
+    private final Map<String, ImageResource> myPlaceholderResources = new HashMap<>();
+
     /**
      * Starts a verticle to update pages on a manifest.
      */
     @Override
     public void start(final Promise<Void> aPromise) {
-        getJsonConsumer().handler(message -> {
+        final String placeholderImage = StringUtils.trimToNull(config().getString(Config.PLACEHOLDER_IMAGE));
+
+        if (myImageInfoLookup == null) {
+            myImageInfoLookup = new ImageInfoLookup(vertx, config());
+        }
+
+        myLookupConcurrency = config().getInteger(Config.IIIF_LOOKUP_WORK_CONCURRENCY, DEFAULT_LOOKUP_CONCURRENCY);
+
+        // Start looking up the placeholder image now, so missing pages don't have to wait for it
+        if (placeholderImage != null) {
+            PlaceholderImage.getPlaceholderImage(vertx, config(), placeholderImage);
+        }
+
+        getConsumer().handler(message -> {
             final String action = message.headers().get(Constants.ACTION);
 
             try {
@@ -90,27 +116,24 @@ public class V2ManifestVerticle extends AbstractFesterVerticle {
                 // This seems like something we could turn into a Vert.x service in the future
                 switch (action) {
                     case ManifestVerticle.UPDATE_PAGES:
-                        updatePages(message);
+                        updatePages(typed(message));
                         break;
                     case ManifestVerticle.UPDATE_COLLECTION:
-                        updateCollection(message);
+                        updateCollection(typed(message));
                         break;
                     case ManifestVerticle.CREATE_COLLECTION:
-                        createCollection(message);
+                        createCollection(typed(message));
                         break;
                     case ManifestVerticle.UPDATE_WORK:
-                        updateWork(message);
+                        updateWork(typed(message));
                         break;
                     case ManifestVerticle.CREATE_WORK:
-                        createWork(message);
+                        createWork(typed(message));
                         break;
                     default:
                         message.fail(HTTP.INTERNAL_SERVER_ERROR, LOGGER.getMessage(MessageCodes.MFS_153, action));
                         break;
                 }
-            } catch (final ImageNotFoundException details) {
-                LOGGER.error(details, details.getMessage());
-                message.fail(HTTP.BAD_REQUEST, details.getMessage());
             } catch (final JsonProcessingException | DecodeException details) {
                 LOGGER.error(details, details.getMessage());
                 message.fail(HTTP.INTERNAL_SERVER_ERROR, details.getMessage());
@@ -180,7 +203,7 @@ public class V2ManifestVerticle extends AbstractFesterVerticle {
         message.put(Constants.COLLECTION_NAME, collectionName);
         message.put(Constants.DATA, collection.toJSON());
 
-        sendMessage(S3BucketVerticle.class.getName(), message, options, send -> {
+        sendWrite(message, options, send -> {
             if (send.succeeded()) {
                 aMessage.reply(new JsonObject());
             } else {
@@ -193,18 +216,13 @@ public class V2ManifestVerticle extends AbstractFesterVerticle {
      * Creates a single work from the data that sent as a message.
      *
      * @param aMessage Information needed to create a work manifest
-     * @throws JsonProcessingException If there is trouble deserializing shared information
-     * @throws ImageNotFoundException If an image URL from the CSV data is bad or an empty URL
      */
-    private void createWork(final Message<JsonObject> aMessage) throws JsonProcessingException, ImageNotFoundException {
-        final JsonObject body = aMessage.body();
-        final ObjectMapper mapper = new ObjectMapper();
-        final CsvHeaders csvHeaders = CsvHeaders.fromJSON(body.getJsonObject(Constants.CSV_HEADERS));
-        final JsonArray workArray = body.getJsonArray(Constants.MANIFEST_CONTENT);
-        final String[] workRow = mapper.readValue(workArray.encode(), new TypeReference<String[]>() {});
-        final JsonObject pagesJSON = body.getJsonObject(Constants.MANIFEST_PAGES);
-        final TypeReference<Map<String, List<String[]>>> type = new TypeReference<>() {};
-        final Map<String, List<String[]>> pagesMap = mapper.readValue(pagesJSON.encode(), type);
+    private void createWork(final Message<CsvWork> aMessage) {
+        final CsvWork work = aMessage.body();
+        final JsonObject body = work.getProperties();
+        final CsvHeaders csvHeaders = work.getHeaders();
+        final String[] workRow = work.getWork();
+        final List<String[]> pages = work.getPages();
         final String placeholderImage = body.getString(Constants.PLACEHOLDER_IMAGE);
         final String imageHost = body.getString(Constants.IIIF_HOST);
         final String workID = workRow[csvHeaders.getItemArkIndex()];
@@ -216,7 +234,7 @@ public class V2ManifestVerticle extends AbstractFesterVerticle {
         final DeliveryOptions options = new DeliveryOptions();
         final JsonObject message = new JsonObject();
         final Metadata metadata = new Metadata();
-        final JsonObject jsonManifest;
+        final Future<Canvas[]> canvases;
 
         CsvParser.getMetadata(workRow, csvHeaders.getThumbnailIndex()).ifPresentOrElse(thumbnailURL -> {
             manifest.setThumbnail(thumbnailURL);
@@ -249,34 +267,41 @@ public class V2ManifestVerticle extends AbstractFesterVerticle {
         }
 
         // Check first for pages, then if the work itself is an image
-        if (pagesMap.containsKey(workID)) {
-            final List<String[]> pageList = pagesMap.get(workID);
+        if (pages != null) {
+            manifest.addSequence(sequence);
+            pages.sort(new ItemSequenceComparator(csvHeaders.getItemSequenceIndex()));
+            canvases = createCanvases(csvHeaders, pages, imageHost, placeholderImage, encodedWorkID);
+        } else if (CsvParser.getMetadata(workRow, csvHeaders.getContentAccessUrlIndex()).isPresent()) {
+            final List<String[]> pageList = new ArrayList<>(1);
 
+            pageList.add(workRow);
             manifest.addSequence(sequence);
-            pageList.sort(new ItemSequenceComparator(csvHeaders.getItemSequenceIndex()));
-            sequence.addCanvas(createCanvases(csvHeaders, pageList, imageHost, placeholderImage, encodedWorkID));
+            canvases = createCanvases(csvHeaders, pageList, imageHost, placeholderImage, encodedWorkID);
         } else {
-            CsvParser.getMetadata(workRow, csvHeaders.getContentAccessUrlIndex())
-                    .ifPresent(ThrowingConsumer.sneaky(accessURL -> {
-                        final List<String[]> pageList = new ArrayList<>(1);
-
-                        pageList.add(workRow);
-                        manifest.addSequence(sequence);
-                        sequence.addCanvas(
-                                createCanvases(csvHeaders, pageList, imageHost, placeholderImage, encodedWorkID));
-                    }));
+            canvases = Future.succeededFuture(new Canvas[] {});
         }
 
-        jsonManifest = manifest.toJSON();
-        message.put(Constants.DATA, jsonManifest);
-        message.put(Constants.MANIFEST_ID, workID);
-        options.addHeader(Constants.ACTION, Op.PUT_MANIFEST);
+        // The image lookups don't block, so we finish the manifest once they're done
+        canvases.onComplete(creation -> {
+            if (creation.succeeded()) {
+                final JsonObject jsonManifest;
 
-        sendMessage(S3BucketVerticle.class.getName(), message, options, send -> {
-            if (send.succeeded()) {
-                aMessage.reply(jsonManifest);
+                sequence.addCanvas(creation.result());
+                jsonManifest = manifest.toJSON();
+
+                message.put(Constants.DATA, jsonManifest);
+                message.put(Constants.MANIFEST_ID, workID);
+                options.addHeader(Constants.ACTION, Op.PUT_MANIFEST);
+
+                sendWrite(message, options, send -> {
+                    if (send.succeeded()) {
+                        aMessage.reply(jsonManifest);
+                    } else {
+                        error(aMessage, send.cause(), MessageCodes.MFS_151, send.cause().getMessage());
+                    }
+                });
             } else {
-                error(aMessage, send.cause(), MessageCodes.MFS_151, send.cause().getMessage());
+                error(aMessage, creation.cause(), MessageCodes.MFS_151, creation.cause().getMessage());
             }
         });
     }
@@ -318,7 +343,7 @@ public class V2ManifestVerticle extends AbstractFesterVerticle {
         message.put(Constants.COLLECTION_NAME, collectionName);
         options.addHeader(Constants.ACTION, Op.PUT_COLLECTION);
 
-        sendMessage(S3BucketVerticle.class.getName(), message, options, update -> {
+        sendWrite(message, options, update -> {
             if (update.succeeded()) {
                 aMessage.reply(collection.toJSON());
             } else {
@@ -333,13 +358,11 @@ public class V2ManifestVerticle extends AbstractFesterVerticle {
      * @param aMessage A message with information to be updated
      * @throws JsonProcessingException If there is trouble parsing the update metadata
      */
-    private void updateWork(final Message<JsonObject> aMessage) throws JsonProcessingException {
-        final JsonObject body = aMessage.body();
-        final ObjectMapper mapper = new ObjectMapper();
+    private void updateWork(final Message<CsvWork> aMessage) throws JsonProcessingException {
+        final JsonObject body = aMessage.body().getProperties();
         final Manifest manifest = Manifest.fromJSON(body.getJsonObject(Constants.MANIFEST_CONTENT));
-        final CsvHeaders csvHeaders = CsvHeaders.fromJSON(body.getJsonObject(Constants.CSV_HEADERS));
-        final JsonArray workArray = body.getJsonArray(Constants.UPDATED_CONTENT);
-        final String[] workRow = mapper.readValue(workArray.encode(), new TypeReference<String[]>() {});
+        final CsvHeaders csvHeaders = aMessage.body().getHeaders();
+        final String[] workRow = aMessage.body().getWork();
         final String id = body.getString(Constants.MANIFEST_ID);
         final DeliveryOptions options = new DeliveryOptions();
         final JsonObject message = new JsonObject();
@@ -392,7 +415,7 @@ public class V2ManifestVerticle extends AbstractFesterVerticle {
         message.put(Constants.MANIFEST_ID, id);
         options.addHeader(Constants.ACTION, Op.PUT_MANIFEST);
 
-        sendMessage(S3BucketVerticle.class.getName(), message, options, send -> {
+        sendWrite(message, options, send -> {
             if (send.succeeded()) {
                 aMessage.reply(manifest.toJSON());
             } else {
@@ -406,24 +429,19 @@ public class V2ManifestVerticle extends AbstractFesterVerticle {
      *
      * @param aMessage A message with information about the page updates
      * @throws JsonProcessingException If there is trouble deserializing message components
-     * @throws ImageNotFoundException If the canvas' image couldn't be found
      */
-    private void updatePages(final Message<JsonObject> aMessage)
-            throws JsonProcessingException, ImageNotFoundException {
-        final JsonObject body = aMessage.body();
+    private void updatePages(final Message<CsvWork> aMessage) throws JsonProcessingException {
+        final JsonObject body = aMessage.body().getProperties();
         final String workID = body.getString(Constants.MANIFEST_ID);
         final String imageHost = body.getString(Constants.IIIF_HOST);
         final String placeholderImage = body.getString(Constants.PLACEHOLDER_IMAGE);
         final String encodedWorkID = URLEncoder.encode(workID, StandardCharsets.UTF_8);
         final Manifest manifest = Manifest.fromJSON(body.getJsonObject(Constants.MANIFEST_CONTENT));
-        final CsvHeaders csvHeaders = CsvHeaders.fromJSON(body.getJsonObject(Constants.CSV_HEADERS));
-        final TypeReference<List<String[]>> typeRef = new TypeReference<>() {};
-        final JsonArray pagesArray = body.getJsonArray(Constants.MANIFEST_PAGES);
-        final List<String[]> pagesList = new ObjectMapper().readValue(pagesArray.encode(), typeRef);
+        final CsvHeaders csvHeaders = aMessage.body().getHeaders();
+        final List<String[]> pagesList = aMessage.body().getPages();
         final List<Sequence> sequences = manifest.getSequences();
         final DeliveryOptions options = new DeliveryOptions();
         final JsonObject message = new JsonObject();
-        final JsonObject jsonManifest;
         final Sequence sequence;
 
         // If the work doesn't already have any sequences, create one for it
@@ -444,170 +462,223 @@ public class V2ManifestVerticle extends AbstractFesterVerticle {
             throw new JsonMappingException(null, details.getMessage(), details);
         }
 
-        sequence.addCanvas(createCanvases(csvHeaders, pagesList, imageHost, placeholderImage, encodedWorkID));
+        createCanvases(csvHeaders, pagesList, imageHost, placeholderImage, encodedWorkID).onComplete(creation -> {
+            if (creation.succeeded()) {
+                final JsonObject jsonManifest;
 
-        jsonManifest = manifest.toJSON();
-        message.put(Constants.DATA, jsonManifest);
-        message.put(Constants.MANIFEST_ID, workID);
-        options.addHeader(Constants.ACTION, Op.PUT_MANIFEST);
+                sequence.addCanvas(creation.result());
+                jsonManifest = manifest.toJSON();
 
-        sendMessage(S3BucketVerticle.class.getName(), message, options, send -> {
-            if (send.succeeded()) {
-                aMessage.reply(jsonManifest);
+                message.put(Constants.DATA, jsonManifest);
+                message.put(Constants.MANIFEST_ID, workID);
+                options.addHeader(Constants.ACTION, Op.PUT_MANIFEST);
+
+                sendWrite(message, options, send -> {
+                    if (send.succeeded()) {
+                        aMessage.reply(jsonManifest);
+                    } else {
+                        error(aMessage, send.cause(), MessageCodes.MFS_054, workID, send.cause().getMessage());
+                    }
+                });
             } else {
-                error(aMessage, send.cause(), MessageCodes.MFS_054, workID, send.cause().getMessage());
+                error(aMessage, creation.cause(), MessageCodes.MFS_054, workID, creation.cause().getMessage());
             }
         });
     }
 
     /**
-     * Adds pages to a sequence from a work manifest.
+     * Creates canvases for the pages of a work. Up to a configured number of pages have their image widths and heights
+     * looked up at once; the canvases are still returned in page order.
      *
      * @param aCsvHeaders A CSV headers
      * @param aPageList A list of pages to add
-     * @param aSequence A sequence to add pages to
      * @param aImageHost An image host for image links
+     * @param aPlaceholderImage A placeholder image for images that can't be found (may be null)
      * @param aWorkID A URL encoded work ID
-     * @return An array of canvases
-     * @throws ImageNotFoundException If the canvas' image couldn't be found
+     * @return A future with an array of canvases
      */
-    @SuppressWarnings({ "PMD.CyclomaticComplexity", "PMD.NcssCount" })
-    private Canvas[] createCanvases(final CsvHeaders aCsvHeaders, final List<String[]> aPageList,
-            final String aImageHost, final String aPlaceholderImage, final String aWorkID)
-            throws ImageNotFoundException {
-        final Iterator<String[]> iterator = aPageList.iterator();
-        final List<Canvas> canvases = new ArrayList<>();
-
-        while (iterator.hasNext()) {
-            final String[] columns = iterator.next();
-            final String pageID = columns[aCsvHeaders.getItemArkIndex()];
-            final String idPart = IDUtils.getLastPart(pageID);
-            final String pageLabel = columns[aCsvHeaders.getTitleIndex()];
-            final String encodedPageID = URLEncoder.encode(pageID, StandardCharsets.UTF_8);
-            final String canvasID = StringUtils.format(CANVAS_URI, Constants.URL_PLACEHOLDER, aWorkID, idPart);
-            final String pageURI = StringUtils.format(SIMPLE_URI, aImageHost, encodedPageID);
-            final String contentURI = StringUtils.format(ANNOTATION_URI, Constants.URL_PLACEHOLDER, aWorkID, idPart);
-            final String accessURI = StringUtils.trimToNull(columns[aCsvHeaders.getContentAccessUrlIndex()]);
-            final Optional<String> thumbnail = CsvParser.getMetadata(columns, aCsvHeaders.getThumbnailIndex());
-
-            boolean staticImage = false;
-            String resourceURI;
-            ImageResource imageResource;
-            ImageContent imageContent;
-            Canvas canvas;
-
-            resourceURI = StringUtils.format(Constants.SAMPLE_URI_TEMPLATE, pageURI, Constants.DEFAULT_SAMPLE_SIZE);
+    private Future<Canvas[]> createCanvases(final CsvHeaders aCsvHeaders, final List<String[]> aPageList,
+            final String aImageHost, final String aPlaceholderImage, final String aWorkID) {
+        return FutureUtils.mapInOrder(aPageList, myLookupConcurrency, columns -> {
+            return createCanvas(aCsvHeaders, columns, aImageHost, aPlaceholderImage, aWorkID);
+        }).map(canvases -> canvases.toArray(new Canvas[] {}));
+    }
 
-            try {
-                final Optional<String> width = CsvParser.getMetadata(columns, aCsvHeaders.getMediaWidthIndex());
-                final Optional<String> height = CsvParser.getMetadata(columns, aCsvHeaders.getMediaHeightIndex());
-
-                int mediaWidth;
-                int mediaHeight;
-
-                try {
-                    if (width.isPresent() && height.isPresent()) {
-                        mediaWidth = Integer.parseInt(width.get());
-                        mediaHeight = Integer.parseInt(height.get());
-
-                        imageResource = new ImageResource(resourceURI);
-                        imageResource.setWidth(mediaWidth);
-                        imageResource.setHeight(mediaHeight);
-
-                        // Does the URI have a file extension?
-                        if (!isStaticFile(accessURI)) {
-                            imageResource.setService(new ImageInfoService(APIComplianceLevel.TWO, pageURI));
-                        } else {
-                            staticImage = true;
-                        }
-                    } else {
-                        // If we don't have both width and height in the CSV, we can also try to look it up
-                        final ImageInfoLookup infoLookup = new ImageInfoLookup(pageURI);
+    /**
+     * Creates a canvas for a page of a work. The page's image width and height are taken from the CSV data if they're
+     * there; otherwise, they're read from the header of the page's static image, if it has one, or looked up on the
+     * image server. If the image can't be found, a placeholder image is used instead (or, if there isn't one of
+     * those, the canvas is left empty).
+     *
+     * @param aCsvHeaders A CSV headers
+     * @param aColumns The CSV data of the page
+     * @param aImageHost An image host for image links
+     * @param aPlaceholderImage A placeholder image for images that can't be found (may be null)
+     * @param aWorkID A URL encoded work ID
+     * @return A future with the page's canvas
+     */
+    private Future<Canvas> createCanvas(final CsvHeaders aCsvHeaders, final String[] aColumns,
+            final String aImageHost, final String aPlaceholderImage, final String aWorkID) {
+        final String pageID = aColumns[aCsvHeaders.getItemArkIndex()];
+        final String idPart = IDUtils.getLastPart(pageID);
+        final String pageLabel = aColumns[aCsvHeaders.getTitleIndex()];
+        final String encodedPageID = URLEncoder.encode(pageID, StandardCharsets.UTF_8);
+        final String canvasID = StringUtils.format(CANVAS_URI, Constants.URL_PLACEHOLDER, aWorkID, idPart);
+        final String pageURI = StringUtils.format(SIMPLE_URI, aImageHost, encodedPageID);
+        final String contentURI = StringUtils.format(ANNOTATION_URI, Constants.URL_PLACEHOLDER, aWorkID, idPart);
+        final String accessURI = StringUtils.trimToNull(aColumns[aCsvHeaders.getContentAccessUrlIndex()]);
+        final Optional<String> thumbnail = CsvParser.getMetadata(aColumns, aCsvHeaders.getThumbnailIndex());
+        final String resourceURI =
+                StringUtils.format(Constants.SAMPLE_URI_TEMPLATE, pageURI, Constants.DEFAULT_SAMPLE_SIZE);
+        final Optional<ImageInfo> csvImageInfo = getImageInfo(aCsvHeaders, aColumns);
+        final boolean staticImage = isStaticFile(accessURI);
+        final Future<Canvas> canvas;
+
+        // If we don't have a valid width and height in the CSV, we can also try to look them up
+        final Supplier<Future<Canvas>> lookup = () -> myImageInfoLookup.lookup(pageURI).map(imageInfo -> {
+            final ImageResource imageResource = new ImageResource(resourceURI);
+
+            imageResource.setService(new ImageInfoService(APIComplianceLevel.TWO, pageURI));
+            return paintCanvas(canvasID, pageLabel, contentURI, imageInfo, imageResource, thumbnail);
+        }).recover(details -> {
+            LOGGER.info(MessageCodes.MFS_078, pageID);
+            return createPlaceholderCanvas(canvasID, pageLabel, contentURI, pageID, aPlaceholderImage);
+        });
 
-                        mediaWidth = infoLookup.getWidth();
-                        mediaHeight = infoLookup.getHeight();
+        if (csvImageInfo.isPresent()) {
+            final ImageInfo imageInfo = csvImageInfo.get();
+            final ImageResource imageResource = new ImageResource(resourceURI);
 
-                        imageResource = new ImageResource(resourceURI);
-                        imageResource.setService(new ImageInfoService(APIComplianceLevel.TWO, pageURI));
-                    }
-                } catch (final NumberFormatException details) {
-                    // If we don't have a valid information w/h in the CSV, we can also try to look it up
-                    final ImageInfoLookup infoLookup = new ImageInfoLookup(pageURI);
+            imageResource.setWidth(imageInfo.getWidth());
+            imageResource.setHeight(imageInfo.getHeight());
 
-                    mediaWidth = infoLookup.getWidth();
-                    mediaHeight = infoLookup.getHeight();
+            // Does the URI have a file extension? If so, fall back to using the original image as the thumbnail
+            if (!staticImage) {
+                imageResource.setService(new ImageInfoService(APIComplianceLevel.TWO, pageURI));
+            }
 
-                    imageResource = new ImageResource(resourceURI);
-                    imageResource.setService(new ImageInfoService(APIComplianceLevel.TWO, pageURI));
-                }
+            canvas = Future.succeededFuture(paintCanvas(canvasID, pageLabel, contentURI, imageInfo, imageResource,
+                    thumbnail.or(() -> Optional.ofNullable(staticImage ? accessURI : null))));
+        } else if (staticImage) {
+            // A static image has no image service to ask, but its header has its width and height
+            canvas = myImageInfoLookup.probe(accessURI).map(imageInfo -> {
+                return paintCanvas(canvasID, pageLabel, contentURI, imageInfo, new ImageResource(resourceURI),
+                        thumbnail.or(() -> Optional.of(accessURI)));
+            }).recover(details -> lookup.get());
+        } else {
+            canvas = lookup.get();
+        }
 
-                // Create a canvas using the width and height of the related image
-                canvas = new Canvas(canvasID, pageLabel, mediaWidth, mediaHeight);
-                imageContent = new ImageContent(contentURI, canvas);
-                imageContent.addResource(imageResource);
-                canvas.addImageContent(imageContent);
-
-                // Add a thumbnail if we have one and one hasn't already been added
-                if (thumbnail.isPresent() && canvas.getThumbnail() == null) {
-                    canvas.setThumbnail(thumbnail.get());
-                } else if (staticImage) {
-                    // Fallback to using the original image as thumbnail and let browser resize
-                    canvas.setThumbnail(accessURI);
-                }
-            } catch (final ImageNotFoundException | IOException details) {
-                LOGGER.info(MessageCodes.MFS_078, pageID);
-
-                if (aPlaceholderImage != null) {
-                    try {
-                        final ImageInfoLookup placeholderLookup = new ImageInfoLookup(aPlaceholderImage);
-                        final int width = placeholderLookup.getWidth();
-                        final int height = placeholderLookup.getHeight();
-                        final int size;
-
-                        if (width >= Constants.DEFAULT_SAMPLE_SIZE) {
-                            size = Constants.DEFAULT_SAMPLE_SIZE;
-                        } else {
-                            size = width;
-                        }
-
-                        // If placeholder image found, use its URL for image resource and service
-                        resourceURI = StringUtils.format(Constants.SAMPLE_URI_TEMPLATE, aPlaceholderImage, size);
-                        imageResource = new ImageResource(resourceURI,
-                                new ImageInfoService(APIComplianceLevel.TWO, aPlaceholderImage));
-
-                        // Create a canvas using the width and height of the placeholder image
-                        canvas = new Canvas(canvasID, pageLabel, width, height);
-                        imageContent = new ImageContent(contentURI, canvas);
-                        imageContent.addResource(imageResource);
-                        canvas.addImageContent(imageContent);
-                    } catch (final ImageNotFoundException | IOException lookupDetails) {
-                        // We couldn't find the placeholder image so we create an empty canvas
-                        canvas = new Canvas(canvasID, pageLabel, 0, 0);
-                        LOGGER.error(lookupDetails, lookupDetails.getMessage());
-
-                        // No image content added to canvas when we couldn't find any
-                    }
-                } else {
-                    // We couldn't find the placeholder image so we create an empty canvas
-                    canvas = new Canvas(canvasID, pageLabel, 0, 0);
-                    LOGGER.info(MessageCodes.MFS_099, pageID);
+        return canvas.map(result -> {
+            if (aCsvHeaders.hasViewingHintIndex()) {
+                final String viewingHint = StringUtils.trimToNull(aColumns[aCsvHeaders.getViewingHintIndex()]);
 
-                    // No image content added to canvas when we couldn't find any
+                if (viewingHint != null) {
+                    result.setViewingHint(new ViewingHint(viewingHint));
                 }
             }
 
-            if (aCsvHeaders.hasViewingHintIndex()) {
-                final String viewingHint = StringUtils.trimToNull(columns[aCsvHeaders.getViewingHintIndex()]);
+            return result;
+        });
+    }
 
-                if (viewingHint != null) {
-                    canvas.setViewingHint(new ViewingHint(viewingHint));
-                }
+    /**
+     * Creates a canvas for a page whose image couldn't be found, using the placeholder image if there is one.
+     *
+     * @param aCanvasID The ID of the canvas
+     * @param aPageLabel The label of the page
+     * @param aContentURI The ID of the canvas' image content
+     * @param aPageID The ID of the page
+     * @param aPlaceholderImage A placeholder image (may be null)
+     * @return A future with the page's canvas
+     */
+    private Future<Canvas> createPlaceholderCanvas(final String aCanvasID, final String aPageLabel,
+            final String aContentURI, final String aPageID, final String aPlaceholderImage) {
+        if (aPlaceholderImage == null || aPlaceholderImage.isBlank()) {
+            // We couldn't find the placeholder image so we create an empty canvas
+            LOGGER.info(MessageCodes.MFS_099, aPageID);
+
+            // No image content added to canvas when we couldn't find any
+            return Future.succeededFuture(new Canvas(aCanvasID, aPageLabel, 0, 0));
+        }
+
+        // The placeholder image is only looked up once, however many pages are missing their images
+        return PlaceholderImage.getPlaceholderImage(vertx, config(), aPlaceholderImage).getImageInfo().map(info -> {
+            if (info.isEmpty()) {
+                // We couldn't find the placeholder image so we create an empty canvas
+                LOGGER.info(MessageCodes.MFS_229, aPlaceholderImage, aPageID);
+                return new Canvas(aCanvasID, aPageLabel, 0, 0);
             }
 
-            canvases.add(canvas);
+            // If placeholder image found, use its URL for image resource and service
+            return paintCanvas(aCanvasID, aPageLabel, aContentURI, info.get(),
+                    getPlaceholderResource(aPlaceholderImage, info.get()), Optional.empty());
+        }).otherwise(details -> {
+            // We couldn't find the placeholder image so we create an empty canvas
+            LOGGER.error(details, details.getMessage());
+            return new Canvas(aCanvasID, aPageLabel, 0, 0);
+        });
+    }
+
+    /**
+     * Gets the image resource for a placeholder image, building it the first time it's needed.
+     *
+     * @param aPlaceholderImage A placeholder image
+     * @param aImageInfo The placeholder image's width and height
+     * @return The placeholder image's resource
+     */
+    private ImageResource getPlaceholderResource(final String aPlaceholderImage, final ImageInfo aImageInfo) {
+        return myPlaceholderResources.computeIfAbsent(aPlaceholderImage, url -> {
+            final int size = Math.min(aImageInfo.getWidth(), Constants.DEFAULT_SAMPLE_SIZE);
+            final String resourceURI = StringUtils.format(Constants.SAMPLE_URI_TEMPLATE, url, size);
+
+            return new ImageResource(resourceURI, new ImageInfoService(APIComplianceLevel.TWO, url));
+        });
+    }
+
+    /**
+     * Creates a canvas using the width and height of the image that's painted on it.
+     *
+     * @param aCanvasID The ID of the canvas
+     * @param aPageLabel The label of the page
+     * @param aContentURI The ID of the canvas' image content
+     * @param aImageInfo The width and height of the image
+     * @param aImageResource The image
+     * @param aThumbnail A thumbnail for the canvas, if there is one
+     * @return A canvas
+     */
+    private Canvas paintCanvas(final String aCanvasID, final String aPageLabel, final String aContentURI,
+            final ImageInfo aImageInfo, final ImageResource aImageResource, final Optional<String> aThumbnail) {
+        final Canvas canvas = new Canvas(aCanvasID, aPageLabel, aImageInfo.getWidth(), aImageInfo.getHeight());
+        final ImageContent imageContent = new ImageContent(aContentURI, canvas);
+
+        imageContent.addResource(aImageResource);
+        canvas.addImageContent(imageContent);
+        aThumbnail.ifPresent(canvas::setThumbnail);
+
+        return canvas;
+    }
+
+    /**
+     * Gets a page's image width and height from its CSV data.
+     *
+     * @param aCsvHeaders A CSV headers
+     * @param aColumns The CSV data of the page
+     * @return The width and height of the page's image, if they're both in the CSV data and valid
+     */
+    private Optional<ImageInfo> getImageInfo(final CsvHeaders aCsvHeaders, final String[] aColumns) {
+        final Optional<String> width = CsvParser.getMetadata(aColumns, aCsvHeaders.getMediaWidthIndex());
+        final Optional<String> height = CsvParser.getMetadata(aColumns, aCsvHeaders.getMediaHeightIndex());
+
+        if (width.isPresent() && height.isPresent()) {
+            try {
+                return Optional.of(new ImageInfo(Integer.parseInt(width.get()), Integer.parseInt(height.get())));
+            } catch (final NumberFormatException details) {
+                return Optional.empty();
+            }
         }
 
-        return canvases.toArray(new Canvas[] {});
+        return Optional.empty();
     }
 
     /**
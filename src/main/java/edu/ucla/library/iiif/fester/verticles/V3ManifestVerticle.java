@@ -4,14 +4,12 @@ package edu.ucla.library.iiif.fester.verticles;
 import static edu.ucla.library.iiif.fester.Constants.EMPTY;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
-import java.io.IOException;
 import java.net.URI;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -59,17 +57,22 @@ import edu.ucla.library.iiif.fester.Constants;
 import edu.ucla.library.iiif.fester.CsvHeaders;
 import edu.ucla.library.iiif.fester.CsvParser;
 import edu.ucla.library.iiif.fester.CsvParsingException;
+import edu.ucla.library.iiif.fester.CsvWork;
 import edu.ucla.library.iiif.fester.HTTP;
+import edu.ucla.library.iiif.fester.ImageInfo;
 import edu.ucla.library.iiif.fester.ImageInfoLookup;
 import edu.ucla.library.iiif.fester.ImageNotFoundException;
 import edu.ucla.library.iiif.fester.MessageCodes;
 import edu.ucla.library.iiif.fester.MetadataLabels;
 import edu.ucla.library.iiif.fester.ObjectType;
 import edu.ucla.library.iiif.fester.Op;
+import edu.ucla.library.iiif.fester.PlaceholderImage;
+import edu.ucla.library.iiif.fester.utils.FutureUtils;
 import edu.ucla.library.iiif.fester.utils.IDUtils;
 import edu.ucla.library.iiif.fester.utils.ItemSequenceComparator;
 import edu.ucla.library.iiif.fester.utils.V3CollectionItemLabelComparator;
 
+import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
@@ -89,38 +92,57 @@ public class V3ManifestVerticle extends AbstractFesterVerticle {
 
     private static final String SIMPLE_URI = "{}/{}";
 
+    private static final int DEFAULT_LOOKUP_CONCURRENCY = 8;
+
+    private ImageInfoLookup myImageInfoLookup;
+
+    private int myLookupConcurrency;
+
+    /* The placeholder images' content, which is shared by all the canvases they're painted on */
+    private final Map<String, ImageContent> myPlaceholderContent = new HashMap<>();
+
     /**
      * Starts a verticle to update pages on a manifest.
      */
     @Override
     public void start(final Promise<Void> aPromise) {
-        getJsonConsumer().handler(message -> {
+        final String placeholderImage = StringUtils.trimToNull(config().getString(Config.PLACEHOLDER_IMAGE));
+
+        if (myImageInfoLookup == null) {
+            myImageInfoLookup = new ImageInfoLookup(vertx, config());
+        }
+
+        myLookupConcurrency = config().getInteger(Config.IIIF_LOOKUP_WORK_CONCURRENCY, DEFAULT_LOOKUP_CONCURRENCY);
+
+        // Start looking up the placeholder image now, so missing pages don't have to wait for it
+        if (placeholderImage != null) {
+            PlaceholderImage.getPlaceholderImage(vertx, config(), placeholderImage);
+        }
+
+        getConsumer().handler(message -> {
             final String action = message.headers().get(Constants.ACTION);
 
             try {
                 switch (action) {
                     case ManifestVerticle.UPDATE_PAGES:
-                        updatePages(message);
+                        updatePages(typed(message));
                         break;
                     case ManifestVerticle.UPDATE_COLLECTION:
-                        updateCollection(message);
+                        updateCollection(typed(message));
                         break;
                     case ManifestVerticle.CREATE_COLLECTION:
-                        createCollection(message);
+                        createCollection(typed(message));
                         break;
                     case ManifestVerticle.UPDATE_WORK:
-                        updateWork(message);
+                        updateWork(typed(message));
                         break;
                     case ManifestVerticle.CREATE_WORK:
-                        createWork(message);
+                        createWork(typed(message));
                         break;
                     default:
                         message.fail(HTTP.INTERNAL_SERVER_ERROR, LOGGER.getMessage(MessageCodes.MFS_153, action));
                         break;
                 }
-            } catch (final ImageNotFoundException details) {
-                // We logged this earlier in the ImageInfoLookup class
-                message.fail(HTTP.BAD_REQUEST, details.getMessage());
             } catch (final JsonProcessingException | RuntimeException details) {
                 LOGGER.error(details, details.getMessage());
                 message.fail(HTTP.INTERNAL_SERVER_ERROR, details.getMessage());
@@ -188,7 +210,7 @@ public class V3ManifestVerticle extends AbstractFesterVerticle {
         message.put(Constants.COLLECTION_NAME, collectionName);
         message.put(Constants.DATA, new JsonObject(collection.toString()));
 
-        sendMessage(S3BucketVerticle.class.getName(), message, options, send -> {
+        sendWrite(message, options, send -> {
             if (send.succeeded()) {
                 aMessage.reply(new JsonObject());
             } else {
@@ -201,18 +223,13 @@ public class V3ManifestVerticle extends AbstractFesterVerticle {
      * Creates a single work from the data that sent as a message.
      *
      * @param aMessage Information needed to create a work manifest
-     * @throws JsonProcessingException If there is trouble deserializing shared information
-     * @throws ImageNotFoundException If the image from the CSV data couldn't be found or was bad data
      */
-    private void createWork(final Message<JsonObject> aMessage) throws JsonProcessingException, ImageNotFoundException {
-        final JsonObject body = aMessage.body();
-        final ObjectMapper mapper = new ObjectMapper();
-        final CsvHeaders csvHeaders = CsvHeaders.fromJSON(body.getJsonObject(Constants.CSV_HEADERS));
-        final JsonArray workArray = body.getJsonArray(Constants.MANIFEST_CONTENT);
-        final String[] workRow = mapper.readValue(workArray.encode(), new TypeReference<String[]>() {});
-        final JsonObject pagesJSON = body.getJsonObject(Constants.MANIFEST_PAGES);
-        final TypeReference<Map<String, List<String[]>>> type = new TypeReference<>() {};
-        final Map<String, List<String[]>> pagesMap = mapper.readValue(pagesJSON.encode(), type);
+    private void createWork(final Message<CsvWork> aMessage) {
+        final CsvWork work = aMessage.body();
+        final JsonObject body = work.getProperties();
+        final CsvHeaders csvHeaders = work.getHeaders();
+        final String[] workRow = work.getWork();
+        final List<String[]> pages = work.getPages();
         final String placeholderImage = body.getString(Constants.PLACEHOLDER_IMAGE);
         final String imageHost = body.getString(Constants.IIIF_HOST);
         final String workID = workRow[csvHeaders.getItemArkIndex()];
@@ -222,11 +239,8 @@ public class V3ManifestVerticle extends AbstractFesterVerticle {
         final Minter minter = MinterFactory.getMinter(manifest);
         final DeliveryOptions options = new DeliveryOptions();
         final JsonObject message = new JsonObject();
-        final JsonObject jsonManifest;
         final List<String[]> pageList;
-        final Canvas[] canvases;
-        final Stream<Optional<String>> pageFormats;
-        final boolean videoAccompanyingCanvas;
+        final Future<Canvas[]> canvases;
 
         CsvParser.getMetadata(workRow, csvHeaders.getThumbnailIndex()).ifPresentOrElse(thumbnailURL -> {
             manifest.setThumbnails(new ImageContent(thumbnailURL));
@@ -255,47 +269,62 @@ public class V3ManifestVerticle extends AbstractFesterVerticle {
         });
 
         // Check first for pages, then if the work itself is an image
-        if (pagesMap.containsKey(workID)) {
-            pageList = pagesMap.get(workID);
+        if (pages != null) {
+            pageList = pages;
             pageList.sort(new ItemSequenceComparator(csvHeaders.getItemSequenceIndex()));
             canvases = createCanvases(csvHeaders, pageList, imageHost, placeholderImage, minter);
-            manifest.setCanvases(canvases);
         } else if (CsvParser.getMetadata(workRow, csvHeaders.getContentAccessUrlIndex()).isPresent()) {
             pageList = new ArrayList<>(1);
             pageList.add(workRow);
             canvases = createCanvases(csvHeaders, pageList, imageHost, placeholderImage, minter);
-            manifest.setCanvases(canvases);
         } else {
             // This manifest will have zero canvases
             pageList = new ArrayList<>(0);
+            canvases = Future.succeededFuture();
         }
 
-        // Only add the video icon as an acccompanyingCanvas if all CSV rows representing the object have a video format
-        pageFormats =
-                pageList.stream().map(pageRow -> CsvParser.getMetadata(pageRow, csvHeaders.getMediaFormatIndex()));
-        // Check the element count since Stream.allMatch returns true if the stream is empty
-        videoAccompanyingCanvas = !pageList.isEmpty() &&
-                pageFormats.allMatch(format -> format.isPresent() && format.get().contains("video"));
+        // The image lookups don't block, so we finish the manifest once they're done
+        canvases.onComplete(creation -> {
+            if (creation.succeeded()) {
+                final JsonObject jsonManifest;
+                final Stream<Optional<String>> pageFormats;
+                final boolean videoAccompanyingCanvas;
 
-        if (videoAccompanyingCanvas) {
-            final AccompanyingCanvas accompanyingCanvas = new AccompanyingCanvas(minter);
-            final String videoIconURL = StringUtils.trimTo(config().getString(Config.DEFAULT_VIDEO_THUMBNAIL),
-                    Constants.UCLA_VIDEO_THUMBNAIL);
+                if (creation.result() != null) {
+                    manifest.setCanvases(creation.result());
+                }
 
-            accompanyingCanvas.setWidthHeight(129, 129).paintWith(new ImageContent(videoIconURL));
-            manifest.setAccompanyingCanvas(accompanyingCanvas);
-        }
+                // Only add the video icon as an acccompanyingCanvas if all CSV rows representing the object have a
+                // video format
+                pageFormats = pageList.stream()
+                        .map(pageRow -> CsvParser.getMetadata(pageRow, csvHeaders.getMediaFormatIndex()));
+                // Check the element count since Stream.allMatch returns true if the stream is empty
+                videoAccompanyingCanvas = !pageList.isEmpty() &&
+                        pageFormats.allMatch(format -> format.isPresent() && format.get().contains("video"));
+
+                if (videoAccompanyingCanvas) {
+                    final AccompanyingCanvas accompanyingCanvas = new AccompanyingCanvas(minter);
+                    final String videoIconURL = StringUtils.trimTo(
+                            config().getString(Config.DEFAULT_VIDEO_THUMBNAIL), Constants.UCLA_VIDEO_THUMBNAIL);
+
+                    accompanyingCanvas.setWidthHeight(129, 129).paintWith(new ImageContent(videoIconURL));
+                    manifest.setAccompanyingCanvas(accompanyingCanvas);
+                }
 
-        jsonManifest = new JsonObject(manifest.toString());
-        message.put(Constants.DATA, jsonManifest);
-        message.put(Constants.MANIFEST_ID, workID);
-        options.addHeader(Constants.ACTION, Op.PUT_MANIFEST);
+                jsonManifest = new JsonObject(manifest.toString());
+                message.put(Constants.DATA, jsonManifest);
+                message.put(Constants.MANIFEST_ID, workID);
+                options.addHeader(Constants.ACTION, Op.PUT_MANIFEST);
 
-        sendMessage(S3BucketVerticle.class.getName(), message, options, send -> {
-            if (send.succeeded()) {
-                aMessage.reply(jsonManifest);
+                sendWrite(message, options, send -> {
+                    if (send.succeeded()) {
+                        aMessage.reply(jsonManifest);
+                    } else {
+                        error(aMessage, send.cause(), MessageCodes.MFS_151, send.cause().getMessage());
+                    }
+                });
             } else {
-                error(aMessage, send.cause(), MessageCodes.MFS_151, send.cause().getMessage());
+                failCanvases(aMessage, creation.cause(), MessageCodes.MFS_151, creation.cause().getMessage());
             }
         });
     }
@@ -341,7 +370,7 @@ public class V3ManifestVerticle extends AbstractFesterVerticle {
         message.put(Constants.COLLECTION_NAME, collectionName);
         options.addHeader(Constants.ACTION, Op.PUT_COLLECTION);
 
-        sendMessage(S3BucketVerticle.class.getName(), message, options, update -> {
+        sendWrite(message, options, update -> {
             if (update.succeeded()) {
                 aMessage.reply(new JsonObject(collection.toString()));
             } else {
@@ -356,14 +385,12 @@ public class V3ManifestVerticle extends AbstractFesterVerticle {
      * @param aMessage A message with information to be updated
      * @throws JsonProcessingException If there is trouble parsing the update metadata
      */
-    private void updateWork(final Message<JsonObject> aMessage) throws JsonProcessingException {
-        final JsonObject body = aMessage.body();
-        final ObjectMapper mapper = new ObjectMapper();
-        final CsvHeaders csvHeaders = CsvHeaders.fromJSON(body.getJsonObject(Constants.CSV_HEADERS));
+    private void updateWork(final Message<CsvWork> aMessage) throws JsonProcessingException {
+        final JsonObject body = aMessage.body().getProperties();
+        final CsvHeaders csvHeaders = aMessage.body().getHeaders();
         final String workJSON = body.getJsonObject(Constants.MANIFEST_CONTENT).encode();
         final Manifest manifest = JSON.readValue(workJSON, Manifest.class);
-        final JsonArray workArray = body.getJsonArray(Constants.UPDATED_CONTENT);
-        final String[] workRow = mapper.readValue(workArray.encode(), new TypeReference<String[]>() {});
+        final String[] workRow = aMessage.body().getWork();
         final String id = body.getString(Constants.MANIFEST_ID);
         final DeliveryOptions options = new DeliveryOptions();
         final JsonObject message = new JsonObject();
@@ -415,7 +442,7 @@ public class V3ManifestVerticle extends AbstractFesterVerticle {
         message.put(Constants.MANIFEST_ID, id);
         options.addHeader(Constants.ACTION, Op.PUT_MANIFEST);
 
-        sendMessage(S3BucketVerticle.class.getName(), message, options, send -> {
+        sendWrite(message, options, send -> {
             if (send.succeeded()) {
                 aMessage.reply(new JsonObject(manifest.toString()));
             } else {
@@ -429,25 +456,20 @@ public class V3ManifestVerticle extends AbstractFesterVerticle {
      *
      * @param aMessage A message with information about the page updates
      * @throws JsonProcessingException If there is trouble deserializing message components
-     * @throws ImageNotFoundException If the image from the CSV data couldn't be found or was bad data
      */
-    private void updatePages(final Message<JsonObject> aMessage)
-            throws JsonProcessingException, ImageNotFoundException {
-        final JsonObject body = aMessage.body();
+    private void updatePages(final Message<CsvWork> aMessage) throws JsonProcessingException {
+        final JsonObject body = aMessage.body().getProperties();
         final String workID = body.getString(Constants.MANIFEST_ID);
         final String imageHost = body.getString(Constants.IIIF_HOST);
         final String placeholderImage = body.getString(Constants.PLACEHOLDER_IMAGE);
         final String workJSON = body.getJsonObject(Constants.MANIFEST_CONTENT).encode();
         final Manifest manifest = JSON.readValue(workJSON, Manifest.class);
         final Minter minter = MinterFactory.getMinter(manifest);
-        final CsvHeaders csvHeaders = CsvHeaders.fromJSON(body.getJsonObject(Constants.CSV_HEADERS));
-        final TypeReference<List<String[]>> typeRef = new TypeReference<>() {};
-        final JsonArray pagesArray = body.getJsonArray(Constants.MANIFEST_PAGES);
-        final List<String[]> pagesList = new ObjectMapper().readValue(pagesArray.encode(), typeRef);
+        final CsvHeaders csvHeaders = aMessage.body().getHeaders();
+        final List<String[]> pagesList = aMessage.body().getPages();
         final DeliveryOptions options = new DeliveryOptions();
         final List<Canvas> canvases = manifest.getCanvases();
         final JsonObject message = new JsonObject();
-        final JsonObject jsonManifest;
 
         try {
             pagesList.sort(new ItemSequenceComparator(csvHeaders.getItemSequenceIndex()));
@@ -456,201 +478,297 @@ public class V3ManifestVerticle extends AbstractFesterVerticle {
         }
 
         canvases.clear(); // Overwrite whatever canvases are on the manifest
-        canvases.addAll(List.of(createCanvases(csvHeaders, pagesList, imageHost, placeholderImage, minter)));
 
-        jsonManifest = new JsonObject(manifest.toString());
-        message.put(Constants.DATA, jsonManifest);
-        message.put(Constants.MANIFEST_ID, workID);
-        options.addHeader(Constants.ACTION, Op.PUT_MANIFEST);
+        createCanvases(csvHeaders, pagesList, imageHost, placeholderImage, minter).onComplete(creation -> {
+            if (creation.succeeded()) {
+                final JsonObject jsonManifest;
 
-        sendMessage(S3BucketVerticle.class.getName(), message, options, send -> {
-            if (send.succeeded()) {
-                aMessage.reply(jsonManifest);
+                canvases.addAll(List.of(creation.result()));
+                jsonManifest = new JsonObject(manifest.toString());
+
+                message.put(Constants.DATA, jsonManifest);
+                message.put(Constants.MANIFEST_ID, workID);
+                options.addHeader(Constants.ACTION, Op.PUT_MANIFEST);
+
+                sendWrite(message, options, send -> {
+                    if (send.succeeded()) {
+                        aMessage.reply(jsonManifest);
+                    } else {
+                        error(aMessage, send.cause(), MessageCodes.MFS_054, workID, send.cause().getMessage());
+                    }
+                });
             } else {
-                error(aMessage, send.cause(), MessageCodes.MFS_054, workID, send.cause().getMessage());
+                failCanvases(aMessage, creation.cause(), MessageCodes.MFS_054, workID, creation.cause().getMessage());
             }
         });
     }
 
     /**
-     * Creates canvases to add to a manifest.
+     * Creates canvases to add to a manifest. Up to a configured number of pages have their image widths and heights
+     * looked up at once. The canvases are started in page order, so their IDs are minted in the same order as before,
+     * and they're returned in page order.
      *
      * @param aCsvHeaders A CSV headers
      * @param aPageList A list of pages to add
-     * @param aSequence A sequence to add pages to
      * @param aImageHost An image host for image links
+     * @param aPlaceholderImage A placeholder image for images that can't be found (may be null)
      * @param aMinter An ID minter
-     * @throws ImageNotFoundException If the image from the CSV data couldn't be found or was bad data
+     * @return A future with an array of canvases; it fails with an {@link ImageNotFoundException} if the image from
+     *         the CSV data couldn't be found or was bad data
      */
-    private Canvas[] createCanvases(final CsvHeaders aCsvHeaders, final List<String[]> aPageList,
-            final String aImageHost, final String aPlaceholderImage, final Minter aMinter)
-            throws ImageNotFoundException {
-        final Iterator<String[]> iterator = aPageList.iterator();
-        final List<Canvas> canvases = new ArrayList<>();
-
-        while (iterator.hasNext()) {
-            final String[] columns = iterator.next();
-            final String pageID = columns[aCsvHeaders.getItemArkIndex()]; // Get the Item ARK
-            final Label pageLabel = new Label(columns[aCsvHeaders.getTitleIndex()]);
-            final Optional<String> format = CsvParser.getMetadata(columns, aCsvHeaders.getMediaFormatIndex());
-
-            final String imageThumbnailSize = StringUtils.trimTo(
-                    config().getString(Config.DEFAULT_IMAGE_THUMBNAIL_SIZE), Constants.DEFAULT_IMAGE_THUMBNAIL_SIZE);
-            final String encodedPageID = URLEncoder.encode(pageID, StandardCharsets.UTF_8); // Encode Item ARK
-            final Optional<String> thumbnailOpt = CsvParser.getMetadata(columns, aCsvHeaders.getThumbnailIndex());
-            final Canvas canvas = new Canvas(aMinter, pageLabel);
+    private Future<Canvas[]> createCanvases(final CsvHeaders aCsvHeaders, final List<String[]> aPageList,
+            final String aImageHost, final String aPlaceholderImage, final Minter aMinter) {
+        return FutureUtils.mapInOrder(aPageList, myLookupConcurrency, columns -> {
+            return createCanvas(aCsvHeaders, columns, aImageHost, aPlaceholderImage, aMinter);
+        }).map(canvases -> canvases.toArray(new Canvas[] {}));
+    }
 
+    /**
+     * Creates a canvas for a page of a work.
+     *
+     * @param aCsvHeaders A CSV headers
+     * @param aColumns The CSV data of the page
+     * @param aImageHost An image host for image links
+     * @param aPlaceholderImage A placeholder image for images that can't be found (may be null)
+     * @param aMinter An ID minter
+     * @return A future with the page's canvas
+     */
+    private Future<Canvas> createCanvas(final CsvHeaders aCsvHeaders, final String[] aColumns,
+            final String aImageHost, final String aPlaceholderImage, final Minter aMinter) {
+        final Label pageLabel = new Label(aColumns[aCsvHeaders.getTitleIndex()]);
+        final Optional<String> format = CsvParser.getMetadata(aColumns, aCsvHeaders.getMediaFormatIndex());
+        final Optional<String> thumbnailOpt = CsvParser.getMetadata(aColumns, aCsvHeaders.getThumbnailIndex());
+        final Canvas canvas = new Canvas(aMinter, pageLabel);
+        final Future<Canvas> paintedCanvas;
+
+        // We've already validated the MIME type in CsvParser, so it's fine to just check for a substring here
+        if (format.isPresent() && format.get().contains("video/")) {
+            final String resourceURI = CsvParser.getMetadata(aColumns, aCsvHeaders.getContentAccessUrlIndex()).get();
+            final VideoContent[] videos = getVideoContent(resourceURI);
             final String thumbnail;
-            final String pageURI;
             final float duration;
+            final int width;
+            final int height;
 
-            int width;
-            int height;
-
-            // We've already validated the MIME type in CsvParser, so it's fine to just check for a substring here
-            if (format.isPresent() && format.get().contains("video/")) {
-                final String resourceURI = CsvParser.getMetadata(columns, aCsvHeaders.getContentAccessUrlIndex()).get();
-                final VideoContent[] videos = getVideoContent(resourceURI);
-
-                if (thumbnailOpt.isPresent()) {
-                    thumbnail = thumbnailOpt.get();
-                } else {
-                    thumbnail = StringUtils.trimTo(config().getString(Config.DEFAULT_VIDEO_THUMBNAIL),
-                            Constants.UCLA_VIDEO_THUMBNAIL);
-                }
-
-                // We've already validated these numeric values in CsvParser
-                width = Integer.parseInt(CsvParser.getMetadata(columns, aCsvHeaders.getMediaWidthIndex()).get());
-                height = Integer.parseInt(CsvParser.getMetadata(columns, aCsvHeaders.getMediaHeightIndex()).get());
-                duration = Float.parseFloat(CsvParser.getMetadata(columns, aCsvHeaders.getMediaDurationIndex()).get());
-
-                canvas.setWidthHeight(width, height).setDuration(duration).setThumbnails(new ImageContent(thumbnail));
-                canvas.paintWith(true, videos);
-            } else if (format.isPresent() && format.get().contains("audio/")) {
-                final String resourceURI = CsvParser.getMetadata(columns, aCsvHeaders.getContentAccessUrlIndex()).get();
-                final SoundContent[] audios = getSoundContent(resourceURI);
-
-                if (thumbnailOpt.isPresent()) {
-                    thumbnail = thumbnailOpt.get();
-                } else {
-                    thumbnail = StringUtils.trimTo(config().getString(Config.DEFAULT_AUDIO_THUMBNAIL),
-                            Constants.UCLA_AUDIO_THUMBNAIL);
-                }
-
-                // We've already validated this numeric value in CsvParser
-                duration = Float.parseFloat(CsvParser.getMetadata(columns, aCsvHeaders.getMediaDurationIndex()).get());
-
-                canvas.setDuration(duration).setThumbnails(new ImageContent(thumbnail));
-                canvas.paintWith(true, audios);
-
-                // Possibly modify the annotation created with the above call to paintWith
-                CsvParser.getMetadata(columns, aCsvHeaders.getWaveformIndex()).ifPresent(waveformURI -> {
-                    final SeeAlso waveform = new SeeAlso(waveformURI, ResourceTypes.DATASET)
-                            .setProfile(Constants.AUDIOWAVEFORM_DATASET).setFormat(MediaType.APPLICATION_OCTET_STREAM);
-                    // This assumes that there is only one AnnotationPage (with only one Annotation) on the Canvas
-                    final PaintingAnnotation anno = canvas.getPaintingPages().get(0).getAnnotations().get(0);
-
-                    anno.setSeeAlsoRefs(waveform);
-                });
+            if (thumbnailOpt.isPresent()) {
+                thumbnail = thumbnailOpt.get();
             } else {
-                final String accessURI = StringUtils.trimToNull(columns[aCsvHeaders.getContentAccessUrlIndex()]);
+                thumbnail = StringUtils.trimTo(config().getString(Config.DEFAULT_VIDEO_THUMBNAIL),
+                        Constants.UCLA_VIDEO_THUMBNAIL);
+            }
 
-                String resourceURI;
-                ImageContent image;
+            // We've already validated these numeric values in CsvParser
+            width = Integer.parseInt(CsvParser.getMetadata(aColumns, aCsvHeaders.getMediaWidthIndex()).get());
+            height = Integer.parseInt(CsvParser.getMetadata(aColumns, aCsvHeaders.getMediaHeightIndex()).get());
+            duration = Float.parseFloat(CsvParser.getMetadata(aColumns, aCsvHeaders.getMediaDurationIndex()).get());
+
+            canvas.setWidthHeight(width, height).setDuration(duration).setThumbnails(new ImageContent(thumbnail));
+            canvas.paintWith(true, videos);
+            paintedCanvas = Future.succeededFuture(canvas);
+        } else if (format.isPresent() && format.get().contains("audio/")) {
+            final String resourceURI = CsvParser.getMetadata(aColumns, aCsvHeaders.getContentAccessUrlIndex()).get();
+            final SoundContent[] audios = getSoundContent(resourceURI);
+            final String thumbnail;
+            final float duration;
 
-                pageURI = StringUtils.format(SIMPLE_URI, aImageHost, encodedPageID); // Get page URI from encoded ID
-                resourceURI = StringUtils.format(Constants.SAMPLE_URI_TEMPLATE, pageURI, Constants.DEFAULT_SAMPLE_SIZE);
+            if (thumbnailOpt.isPresent()) {
+                thumbnail = thumbnailOpt.get();
+            } else {
+                thumbnail = StringUtils.trimTo(config().getString(Config.DEFAULT_AUDIO_THUMBNAIL),
+                        Constants.UCLA_AUDIO_THUMBNAIL);
+            }
 
-                if (thumbnailOpt.isPresent()) {
-                    thumbnail = thumbnailOpt.get();
-                } else {
-                    thumbnail = StringUtils.format(Constants.IIIF_THUMBNAIL_URI_TEMPLATE, pageURI, imageThumbnailSize);
-                }
+            // We've already validated this numeric value in CsvParser
+            duration = Float.parseFloat(CsvParser.getMetadata(aColumns, aCsvHeaders.getMediaDurationIndex()).get());
 
-                // Try to look up the w/h but on failure, fall back to a placeholder image
-                try {
-                    final Optional<String> mediaWidth =
-                            CsvParser.getMetadata(columns, aCsvHeaders.getMediaWidthIndex());
-                    final Optional<String> mediaHeight =
-                            CsvParser.getMetadata(columns, aCsvHeaders.getMediaHeightIndex());
-
-                    if (mediaWidth.isPresent() && mediaHeight.isPresent()) {
-                        width = Integer.parseInt(mediaWidth.get());
-                        height = Integer.parseInt(mediaHeight.get());
-                        image = new ImageContent(resourceURI);
-
-                        // Does the URI have a file extension?
-                        if (!isStaticFile(accessURI)) {
-                            image.setServices(new ImageService2(pageURI));
-                        }
-                    } else {
-                        final ImageInfoLookup infoLookup = new ImageInfoLookup(pageURI); // Look up w/h for page URI
+            canvas.setDuration(duration).setThumbnails(new ImageContent(thumbnail));
+            canvas.paintWith(true, audios);
 
-                        width = infoLookup.getWidth();
-                        height = infoLookup.getHeight();
-                        image = new ImageContent(resourceURI).setServices(new ImageService2(pageURI));
-                    }
+            // Possibly modify the annotation created with the above call to paintWith
+            CsvParser.getMetadata(aColumns, aCsvHeaders.getWaveformIndex()).ifPresent(waveformURI -> {
+                final SeeAlso waveform = new SeeAlso(waveformURI, ResourceTypes.DATASET)
+                        .setProfile(Constants.AUDIOWAVEFORM_DATASET).setFormat(MediaType.APPLICATION_OCTET_STREAM);
+                // This assumes that there is only one AnnotationPage (with only one Annotation) on the Canvas
+                final PaintingAnnotation anno = canvas.getPaintingPages().get(0).getAnnotations().get(0);
 
-                    image.setWidthHeight(width, height);
-                    canvas.setWidthHeight(width, height).setThumbnails(new ImageContent(thumbnail));
-                    canvas.paintWith(image);
-                } catch (final IOException details) {
-                    LOGGER.info(MessageCodes.MFS_078, pageID);
-
-                    if (aPlaceholderImage != null) {
-                        try {
-                            final ImageInfoLookup placeholderLookup = new ImageInfoLookup(aPlaceholderImage);
-                            final int size;
-
-                            width = placeholderLookup.getWidth();
-                            height = placeholderLookup.getHeight();
-
-                            if (width >= Constants.DEFAULT_SAMPLE_SIZE) {
-                                size = Constants.DEFAULT_SAMPLE_SIZE;
-                            } else {
-                                size = width;
-                            }
-
-                            // If placeholder image found, use its URL for image resource and service
-                            resourceURI = StringUtils.format(Constants.SAMPLE_URI_TEMPLATE, aPlaceholderImage, size);
-                            image = new ImageContent(resourceURI).setServices(new ImageService2(aPlaceholderImage));
-
-                            // Create a canvas using the width and height of the placeholder image
-                            canvas.setWidthHeight(width, height).setThumbnails(new ImageContent(thumbnail));
-                            canvas.paintWith(image);
-                        } catch (final IOException lookupDetails) {
-                            // We couldn't find the placeholder image so we create an empty canvas
-                            LOGGER.error(lookupDetails, lookupDetails.getMessage());
-
-                            // No image content added to canvas when we couldn't find any
-                        }
-                    } else {
-                        // We couldn't find the placeholder image so we keep the canvas empty
-                        LOGGER.info(MessageCodes.MFS_099, pageID);
+                anno.setSeeAlsoRefs(waveform);
+            });
 
-                        // No image content added to canvas when we couldn't find any
-                    }
-                }
-            }
+            paintedCanvas = Future.succeededFuture(canvas);
+        } else {
+            paintedCanvas = paintImage(aCsvHeaders, aColumns, aImageHost, aPlaceholderImage, canvas);
+        }
 
+        return paintedCanvas.map(result -> {
             if (aCsvHeaders.hasViewingHintIndex()) {
-                final String behavior = StringUtils.trimToNull(columns[aCsvHeaders.getViewingHintIndex()]);
+                final String behavior = StringUtils.trimToNull(aColumns[aCsvHeaders.getViewingHintIndex()]);
 
                 try {
-                    final ObjectType objectType = CsvParser.getObjectType(columns, aCsvHeaders);
+                    final ObjectType objectType = CsvParser.getObjectType(aColumns, aCsvHeaders);
 
                     if (objectType == ObjectType.PAGE && behavior != null) {
-                        CanvasBehavior.fromLabel(behavior).ifPresent(canvas::setBehaviors);
+                        CanvasBehavior.fromLabel(behavior).ifPresent(result::setBehaviors);
                     }
                 } catch (final CsvParsingException details) {
                     LOGGER.error(details.getMessage());
                 }
             }
 
-            canvases.add(canvas);
+            return result;
+        });
+    }
+
+    /**
+     * Paints a page's image on its canvas. The image's width and height are taken from the CSV data if they're there;
+     * otherwise, they're read from the header of the page's static image, if it has one, or looked up on the image
+     * server. If the image server can't be asked, a placeholder image is used instead (or, if there isn't one of
+     * those, the canvas is left empty).
+     *
+     * @param aCsvHeaders A CSV headers
+     * @param aColumns The CSV data of the page
+     * @param aImageHost An image host for image links
+     * @param aPlaceholderImage A placeholder image for images that can't be found (may be null)
+     * @param aCanvas The page's canvas
+     * @return A future with the painted canvas; it fails with an {@link ImageNotFoundException} if the image from the
+     *         CSV data couldn't be found or was bad data
+     */
+    private Future<Canvas> paintImage(final CsvHeaders aCsvHeaders, final String[] aColumns, final String aImageHost,
+            final String aPlaceholderImage, final Canvas aCanvas) {
+        final String pageID = aColumns[aCsvHeaders.getItemArkIndex()]; // Get the Item ARK
+        final String imageThumbnailSize = StringUtils.trimTo(
+                config().getString(Config.DEFAULT_IMAGE_THUMBNAIL_SIZE), Constants.DEFAULT_IMAGE_THUMBNAIL_SIZE);
+        final String encodedPageID = URLEncoder.encode(pageID, StandardCharsets.UTF_8); // Encode Item ARK
+        final String accessURI = StringUtils.trimToNull(aColumns[aCsvHeaders.getContentAccessUrlIndex()]);
+        final String pageURI = StringUtils.format(SIMPLE_URI, aImageHost, encodedPageID); // Get page URI from ID
+        final String resourceURI =
+                StringUtils.format(Constants.SAMPLE_URI_TEMPLATE, pageURI, Constants.DEFAULT_SAMPLE_SIZE);
+        final Optional<String> mediaWidth = CsvParser.getMetadata(aColumns, aCsvHeaders.getMediaWidthIndex());
+        final Optional<String> mediaHeight = CsvParser.getMetadata(aColumns, aCsvHeaders.getMediaHeightIndex());
+        final String thumbnail = CsvParser.getMetadata(aColumns, aCsvHeaders.getThumbnailIndex()).orElseGet(() -> {
+            return StringUtils.format(Constants.IIIF_THUMBNAIL_URI_TEMPLATE, pageURI, imageThumbnailSize);
+        });
+        final ImageContent image = new ImageContent(resourceURI);
+        final Future<ImageInfo> imageInfo;
+
+        if (mediaWidth.isPresent() && mediaHeight.isPresent()) {
+            final int width = Integer.parseInt(mediaWidth.get());
+            final int height = Integer.parseInt(mediaHeight.get());
+
+            imageInfo = Future.succeededFuture(new ImageInfo(width, height));
+
+            // Does the URI have a file extension?
+            if (!isStaticFile(accessURI)) {
+                image.setServices(new ImageService2(pageURI));
+            }
+        } else if (isStaticFile(accessURI)) {
+            // A static image has no image service to ask, but its header has its width and height
+            imageInfo = myImageInfoLookup.probe(accessURI).recover(details -> {
+                image.setServices(new ImageService2(pageURI));
+                return myImageInfoLookup.lookup(pageURI);
+            });
+        } else {
+            imageInfo = myImageInfoLookup.lookup(pageURI); // Look up w/h for page URI
+            image.setServices(new ImageService2(pageURI));
+        }
+
+        // Try to look up the w/h but on failure, fall back to a placeholder image
+        return imageInfo.map(info -> {
+            image.setWidthHeight(info.getWidth(), info.getHeight());
+            aCanvas.setWidthHeight(info.getWidth(), info.getHeight()).setThumbnails(new ImageContent(thumbnail));
+            aCanvas.paintWith(image);
+            return aCanvas;
+        }).recover(details -> {
+            if (details instanceof ImageNotFoundException) {
+                return Future.failedFuture(details);
+            }
+
+            LOGGER.info(MessageCodes.MFS_078, pageID);
+            return paintPlaceholder(aCanvas, pageID, thumbnail, aPlaceholderImage);
+        });
+    }
+
+    /**
+     * Paints the placeholder image on a canvas whose own image couldn't be looked up.
+     *
+     * @param aCanvas A canvas
+     * @param aPageID The ID of the canvas' page
+     * @param aThumbnail The canvas' thumbnail
+     * @param aPlaceholderImage A placeholder image (may be null)
+     * @return A future with the painted canvas
+     */
+    private Future<Canvas> paintPlaceholder(final Canvas aCanvas, final String aPageID, final String aThumbnail,
+            final String aPlaceholderImage) {
+        if (aPlaceholderImage == null || aPlaceholderImage.isBlank()) {
+            // We couldn't find the placeholder image so we keep the canvas empty
+            LOGGER.info(MessageCodes.MFS_099, aPageID);
+
+            // No image content added to canvas when we couldn't find any
+            return Future.succeededFuture(aCanvas);
         }
 
-        return canvases.toArray(new Canvas[] {});
+        // The placeholder image is only looked up once, however many pages are missing their images
+        return PlaceholderImage.getPlaceholderImage(vertx, config(), aPlaceholderImage).getImageInfo().map(info -> {
+            if (info.isEmpty()) {
+                // We couldn't look up the placeholder image so we keep the canvas empty
+                LOGGER.info(MessageCodes.MFS_229, aPlaceholderImage, aPageID);
+                return aCanvas;
+            }
+
+            // Create a canvas using the width and height of the placeholder image
+            aCanvas.setWidthHeight(info.get().getWidth(), info.get().getHeight());
+            aCanvas.setThumbnails(new ImageContent(aThumbnail));
+            aCanvas.paintWith(getPlaceholderContent(aPlaceholderImage, info.get()));
+            return aCanvas;
+        }).recover(details -> {
+            if (details instanceof ImageNotFoundException) {
+                return Future.failedFuture(details);
+            }
+
+            // We couldn't find the placeholder image so we create an empty canvas
+            LOGGER.error(details, details.getMessage());
+
+            // No image content added to canvas when we couldn't find any
+            return Future.succeededFuture(aCanvas);
+        });
+    }
+
+    /**
+     * Gets the image content for a placeholder image, building it the first time it's needed.
+     *
+     * @param aPlaceholderImage A placeholder image
+     * @param aImageInfo The placeholder image's width and height
+     * @return The placeholder image's content
+     */
+    private ImageContent getPlaceholderContent(final String aPlaceholderImage, final ImageInfo aImageInfo) {
+        return myPlaceholderContent.computeIfAbsent(aPlaceholderImage, url -> {
+            final int size = Math.min(aImageInfo.getWidth(), Constants.DEFAULT_SAMPLE_SIZE);
+            final String resourceURI = StringUtils.format(Constants.SAMPLE_URI_TEMPLATE, url, size);
+
+            // If placeholder image found, use its URL for image resource and service
+            final ImageContent image = new ImageContent(resourceURI).setServices(new ImageService2(url));
+
+            image.setWidthHeight(aImageInfo.getWidth(), aImageInfo.getHeight());
+            return image;
+        });
+    }
+
+    /**
+     * Fails a message because the canvases for its manifest couldn't be created. An image that couldn't be found is a
+     * problem with the CSV data, so it's reported as a bad request.
+     *
+     * @param aMessage A event queue message
+     * @param aThrowable The reason the canvases couldn't be created
+     * @param aMessageCode A message code for any other failure
+     * @param aDetailsArray Additional details about any other failure
+     */
+    private void failCanvases(final Message<?> aMessage, final Throwable aThrowable,
+            final String aMessageCode, final Object... aDetailsArray) {
+        if (aThrowable instanceof ImageNotFoundException) {
+            // We logged this earlier in the ImageInfoLookup class
+            aMessage.fail(HTTP.BAD_REQUEST, aThrowable.getMessage());
+        } else {
+            error(aMessage, aThrowable, aMessageCode, aDetailsArray);
+        }
     }
 
     private VideoContent[] getVideoContent(final String aResourceURI) {
@@ -0,0 +1,133 @@
+
+package edu.ucla.library.iiif.fester;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.ucla.library.iiif.fester.CircuitBreaker.State;
+
+/**
+ * Tests of the circuit breaker that watches the image server.
+ */
+public class CircuitBreakerTest {
+
+    private static final String NAME = "test server";
+
+    private static final long RESET_TIMEOUT = 100;
+
+    /**
+     * Tests that the breaker opens once too many recent calls have failed, and turns calls away while it's open.
+     */
+    @Test
+    public final void testOpensOnFailures() {
+        final CircuitBreaker breaker = new CircuitBreaker(NAME, 20, 0.5D, 10000, 60000, 1000, 60000);
+
+        for (int index = 0; index < 5; index++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onSuccess(10);
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure(10);
+        }
+
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1L, (long) breaker.getStats().getLong(Status.OPENED));
+        assertEquals(1L, (long) breaker.getStats().getLong(Status.REJECTED));
+    }
+
+    /**
+     * Tests that the breaker opens once the recent calls are too slow, even if they all succeeded.
+     */
+    @Test
+    public final void testOpensOnLatency() {
+        final CircuitBreaker breaker = new CircuitBreaker(NAME, 20, 0.5D, 1000, 60000, 1000, 60000);
+
+        for (int index = 0; index < 10; index++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onSuccess(5000);
+        }
+
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    /**
+     * Tests that, after its reset timeout, the breaker lets a single probe through and closes if it succeeds.
+     *
+     * @throws InterruptedException If the test is interrupted while waiting for the reset timeout
+     */
+    @Test
+    public final void testProbeCloses() throws InterruptedException {
+        final CircuitBreaker breaker = getOpenBreaker();
+
+        Thread.sleep(RESET_TIMEOUT * 2);
+
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess(10);
+
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(3, breaker.getStats().getJsonArray(Status.TRANSITIONS).size());
+    }
+
+    /**
+     * Tests that, after its reset timeout, the breaker opens again if its probe fails.
+     *
+     * @throws InterruptedException If the test is interrupted while waiting for the reset timeout
+     */
+    @Test
+    public final void testProbeReopens() throws InterruptedException {
+        final CircuitBreaker breaker = getOpenBreaker();
+
+        Thread.sleep(RESET_TIMEOUT * 2);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure(10);
+
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(2L, (long) breaker.getStats().getLong(Status.OPENED));
+    }
+
+    /**
+     * Tests that the suggested timeout follows the latency of the recent successful calls, within its bounds.
+     */
+    @Test
+    public final void testTimeout() {
+        final CircuitBreaker breaker = new CircuitBreaker(NAME, 20, 0.5D, 10000, 60000, 1000, 60000);
+
+        // Until there have been enough calls, the longest timeout is used
+        assertEquals(60000L, breaker.getTimeout());
+
+        for (int index = 0; index < 10; index++) {
+            breaker.tryAcquire();
+            breaker.onSuccess(index == 0 ? 2000 : 100);
+        }
+
+        assertEquals(6000L, breaker.getTimeout());
+
+        for (int index = 0; index < 20; index++) {
+            breaker.tryAcquire();
+            breaker.onSuccess(10);
+        }
+
+        assertEquals(1000L, breaker.getTimeout());
+    }
+
+    private CircuitBreaker getOpenBreaker() {
+        final CircuitBreaker breaker = new CircuitBreaker(NAME, 10, 0.5D, 10000, RESET_TIMEOUT, 1000, 60000);
+
+        for (int index = 0; index < 10; index++) {
+            breaker.tryAcquire();
+            breaker.onFailure(10);
+        }
+
+        assertEquals(State.OPEN, breaker.getState());
+        return breaker;
+    }
+}
@@ -0,0 +1,81 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import io.vertx.core.Promise;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Tests of the concurrency limiter.
+ */
+@RunWith(VertxUnitRunner.class)
+public class ConcurrencyLimiterTest {
+
+    @Rule
+    public RunTestOnContext myRunTestOnContextRule = new RunTestOnContext();
+
+    /**
+     * Tests that tasks beyond the limit wait until an earlier task has finished.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testLimit(final TestContext aContext) {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(myRunTestOnContextRule.vertx(), 2);
+        final List<Promise<Integer>> promises = new ArrayList<>();
+        final Async async = aContext.async();
+
+        for (int index = 0; index < 3; index++) {
+            limiter.<Integer>submit(promises::add);
+        }
+
+        aContext.assertEquals(2, promises.size());
+        aContext.assertEquals(1, limiter.getStats().getInteger(Status.QUEUED));
+
+        limiter.<Integer>submit(promises::add).onComplete(result -> {
+            aContext.assertEquals(4, result.result());
+            aContext.assertEquals(0, limiter.getInFlightCount());
+            async.complete();
+        });
+
+        promises.get(0).complete(1);
+
+        // The queued tasks are started on their own context, so we wait for them to be started
+        myRunTestOnContextRule.vertx().setTimer(10, timer -> {
+            aContext.assertEquals(3, promises.size());
+            aContext.assertEquals(2, limiter.getInFlightCount());
+
+            promises.get(1).complete(2);
+            promises.get(2).complete(3);
+
+            myRunTestOnContextRule.vertx().setTimer(10, nextTimer -> {
+                promises.get(3).complete(4);
+            });
+        });
+    }
+
+    /**
+     * Tests that a task that throws an exception fails its future and gives up its place.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testException(final TestContext aContext) {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(myRunTestOnContextRule.vertx(), 1);
+
+        limiter.<Integer>submit(promise -> {
+            throw new IllegalStateException();
+        }).onComplete(aContext.asyncAssertFailure(details -> {
+            aContext.assertEquals(0, limiter.getInFlightCount());
+        }));
+    }
+}
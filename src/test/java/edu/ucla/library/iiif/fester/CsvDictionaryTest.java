@@ -0,0 +1,80 @@
+
+package edu.ucla.library.iiif.fester;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the {@link CsvDictionary}.
+ */
+public class CsvDictionaryTest {
+
+    private static final String PARENT_ARK = "ark:/21198/zz0009gv8j";
+
+    private CsvDictionary myDictionary;
+
+    /**
+     * Sets up the tests with an empty dictionary.
+     */
+    @Before
+    public final void setUp() {
+        myDictionary = new CsvDictionary();
+    }
+
+    /**
+     * Tests that the rows that share a value end up sharing the same copy of it.
+     */
+    @Test
+    public final void testIntern() {
+        final String[] first = myDictionary.intern(new String("ark:/21198/a"), new String(PARENT_ARK), "", null);
+        final String[] second = myDictionary.intern(new String("ark:/21198/b"), new String(PARENT_ARK), "", null);
+
+        assertSame(first[1], second[1]);
+        assertSame(Constants.EMPTY, first[2]);
+        assertSame(Constants.EMPTY, second[2]);
+        assertNull(second[3]);
+        assertEquals(3, myDictionary.size());
+    }
+
+    /**
+     * Tests that the same value in different columns isn't shared, since columns are looked up separately.
+     */
+    @Test
+    public final void testColumns() {
+        final String value = new String(PARENT_ARK);
+
+        assertSame(value, myDictionary.intern(0, value));
+        assertNotSame(value, myDictionary.intern(1, new String(PARENT_ARK)));
+    }
+
+    /**
+     * Tests that a column whose values are mostly unique stops being looked up.
+     */
+    @Test
+    public final void testUniqueColumn() {
+        for (int index = 0; index < 1000; index++) {
+            myDictionary.intern(0, "ark:/21198/" + index);
+        }
+
+        assertEquals(0, myDictionary.size());
+        assertNotSame(myDictionary.intern(0, new String(PARENT_ARK)), myDictionary.intern(0, new String(PARENT_ARK)));
+    }
+
+    /**
+     * Tests that a column whose values repeat keeps being looked up.
+     */
+    @Test
+    public final void testRepeatingColumn() {
+        for (int index = 0; index < 1000; index++) {
+            myDictionary.intern(0, "ark:/21198/" + index % 10);
+        }
+
+        assertEquals(10, myDictionary.size());
+        assertSame(myDictionary.intern(0, new String(PARENT_ARK)), myDictionary.intern(0, new String(PARENT_ARK)));
+    }
+}
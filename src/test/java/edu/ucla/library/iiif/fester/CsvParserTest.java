@@ -1,14 +1,22 @@
 
 package edu.ucla.library.iiif.fester;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -149,6 +157,126 @@ public class CsvParserTest {
         assertEquals(0, myCsvParser.getCsvMetadata().getPagesMap().size());
     }
 
+    /**
+     * Tests that parsing a CSV as a stream hands over the same works and pages that a full parse keeps.
+     *
+     * @throws CsvParsingException If there is an error while parsing the CSV data
+     * @throws CsvException If there is a generic CSV error
+     * @throws IOException If there is trouble reading the CSV data
+     */
+    @Test
+    public final void testParseStreaming() throws CsvParsingException, CsvException, IOException {
+        final Path path = Paths.get("src/test/resources/csv/hathaway-updated.csv");
+        final List<String[]> works = new ArrayList<>();
+        final Map<String, Integer> pageCounts = new HashMap<>();
+        final CsvParser parser = new CsvParser().parse(path, null, null, new CsvConsumer() {
+
+            @Override
+            public void acceptWork(final String aCollectionID, final String[] aRow) {
+                works.add(aRow);
+            }
+
+            @Override
+            public void acceptPages(final String aWorkID, final List<String[]> aPages) {
+                assertNull(pageCounts.put(aWorkID, aPages.size())); // Each work's pages are together in this CSV
+            }
+        });
+        final CsvMetadata metadata = myCsvParser.parse(path).getCsvMetadata();
+
+        assertEquals(metadata.getWorksList().size(), works.size());
+        assertEquals(metadata.getPagesMap().size(), pageCounts.size());
+
+        metadata.getPagesMap().forEach((workID, pages) -> {
+            assertEquals(pages.size(), (int) pageCounts.get(workID));
+        });
+
+        // Parsing a CSV as a stream only keeps its collection and headers
+        assertTrue(parser.getCsvCollection().isPresent());
+        assertFalse(parser.getCsvMetadata().hasWorks());
+        assertFalse(parser.getCsvMetadata().hasPages());
+    }
+
+    /**
+     * Tests that values that repeat from row to row are only kept once.
+     *
+     * @throws CsvParsingException If there is an error while parsing the CSV data
+     * @throws CsvException If there is a generic CSV error
+     * @throws IOException If there is trouble reading the CSV data
+     */
+    @Test
+    public final void testSharedValues() throws CsvParsingException, CsvException, IOException {
+        final Path path = Paths.get("src/test/resources/csv/hathaway-updated.csv");
+        final CsvParser parser = myCsvParser.parse(path);
+        final List<String[]> works = parser.getCsvMetadata().getWorksList();
+        final int parentIndex = parser.getCsvHeaders().getParentArkIndex();
+        final int objectTypeIndex = parser.getCsvHeaders().getObjectTypeIndex();
+
+        assertSame(works.get(0)[parentIndex], works.get(works.size() - 1)[parentIndex]);
+        assertSame(works.get(0)[objectTypeIndex], works.get(works.size() - 1)[objectTypeIndex]);
+    }
+
+    /**
+     * Tests that a CSV whose pages are spilled to disk has the same pages as one whose pages are kept in the heap.
+     *
+     * @throws CsvParsingException If there is an error while parsing the CSV data
+     * @throws CsvException If there is a generic CSV error
+     * @throws IOException If there is trouble reading the CSV data
+     */
+    @Test
+    public final void testSpilledPages() throws CsvParsingException, CsvException, IOException {
+        final Path path = Paths.get("src/test/resources/csv/hathaway-updated.csv");
+        final Map<String, List<String[]>> expected = myCsvParser.parse(path).getCsvMetadata().getPagesMap();
+
+        try (CsvMetadata metadata = new CsvParser(1024).parse(path).getCsvMetadata()) {
+            assertTrue(metadata.hasSpilledPages());
+            assertEquals(expected.keySet(), metadata.getPageWorkIDs());
+            assertEquals(expected.values().stream().mapToInt(List::size).sum(), metadata.getPageCount());
+
+            expected.forEach((workID, pages) -> {
+                final List<String[]> spilledPages = metadata.getPages(workID);
+
+                assertEquals(pages.size(), spilledPages.size());
+
+                for (int index = 0; index < pages.size(); index++) {
+                    assertArrayEquals(pages.get(index), spilledPages.get(index));
+                }
+            });
+        }
+    }
+
+    /**
+     * Tests that collecting a CSV's pages while also handing them to a consumer keeps the same pages as a full parse,
+     * even once they've been spilled to disk.
+     *
+     * @throws CsvParsingException If there is an error while parsing the CSV data
+     * @throws CsvException If there is a generic CSV error
+     * @throws IOException If there is trouble reading the CSV data
+     */
+    @Test
+    public final void testCollect() throws CsvParsingException, CsvException, IOException {
+        final Path path = Paths.get("src/test/resources/csv/hathaway-updated.csv");
+        final Map<String, List<String[]>> expected = myCsvParser.parse(path).getCsvMetadata().getPagesMap();
+        final Map<String, Integer> pageCounts = new HashMap<>();
+        final CsvParser parser = new CsvParser(1024).collect(path, null, null, new CsvConsumer() {
+
+            @Override
+            public void acceptPages(final String aWorkID, final List<String[]> aPages) {
+                pageCounts.merge(aWorkID, aPages.size(), Integer::sum);
+            }
+        });
+
+        try (CsvMetadata metadata = parser.getCsvMetadata()) {
+            assertTrue(metadata.hasSpilledPages());
+            assertEquals(expected.keySet(), metadata.getPageWorkIDs());
+            assertEquals(expected.keySet(), pageCounts.keySet());
+
+            expected.forEach((workID, pages) -> {
+                assertEquals(pages.size(), metadata.getPages(workID).size());
+                assertEquals(pages.size(), (int) pageCounts.get(workID));
+            });
+        }
+    }
+
     /**
      * Tests catching an EOL in a CSV file.
      *
@@ -0,0 +1,61 @@
+
+package edu.ucla.library.iiif.fester;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Tests of the per-host request metrics.
+ */
+public class HostMetricsTest {
+
+    private static final String IMAGE_HOST = "iiif.library.ucla.edu:443";
+
+    private static final String OTHER_IMAGE_HOST = "localhost:8182";
+
+    /**
+     * Tests that a URL's host is found, with the scheme's default port if it doesn't have one.
+     */
+    @Test
+    public final void testGetHost() {
+        assertEquals(IMAGE_HOST, HostMetrics.getHost("https://iiif.library.ucla.edu/iiif/2/blank/info.json"));
+        assertEquals("iiif.library.ucla.edu:80", HostMetrics.getHost("http://iiif.library.ucla.edu/iiif/2/blank"));
+        assertEquals(OTHER_IMAGE_HOST, HostMetrics.getHost("http://localhost:8182/iiif/2/blank/info.json"));
+    }
+
+    /**
+     * Tests that requests and their latencies are counted separately for each host.
+     */
+    @Test
+    public final void testStats() {
+        final HostMetrics metrics = new HostMetrics();
+        final JsonObject stats;
+        final JsonObject host;
+
+        for (int index = 1; index <= 100; index++) {
+            metrics.onStart(IMAGE_HOST);
+            metrics.onEnd(IMAGE_HOST, index, index % 10 == 0);
+        }
+
+        metrics.onStart(OTHER_IMAGE_HOST);
+        metrics.onConnectionOpened();
+        metrics.onConnectionOpened();
+        metrics.onConnectionClosed();
+
+        stats = metrics.getStats();
+        host = stats.getJsonObject(Status.HOSTS).getJsonObject(IMAGE_HOST);
+
+        assertEquals(100L, (long) host.getLong(Status.REQUESTS));
+        assertEquals(10L, (long) host.getLong(Status.FAILURES));
+        assertEquals(0, (int) host.getInteger(Status.IN_FLIGHT));
+        assertEquals(50L, (long) host.getLong(Status.P50_LATENCY));
+        assertEquals(99L, (long) host.getLong(Status.P99_LATENCY));
+        assertEquals(1, (int) stats.getJsonObject(Status.HOSTS).getJsonObject(OTHER_IMAGE_HOST)
+                .getInteger(Status.IN_FLIGHT));
+        assertEquals(1L, (long) stats.getLong(Status.CONNECTIONS));
+        assertEquals(2L, (long) stats.getLong(Status.CONNECTIONS_OPENED));
+    }
+}
@@ -0,0 +1,147 @@
+
+package edu.ucla.library.iiif.fester;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Tests of reading static images' widths and heights from their headers.
+ */
+public class ImageHeaderParserTest {
+
+    private static final int MAX_LENGTH = 1024;
+
+    /**
+     * Tests reading a PNG's width and height.
+     *
+     * @throws IOException If the header can't be read
+     */
+    @Test
+    public final void testPNG() throws IOException {
+        final Buffer png = Buffer.buffer(new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' });
+
+        png.appendInt(13).appendString("IHDR").appendInt(6000).appendInt(4000).appendBytes(new byte[5]);
+
+        assertDimensions(6000, 4000, parse(png, MAX_LENGTH));
+    }
+
+    /**
+     * Tests reading a GIF's width and height.
+     *
+     * @throws IOException If the header can't be read
+     */
+    @Test
+    public final void testGIF() throws IOException {
+        final Buffer gif = Buffer.buffer("GIF89a").appendUnsignedShortLE(640).appendUnsignedShortLE(480);
+
+        assertDimensions(640, 480, parse(gif, MAX_LENGTH));
+    }
+
+    /**
+     * Tests reading the width and height of lossy, lossless and extended WebP images.
+     *
+     * @throws IOException If a header can't be read
+     */
+    @Test
+    public final void testWebP() throws IOException {
+        final Buffer lossy = getWebP("VP8 ").appendBytes(new byte[] { 0, 0, 0, (byte) 0x9D, 0x01, 0x2A });
+        final Buffer lossless = getWebP("VP8L").appendByte((byte) 0x2F);
+        final Buffer extended = getWebP("VP8X").appendBytes(new byte[4]);
+
+        lossy.appendUnsignedShortLE(1024).appendUnsignedShortLE(768);
+        assertDimensions(1024, 768, parse(lossy, MAX_LENGTH));
+
+        // The width and height less one are packed into fourteen bits each
+        lossless.appendUnsignedIntLE(1023 | 767 << 14).appendBytes(new byte[5]);
+        assertDimensions(1024, 768, parse(lossless, MAX_LENGTH));
+
+        extended.appendUnsignedMediumLE(20000 - 1).appendUnsignedMediumLE(10000 - 1);
+        assertDimensions(20000, 10000, parse(extended, MAX_LENGTH));
+    }
+
+    /**
+     * Tests reading a JPEG's width and height from a frame header that comes after other segments.
+     *
+     * @throws IOException If the header can't be read
+     */
+    @Test
+    public final void testJPEG() throws IOException {
+        assertDimensions(3000, 2000, parse(getJPEG(100), MAX_LENGTH));
+    }
+
+    /**
+     * Tests that a JPEG whose frame header is beyond the bytes that were kept asks for the bytes it needs.
+     *
+     * @throws IOException If the header can't be read
+     */
+    @Test
+    public final void testTruncatedJPEG() throws IOException {
+        final ImageHeaderParser parser = new ImageHeaderParser(MAX_LENGTH);
+        final Buffer jpeg = getJPEG(2000);
+
+        parser.write(jpeg);
+
+        assertFalse(parser.getImageInfo().isPresent());
+        // The frame header ends nine bytes after the metadata segment, which ends 2024 bytes into the image
+        assertEquals(2024 + 9, parser.getRequiredLength());
+        assertDimensions(3000, 2000, parse(jpeg, parser.getRequiredLength()));
+    }
+
+    /**
+     * Tests that bytes that aren't a known image header can't be read.
+     *
+     * @throws IOException If the header can't be read
+     */
+    @Test(expected = IOException.class)
+    public final void testUnknownFormat() throws IOException {
+        parse(Buffer.buffer("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"10\" height=\"10\"/>"), MAX_LENGTH);
+    }
+
+    private Optional<ImageInfo> parse(final Buffer aImage, final int aMaxLength) throws IOException {
+        final ImageHeaderParser parser = new ImageHeaderParser(aMaxLength);
+
+        // Write the image in small pieces, like it would arrive from the network
+        for (int index = 0; index < aImage.length(); index += 7) {
+            parser.write(aImage.getBuffer(index, Math.min(aImage.length(), index + 7)));
+        }
+
+        parser.end();
+        return parser.getImageInfo();
+    }
+
+    private void assertDimensions(final int aWidth, final int aHeight, final Optional<ImageInfo> aImageInfo) {
+        assertEquals(aWidth, aImageInfo.get().getWidth());
+        assertEquals(aHeight, aImageInfo.get().getHeight());
+    }
+
+    private Buffer getWebP(final String aChunkType) {
+        return Buffer.buffer("RIFF").appendIntLE(0).appendString("WEBP").appendString(aChunkType).appendIntLE(0);
+    }
+
+    /**
+     * Gets the start of a JPEG with an APP0 segment, a metadata segment of the supplied length, and a frame header.
+     *
+     * @param aMetadataLength The length of the metadata in the JPEG's APP1 segment
+     * @return The start of a JPEG image
+     */
+    private Buffer getJPEG(final int aMetadataLength) {
+        final Buffer jpeg = Buffer.buffer().appendUnsignedShort(0xFFD8);
+
+        jpeg.appendUnsignedShort(0xFFE0).appendUnsignedShort(16).appendString("JFIF", StandardCharsets.US_ASCII.name());
+        jpeg.appendBytes(new byte[10]);
+        jpeg.appendUnsignedShort(0xFFE1).appendUnsignedShort(aMetadataLength + 2);
+        jpeg.appendBytes(new byte[aMetadataLength]);
+        jpeg.appendUnsignedShort(0xFFC2).appendUnsignedShort(17).appendByte((byte) 8);
+        jpeg.appendUnsignedShort(2000).appendUnsignedShort(3000).appendBytes(new byte[10]);
+
+        return jpeg;
+    }
+}
@@ -0,0 +1,221 @@
+
+package edu.ucla.library.iiif.fester;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the persistent cache of image widths and heights.
+ */
+public class ImageInfoCacheTest {
+
+    private static final String IMAGE_URL = "https://iiif.library.ucla.edu/iiif/2/ark%3A%2F21198%2Fz12f8rtw";
+
+    private static final String OTHER_IMAGE_URL = "https://iiif.library.ucla.edu/iiif/2/ark%3A%2F21198%2Fzz0009gv8j";
+
+    private Path myPath;
+
+    /**
+     * Sets up the tests.
+     *
+     * @throws IOException If the cache's directory can't be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        myPath = Files.createTempDirectory(ImageInfoCacheTest.class.getSimpleName()).resolve("image-info.cache");
+    }
+
+    /**
+     * Tests that cached widths and heights survive the cache being reopened.
+     *
+     * @throws IOException If the cache's file can't be opened
+     */
+    @Test
+    public final void testPersistence() throws IOException {
+        final ImageInfoCache cache = new ImageInfoCache(myPath, 1024, 10);
+        final ImageInfoCache reopenedCache;
+
+        cache.put(IMAGE_URL, new ImageInfo(6000, 4000));
+        cache.flush();
+
+        reopenedCache = new ImageInfoCache(myPath, 1024, 10);
+
+        assertEquals(1, reopenedCache.size());
+        assertEquals(6000, reopenedCache.get(IMAGE_URL).get().getWidth());
+        assertEquals(4000, reopenedCache.get(IMAGE_URL).get().getHeight());
+        assertFalse(reopenedCache.get(OTHER_IMAGE_URL).isPresent());
+
+        // The first hit is read from disk and the second from memory
+        assertEquals(2L, (long) reopenedCache.getStats().getLong(Status.HITS));
+        assertEquals(1L, (long) reopenedCache.getStats().getLong(Status.DISK_HITS));
+        assertEquals(1L, (long) reopenedCache.getStats().getLong(Status.MISSES));
+    }
+
+    /**
+     * Tests that an invalidated entry is forgotten, both in memory and on disk, and can be cached again.
+     *
+     * @throws IOException If the cache's file can't be opened
+     */
+    @Test
+    public final void testInvalidate() throws IOException {
+        final ImageInfoCache cache = new ImageInfoCache(myPath, 1024, 10);
+
+        cache.put(IMAGE_URL, new ImageInfo(6000, 4000));
+
+        assertTrue(cache.invalidate(IMAGE_URL));
+        assertFalse(cache.invalidate(IMAGE_URL));
+        assertFalse(cache.get(IMAGE_URL).isPresent());
+        assertFalse(new ImageInfoCache(myPath, 1024, 10).get(IMAGE_URL).isPresent());
+
+        cache.put(IMAGE_URL, new ImageInfo(3000, 2000));
+
+        assertEquals(1, cache.size());
+        assertEquals(3000, new ImageInfoCache(myPath, 1024, 10).get(IMAGE_URL).get().getWidth());
+    }
+
+    /**
+     * Tests that the table grows once it's three quarters full and keeps all its entries.
+     *
+     * @throws IOException If the cache's file can't be opened
+     */
+    @Test
+    public final void testGrowth() throws IOException {
+        final ImageInfoCache cache = new ImageInfoCache(myPath, 1024, 0);
+
+        for (int index = 1; index <= 1000; index++) {
+            cache.put(IMAGE_URL + index, new ImageInfo(index, index));
+        }
+
+        assertEquals(1000, cache.size());
+        assertEquals(2048, (int) cache.getStats().getInteger(Status.CAPACITY));
+
+        for (int index = 1; index <= 1000; index++) {
+            assertEquals(index, cache.get(IMAGE_URL + index).get().getWidth());
+        }
+    }
+
+    /**
+     * Tests that the table is grown in the background, and that the entries changed while it's being copied aren't
+     * lost.
+     *
+     * @throws IOException If the cache's file can't be opened
+     */
+    @Test
+    public final void testBackgroundGrowth() throws IOException {
+        final List<Runnable> growths = new ArrayList<>();
+        final ImageInfoCache cache = new ImageInfoCache(myPath, 1024, 0, growths::add);
+
+        for (int index = 1; index <= 600; index++) {
+            cache.put(IMAGE_URL + index, new ImageInfo(index, index));
+        }
+
+        cache.invalidate(IMAGE_URL + 1);
+
+        assertEquals(1, growths.size());
+        assertEquals(1024, (int) cache.getStats().getInteger(Status.CAPACITY));
+
+        growths.get(0).run();
+
+        assertEquals(599, cache.size());
+        assertEquals(2048, (int) cache.getStats().getInteger(Status.CAPACITY));
+        assertFalse(cache.get(IMAGE_URL + 1).isPresent());
+
+        for (int index = 2; index <= 600; index++) {
+            assertEquals(index, cache.get(IMAGE_URL + index).get().getWidth());
+        }
+    }
+
+    /**
+     * Tests that images without a width or height aren't cached.
+     *
+     * @throws IOException If the cache's file can't be opened
+     */
+    @Test
+    public final void testMissingDimensions() throws IOException {
+        final ImageInfoCache cache = new ImageInfoCache(myPath, 1024, 10);
+
+        cache.put(IMAGE_URL, new ImageInfo(0, 0));
+
+        assertFalse(cache.get(IMAGE_URL).isPresent());
+    }
+
+    /**
+     * Tests that clearing the cache forgets all of its entries.
+     *
+     * @throws IOException If the cache's file can't be opened
+     */
+    @Test
+    public final void testClear() throws IOException {
+        final ImageInfoCache cache = new ImageInfoCache(myPath, 1024, 10);
+
+        cache.put(IMAGE_URL, new ImageInfo(6000, 4000));
+        cache.put(OTHER_IMAGE_URL, new ImageInfo(3000, 2000));
+
+        assertEquals(2, cache.clear());
+        assertEquals(0, cache.size());
+        assertFalse(new ImageInfoCache(myPath, 1024, 10).get(OTHER_IMAGE_URL).isPresent());
+    }
+
+    /**
+     * Tests that preloading goes straight into the table, without replacing cached entries or recently used ones.
+     *
+     * @throws IOException If the cache's file can't be opened
+     */
+    @Test
+    public final void testPreload() throws IOException {
+        final ImageInfoCache cache = new ImageInfoCache(myPath, 1024, 10);
+
+        cache.put(IMAGE_URL, new ImageInfo(6000, 4000));
+
+        assertFalse(cache.preload(IMAGE_URL, new ImageInfo(1, 1)));
+        assertTrue(cache.preload(OTHER_IMAGE_URL, new ImageInfo(3000, 2000)));
+        assertEquals(1, (int) cache.getStats().getInteger(Status.RECENT_ENTRIES));
+        assertEquals(2, cache.size());
+        assertEquals(6000, cache.get(IMAGE_URL).get().getWidth());
+        assertEquals(3000, cache.get(OTHER_IMAGE_URL).get().getWidth());
+    }
+
+    /**
+     * Tests that a file that isn't a cache file is replaced with an empty cache.
+     *
+     * @throws IOException If the cache's file can't be opened
+     */
+    @Test
+    public final void testUnreadableFile() throws IOException {
+        final ImageInfoCache cache;
+
+        Files.write(myPath, "not a cache".getBytes(StandardCharsets.UTF_8));
+        cache = new ImageInfoCache(myPath, 1024, 10);
+        cache.put(IMAGE_URL, new ImageInfo(6000, 4000));
+
+        assertEquals(1, new ImageInfoCache(myPath, 1024, 10).size());
+    }
+
+    /**
+     * Tests that a cache without a file keeps its entries in memory.
+     *
+     * @throws IOException If the cache can't be created
+     */
+    @Test
+    public final void testMemoryOnly() throws IOException {
+        final ImageInfoCache cache = new ImageInfoCache(null, 1024, 1);
+
+        cache.put(IMAGE_URL, new ImageInfo(6000, 4000));
+        cache.put(OTHER_IMAGE_URL, new ImageInfo(3000, 2000));
+
+        assertEquals(1, cache.size());
+        assertFalse(cache.get(IMAGE_URL).isPresent());
+        assertTrue(cache.get(OTHER_IMAGE_URL).isPresent());
+    }
+}
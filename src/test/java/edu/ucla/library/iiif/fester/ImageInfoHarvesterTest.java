@@ -0,0 +1,149 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import edu.ucla.library.iiif.fester.storage.FileSystemStorage;
+import edu.ucla.library.iiif.fester.storage.Storage;
+import edu.ucla.library.iiif.fester.storage.StorageFactory;
+import edu.ucla.library.iiif.fester.utils.CompressionUtils;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Tests of harvesting image widths and heights from the stored manifests.
+ */
+@RunWith(VertxUnitRunner.class)
+public class ImageInfoHarvesterTest {
+
+    private static final String SERVICE_ID = "https://iiif.library.ucla.edu/iiif/2/ark%3A%2F21198%2Fz12f8rtw";
+
+    private static final String OTHER_SERVICE_ID = "https://iiif.library.ucla.edu/iiif/2/ark%3A%2F21198%2Fzz0009gv8j";
+
+    private static final long POLL_INTERVAL = 50;
+
+    @Rule
+    public RunTestOnContext myRunTestOnContextRule = new RunTestOnContext();
+
+    private JsonObject myConfig;
+
+    /**
+     * Sets up the tests with an empty file system storage backend.
+     *
+     * @throws IOException If the storage directory can't be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        final Path root = Files.createTempDirectory(ImageInfoHarvesterTest.class.getSimpleName());
+
+        myConfig = new JsonObject().put(Config.STORAGE, FileSystemStorage.NAME).put(Config.STORAGE_PATH,
+                root.toString());
+    }
+
+    /**
+     * Tests harvesting plain and compressed manifests, skipping keys that aren't manifests and counting the manifests
+     * that can't be read or inflated.
+     *
+     * @param aContext A test context
+     * @throws IOException If a manifest can't be compressed
+     */
+    @Test
+    public final void testHarvest(final TestContext aContext) throws IOException {
+        final Storage storage = StorageFactory.getStorage(myRunTestOnContextRule.vertx(), myConfig);
+        final ImageInfoHarvester harvester = ImageInfoHarvester.getHarvester(myRunTestOnContextRule.vertx(), myConfig);
+        final ImageInfoCache cache = ImageInfoCache.getCache(myRunTestOnContextRule.vertx(), myConfig);
+        final Buffer compressed = CompressionUtils.gzip(getManifest(OTHER_SERVICE_ID, 3000, 2000).toBuffer());
+        final Async async = aContext.async();
+        final Promise<Void> plain = Promise.promise();
+        final Promise<Void> gzipped = Promise.promise();
+        final Promise<Void> invalid = Promise.promise();
+        final Promise<Void> other = Promise.promise();
+        final Promise<Void> truncated = Promise.promise();
+
+        storage.put("works/ark:/21198/z12f8rtw.json", getManifest(SERVICE_ID, 6000, 4000).toBuffer(), null,
+                put -> plain.handle(put.mapEmpty()));
+        storage.put("works/ark:/21198/zz0009gv8j.json", compressed, CompressionUtils.GZIP,
+                put -> gzipped.handle(put.mapEmpty()));
+        storage.put("works/ark:/21198/zz0009gsq9.json", Buffer.buffer("{\"items\": ["), null,
+                put -> invalid.handle(put.mapEmpty()));
+        storage.put("works/README.txt", Buffer.buffer("Not a manifest"), null, put -> other.handle(put.mapEmpty()));
+        storage.put("works/ark:/21198/zz0009gt1k.json", compressed.getBuffer(0, compressed.length() / 2),
+                CompressionUtils.GZIP, put -> truncated.handle(put.mapEmpty()));
+
+        CompositeFuture.all(plain.future(), gzipped.future(), invalid.future(), other.future(),
+                truncated.future()).onComplete(puts -> {
+            aContext.assertTrue(harvester.start());
+            aContext.assertFalse(harvester.start());
+
+            myRunTestOnContextRule.vertx().setPeriodic(POLL_INTERVAL, timer -> {
+                final JsonObject stats = harvester.getStats();
+
+                if (!Status.RUNNING.equals(stats.getString(Status.STATE))) {
+                    myRunTestOnContextRule.vertx().cancelTimer(timer);
+
+                    aContext.assertEquals(Status.DONE, stats.getString(Status.STATE));
+                    aContext.assertEquals(4L, stats.getLong(Status.MANIFESTS));
+                    aContext.assertEquals(2L, stats.getLong(Status.READS));
+                    aContext.assertEquals(2L, stats.getLong(Status.FAILURES));
+                    aContext.assertEquals(2L, stats.getLong(Status.IMAGES));
+                    aContext.assertEquals(2L, stats.getLong(Status.ADDED));
+                    aContext.assertEquals(6000, cache.get(SERVICE_ID).get().getWidth());
+                    aContext.assertEquals(2000, cache.get(OTHER_SERVICE_ID).get().getHeight());
+
+                    async.complete();
+                }
+            });
+        });
+    }
+
+    /**
+     * Tests that harvesting an empty bucket finishes straight away.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testEmpty(final TestContext aContext) {
+        final ImageInfoHarvester harvester = ImageInfoHarvester.getHarvester(myRunTestOnContextRule.vertx(), myConfig);
+        final Async async = aContext.async();
+
+        aContext.assertEquals(Status.IDLE, harvester.getStats().getString(Status.STATE));
+        aContext.assertTrue(harvester.start());
+
+        myRunTestOnContextRule.vertx().setPeriodic(POLL_INTERVAL, timer -> {
+            final JsonObject stats = harvester.getStats();
+
+            if (Status.DONE.equals(stats.getString(Status.STATE))) {
+                myRunTestOnContextRule.vertx().cancelTimer(timer);
+                aContext.assertEquals(0L, stats.getLong(Status.MANIFESTS));
+                async.complete();
+            }
+        });
+    }
+
+    private JsonObject getManifest(final String aServiceID, final int aWidth, final int aHeight) {
+        final JsonObject service = new JsonObject().put("@id", aServiceID).put("@type", "ImageService2");
+        final JsonObject body = new JsonObject().put("type", "Image").put("width", aWidth).put("height", aHeight)
+                .put("service", new JsonArray().add(service));
+        final JsonObject annotationPage = new JsonObject().put("type", "AnnotationPage").put("items",
+                new JsonArray().add(new JsonObject().put("type", "Annotation").put("body", body)));
+        final JsonObject canvas = new JsonObject().put("type", "Canvas").put("items",
+                new JsonArray().add(annotationPage));
+
+        return new JsonObject().put("type", "Manifest").put("items", new JsonArray().add(canvas));
+    }
+}
@@ -0,0 +1,310 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import info.freelibrary.util.StringUtils;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Tests of the non-blocking image info lookup.
+ */
+@RunWith(VertxUnitRunner.class)
+public class ImageInfoLookupTest {
+
+    private static final String INFO_JSON = "{\"@context\":\"http://iiif.io/api/image/2/context.json\"," +
+            "\"sizes\":[{\"width\":375,\"height\":250}],\"tiles\":[{\"width\":512,\"scaleFactors\":[1,2,4]}]," +
+            "\"width\":6000,\"height\":4000,\"profile\":[\"http://iiif.io/api/image/2/level2.json\"]}";
+
+    private static final String FOUND = "/iiif/found/info.json";
+
+    private static final String SLOW = "/iiif/slow/info.json";
+
+    private static final String STATIC_IMAGE = "/images/static.jpg";
+
+    private static final String RANGE_IGNORED = "/images/range-ignored.jpg";
+
+    private static final int PADDING_LENGTH = 65536;
+
+    private static final String BYTE_RANGE = "bytes=0-";
+
+    private static final int METADATA_LENGTH = 40000;
+
+    private static final String URL = "http://localhost:{}{}";
+
+    @Rule
+    public RunTestOnContext myRunTestOnContextRule = new RunTestOnContext();
+
+    private ImageInfoLookup myLookup;
+
+    private int myPort;
+
+    private int myRequestCount;
+
+    private Buffer myStaticImage;
+
+    /**
+     * Sets up the tests with a fake image server.
+     *
+     * @param aContext A test context
+     * @throws IOException If a port for the image server can't be found
+     */
+    @Before
+    public void setUp(final TestContext aContext) throws IOException {
+        final JsonObject config = new JsonObject().put(Config.IIIF_LOOKUP_TIMEOUT, 500);
+
+        try (ServerSocket socket = new ServerSocket(0)) {
+            myPort = socket.getLocalPort();
+        }
+
+        myLookup = new ImageInfoLookup(myRunTestOnContextRule.vertx(), config);
+        myStaticImage = getStaticImage();
+        myRunTestOnContextRule.vertx().createHttpServer().requestHandler(request -> {
+            final String range = request.getHeader(HttpHeaders.RANGE);
+
+            myRequestCount += 1;
+
+            if (FOUND.equals(request.path())) {
+                request.response().end(INFO_JSON);
+            } else if (STATIC_IMAGE.equals(request.path()) && range != null && range.startsWith(BYTE_RANGE)) {
+                final int end = Math.min(Integer.parseInt(range.substring(BYTE_RANGE.length())) + 1,
+                        myStaticImage.length());
+
+                request.response().setStatusCode(HTTP.PARTIAL_CONTENT).end(myStaticImage.getBuffer(0, end));
+            } else if (RANGE_IGNORED.equals(request.path())) {
+                sendEndlessImage(request.response());
+            } else if (!SLOW.equals(request.path())) { // Slow requests are never answered
+                request.response().setStatusCode(HTTP.NOT_FOUND).end();
+            }
+        }).listen(myPort, aContext.asyncAssertSuccess());
+    }
+
+    /**
+     * Tests that an image's top-level width and height are found.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testLookup(final TestContext aContext) {
+        final Async async = aContext.async();
+
+        myLookup.lookup(StringUtils.format(URL, myPort, FOUND)).onComplete(lookup -> {
+            aContext.assertTrue(lookup.succeeded());
+            aContext.assertEquals(6000, lookup.result().getWidth());
+            aContext.assertEquals(4000, lookup.result().getHeight());
+            async.complete();
+        });
+    }
+
+    /**
+     * Tests that an image's width and height are only looked up once.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testCachedLookup(final TestContext aContext) {
+        final String url = StringUtils.format(URL, myPort, FOUND);
+        final Async async = aContext.async();
+
+        myLookup.lookup(url).compose(lookup -> myLookup.lookup(url)).onComplete(lookup -> {
+            aContext.assertEquals(6000, lookup.result().getWidth());
+            aContext.assertEquals(1, myRequestCount);
+            async.complete();
+        });
+    }
+
+    /**
+     * Tests that concurrent lookups of the same image share a single request to the image server.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testCoalescedLookup(final TestContext aContext) {
+        final String url = StringUtils.format(URL, myPort, FOUND);
+        final ImageInfoLookup otherLookup = new ImageInfoLookup(myRunTestOnContextRule.vertx(), new JsonObject());
+        final Async async = aContext.async();
+
+        CompositeFuture.all(myLookup.lookup(url), myLookup.lookup(url), otherLookup.lookup(url)).onComplete(all -> {
+            final JsonObject stats = ImageInfoLookup.getStats(myRunTestOnContextRule.vertx())
+                    .getJsonObject(Status.LOOKUPS);
+
+            aContext.assertTrue(all.succeeded());
+            aContext.assertEquals(4000, all.result().<ImageInfo>resultAt(2).getHeight());
+            aContext.assertEquals(1, myRequestCount);
+            aContext.assertEquals(1L, stats.getLong(Status.REQUESTS));
+            aContext.assertEquals(2L, stats.getLong(Status.COALESCED));
+            async.complete();
+        });
+    }
+
+    /**
+     * Tests that lookups made by different lookup instances share a single connection pool.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testSharedClient(final TestContext aContext) {
+        final ImageInfoLookup otherLookup = new ImageInfoLookup(myRunTestOnContextRule.vertx(), new JsonObject());
+        final Async async = aContext.async();
+
+        myLookup.lookup(StringUtils.format(URL, myPort, FOUND)).compose(lookup -> {
+            return otherLookup.probe(StringUtils.format(URL, myPort, STATIC_IMAGE));
+        }).onComplete(lookups -> {
+            aContext.assertTrue(lookups.succeeded());
+            aContext.assertEquals(1, ImageInfoLookup.getStats(myRunTestOnContextRule.vertx())
+                    .getInteger(Status.CONNECTIONS_OPENED));
+            async.complete();
+        });
+    }
+
+    /**
+     * Tests that an image the image server doesn't have isn't found.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testNotFound(final TestContext aContext) {
+        final Async async = aContext.async();
+
+        myLookup.lookup(StringUtils.format(URL, myPort, "/iiif/missing/info.json")).onComplete(lookup -> {
+            aContext.assertTrue(lookup.cause() instanceof ImageNotFoundException);
+            async.complete();
+        });
+    }
+
+    /**
+     * Tests that a lookup that takes too long is abandoned.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testTimeout(final TestContext aContext) {
+        final Async async = aContext.async();
+
+        myLookup.lookup(StringUtils.format(URL, myPort, SLOW)).onComplete(lookup -> {
+            aContext.assertTrue(lookup.failed());
+            aContext.assertFalse(lookup.cause() instanceof ImageNotFoundException);
+            async.complete();
+        });
+    }
+
+    /**
+     * Tests that a static image's width and height are read from its header, fetching more of the image when its
+     * header comes after more metadata than was first asked for.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testProbe(final TestContext aContext) {
+        final String url = StringUtils.format(URL, myPort, STATIC_IMAGE);
+        final Async async = aContext.async();
+
+        myLookup.probe(url).compose(probe -> myLookup.probe(url)).onComplete(probe -> {
+            aContext.assertTrue(probe.succeeded());
+            aContext.assertEquals(3000, probe.result().getWidth());
+            aContext.assertEquals(2000, probe.result().getHeight());
+            aContext.assertEquals(2, myRequestCount); // One range request wasn't enough, but the result was cached
+            async.complete();
+        });
+    }
+
+    /**
+     * Tests that a static image's header is still read from a server that ignores the range we ask for, without
+     * reading the rest of the image. The server never stops sending, so the probe only finishes if we hang up.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testProbeRangeIgnored(final TestContext aContext) {
+        final Async async = aContext.async();
+
+        myLookup.probe(StringUtils.format(URL, myPort, RANGE_IGNORED)).onComplete(probe -> {
+            aContext.assertTrue(probe.succeeded());
+            aContext.assertEquals(3000, probe.result().getWidth());
+            aContext.assertEquals(2000, probe.result().getHeight());
+            aContext.assertEquals(2, myRequestCount);
+            async.complete();
+        });
+    }
+
+    /**
+     * Tests that a static image that isn't there isn't found.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testProbeNotFound(final TestContext aContext) {
+        final Async async = aContext.async();
+
+        myLookup.probe(StringUtils.format(URL, myPort, "/images/missing.jpg")).onComplete(probe -> {
+            aContext.assertTrue(probe.cause() instanceof ImageNotFoundException);
+            async.complete();
+        });
+    }
+
+    /**
+     * Tests that images on the fake image server are given fake dimensions without a lookup.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testFakeServer(final TestContext aContext) {
+        final Async async = aContext.async();
+
+        myLookup.lookup(ImageInfoLookup.FAKE_IIIF_SERVER + "/ark%3A%2F21198%2Fz12f8rtw").onComplete(lookup -> {
+            aContext.assertEquals(1000, lookup.result().getWidth());
+            async.complete();
+        });
+    }
+
+    /**
+     * Gets the start of a JPEG whose frame header comes after a metadata segment that's longer than the first range
+     * request asks for.
+     *
+     * @return The start of a JPEG image
+     */
+    private Buffer getStaticImage() {
+        final Buffer image = Buffer.buffer().appendUnsignedShort(0xFFD8);
+
+        image.appendUnsignedShort(0xFFE1).appendUnsignedShort(METADATA_LENGTH + 2);
+        image.appendBytes(new byte[METADATA_LENGTH]);
+        image.appendUnsignedShort(0xFFC0).appendUnsignedShort(17).appendByte((byte) 8);
+        image.appendUnsignedShort(2000).appendUnsignedShort(3000).appendBytes(new byte[10]);
+
+        return image;
+    }
+
+    /**
+     * Sends the whole static image, ignoring the requested range, followed by padding that doesn't stop until the
+     * client hangs up.
+     *
+     * @param aResponse A response to send the image in
+     */
+    private void sendEndlessImage(final HttpServerResponse aResponse) {
+        final Vertx vertx = myRunTestOnContextRule.vertx();
+        final long timerID = vertx.setPeriodic(10, timer -> {
+            if (!aResponse.writeQueueFull()) {
+                aResponse.write(Buffer.buffer(new byte[PADDING_LENGTH]));
+            }
+        });
+
+        aResponse.closeHandler(closed -> vertx.cancelTimer(timerID));
+        aResponse.setChunked(true).write(myStaticImage);
+    }
+}
@@ -0,0 +1,90 @@
+
+package edu.ucla.library.iiif.fester;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Tests of the in-memory manifest cache.
+ */
+public class ManifestCacheTest {
+
+    private static final String FIRST_KEY = "works/ark:/21198/zz0009gv8j.json";
+
+    private static final String SECOND_KEY = "works/ark:/21198/z12f8rtw.json";
+
+    private static final String THIRD_KEY = "collections/ark:/21198/zz0009gsq9.json";
+
+    private static final String JSON = "{\"@id\":\"abcdefghij\"}"; // 20 characters, so 40 bytes
+
+    private static final String ETAG = "\"9b2cf535f27731c974343645a3985328\"";
+
+    /**
+     * Tests that a cached manifest can be retrieved.
+     */
+    @Test
+    public final void testGet() {
+        final ManifestCache cache = new ManifestCache(1024, 0);
+
+        cache.put(FIRST_KEY, JSON, ETAG, null);
+
+        assertEquals(JSON, cache.get(FIRST_KEY).get().getJSON());
+        assertEquals(ETAG, cache.get(FIRST_KEY).get().getETag());
+        assertFalse(cache.get(SECOND_KEY).isPresent());
+        assertEquals(2, (long) cache.getStats().getLong(Status.HITS));
+        assertEquals(1, (long) cache.getStats().getLong(Status.MISSES));
+    }
+
+    /**
+     * Tests that the least recently used manifest is evicted when the cache is full.
+     */
+    @Test
+    public final void testEviction() {
+        final ManifestCache cache = new ManifestCache(80, 0);
+
+        cache.put(FIRST_KEY, JSON, ETAG, null);
+        cache.put(SECOND_KEY, JSON, ETAG, null);
+        cache.get(FIRST_KEY);
+        cache.put(THIRD_KEY, JSON, ETAG, null);
+
+        assertTrue(cache.get(FIRST_KEY).isPresent());
+        assertFalse(cache.get(SECOND_KEY).isPresent());
+        assertTrue(cache.get(THIRD_KEY).isPresent());
+        assertEquals(1, (long) cache.getStats().getLong(Status.EVICTIONS));
+    }
+
+    /**
+     * Tests that an invalidated manifest is no longer returned.
+     */
+    @Test
+    public final void testInvalidate() {
+        final ManifestCache cache = new ManifestCache(1024, 0);
+        final JsonObject stats;
+
+        cache.put(FIRST_KEY, JSON, ETAG, null);
+        cache.invalidate(FIRST_KEY);
+        stats = cache.getStats();
+
+        assertFalse(cache.get(FIRST_KEY).isPresent());
+        assertEquals(0, (long) stats.getLong(Status.SIZE));
+        assertEquals(0, (int) stats.getInteger(Status.ENTRIES));
+    }
+
+    /**
+     * Tests that a cache without a size budget doesn't store anything.
+     */
+    @Test
+    public final void testDisabled() {
+        final ManifestCache cache = new ManifestCache(0, 0);
+
+        cache.put(FIRST_KEY, JSON, ETAG, null);
+
+        assertFalse(cache.isEnabled());
+        assertFalse(cache.get(FIRST_KEY).isPresent());
+    }
+}
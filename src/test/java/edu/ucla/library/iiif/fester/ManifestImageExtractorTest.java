@@ -0,0 +1,137 @@
+
+package edu.ucla.library.iiif.fester;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Tests of reading the widths and heights of images from stored manifests.
+ */
+public class ManifestImageExtractorTest {
+
+    private static final String SERVICE_ID = "https://iiif.library.ucla.edu/iiif/2/ark%3A%2F21198%2Fz12f8rtw";
+
+    private static final String OTHER_SERVICE_ID = "https://iiif.library.ucla.edu/iiif/2/ark%3A%2F21198%2Fzz0009gv8j";
+
+    private static final String STATIC_IMAGE_ID = "https://static.library.ucla.edu/ark%3A%2F21198%2Fzz0009gsq9.jpg";
+
+    private static final String VIDEO_ID = "https://wowza.library.ucla.edu/iiif_av_public/mp4:video.mp4/manifest.mpd";
+
+    private static final String ID = "id";
+
+    private static final String V2_ID = "@id";
+
+    private static final String TYPE = "type";
+
+    private static final String V2_TYPE = "@type";
+
+    private static final String ITEMS = "items";
+
+    private static final String WIDTH = "width";
+
+    private static final String HEIGHT = "height";
+
+    private final Map<String, ImageInfo> myImages = new HashMap<>();
+
+    /**
+     * Tests reading the images of a v2 manifest, whose images take their sizes from their canvases.
+     *
+     * @throws IOException If the manifest can't be parsed
+     */
+    @Test
+    public final void testV2() throws IOException {
+        final JsonArray canvases = new JsonArray().add(getV2Canvas(SERVICE_ID, 6000, 4000))
+                .add(getV2Canvas(OTHER_SERVICE_ID, 3000, 2000));
+        final JsonObject manifest = new JsonObject().put(V2_ID, "manifest").put("sequences",
+                new JsonArray().add(new JsonObject().put(V2_ID, "sequence").put("canvases", canvases)));
+
+        // A range's canvases are only references to the sequence's canvases
+        manifest.put("structures", new JsonArray().add(new JsonObject().put(V2_TYPE, "sc:Range").put("canvases",
+                new JsonArray().add("canvas"))));
+
+        assertEquals(2, extract(manifest));
+        assertImage(6000, 4000, SERVICE_ID);
+        assertImage(3000, 2000, OTHER_SERVICE_ID);
+    }
+
+    /**
+     * Tests reading the images of a v3 manifest, including a static image and a video that isn't an image.
+     *
+     * @throws IOException If the manifest can't be parsed
+     */
+    @Test
+    public final void testV3() throws IOException {
+        final JsonObject image = getV3Body("Image", 6000, 4000).put("service",
+                new JsonArray().add(new JsonObject().put(V2_ID, SERVICE_ID).put(V2_TYPE, "ImageService2")));
+        final JsonObject staticImage = getV3Body("Image", 1200, 800).put(ID, STATIC_IMAGE_ID);
+        final JsonObject video = getV3Body("Video", 720, 540).put(ID, VIDEO_ID);
+        final JsonObject manifest = new JsonObject().put(ID, "manifest").put(TYPE, "Manifest").put(ITEMS,
+                new JsonArray().add(getV3Canvas(image)).add(getV3Canvas(staticImage)).add(getV3Canvas(video)));
+
+        assertEquals(2, extract(manifest));
+        assertImage(6000, 4000, SERVICE_ID);
+        assertImage(1200, 800, STATIC_IMAGE_ID);
+        assertEquals(2, myImages.size());
+    }
+
+    /**
+     * Tests that a manifest that isn't valid JSON can't be read.
+     *
+     * @throws IOException If the manifest can't be parsed
+     */
+    @Test(expected = IOException.class)
+    public final void testInvalidManifest() throws IOException {
+        final ManifestImageExtractor extractor = new ManifestImageExtractor(myImages::put);
+
+        extractor.write(Buffer.buffer("{\"items\": [{\"width\": 100,"));
+        extractor.write(Buffer.buffer("}]"));
+        extractor.end();
+    }
+
+    private int extract(final JsonObject aManifest) throws IOException {
+        final ManifestImageExtractor extractor = new ManifestImageExtractor(myImages::put);
+        final Buffer manifest = aManifest.toBuffer();
+
+        // Write the manifest in small pieces, like it would arrive from storage
+        for (int index = 0; index < manifest.length(); index += 11) {
+            extractor.write(manifest.getBuffer(index, Math.min(manifest.length(), index + 11)));
+        }
+
+        return extractor.end();
+    }
+
+    private void assertImage(final int aWidth, final int aHeight, final String aURL) {
+        assertEquals(aWidth, myImages.get(aURL).getWidth());
+        assertEquals(aHeight, myImages.get(aURL).getHeight());
+    }
+
+    private JsonObject getV2Canvas(final String aServiceID, final int aWidth, final int aHeight) {
+        final JsonObject resource = new JsonObject().put(V2_ID, aServiceID + "/full/600,/0/default.jpg")
+                .put(V2_TYPE, "dctypes:Image").put("service", new JsonObject().put(V2_ID, aServiceID));
+
+        return new JsonObject().put(V2_TYPE, "sc:Canvas").put(WIDTH, aWidth).put(HEIGHT, aHeight).put("images",
+                new JsonArray().add(new JsonObject().put(V2_TYPE, "oa:Annotation").put("resource", resource)));
+    }
+
+    private JsonObject getV3Body(final String aType, final int aWidth, final int aHeight) {
+        return new JsonObject().put(TYPE, aType).put(WIDTH, aWidth).put(HEIGHT, aHeight);
+    }
+
+    private JsonObject getV3Canvas(final JsonObject aBody) {
+        final JsonObject annotation = new JsonObject().put(TYPE, "Annotation").put("body", aBody);
+        final JsonObject annotationPage = new JsonObject().put(TYPE, "AnnotationPage").put(ITEMS,
+                new JsonArray().add(annotation));
+
+        return new JsonObject().put(TYPE, "Canvas").put(WIDTH, aBody.getInteger(WIDTH))
+                .put(HEIGHT, aBody.getInteger(HEIGHT)).put(ITEMS, new JsonArray().add(annotationPage));
+    }
+}
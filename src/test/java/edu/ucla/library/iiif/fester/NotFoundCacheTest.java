@@ -0,0 +1,93 @@
+
+package edu.ucla.library.iiif.fester;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests of the cache of missing manifests and collection docs.
+ */
+public class NotFoundCacheTest {
+
+    private static final String FIRST_KEY = "works/ark:/21198/zz0009gv8j.json";
+
+    private static final String SECOND_KEY = "works/ark:/21198/z12f8rtw.json";
+
+    private static final String THIRD_KEY = "collections/ark:/21198/zz0009gsq9.json";
+
+    /**
+     * Tests that a missing key is remembered and counted as a hit.
+     */
+    @Test
+    public final void testHitRate() {
+        final NotFoundCache cache = new NotFoundCache(10, 60000);
+
+        assertFalse(cache.isNotFound(FIRST_KEY));
+        cache.put(FIRST_KEY);
+        assertTrue(cache.isNotFound(FIRST_KEY));
+
+        assertEquals(1, (long) cache.getStats().getLong(Status.HITS));
+        assertEquals(0.5, cache.getStats().getDouble(Status.HIT_RATE), 0.0);
+    }
+
+    /**
+     * Tests that putting something at a missing key forgets that it was missing.
+     */
+    @Test
+    public final void testInvalidate() {
+        final NotFoundCache cache = new NotFoundCache(10, 60000);
+
+        cache.put(FIRST_KEY);
+        cache.invalidate(FIRST_KEY);
+
+        assertFalse(cache.isNotFound(FIRST_KEY));
+    }
+
+    /**
+     * Tests that the number of missing keys remembered is bounded.
+     */
+    @Test
+    public final void testMaxEntries() {
+        final NotFoundCache cache = new NotFoundCache(2, 60000);
+
+        cache.put(FIRST_KEY);
+        cache.put(SECOND_KEY);
+        cache.put(THIRD_KEY);
+
+        assertEquals(2, cache.size());
+        assertFalse(cache.isNotFound(FIRST_KEY));
+        assertTrue(cache.isNotFound(THIRD_KEY));
+    }
+
+    /**
+     * Tests that missing keys are forgotten once they expire.
+     *
+     * @throws InterruptedException If the test is interrupted while waiting for the entry to expire
+     */
+    @Test
+    public final void testExpiration() throws InterruptedException {
+        final NotFoundCache cache = new NotFoundCache(10, 1);
+
+        cache.put(FIRST_KEY);
+        Thread.sleep(5);
+
+        assertFalse(cache.isNotFound(FIRST_KEY));
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that a cache without a time-to-live doesn't remember anything.
+     */
+    @Test
+    public final void testDisabled() {
+        final NotFoundCache cache = new NotFoundCache(10, 0);
+
+        cache.put(FIRST_KEY);
+
+        assertFalse(cache.isEnabled());
+        assertFalse(cache.isNotFound(FIRST_KEY));
+    }
+}
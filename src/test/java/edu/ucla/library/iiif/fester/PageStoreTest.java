@@ -0,0 +1,123 @@
+
+package edu.ucla.library.iiif.fester;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests of the {@link PageStore}.
+ */
+public class PageStoreTest {
+
+    private static final String WORK_ID = "ark:/21198/zz0009gv8j";
+
+    private static final String OTHER_WORK_ID = "ark:/21198/zz0009gsq9";
+
+    private PageStore myStore;
+
+    /**
+     * Closes the page store that was tested.
+     */
+    @After
+    public final void tearDown() {
+        if (myStore != null) {
+            myStore.close();
+        }
+    }
+
+    /**
+     * Tests that pages that fit in the heap budget are kept in the heap.
+     */
+    @Test
+    public final void testInHeap() {
+        final List<String[]> pages = getPages(WORK_ID, 0, 2);
+
+        myStore = new PageStore();
+        myStore.add(WORK_ID, pages);
+
+        assertFalse(myStore.isSpilled());
+        assertSame(pages, myStore.get(WORK_ID));
+        assertNull(myStore.get(OTHER_WORK_ID));
+    }
+
+    /**
+     * Tests that a work's pages come back in the order they were added, whether or not they were spilled to disk.
+     */
+    @Test
+    public final void testSpilled() {
+        final List<String[]> expected = getPages(WORK_ID, 0, 5);
+
+        myStore = new PageStore(1024);
+        myStore.add(WORK_ID, getPages(WORK_ID, 0, 3));
+        myStore.add(OTHER_WORK_ID, getPages(OTHER_WORK_ID, 0, 20));
+        myStore.add(WORK_ID, getPages(WORK_ID, 3, 5));
+
+        assertTrue(myStore.isSpilled());
+        assertEquals(2, myStore.size());
+        assertEquals(25, myStore.getPageCount());
+        assertEquals(List.of(WORK_ID, OTHER_WORK_ID), new ArrayList<>(myStore.getWorkIDs()));
+        assertEquals(20, myStore.get(OTHER_WORK_ID).size());
+        assertEquals(expected.size(), myStore.get(WORK_ID).size());
+
+        for (int index = 0; index < expected.size(); index++) {
+            assertArrayEquals(expected.get(index), myStore.get(WORK_ID).get(index));
+        }
+    }
+
+    /**
+     * Tests that the values a work's pages share are still shared once they've been read back from disk.
+     */
+    @Test
+    public final void testSpilledValuesShared() {
+        final List<String[]> pages;
+
+        myStore = new PageStore(1);
+        myStore.add(WORK_ID, getPages(WORK_ID, 0, 2));
+        pages = myStore.get(WORK_ID);
+
+        assertSame(pages.get(0)[1], pages.get(1)[1]);
+    }
+
+    /**
+     * Tests that a store's pages are gone once it's closed.
+     */
+    @Test
+    public final void testClose() {
+        myStore = new PageStore(1);
+        myStore.add(WORK_ID, getPages(WORK_ID, 0, 2));
+        myStore.close();
+
+        assertFalse(myStore.isSpilled());
+        assertEquals(0, myStore.size());
+        assertNull(myStore.get(WORK_ID));
+    }
+
+    /**
+     * Gets some page rows for a work, with an empty and a missing value in each.
+     *
+     * @param aWorkID A work ID
+     * @param aStart The sequence number of the first page
+     * @param aEnd The sequence number after the last page
+     * @return The page rows
+     */
+    private List<String[]> getPages(final String aWorkID, final int aStart, final int aEnd) {
+        final List<String[]> pages = new ArrayList<>();
+
+        for (int index = aStart; index < aEnd; index++) {
+            pages.add(new String[] { aWorkID + "/" + index, new String(aWorkID), "Page " + index + " \u00e9", "", null,
+                    String.valueOf(index) });
+        }
+
+        return pages;
+    }
+}
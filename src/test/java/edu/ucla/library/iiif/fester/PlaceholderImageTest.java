@@ -0,0 +1,103 @@
+
+package edu.ucla.library.iiif.fester;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import info.freelibrary.util.StringUtils;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Tests of the placeholder image's memoized width and height.
+ */
+@RunWith(VertxUnitRunner.class)
+public class PlaceholderImageTest {
+
+    private static final String INFO_JSON = "{\"width\":1200,\"height\":800}";
+
+    private static final String PLACEHOLDER = "/iiif/blank";
+
+    private static final String URL = "http://localhost:{}{}";
+
+    @Rule
+    public RunTestOnContext myRunTestOnContextRule = new RunTestOnContext();
+
+    private int myPort;
+
+    private int myRequestCount;
+
+    /**
+     * Sets up the tests with a fake image server.
+     *
+     * @param aContext A test context
+     * @throws IOException If a port for the image server can't be found
+     */
+    @Before
+    public void setUp(final TestContext aContext) throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            myPort = socket.getLocalPort();
+        }
+
+        myRunTestOnContextRule.vertx().createHttpServer().requestHandler(request -> {
+            myRequestCount += 1;
+
+            if (request.path().startsWith(PLACEHOLDER)) {
+                request.response().end(INFO_JSON);
+            } else {
+                request.response().setStatusCode(HTTP.NOT_FOUND).end();
+            }
+        }).listen(myPort, aContext.asyncAssertSuccess());
+    }
+
+    /**
+     * Tests that the placeholder image is looked up once, however many times it's asked for.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testLookedUpOnce(final TestContext aContext) {
+        final String url = StringUtils.format(URL, myPort, PLACEHOLDER);
+        final JsonObject config = new JsonObject();
+        final Async async = aContext.async();
+
+        PlaceholderImage.getPlaceholderImage(myRunTestOnContextRule.vertx(), config, url).getImageInfo()
+                .compose(info -> {
+                    aContext.assertEquals(1200, info.get().getWidth());
+                    aContext.assertEquals(800, info.get().getHeight());
+
+                    return PlaceholderImage.getPlaceholderImage(myRunTestOnContextRule.vertx(), config, url)
+                            .getImageInfo();
+                }).onComplete(info -> {
+                    aContext.assertEquals(1200, info.result().get().getWidth());
+                    aContext.assertEquals(1, myRequestCount);
+                    async.complete();
+                });
+    }
+
+    /**
+     * Tests that a placeholder image that the image server doesn't have isn't found.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testNotFound(final TestContext aContext) {
+        final String url = StringUtils.format(URL, myPort, "/iiif/missing");
+        final Async async = aContext.async();
+
+        PlaceholderImage.getPlaceholderImage(myRunTestOnContextRule.vertx(), new JsonObject(), url).getImageInfo()
+                .onComplete(info -> {
+                    aContext.assertTrue(info.cause() instanceof ImageNotFoundException);
+                    async.complete();
+                });
+    }
+}
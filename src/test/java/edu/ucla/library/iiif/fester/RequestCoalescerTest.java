@@ -0,0 +1,97 @@
+
+package edu.ucla.library.iiif.fester;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Promise;
+
+/**
+ * Tests of the request coalescer.
+ */
+public class RequestCoalescerTest {
+
+    private static final String KEY = "works/ark:/21198/zz0009gv8j.json";
+
+    private static final String VALUE = "{}";
+
+    private RequestCoalescer<String, String> myCoalescer;
+
+    private List<Promise<String>> myOperations;
+
+    private List<AsyncResult<String>> myResults;
+
+    /**
+     * Sets up the tests.
+     */
+    @Before
+    public void setUp() {
+        myCoalescer = new RequestCoalescer<>();
+        myOperations = new ArrayList<>();
+        myResults = new ArrayList<>();
+    }
+
+    /**
+     * Tests that concurrent requests for the same key share one operation.
+     */
+    @Test
+    public final void testCoalescing() {
+        myCoalescer.request(KEY, myOperations::add, myResults::add);
+        myCoalescer.request(KEY, myOperations::add, myResults::add);
+        myCoalescer.request(KEY, myOperations::add, myResults::add);
+
+        assertEquals(1, myOperations.size());
+        assertEquals(1, myCoalescer.getInFlightCount());
+
+        myOperations.get(0).complete(VALUE);
+
+        assertEquals(3, myResults.size());
+        myResults.forEach(result -> assertEquals(VALUE, result.result()));
+        assertEquals(0, myCoalescer.getInFlightCount());
+        assertEquals(2, (long) myCoalescer.getStats().getLong(Status.COALESCED));
+    }
+
+    /**
+     * Tests that a failure is shared by all the requests that were waiting for it, and that the next request tries
+     * again.
+     */
+    @Test
+    public final void testFailure() {
+        myCoalescer.request(KEY, myOperations::add, myResults::add);
+        myCoalescer.request(KEY, myOperations::add, myResults::add);
+        myOperations.get(0).fail(new IllegalStateException());
+
+        assertEquals(2, myResults.size());
+        myResults.forEach(result -> assertTrue(result.failed()));
+
+        myCoalescer.request(KEY, myOperations::add, myResults::add);
+        assertEquals(2, myOperations.size());
+    }
+
+    /**
+     * Tests that requests made after a key is forgotten don't join the old request.
+     */
+    @Test
+    public final void testForget() {
+        myCoalescer.request(KEY, myOperations::add, myResults::add);
+        myCoalescer.forget(KEY);
+        myCoalescer.request(KEY, myOperations::add, myResults::add);
+
+        assertEquals(2, myOperations.size());
+        assertFalse(myCoalescer.isCurrent(KEY, myOperations.get(0)));
+        assertTrue(myCoalescer.isCurrent(KEY, myOperations.get(1)));
+
+        // The old request finishing doesn't take the key away from the new one
+        myOperations.get(0).complete(VALUE);
+        assertEquals(1, myCoalescer.getInFlightCount());
+        assertTrue(myCoalescer.isCurrent(KEY, myOperations.get(1)));
+    }
+}
@@ -0,0 +1,94 @@
+
+package edu.ucla.library.iiif.fester;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests of the S3 upload retry tracker.
+ */
+public class RetryTrackerTest {
+
+    private static final String FIRST_ID = "ark:/21198/zz0009gv8j";
+
+    private static final String SECOND_ID = "ark:/21198/z12f8rtw";
+
+    private static final String THIRD_ID = "ark:/21198/zz0009gsq9";
+
+    private static final Set<Integer> STATUS_CODES = Set.of(HTTP.INTERNAL_SERVER_ERROR, HTTP.SERVICE_UNAVAILABLE);
+
+    /**
+     * Tests that an upload is retried until it runs out of attempts.
+     */
+    @Test
+    public final void testMaxAttempts() {
+        final RetryTracker tracker = new RetryTracker(3, STATUS_CODES, 10, 0);
+
+        assertTrue(tracker.shouldRetry(FIRST_ID, HTTP.INTERNAL_SERVER_ERROR));
+        assertTrue(tracker.shouldRetry(FIRST_ID, RetryTracker.NO_RESPONSE));
+        assertFalse(tracker.shouldRetry(FIRST_ID, HTTP.SERVICE_UNAVAILABLE));
+
+        // Once it's run out of attempts, the manifest is forgotten so it can be processed again later
+        assertEquals(0, tracker.size());
+        assertTrue(tracker.shouldRetry(FIRST_ID, HTTP.INTERNAL_SERVER_ERROR));
+        assertEquals(1, (long) tracker.getStats().getLong(Status.EXHAUSTED));
+    }
+
+    /**
+     * Tests that status codes that aren't retryable aren't retried.
+     */
+    @Test
+    public final void testUnretryableStatusCode() {
+        final RetryTracker tracker = new RetryTracker(3, STATUS_CODES, 10, 0);
+
+        assertFalse(tracker.shouldRetry(FIRST_ID, HTTP.FORBIDDEN));
+        assertEquals(0, tracker.size());
+    }
+
+    /**
+     * Tests that retries are counted by status code.
+     */
+    @Test
+    public final void testRetryCounts() {
+        final RetryTracker tracker = new RetryTracker(10, STATUS_CODES, 10, 0);
+
+        tracker.shouldRetry(FIRST_ID, HTTP.INTERNAL_SERVER_ERROR);
+        tracker.shouldRetry(SECOND_ID, HTTP.INTERNAL_SERVER_ERROR);
+        tracker.shouldRetry(SECOND_ID, RetryTracker.NO_RESPONSE);
+
+        assertEquals(2, (long) tracker.getStats().getJsonObject(Status.BY_STATUS).getLong("500"));
+        assertEquals(1, (long) tracker.getStats().getJsonObject(Status.BY_STATUS).getLong("no_response"));
+    }
+
+    /**
+     * Tests that the number of manifests being tracked is bounded.
+     */
+    @Test
+    public final void testMaxEntries() {
+        final RetryTracker tracker = new RetryTracker(10, STATUS_CODES, 2, 0);
+
+        tracker.shouldRetry(FIRST_ID, HTTP.INTERNAL_SERVER_ERROR);
+        tracker.shouldRetry(SECOND_ID, HTTP.INTERNAL_SERVER_ERROR);
+        tracker.shouldRetry(THIRD_ID, HTTP.INTERNAL_SERVER_ERROR);
+
+        assertEquals(2, tracker.size());
+        assertEquals(1, (long) tracker.getStats().getLong(Status.EVICTIONS));
+    }
+
+    /**
+     * Tests that a successful upload resets a manifest's attempts.
+     */
+    @Test
+    public final void testReset() {
+        final RetryTracker tracker = new RetryTracker(2, STATUS_CODES, 10, 0);
+
+        assertTrue(tracker.shouldRetry(FIRST_ID, HTTP.INTERNAL_SERVER_ERROR));
+        tracker.reset(FIRST_ID);
+        assertTrue(tracker.shouldRetry(FIRST_ID, HTTP.INTERNAL_SERVER_ERROR));
+    }
+}
@@ -0,0 +1,142 @@
+
+package edu.ucla.library.iiif.fester;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import edu.ucla.library.iiif.fester.S3WriteScheduler.RetryException;
+
+import io.vertx.core.Promise;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Tests of S3WriteScheduler.
+ */
+@RunWith(VertxUnitRunner.class)
+public class S3WriteSchedulerTest {
+
+    @Rule
+    public RunTestOnContext myRunTestOnContextRule = new RunTestOnContext();
+
+    /**
+     * Tests that writes beyond the in-flight window wait in the queue, and writes beyond the queue are rejected.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testWindowAndQueue(final TestContext aContext) {
+        final S3WriteScheduler scheduler = new S3WriteScheduler(myRunTestOnContextRule.vertx(), 2, 1, 1, 1, 2);
+        final List<Promise<Void>> writes = new ArrayList<>();
+        final Async async = aContext.async(3);
+
+        for (int index = 0; index < 3; index++) {
+            scheduler.submit(writes::add, write -> {
+                aContext.assertTrue(write.succeeded());
+                async.countDown();
+            });
+        }
+
+        aContext.assertEquals(2, scheduler.getInFlightCount());
+        aContext.assertEquals(1, scheduler.getQueueDepth());
+
+        scheduler.submit(writes::add, write -> {
+            aContext.assertEquals(HTTP.SERVICE_UNAVAILABLE, ((ReplyException) write.cause()).failureCode());
+        });
+
+        // Finishing a write starts the queued one
+        writes.get(0).complete();
+        aContext.assertEquals(3, writes.size());
+        aContext.assertEquals(0, scheduler.getQueueDepth());
+
+        writes.get(1).complete();
+        writes.get(2).complete();
+        aContext.assertEquals(0, scheduler.getInFlightCount());
+    }
+
+    /**
+     * Tests that a queued write that waits too long for a place in the in-flight window is turned away.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testQueueWait(final TestContext aContext) {
+        final S3WriteScheduler scheduler = new S3WriteScheduler(myRunTestOnContextRule.vertx(), 1, 1, 10, 1, 1, 2);
+        final Async async = aContext.async();
+
+        scheduler.submit(promise -> {
+            // This write never finishes, so the queued one never gets a place
+        }, write -> aContext.fail());
+
+        scheduler.submit(promise -> aContext.fail(), write -> {
+            aContext.assertTrue(S3WriteScheduler.isTurnedAway(write.cause()));
+            aContext.assertEquals(0, scheduler.getQueueDepth());
+            async.complete();
+        });
+    }
+
+    /**
+     * Tests that the reply timeout for a write allows for its time in the queue and all of its attempts.
+     */
+    @Test
+    public final void testReplyTimeout() {
+        final JsonObject config = new JsonObject().put(Config.S3_WRITE_MAX_QUEUE_WAIT, 1000L)
+                .put(Config.S3_WRITE_MAX_BACKOFF, 500L).put(Config.S3_RETRY_MAX_ATTEMPTS, 3);
+
+        assertEquals(1000 + 3 * (DeliveryOptions.DEFAULT_TIMEOUT + 500), S3WriteScheduler.getReplyTimeout(config));
+        assertEquals(1020, S3WriteScheduler.getCapacity(new JsonObject()));
+    }
+
+    /**
+     * Tests that a write is retried until it succeeds.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testRetry(final TestContext aContext) {
+        final S3WriteScheduler scheduler = new S3WriteScheduler(myRunTestOnContextRule.vertx(), 1, 1, 1, 5, 2);
+        final AtomicInteger attempts = new AtomicInteger();
+        final Async async = aContext.async();
+
+        scheduler.submit(promise -> {
+            if (attempts.incrementAndGet() < 3) {
+                promise.fail(new RetryException("Try again"));
+            } else {
+                promise.complete();
+            }
+        }, write -> {
+            aContext.assertTrue(write.succeeded());
+            aContext.assertEquals(3, attempts.get());
+            aContext.assertEquals(2L, scheduler.getStats().getLong(Status.RETRIES));
+            async.complete();
+        });
+    }
+
+    /**
+     * Tests that backoff delays stay within their exponentially growing ceiling.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testBackoffDelay(final TestContext aContext) {
+        final S3WriteScheduler scheduler = new S3WriteScheduler(myRunTestOnContextRule.vertx(), 1, 1, 100, 1000, 2);
+
+        for (int attempt = 1; attempt < 100; attempt++) {
+            final long delay = scheduler.getBackoffDelay(attempt);
+
+            aContext.assertTrue(delay >= 1 && delay <= Math.min(1000, 100 * Math.pow(2, attempt - 1)));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+
+package edu.ucla.library.iiif.fester.codecs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import edu.ucla.library.iiif.fester.CSV;
+import edu.ucla.library.iiif.fester.Constants;
+import edu.ucla.library.iiif.fester.CsvHeaders;
+import edu.ucla.library.iiif.fester.CsvWork;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Tests of the codecs that Fester's messages are passed along the event bus with.
+ */
+@RunWith(VertxUnitRunner.class)
+public class LocalCodecsTest {
+
+    private static final String ADDRESS = LocalCodecsTest.class.getName();
+
+    private static final String WORK_ID = "ark:/21198/zz0009gv8j";
+
+    private static final String PAGE_ID = "ark:/21198/zz0009gsq9";
+
+    @Rule
+    public RunTestOnContext myRunTestOnContextRule = new RunTestOnContext();
+
+    private CsvWork myWork;
+
+    /**
+     * Sets up the tests with a work that has a single page.
+     */
+    @Before
+    public void setUp() {
+        final CsvHeaders headers = new CsvHeaders(new String[] { CSV.ITEM_ARK, CSV.TITLE, CSV.ITEM_SEQ });
+        final List<String[]> pages = new ArrayList<>();
+
+        pages.add(new String[] { PAGE_ID, "Page 1", null });
+        myWork = new CsvWork(headers, new String[] { WORK_ID, "A work", "" }, pages);
+        myWork.getProperties().put(Constants.IIIF_HOST, "https://iiif.library.ucla.edu/iiif/2");
+    }
+
+    /**
+     * Tests that a work's CSV rows are handed to a local consumer without being copied.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testLocalWork(final TestContext aContext) {
+        final Vertx vertx = myRunTestOnContextRule.vertx();
+        final Async async = aContext.async();
+
+        LocalCodecs.register(vertx);
+        LocalCodecs.register(vertx); // Registering the codecs again doesn't do anything
+
+        vertx.eventBus().<CsvWork>consumer(ADDRESS, message -> {
+            aContext.assertTrue(message.body() == myWork);
+            message.reply(new JsonObject());
+        });
+
+        vertx.eventBus().request(ADDRESS, myWork, request -> {
+            aContext.assertTrue(request.succeeded());
+            async.complete();
+        });
+    }
+
+    /**
+     * Tests that a JSON object sent with the shared codec is handed to a local consumer without being copied.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testLocalJsonObject(final TestContext aContext) {
+        final Vertx vertx = myRunTestOnContextRule.vertx();
+        final DeliveryOptions options = new DeliveryOptions().setCodecName(SharedJsonObjectCodec.NAME);
+        final JsonObject manifest = new JsonObject().put(Constants.MANIFEST_ID, WORK_ID);
+        final Async async = aContext.async();
+
+        LocalCodecs.register(vertx);
+
+        vertx.eventBus().<JsonObject>consumer(ADDRESS, message -> {
+            aContext.assertTrue(message.body() == manifest);
+            message.reply(new JsonObject());
+        });
+
+        vertx.eventBus().request(ADDRESS, manifest, options, request -> {
+            aContext.assertTrue(request.succeeded());
+            async.complete();
+        });
+    }
+
+    /**
+     * Tests that a work's CSV rows survive being encoded for another node in a cluster.
+     */
+    @Test
+    public final void testWireWork() {
+        final CsvWorkCodec codec = new CsvWorkCodec();
+        final Buffer buffer = Buffer.buffer().appendString("prefix");
+        final CsvWork work;
+
+        codec.encodeToWire(buffer, myWork);
+        work = codec.decodeFromWire("prefix".length(), buffer);
+
+        assertEquals(myWork.getHeaders().getItemArkIndex(), work.getHeaders().getItemArkIndex());
+        assertArrayEquals(myWork.getWork(), work.getWork());
+        assertEquals(1, work.getPages().size());
+        assertArrayEquals(myWork.getPages().get(0), work.getPages().get(0));
+        assertEquals(myWork.getProperties(), work.getProperties());
+    }
+
+    /**
+     * Tests that a work that's sent without any pages arrives without any pages.
+     */
+    @Test
+    public final void testWireWorkWithoutPages() {
+        final CsvWorkCodec codec = new CsvWorkCodec();
+        final CsvWork work = new CsvWork(myWork.getHeaders(), myWork.getWork(), null);
+        final Buffer buffer = Buffer.buffer();
+
+        codec.encodeToWire(buffer, work);
+
+        assertNull(codec.decodeFromWire(0, buffer).getPages());
+    }
+}
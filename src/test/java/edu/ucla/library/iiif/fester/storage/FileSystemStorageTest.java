@@ -0,0 +1,237 @@
+
+package edu.ucla.library.iiif.fester.storage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import edu.ucla.library.iiif.fester.Config;
+import edu.ucla.library.iiif.fester.HTTP;
+import edu.ucla.library.iiif.fester.Status;
+import edu.ucla.library.iiif.fester.utils.CompressionUtils;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Tests of the file system storage backend.
+ */
+@RunWith(VertxUnitRunner.class)
+public class FileSystemStorageTest {
+
+    private static final String KEY = "works/ark:/21198/zz0009gv8j.json";
+
+    private static final String JSON = "{\"@id\":\"abcdefghij\"}";
+
+    @Rule
+    public RunTestOnContext myRunTestOnContextRule = new RunTestOnContext();
+
+    private Storage myStorage;
+
+    private Path myRoot;
+
+    /**
+     * Sets up the tests.
+     *
+     * @throws IOException If the storage directory can't be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        myRoot = Files.createTempDirectory(FileSystemStorageTest.class.getSimpleName());
+        final JsonObject config = new JsonObject().put(Config.STORAGE_PATH, myRoot.toString());
+
+        myStorage = new FileSystemStorage(myRunTestOnContextRule.vertx(), config);
+    }
+
+    /**
+     * Tests that a stored object can be read back with its metadata.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testPutAndGet(final TestContext aContext) {
+        final Async async = aContext.async();
+
+        myStorage.put(KEY, Buffer.buffer(JSON), null, put -> {
+            aContext.assertTrue(put.succeeded());
+
+            myStorage.get(KEY, get -> {
+                final StoredObject object = get.result();
+
+                aContext.assertEquals(JSON, object.getContent().toString(StandardCharsets.UTF_8));
+                aContext.assertEquals(put.result().getETag(), object.getETag());
+                aContext.assertNotNull(object.getLastModified());
+                aContext.assertNull(object.getContentEncoding());
+
+                // The second read is served from the memory-mapped object
+                myStorage.get(KEY, getAgain -> {
+                    aContext.assertEquals(JSON, getAgain.result().getContent().toString(StandardCharsets.UTF_8));
+                    aContext.assertEquals(1L, myStorage.getStats().getJsonObject(Status.MAPPED)
+                            .getLong(Status.HITS));
+                    async.complete();
+                });
+            });
+        });
+    }
+
+    /**
+     * Tests that an object's content-coding is kept with it.
+     *
+     * @param aContext A test context
+     * @throws IOException If the test content can't be compressed
+     */
+    @Test
+    public final void testContentEncoding(final TestContext aContext) throws IOException {
+        final Buffer compressed = CompressionUtils.gzip(Buffer.buffer(JSON));
+        final Async async = aContext.async();
+
+        myStorage.put(KEY, compressed, CompressionUtils.GZIP, put -> {
+            myStorage.head(KEY, head -> {
+                aContext.assertEquals(CompressionUtils.GZIP, head.result().getContentEncoding());
+                aContext.assertEquals(put.result().getETag(), head.result().getETag());
+                async.complete();
+            });
+        });
+    }
+
+    /**
+     * Tests that replacing an object isn't hidden by the memory-mapped copy of the old one.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testReplace(final TestContext aContext) {
+        final String replacement = "{\"@id\":\"klmnopqrstuvwxyz\"}";
+        final Async async = aContext.async();
+
+        myStorage.put(KEY, Buffer.buffer(JSON), null, put -> {
+            myStorage.get(KEY, get -> {
+                myStorage.put(KEY, Buffer.buffer(replacement), null, replace -> {
+                    myStorage.get(KEY, getAgain -> {
+                        aContext.assertEquals(replacement,
+                                getAgain.result().getContent().toString(StandardCharsets.UTF_8));
+                        async.complete();
+                    });
+                });
+            });
+        });
+    }
+
+    /**
+     * Tests listing and deleting objects.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testListAndDelete(final TestContext aContext) {
+        final Async async = aContext.async();
+
+        myStorage.put(KEY, Buffer.buffer(JSON), null, put -> {
+            myStorage.list("works/", list -> {
+                aContext.assertEquals(1, list.result().getKeys().size());
+                aContext.assertEquals(KEY, list.result().getKeys().get(0));
+                aContext.assertFalse(list.result().isTruncated());
+
+                myStorage.delete(KEY, delete -> {
+                    aContext.assertTrue(delete.succeeded());
+
+                    myStorage.get(KEY, get -> {
+                        aContext.assertEquals(HTTP.NOT_FOUND, ((StorageException) get.cause()).getStatusCode());
+                        async.complete();
+                    });
+                });
+            });
+        });
+    }
+
+    /**
+     * Tests listing the keys that come after a key, a page at a time.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testListAfter(final TestContext aContext) {
+        final String otherKey = "works/ark:/21198/zz0009gv8k.json";
+        final Async async = aContext.async();
+
+        myStorage.put(otherKey, Buffer.buffer(JSON), null, putOther -> {
+            myStorage.put(KEY, Buffer.buffer(JSON), null, put -> {
+                myStorage.list("works/", KEY, list -> {
+                    aContext.assertEquals(1, list.result().getKeys().size());
+                    aContext.assertEquals(otherKey, list.result().getKeys().get(0));
+
+                    myStorage.list("works/", otherKey, lastList -> {
+                        aContext.assertTrue(lastList.result().getKeys().isEmpty());
+                        aContext.assertNull(lastList.result().getLastKey());
+                        async.complete();
+                    });
+                });
+            });
+        });
+    }
+
+    /**
+     * Tests that a listing's later pages pick up where its earlier pages left off, without walking the directory
+     * again, so an object that's added part way through the listing isn't seen until the next listing.
+     *
+     * @param aContext A test context
+     * @throws IOException If the test objects can't be written
+     */
+    @Test
+    public final void testListPages(final TestContext aContext) throws IOException {
+        final Path works = Files.createDirectories(myRoot.resolve("works"));
+        final String addedKey = "works/zzzzzzzzzz.json";
+        final Async async = aContext.async();
+
+        for (int index = 0; index <= 1000; index++) {
+            Files.writeString(works.resolve(String.format("%04d.json", index)), JSON);
+        }
+
+        myStorage.list("works/", firstPage -> {
+            aContext.assertEquals(1000, firstPage.result().getKeys().size());
+            aContext.assertTrue(firstPage.result().isTruncated());
+
+            try {
+                Files.writeString(myRoot.resolve(addedKey), JSON);
+            } catch (final IOException details) {
+                aContext.fail(details);
+            }
+
+            myStorage.list("works/", firstPage.result().getLastKey(), secondPage -> {
+                aContext.assertEquals(List.of("works/1000.json"), secondPage.result().getKeys());
+                aContext.assertFalse(secondPage.result().isTruncated());
+
+                myStorage.list("works/", secondPage.result().getLastKey(), nextListing -> {
+                    aContext.assertEquals(List.of(addedKey), nextListing.result().getKeys());
+                    async.complete();
+                });
+            });
+        });
+    }
+
+    /**
+     * Tests that keys can't reach outside of the storage directory.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testKeyOutsideOfRoot(final TestContext aContext) {
+        final Async async = aContext.async();
+
+        myStorage.get("../outside.json", get -> {
+            aContext.assertEquals(HTTP.BAD_REQUEST, ((StorageException) get.cause()).getStatusCode());
+            async.complete();
+        });
+    }
+}
@@ -0,0 +1,46 @@
+
+package edu.ucla.library.iiif.fester.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests of the S3 storage backend that don't need an S3 bucket.
+ */
+public class S3StorageTest {
+
+    private static final String LISTING = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><ListBucketResult " +
+            "xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\"><Name>iiif-fester</Name><Prefix>works/</Prefix>" +
+            "<Marker></Marker><MaxKeys>1000</MaxKeys><IsTruncated>{}</IsTruncated>" +
+            "<Contents><Key>works/ark:/21198/zz0009gsq9.json</Key><Size>1024</Size></Contents>" +
+            "<Contents><Key>works/ark:/21198/zz0009gv8j.json</Key><Size>2048</Size></Contents></ListBucketResult>";
+
+    /**
+     * Tests reading the keys and whether there are more from a truncated listing.
+     */
+    @Test
+    public final void testTruncatedKeyPage() {
+        final KeyPage page = S3Storage.getKeyPage(LISTING.replace("{}", "true"));
+
+        assertEquals(List.of("works/ark:/21198/zz0009gsq9.json", "works/ark:/21198/zz0009gv8j.json"),
+                page.getKeys());
+        assertEquals("works/ark:/21198/zz0009gv8j.json", page.getLastKey());
+        assertTrue(page.isTruncated());
+    }
+
+    /**
+     * Tests reading the last page of a listing.
+     */
+    @Test
+    public final void testLastKeyPage() {
+        final KeyPage page = S3Storage.getKeyPage(LISTING.replace("{}", "false"));
+
+        assertEquals(2, page.getKeys().size());
+        assertFalse(page.isTruncated());
+    }
+}
@@ -0,0 +1,61 @@
+
+package edu.ucla.library.iiif.fester.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import info.freelibrary.util.StringUtils;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Tests of CompressionUtils.
+ */
+public class CompressionUtilsTest {
+
+    private static final File MANIFEST = new File("src/test/resources/json/v2/ark%3A%2F21198%2Fzz0009gv8j.json");
+
+    /**
+     * Tests that a compressed manifest decompresses back to the original.
+     *
+     * @throws IOException If the test manifest can't be read
+     */
+    @Test
+    public final void testRoundTrip() throws IOException {
+        final Buffer manifest = Buffer.buffer(StringUtils.read(MANIFEST));
+        final Buffer compressed = CompressionUtils.gzip(manifest);
+
+        assertTrue(compressed.length() < manifest.length());
+        assertEquals(manifest, CompressionUtils.gunzip(compressed));
+    }
+
+    /**
+     * Tests recognizing gzip content-codings.
+     */
+    @Test
+    public final void testIsGzipped() {
+        assertTrue(CompressionUtils.isGzipped("gzip"));
+        assertTrue(CompressionUtils.isGzipped(" GZIP "));
+        assertFalse(CompressionUtils.isGzipped("identity"));
+        assertFalse(CompressionUtils.isGzipped(null));
+    }
+
+    /**
+     * Tests reading whether gzip is acceptable from an Accept-Encoding header.
+     */
+    @Test
+    public final void testAcceptsGzip() {
+        assertTrue(CompressionUtils.acceptsGzip("gzip, deflate, br"));
+        assertTrue(CompressionUtils.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(CompressionUtils.acceptsGzip("*"));
+        assertFalse(CompressionUtils.acceptsGzip("gzip;q=0"));
+        assertFalse(CompressionUtils.acceptsGzip("deflate, br"));
+        assertFalse(CompressionUtils.acceptsGzip(null));
+    }
+}
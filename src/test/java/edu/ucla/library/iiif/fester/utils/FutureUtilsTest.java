@@ -0,0 +1,90 @@
+
+package edu.ucla.library.iiif.fester.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+/**
+ * Tests of the future utilities.
+ */
+public class FutureUtilsTest {
+
+    /**
+     * Tests that results are returned in list order, even when their futures complete out of order, and that no more
+     * than the maximum number of futures are outstanding at once.
+     */
+    @Test
+    public final void testMapInOrder() {
+        final List<Promise<String>> promises = new ArrayList<>();
+        final Future<List<String>> future = FutureUtils.mapInOrder(Arrays.asList("a", "b", "c", "d"), 2, item -> {
+            final Promise<String> promise = Promise.promise();
+
+            promises.add(promise);
+            return promise.future().map(result -> item + result);
+        });
+
+        assertEquals(2, promises.size());
+
+        promises.get(1).complete("2");
+        assertEquals(3, promises.size());
+
+        promises.get(2).complete("3");
+        promises.get(0).complete("1");
+        assertEquals(4, promises.size());
+
+        assertFalse(future.isComplete());
+        promises.get(3).complete("4");
+
+        assertEquals(Arrays.asList("a1", "b2", "c3", "d4"), future.result());
+    }
+
+    /**
+     * Tests that the first failure fails the mapping and that no more items are mapped after it.
+     */
+    @Test
+    public final void testMapInOrderFailure() {
+        final List<Promise<String>> promises = new ArrayList<>();
+        final Future<List<String>> future = FutureUtils.mapInOrder(Arrays.asList("a", "b", "c"), 2, item -> {
+            final Promise<String> promise = Promise.promise();
+
+            promises.add(promise);
+            return promise.future();
+        });
+
+        promises.get(0).fail("failed");
+        promises.get(1).complete("b");
+
+        assertTrue(future.failed());
+        assertEquals(2, promises.size());
+    }
+
+    /**
+     * Tests that a long list of futures that have already completed doesn't grow the stack with each item.
+     */
+    @Test
+    public final void testMapInOrderCompleted() {
+        final List<Integer> list = Collections.nCopies(100000, 1);
+        final Future<List<Integer>> future = FutureUtils.mapInOrder(list, 8, Future::succeededFuture);
+
+        assertEquals(list, future.result());
+    }
+
+    /**
+     * Tests that an empty list is mapped to an empty list.
+     */
+    @Test
+    public final void testMapInOrderEmpty() {
+        assertTrue(FutureUtils.mapInOrder(Collections.emptyList(), 8, Future::succeededFuture).result().isEmpty());
+    }
+}
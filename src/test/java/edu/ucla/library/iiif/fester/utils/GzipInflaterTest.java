@@ -0,0 +1,137 @@
+
+package edu.ucla.library.iiif.fester.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipException;
+
+import org.junit.Test;
+
+import info.freelibrary.util.StringUtils;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Tests of GzipInflater.
+ */
+public class GzipInflaterTest {
+
+    private static final File MANIFEST = new File("src/test/resources/json/v2/ark%3A%2F21198%2Fzz0009gv8j.json");
+
+    /* The FHCRC, FEXTRA, FNAME, and FCOMMENT header flags */
+    private static final int ALL_FLAGS = 2 | 4 | 8 | 16;
+
+    /**
+     * Tests that a compressed manifest inflates back to the original, no matter where it's split into chunks.
+     *
+     * @throws IOException If the test manifest can't be read
+     */
+    @Test
+    public final void testInflateAcrossChunks() throws IOException {
+        final Buffer manifest = Buffer.buffer(StringUtils.read(MANIFEST));
+        final Buffer compressed = CompressionUtils.gzip(manifest);
+
+        for (int split = 0; split <= compressed.length(); split++) {
+            assertEquals(manifest, inflate(compressed, split));
+        }
+    }
+
+    /**
+     * Tests that the optional header fields are skipped, even when they arrive a byte at a time.
+     *
+     * @throws IOException If the test manifest can't be read
+     */
+    @Test
+    public final void testOptionalHeaderFields() throws IOException {
+        final Buffer manifest = Buffer.buffer(StringUtils.read(MANIFEST));
+        final Buffer compressed = CompressionUtils.gzip(manifest);
+        final Buffer withFields = Buffer.buffer().appendBuffer(compressed, 0, 3).appendByte((byte) ALL_FLAGS)
+                .appendBuffer(compressed, 4, 6).appendBytes(new byte[] { 2, 0, 'a', 'b' })
+                .appendString("manifest.json\0", StandardCharsets.ISO_8859_1.name())
+                .appendString("a comment\0", StandardCharsets.ISO_8859_1.name()).appendBytes(new byte[] { 0, 0 })
+                .appendBuffer(compressed, 10, compressed.length() - 10);
+
+        assertEquals(manifest, inflate(withFields, 1));
+    }
+
+    /**
+     * Tests that concatenated gzip members inflate to the concatenation of their contents.
+     *
+     * @throws IOException If the content can't be compressed
+     */
+    @Test
+    public final void testConcatenatedMembers() throws IOException {
+        final Buffer first = Buffer.buffer("{\"first\":");
+        final Buffer second = Buffer.buffer("\"second\"}");
+        final Buffer compressed = CompressionUtils.gzip(first).appendBuffer(CompressionUtils.gzip(second));
+
+        assertEquals(first.copy().appendBuffer(second), inflate(compressed, 7));
+    }
+
+    /**
+     * Tests that a gzip stream that's cut short is caught.
+     *
+     * @throws IOException If the stream is cut short
+     */
+    @Test(expected = ZipException.class)
+    public final void testTruncated() throws IOException {
+        final Buffer compressed = CompressionUtils.gzip(Buffer.buffer(StringUtils.read(MANIFEST)));
+
+        inflate(compressed.getBuffer(0, compressed.length() - 4), 0);
+    }
+
+    /**
+     * Tests that a gzip stream whose checksum doesn't match its content is caught.
+     *
+     * @throws IOException If the checksum doesn't match
+     */
+    @Test(expected = ZipException.class)
+    public final void testBadChecksum() throws IOException {
+        final Buffer compressed = CompressionUtils.gzip(Buffer.buffer(StringUtils.read(MANIFEST)));
+        final int checksumIndex = compressed.length() - 8;
+
+        compressed.setByte(checksumIndex, (byte) ~compressed.getByte(checksumIndex));
+        inflate(compressed, 0);
+    }
+
+    /**
+     * Tests that content that isn't gzip is caught.
+     *
+     * @throws IOException If the content isn't gzip
+     */
+    @Test(expected = ZipException.class)
+    public final void testNotGzip() throws IOException {
+        inflate(Buffer.buffer("{\"this\":\"is not gzipped\"}"), 0);
+    }
+
+    /**
+     * Inflates compressed content that's been split into chunks of the supplied size, or into two chunks at the
+     * supplied index if it's bigger than a byte.
+     *
+     * @param aCompressed Compressed content
+     * @param aSplit Where to split the content
+     * @return The inflated content
+     * @throws ZipException If the content can't be inflated
+     */
+    private Buffer inflate(final Buffer aCompressed, final int aSplit) throws ZipException {
+        final Buffer result = Buffer.buffer();
+
+        try (GzipInflater inflater = new GzipInflater()) {
+            if (aSplit == 1) {
+                for (int index = 0; index < aCompressed.length(); index++) {
+                    result.appendBuffer(inflater.inflate(aCompressed.getBuffer(index, index + 1)));
+                }
+            } else {
+                result.appendBuffer(inflater.inflate(aCompressed.getBuffer(0, aSplit)));
+                result.appendBuffer(inflater.inflate(aCompressed.getBuffer(aSplit, aCompressed.length())));
+            }
+
+            inflater.finish();
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,59 @@
+
+package edu.ucla.library.iiif.fester.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import info.freelibrary.util.StringUtils;
+
+import edu.ucla.library.iiif.fester.Constants;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Tests of PlaceholderRewriter.
+ */
+public class PlaceholderRewriterTest {
+
+    private static final String FESTER_URL = "https://iiif.library.ucla.edu";
+
+    private static final String TEMPLATE = "{\"@id\":\"{}/ark%3A%2F21198%2Fzz0009gv8j/manifest\",\"within\":\"{}\"}";
+
+    /**
+     * Tests that every placeholder is replaced, no matter where the stream is split into chunks.
+     */
+    @Test
+    public final void testRewriteAcrossChunks() {
+        final String source = StringUtils.format(TEMPLATE, Constants.URL_PLACEHOLDER, Constants.URL_PLACEHOLDER);
+        final String expected = StringUtils.format(TEMPLATE, FESTER_URL, FESTER_URL);
+        final byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+
+        for (int split = 0; split <= bytes.length; split++) {
+            final PlaceholderRewriter rewriter = new PlaceholderRewriter(Constants.URL_PLACEHOLDER, FESTER_URL);
+            final Buffer result = Buffer.buffer();
+
+            result.appendBuffer(rewriter.rewrite(Buffer.buffer().appendBytes(bytes, 0, split)));
+            result.appendBuffer(rewriter.rewrite(Buffer.buffer().appendBytes(bytes, split, bytes.length - split)));
+            result.appendBuffer(rewriter.flush());
+
+            assertEquals(expected, result.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Tests that a partial match at the end of the stream is written out unchanged.
+     */
+    @Test
+    public final void testPartialMatchAtEnd() {
+        final PlaceholderRewriter rewriter = new PlaceholderRewriter("abcabd", "X");
+        final Buffer result = Buffer.buffer();
+
+        result.appendBuffer(rewriter.rewrite(Buffer.buffer("aabcabcabdab")));
+        result.appendBuffer(rewriter.flush());
+
+        assertEquals("aabcXab", result.toString(StandardCharsets.UTF_8));
+    }
+}
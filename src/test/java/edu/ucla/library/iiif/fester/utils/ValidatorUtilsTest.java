@@ -0,0 +1,62 @@
+
+package edu.ucla.library.iiif.fester.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests of ValidatorUtils.
+ */
+public class ValidatorUtilsTest {
+
+    private static final String ETAG = "\"9b2cf535f27731c974343645a3985328\"";
+
+    private static final String OTHER_ETAG = "\"a1b2c3d4e5f60718293a4b5c6d7e8f90\"";
+
+    private static final String LAST_MODIFIED = "Tue, 15 Nov 1994 12:45:26 GMT";
+
+    private static final String EARLIER = "Mon, 14 Nov 1994 12:45:26 GMT";
+
+    /**
+     * Tests that a matching ETag means the resource isn't modified.
+     */
+    @Test
+    public final void testMatchingETag() {
+        assertTrue(ValidatorUtils.isNotModified(ETAG, LAST_MODIFIED, ETAG, null));
+        assertTrue(ValidatorUtils.isNotModified(ETAG, LAST_MODIFIED, OTHER_ETAG + ", W/" + ETAG, null));
+        assertTrue(ValidatorUtils.isNotModified(ETAG, LAST_MODIFIED, "*", null));
+    }
+
+    /**
+     * Tests that a different ETag means the resource is modified, even if the date would say otherwise.
+     */
+    @Test
+    public final void testMismatchedETag() {
+        assertFalse(ValidatorUtils.isNotModified(ETAG, LAST_MODIFIED, OTHER_ETAG, LAST_MODIFIED));
+        assertFalse(ValidatorUtils.isNotModified(null, LAST_MODIFIED, OTHER_ETAG, null));
+    }
+
+    /**
+     * Tests If-Modified-Since comparisons.
+     */
+    @Test
+    public final void testIfModifiedSince() {
+        assertTrue(ValidatorUtils.isNotModified(ETAG, LAST_MODIFIED, null, LAST_MODIFIED));
+        assertFalse(ValidatorUtils.isNotModified(ETAG, LAST_MODIFIED, null, EARLIER));
+        assertFalse(ValidatorUtils.isNotModified(ETAG, LAST_MODIFIED, null, "yesterday"));
+        assertFalse(ValidatorUtils.isNotModified(ETAG, null, null, LAST_MODIFIED));
+    }
+
+    /**
+     * Tests that ETags are made weak, but only once.
+     */
+    @Test
+    public final void testToWeak() {
+        assertEquals("W/" + ETAG, ValidatorUtils.toWeak(ETAG));
+        assertEquals("W/" + ETAG, ValidatorUtils.toWeak("W/" + ETAG));
+        assertTrue(ValidatorUtils.isNotModified(ETAG, LAST_MODIFIED, ValidatorUtils.toWeak(ETAG), null));
+    }
+}
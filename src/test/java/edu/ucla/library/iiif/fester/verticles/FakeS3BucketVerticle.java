@@ -88,6 +88,12 @@ public class FakeS3BucketVerticle extends AbstractFesterVerticle {
                     manifest = body.getJsonObject(Constants.DATA);
                     put(IDUtils.getCollectionS3Key(manifestID), manifest, message);
                     break;
+                case Op.INVALIDATE_MANIFEST:
+                    message.reply(Op.SUCCESS); // We don't cache anything so there's nothing to invalidate
+                    break;
+                case Op.GET_STATUS:
+                    message.reply(new JsonObject());
+                    break;
                 default:
                     final String name = this.getClass().toString();
                     final String error = StringUtils.format(MessageCodes.MFS_139, name, message.toString(), action);
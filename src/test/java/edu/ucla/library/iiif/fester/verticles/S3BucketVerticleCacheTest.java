@@ -0,0 +1,168 @@
+
+package edu.ucla.library.iiif.fester.verticles;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import edu.ucla.library.iiif.fester.Config;
+import edu.ucla.library.iiif.fester.Constants;
+import edu.ucla.library.iiif.fester.HTTP;
+import edu.ucla.library.iiif.fester.Op;
+import edu.ucla.library.iiif.fester.storage.FileSystemStorage;
+import edu.ucla.library.iiif.fester.utils.IDUtils;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.RunTestOnContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Tests of the S3 bucket verticle's answers to requests that are streamed if it doesn't have what they want in
+ * memory. These use the file system storage backend, so they don't need an S3 bucket.
+ */
+@RunWith(VertxUnitRunner.class)
+public class S3BucketVerticleCacheTest {
+
+    private static final String MANIFEST_PATH = "src/test/resources/json/v2/testManifest.json";
+
+    private static final String URL = "http://localhost:8888";
+
+    @Rule
+    public RunTestOnContext myRunTestOnContextRule = new RunTestOnContext();
+
+    private String myManifestID;
+
+    /**
+     * Deploys an S3 bucket verticle with an empty file system storage backend.
+     *
+     * @param aContext A test context
+     * @throws IOException If the storage directory can't be created
+     */
+    @Before
+    public void setUp(final TestContext aContext) throws IOException {
+        final String root = Files.createTempDirectory(S3BucketVerticleCacheTest.class.getSimpleName()).toString();
+        final JsonObject config = new JsonObject().put(Config.STORAGE, FileSystemStorage.NAME)
+                .put(Config.STORAGE_PATH, root).put(Config.FESTER_URL, URL);
+
+        myManifestID = UUID.randomUUID().toString();
+
+        myRunTestOnContextRule.vertx().deployVerticle(S3BucketVerticle.class.getName(),
+                new DeploymentOptions().setConfig(config), aContext.asyncAssertSuccess());
+    }
+
+    /**
+     * Tests that a manifest that isn't in memory is left for the requester to stream, and that it's remembered as
+     * missing once the requester finds it isn't there.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testStreamedNotFound(final TestContext aContext) {
+        final Async async = aContext.async();
+
+        getCached().compose(miss -> {
+            final String writeCount = miss.headers().get(Constants.NOT_CACHED);
+
+            aContext.assertNotNull(writeCount);
+            recordNotFound(writeCount);
+
+            return getCached();
+        }).onComplete(get -> {
+            aContext.assertTrue(get.failed());
+            aContext.assertEquals(HTTP.NOT_FOUND, ((ReplyException) get.cause()).failureCode());
+            async.complete();
+        });
+    }
+
+    /**
+     * Tests that a streamed miss isn't remembered if the manifest has been written since, and that the written
+     * manifest is then served from memory.
+     *
+     * @param aContext A test context
+     */
+    @Test
+    public final void testStreamedNotFoundAfterWrite(final TestContext aContext) {
+        final Vertx vertx = myRunTestOnContextRule.vertx();
+        final JsonObject manifest = vertx.fileSystem().readFileBlocking(MANIFEST_PATH).toJsonObject()
+                .put(Constants.ID_V2, IDUtils.getResourceURI(URL, IDUtils.getWorkS3Key(myManifestID)).toString());
+        final Async async = aContext.async();
+
+        getCached().compose(miss -> {
+            final String writeCount = miss.headers().get(Constants.NOT_CACHED);
+
+            return putManifest(manifest).map(writeCount);
+        }).compose(writeCount -> {
+            recordNotFound(writeCount);
+            return getCached();
+        }).onComplete(get -> {
+            if (get.failed()) {
+                aContext.fail(get.cause());
+            } else {
+                aContext.assertFalse(get.result().headers().contains(Constants.NOT_CACHED));
+                aContext.assertEquals(manifest.getString(Constants.ID_V2),
+                        get.result().body().getString(Constants.ID_V2));
+                async.complete();
+            }
+        });
+    }
+
+    /**
+     * Asks the S3 bucket verticle for the test manifest, but only if it has it in memory.
+     *
+     * @return A future reply
+     */
+    private Future<Message<JsonObject>> getCached() {
+        final Promise<Message<JsonObject>> promise = Promise.promise();
+        final DeliveryOptions options = new DeliveryOptions().addHeader(Constants.ACTION, Op.GET_MANIFEST)
+                .addHeader(Constants.CACHED_ONLY, Boolean.TRUE.toString());
+        final JsonObject message = new JsonObject().put(Constants.MANIFEST_ID, myManifestID);
+
+        myRunTestOnContextRule.vertx().eventBus().request(S3BucketVerticle.class.getName(), message, options,
+                promise);
+        return promise.future();
+    }
+
+    /**
+     * Tells the S3 bucket verticle that the test manifest was streamed and wasn't found.
+     *
+     * @param aWriteCount The S3 bucket verticle's write count when it was asked for the manifest
+     */
+    private void recordNotFound(final String aWriteCount) {
+        final DeliveryOptions options = new DeliveryOptions().addHeader(Constants.ACTION, Op.RECORD_NOT_FOUND)
+                .addHeader(Constants.NOT_CACHED, aWriteCount);
+        final JsonObject message = new JsonObject().put(Constants.MANIFEST_ID, myManifestID);
+
+        myRunTestOnContextRule.vertx().eventBus().send(S3BucketVerticle.class.getName(), message, options);
+    }
+
+    /**
+     * Puts the test manifest in storage.
+     *
+     * @param aManifest A manifest
+     * @return A future reply
+     */
+    private Future<Message<Object>> putManifest(final JsonObject aManifest) {
+        final Promise<Message<Object>> promise = Promise.promise();
+        final DeliveryOptions options = new DeliveryOptions().addHeader(Constants.ACTION, Op.PUT_MANIFEST);
+        final JsonObject message = new JsonObject().put(Constants.MANIFEST_ID, myManifestID)
+                .put(Constants.DATA, aManifest);
+
+        myRunTestOnContextRule.vertx().eventBus().request(S3BucketVerticle.class.getName(), message, options,
+                promise);
+        return promise.future();
+    }
+}